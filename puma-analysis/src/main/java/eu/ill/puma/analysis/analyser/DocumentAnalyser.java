@@ -128,6 +128,16 @@ public abstract class DocumentAnalyser {
 
 	public abstract void destroyAnalyser();
 
+	/**
+	 * Determines if the analysis is CPU-bound (eg parsing files) rather than waiting on external resources. CPU-bound
+	 * analysers run on the work-stealing COMPUTE lane, where they can split their work with SubTasks.
+	 *
+	 * @return true if the analyser is CPU-bound
+	 */
+	public boolean isCpuBound() {
+		return false;
+	}
+
 	public boolean isBusy() {
 		return busy;
 	}
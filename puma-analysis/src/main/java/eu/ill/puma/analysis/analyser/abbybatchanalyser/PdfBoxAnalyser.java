@@ -26,6 +26,7 @@ import eu.ill.puma.core.domain.document.enumeration.BaseFileType;
 import eu.ill.puma.persistence.domain.document.DocumentVersion;
 import eu.ill.puma.persistence.domain.document.PumaFile;
 import eu.ill.puma.persistence.util.PumaFileUtil;
+import eu.ill.puma.taskmanager.SubTasks;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.io.RandomAccessBuffer;
@@ -38,7 +39,10 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
 /**
  * Created by letreguilly on 25/07/17.
@@ -56,22 +60,52 @@ public class PdfBoxAnalyser {
 		AnalyserResponse response = new AnalyserResponse();
 		response.setBaseDocument(baseDocument);
 
+		// Extract the text of each PDF in a sub-task (run in parallel on the work-stealing lane)
+		List<Callable<AnalyserResponse>> fileAnalyses = new ArrayList<>();
 		for (PumaFile pumaFile : PumaFileUtil.getFilesOfType(document, "application/pdf")) {
-			try {
-				this.extractFullText(baseDocument, document.getId(), pumaFile);
-				this.setPageNumber(baseDocument, pumaFile);
-			} catch (IOException ex) {
-				log.error("Pdf to text io error on file : " + pumaFile.getFilePath(), ex);
-
-				response.setSuccessful(false);
-				response.setMessage("Pdf to text io error on file : " + pumaFile.getFilePath() + " : " + ex.getMessage());
+			fileAnalyses.add(() -> this.analyseFile(document, pumaFile));
+		}
 
-			} catch (Exception ex) {
-				log.error("Caught exception : " + ex.getMessage(), ex);
+		try {
+			for (AnalyserResponse fileResponse : SubTasks.invokeAll(fileAnalyses)) {
+				baseDocument.getFiles().addAll(fileResponse.getBaseDocument().getFiles());
 
-				response.setSuccessful(false);
-				response.setMessage("Caught exception : " + ex.getMessage());
+				if (!fileResponse.isSuccessful()) {
+					response.setSuccessful(false);
+					response.setMessage(fileResponse.getMessage());
+				}
 			}
+
+		} catch (Exception ex) {
+			log.error("Caught exception : " + ex.getMessage(), ex);
+
+			response.setSuccessful(false);
+			response.setMessage("Caught exception : " + ex.getMessage());
+		}
+
+		return response;
+	}
+
+	private AnalyserResponse analyseFile(DocumentVersion document, PumaFile pumaFile) {
+		BaseDocument baseDocument = new BaseDocument();
+
+		AnalyserResponse response = new AnalyserResponse();
+		response.setBaseDocument(baseDocument);
+
+		try {
+			this.extractFullText(baseDocument, document.getId(), pumaFile);
+			this.setPageNumber(baseDocument, pumaFile);
+		} catch (IOException ex) {
+			log.error("Pdf to text io error on file : " + pumaFile.getFilePath(), ex);
+
+			response.setSuccessful(false);
+			response.setMessage("Pdf to text io error on file : " + pumaFile.getFilePath() + " : " + ex.getMessage());
+
+		} catch (Exception ex) {
+			log.error("Caught exception : " + ex.getMessage(), ex);
+
+			response.setSuccessful(false);
+			response.setMessage("Caught exception : " + ex.getMessage());
 		}
 
 		return response;
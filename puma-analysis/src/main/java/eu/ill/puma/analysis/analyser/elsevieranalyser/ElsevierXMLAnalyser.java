@@ -36,6 +36,7 @@ import eu.ill.puma.persistence.domain.document.DocumentVersion;
 import eu.ill.puma.persistence.domain.document.PumaFile;
 import eu.ill.puma.persistence.domain.document.enumeration.PumaFileType;
 import eu.ill.puma.persistence.util.PumaFileUtil;
+import eu.ill.puma.taskmanager.SubTasks;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +58,7 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 @Analyser(name = "elsevierxml", maxInstances = 1, produces = {EntityType.FULL_TEXT})
 public class ElsevierXMLAnalyser extends DocumentAnalyser {
@@ -78,60 +80,84 @@ public class ElsevierXMLAnalyser extends DocumentAnalyser {
 	@Override
 	protected AnalyserResponse doAnalyse(DocumentVersion document) throws AnalysisException {
 		// Get XML files
-		List<PumaFileType> pumaFileTypeList = new ArrayList();
-		pumaFileTypeList.add(PumaFileType.PUBLICATION);
 		List<PumaFile> filesToAnalyse = PumaFileUtil.getFilesOfType(document, PumaFileType.PUBLICATION, PumaFile.XML_MIME_TYPE);
 
-		// Create xpath
-		XPath xPath = XPathFactory.newInstance().newXPath();
-
 		//response
 		BaseDocument baseDocumentWithFullText = new BaseDocument();
 		AnalyserResponse response = new AnalyserResponse();
 		response.setBaseDocument(baseDocumentWithFullText);
 
-		BaseDocument dummyBaseDocument = new BaseDocument();
-
-		//file loop
+		// One sub-task per file, run in parallel on the work-stealing lane
+		List<Callable<AnalyserResponse>> fileAnalyses = new ArrayList<>();
 		for (PumaFile pumaFile : filesToAnalyse) {
-			// Convert binary data to string
-			String xmlData = new String(pumaFile.getData());
+			fileAnalyses.add(() -> this.analyseFile(document, pumaFile));
+		}
 
-			try {
-				//get document
-				Document xml = this.parseXML(xmlData);
+		try {
+			for (AnalyserResponse fileResponse : SubTasks.invokeAll(fileAnalyses)) {
+				// Set full text file only in baseDocument to return
+				fileResponse.getBaseDocument().getFiles().forEach(file -> baseDocumentWithFullText.addFile(file));
 
-				//get root
-				Element root = xml.getDocumentElement();
+				if (!fileResponse.isSuccessful()) {
+					response.setSuccessful(false);
+					response.setMessage(fileResponse.getMessage());
+				}
+			}
 
-				if (this.isElsevierXml(xPath, root)) {
+		} catch (Exception ex) {
+			throw new AnalysisException(ex.getMessage());
+		}
 
-					//parse document
-					this.parseTitle(dummyBaseDocument, xPath, root);
-					this.parseAbstract(dummyBaseDocument, xPath, root);
-					this.parseKeywords(dummyBaseDocument, xPath, root);
-					this.parseReferences(dummyBaseDocument, xPath, root);
-					this.parseLaboratoriesAndPersons(dummyBaseDocument, xPath, root);
-					this.parseFullText(dummyBaseDocument, xPath, root);
+		return response;
+	}
 
-					// Set full text file only in baseDocument to return
-					dummyBaseDocument.getFiles().forEach(file -> baseDocumentWithFullText.addFile(file));
+	private AnalyserResponse analyseFile(DocumentVersion document, PumaFile pumaFile) {
+		// Create xpath (not thread safe)
+		XPath xPath = XPathFactory.newInstance().newXPath();
 
-				} else {
-					log.info("XML file " + document.getId() + " is not from elsevier");
-				}
+		BaseDocument dummyBaseDocument = new BaseDocument();
+		AnalyserResponse response = new AnalyserResponse();
+		response.setBaseDocument(dummyBaseDocument);
+
+		// Convert binary data to string
+		String xmlData = new String(pumaFile.getData());
+
+		try {
+			//get document
+			Document xml = this.parseXML(xmlData);
+
+			//get root
+			Element root = xml.getDocumentElement();
+
+			if (this.isElsevierXml(xPath, root)) {
 
-			} catch (ParserConfigurationException | SAXException | IOException | XPathExpressionException ex) {
-				log.error("Failed to parse XML file document version " + document.getId() + " : " + ex.getMessage(), ex);
+				//parse document
+				this.parseTitle(dummyBaseDocument, xPath, root);
+				this.parseAbstract(dummyBaseDocument, xPath, root);
+				this.parseKeywords(dummyBaseDocument, xPath, root);
+				this.parseReferences(dummyBaseDocument, xPath, root);
+				this.parseLaboratoriesAndPersons(dummyBaseDocument, xPath, root);
+				this.parseFullText(dummyBaseDocument, xPath, root);
 
-				response.setSuccessful(false);
-				response.setMessage(ex.getMessage());
+			} else {
+				log.info("XML file " + document.getId() + " is not from elsevier");
 			}
+
+		} catch (ParserConfigurationException | SAXException | IOException | XPathExpressionException ex) {
+			log.error("Failed to parse XML file document version " + document.getId() + " : " + ex.getMessage(), ex);
+
+			response.setSuccessful(false);
+			response.setMessage(ex.getMessage());
 		}
 
 		return response;
 	}
 
+	@Override
+	public boolean isCpuBound() {
+		return true;
+	}
+
 	@Override
 	protected boolean prepareAnalyser() {
 		return true;
@@ -31,7 +31,10 @@ import eu.ill.puma.persistence.service.converterV2.DocumentConverter;
 import eu.ill.puma.persistence.service.document.DocumentVersionService;
 import eu.ill.puma.taskmanager.Task;
 import eu.ill.puma.taskmanager.TaskCompletionHandler;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskManager;
+import eu.ill.puma.taskmanager.pipeline.DocumentPipeline;
+import eu.ill.puma.taskmanager.pipeline.PipelineStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,6 +49,9 @@ public class AnalyserManager implements TaskCompletionHandler {
 
 	private static final Logger log = LoggerFactory.getLogger(AnalyserManager.class);
 
+	// Maximum number of documents from the document pipeline waiting to be analysed : the others are read back from the database
+	private static final int MAX_QUEUED_DOCUMENTS = 1000;
+
 	@Autowired
 	private AnalyserFactory analyserFactory;
 
@@ -64,6 +70,9 @@ public class AnalyserManager implements TaskCompletionHandler {
 	@Autowired
 	private TaskManager taskManager;
 
+	@Autowired
+	private DocumentPipeline documentPipeline;
+
 
 	private AnalysisCalculator analysisCalculator;
 	private String analyserSetup;
@@ -73,12 +82,20 @@ public class AnalyserManager implements TaskCompletionHandler {
 	private Deque<Long> documentIdsToAnalyse = new ArrayDeque<>();
 	private int maxNumberOfConcurrentTasks = 0;
 
+	// Activation of the documents pending analysis : id of the last document version read from the database (null
+	// when not activating) and number of documents still to start (null for all)
+	private Long lastActivatedDocumentVersionId = null;
+	private Integer numberOfAnalysisToActivate = null;
+
 
 	@PostConstruct
 	public void init() {
 		this.analyserSetup = this.analyserFactory.getAnalyserSetup();
 		this.analysisCalculator = new AnalysisCalculator(this.analyserFactory);
-		this.maxNumberOfConcurrentTasks = this.taskManager.getPoolSize();
+		this.maxNumberOfConcurrentTasks = this.taskManager.getPoolSize(TaskLane.ANALYSIS);
+
+		// Analyse documents as soon as their files have been downloaded
+		this.documentPipeline.addStageHandler(PipelineStage.FILES_SAVED, this::addDocumentVersionsFromPipeline);
 	}
 
 	public synchronized void performAnalysis(DocumentVersion documentVersion) {
@@ -177,15 +194,65 @@ public class AnalyserManager implements TaskCompletionHandler {
 		}
 	}
 
-	public void activatePendingAnalysis(Integer maxNumberToAnalyse) {
-		// Get next group of docs to analyse, including the number currently active so that we are sure to obtain some new docs
-		int numberOfActiveAnalysis = this.activeAnalysis.size();
-		List<Long> documentIdsPendingAnalysis = this.analysisStateService.getNextDocumentVersionIdsRequiringAnalysis(this.analyserSetup, (maxNumberToAnalyse == null ? 0 : maxNumberToAnalyse) + numberOfActiveAnalysis);
+	/**
+	 * Starts the analysis of the documents requiring one. The documents are read from the database a group at a time,
+	 * each group being no larger than the number of analysis that can be started.
+	 * @param maxNumberToAnalyse The maximum number of documents to analyse (null for all)
+	 */
+	public synchronized void activatePendingAnalysis(Integer maxNumberToAnalyse) {
+		log.info("Activating analysis of " + (maxNumberToAnalyse == null ? "all" : maxNumberToAnalyse) + " documents pending analysis");
 
-		this.addDocumentVersionsToAnalyse(documentIdsPendingAnalysis, maxNumberToAnalyse);
+		this.lastActivatedDocumentVersionId = 0L;
+		this.numberOfAnalysisToActivate = maxNumberToAnalyse;
+
+		// Start next analysis if we can
+		this.initiateNextAnalysis();
 	}
 
-	public void addDocumentVersionsToAnalyse(List<Long> documentVersionIds, Integer maxNumberToAnalyse) {
+	private boolean activateNextPendingAnalysis() {
+		if (this.lastActivatedDocumentVersionId == null) {
+			return false;
+		}
+
+		int groupSize = this.maxNumberOfConcurrentTasks - this.activeAnalysis.size();
+		if (this.numberOfAnalysisToActivate != null) {
+			groupSize = Math.min(groupSize, this.numberOfAnalysisToActivate);
+		}
+
+		List<Long> documentIdsPendingAnalysis = groupSize > 0 ? this.analysisStateService.getNextDocumentVersionIdsRequiringAnalysisAfter(this.analyserSetup, this.lastActivatedDocumentVersionId, groupSize) : Collections.emptyList();
+		if (documentIdsPendingAnalysis.isEmpty()) {
+			log.info("Documents pending analysis have all been started");
+			this.lastActivatedDocumentVersionId = null;
+
+			return false;
+		}
+
+		this.lastActivatedDocumentVersionId = documentIdsPendingAnalysis.get(documentIdsPendingAnalysis.size() - 1);
+
+		// Cleanup duplicates (currently active)
+		List<Long> uniqueDocumentsPendingAnalysis = this.removeActiveAnalysis(documentIdsPendingAnalysis);
+		this.documentIdsToAnalyse.addAll(uniqueDocumentsPendingAnalysis);
+
+		if (this.numberOfAnalysisToActivate != null) {
+			this.numberOfAnalysisToActivate -= uniqueDocumentsPendingAnalysis.size();
+		}
+
+		return true;
+	}
+
+	private synchronized void addDocumentVersionsFromPipeline(List<Long> documentVersionIds) {
+		int numberToQueue = Math.min(documentVersionIds.size(), Math.max(0, MAX_QUEUED_DOCUMENTS - this.documentIdsToAnalyse.size()));
+		if (numberToQueue < documentVersionIds.size()) {
+			// Too many documents waiting : the remaining ones are read back from the database once the queue has emptied
+			Long firstDocumentVersionId = Collections.min(documentVersionIds.subList(numberToQueue, documentVersionIds.size()));
+			this.lastActivatedDocumentVersionId = Math.min(this.lastActivatedDocumentVersionId == null ? Long.MAX_VALUE : this.lastActivatedDocumentVersionId, firstDocumentVersionId - 1);
+			this.numberOfAnalysisToActivate = null;
+		}
+
+		this.addDocumentVersionsToAnalyse(documentVersionIds.subList(0, numberToQueue), null);
+	}
+
+	public synchronized void addDocumentVersionsToAnalyse(List<Long> documentVersionIds, Integer maxNumberToAnalyse) {
 		// Cleanup duplicates (currently active)
 		List<Long> uniqueDocumentsPendingAnalysis = this.removeActiveAnalysis(documentVersionIds);
 
@@ -218,7 +285,16 @@ public class AnalyserManager implements TaskCompletionHandler {
 	}
 
 	private void initiateNextAnalysis() {
-		while (this.documentIdsToAnalyse.size() > 0 && this.activeAnalysis.size() < this.maxNumberOfConcurrentTasks) {
+		while (this.activeAnalysis.size() < this.maxNumberOfConcurrentTasks) {
+			// Read the next documents pending analysis from the database once the queued ones have been started
+			if (this.documentIdsToAnalyse.isEmpty() && !this.activateNextPendingAnalysis()) {
+				return;
+			}
+
+			if (this.documentIdsToAnalyse.isEmpty()) {
+				continue;
+			}
+
 			// get next document Id to analyse
 			Long documentVersionId = this.documentIdsToAnalyse.removeFirst();
 
@@ -271,6 +347,10 @@ public class AnalyserManager implements TaskCompletionHandler {
 		// Save analysis state as it can be updated by the calculator
 		this.analysisStateService.save(analysisState);
 
+		if (documentAnalyserName == null) {
+			this.onAnalysisTerminated(documentVersion);
+		}
+
 		return documentAnalyser;
 	}
 
@@ -323,6 +403,8 @@ public class AnalyserManager implements TaskCompletionHandler {
 				// Save a fail state for the analyser in the history
 				DocumentVersionAnalysisHistory history = AnalysisUtils.createFailedAnalysisHistory(documentVersion, analyser, response.getMessage(), task.getDurationInMillis());
 				this.analysisHistoryService.save(history);
+
+				this.onAnalysisTerminated(documentVersion);
 			}
 		} catch (Exception exception) {
 			log.error("Error integrating response from analysis task : analyser = \"" + analyser.getName() + "\" document id = " + documentVersion.getId() + " : " + exception.getMessage(), exception);
@@ -330,6 +412,8 @@ public class AnalyserManager implements TaskCompletionHandler {
 			// Save a fail state for the analyser in the history
 			DocumentVersionAnalysisHistory history = AnalysisUtils.createFailedAnalysisHistory(documentVersion, analyser, exception.getMessage(), task.getDurationInMillis());
 			this.analysisHistoryService.save(history);
+
+			this.onAnalysisTerminated(documentVersion);
 		}
 
 		// Initiate any analysis if needed
@@ -356,10 +440,21 @@ public class AnalyserManager implements TaskCompletionHandler {
 		// Remove task from active analysis
 		this.removeActiveTask(analysisTask);
 
+		this.onAnalysisTerminated(documentVersion);
+
 		// Initiate any analysis if needed
 		this.initiateNextAnalysis();
 	}
 
+	/**
+	 * Passes a document to the next stage of the document pipeline (indexation) once no further analysis will be
+	 * performed on it
+	 * @param documentVersion The document version
+	 */
+	private void onAnalysisTerminated(DocumentVersion documentVersion) {
+		this.documentPipeline.onStageCompleted(PipelineStage.ANALYSED, documentVersion.getId());
+	}
+
 	public synchronized List<DocumentVersion> getActiveAnalysis() {
 		return this.activeAnalysis.values().stream().map(task -> task.getDocumentVersion()).collect(Collectors.toList());
 	}
@@ -17,8 +17,11 @@ package eu.ill.puma.analysis.task;
 
 import eu.ill.puma.analysis.manager.AnalyserManager;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class ActivatePendingAnalysisTask extends Task<Integer>  {
 
 	private AnalyserManager analyserManager;
@@ -40,4 +43,9 @@ public class ActivatePendingAnalysisTask extends Task<Integer>  {
 	public Integer getMaxNumberToAnalyse() {
 		return this.maxNumberToAnalyse;
 	}
+
+	@Override
+	public String getCoalescingKey() {
+		return "activate-pending-analysis:" + this.maxNumberToAnalyse;
+	}
 }
@@ -19,10 +19,17 @@ import eu.ill.puma.core.domain.analysis.AnalyserResponse;
 import eu.ill.puma.analysis.analyser.DocumentAnalyser;
 import eu.ill.puma.persistence.domain.document.DocumentVersion;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+import eu.ill.puma.taskmanager.annotation.ExecutionTimeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
+@ExecutionLane(TaskLane.ANALYSIS)
+@ExecutionTimeout(value = 30, unit = TimeUnit.MINUTES)
 public class AnalysisTask extends Task<AnalyserResponse> {
 
 	private static final Logger log = LoggerFactory.getLogger(AnalysisTask.class);
@@ -34,6 +41,9 @@ public class AnalysisTask extends Task<AnalyserResponse> {
 		this.documentVersion = documentVersion;
 		this.analyser = analyser;
 		this.setPriority(TaskPriority.LOW);
+
+		// Trace the analysis in the lifecycle of the document
+		this.getTraceContext().addDocumentVersion(documentVersion.getId());
 	}
 
 	@Override
@@ -46,6 +56,11 @@ public class AnalysisTask extends Task<AnalyserResponse> {
 		return response;
 	}
 
+	@Override
+	public TaskLane getLane() {
+		return this.analyser.isCpuBound() ? TaskLane.COMPUTE : super.getLane();
+	}
+
 	public DocumentVersion getDocumentVersion() {
 		return documentVersion;
 	}
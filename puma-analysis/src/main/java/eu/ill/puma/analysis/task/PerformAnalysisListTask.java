@@ -17,10 +17,13 @@ package eu.ill.puma.analysis.task;
 
 import eu.ill.puma.analysis.manager.AnalyserManager;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
 import java.util.List;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class PerformAnalysisListTask extends Task<List<Long>>  {
 
 	private AnalyserManager analyserManager;
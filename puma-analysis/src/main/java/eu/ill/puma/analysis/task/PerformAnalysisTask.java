@@ -18,8 +18,11 @@ package eu.ill.puma.analysis.task;
 import eu.ill.puma.analysis.manager.AnalyserManager;
 import eu.ill.puma.persistence.domain.document.DocumentVersion;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class PerformAnalysisTask extends Task<DocumentVersion>  {
 
 	private AnalyserManager analyserManager;
@@ -16,6 +16,10 @@
 package eu.ill.puma.taskmanager;
 
 import eu.ill.puma.core.error.PumaError;
+import eu.ill.puma.taskmanager.journal.TaskJournalEntry;
+
+import java.util.Collections;
+import java.util.List;
 
 //@Component
 public class TaskManager {
@@ -47,14 +51,59 @@ public class TaskManager {
 		}
 	}
 
+	public boolean tryExecuteTask(Task task, TaskCompletionHandler taskCompletionHandler) {
+		this.executeTask(task, taskCompletionHandler);
+
+		return true;
+	}
+
+	public void whenCapacityAvailable(TaskLane lane, Runnable callback) {
+		callback.run();
+	}
+
+	public int getRemainingCapacity(TaskLane lane) {
+		return Integer.MAX_VALUE;
+	}
+
+	public void executeTaskAfter(Task task, long delayMillis, TaskCompletionHandler taskCompletionHandler) {
+		this.executeTask(task, taskCompletionHandler);
+	}
+
+	public long retryTaskWithBackoff(Task task, TaskBackoffPolicy backoffPolicy, TaskCompletionHandler taskCompletionHandler) {
+		long delayMillis = backoffPolicy.getDelayMillis(task.onRetry());
+		this.executeTaskAfter(task, delayMillis, taskCompletionHandler);
+
+		return delayMillis;
+	}
+
 	public void cancelTask(Task task) {
 
 	}
 
+	public boolean isTaskJournalRecovered() {
+		return false;
+	}
+
+	public List<TaskJournalEntry> takeRecoveredTasks(String type) {
+		return Collections.emptyList();
+	}
+
+	public void recordHeldTask(Task task) {
+
+	}
+
+	public void releaseHeldTask(Task task) {
+
+	}
+
 	public int getPoolSize() {
 		return 1;
 	}
 
+	public int getPoolSize(TaskLane lane) {
+		return 1;
+	}
+
 	public void disable() {
 		this.isActive = false;
 	}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Task executed by the benchmarks. The task counts down a latch when it has run so that a benchmark can wait for a
+ * batch of tasks without registering a completion handler.
+ */
+public class BenchmarkTask extends Task<Long> {
+
+	private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long SPIN_TOKENS = 10000;
+
+	private final TaskMix taskMix;
+	private final CountDownLatch latch;
+
+	public BenchmarkTask(TaskMix taskMix, CountDownLatch latch) {
+		this.taskMix = taskMix;
+		this.latch = latch;
+	}
+
+	/**
+	 * Creates the task of a given index of a batch, the index selecting the work done for the MIXED task mix
+	 * @param taskMix The task mix
+	 * @param index The index of the task in the batch
+	 * @param latch The latch counted down when the task has run (can be null)
+	 * @return The task
+	 */
+	public static BenchmarkTask create(TaskMix taskMix, int index, CountDownLatch latch) {
+		if (taskMix == TaskMix.MIXED) {
+			taskMix = TaskMix.values()[index % TaskMix.MIXED.ordinal()];
+		}
+
+		return new BenchmarkTask(taskMix, latch);
+	}
+
+	@Override
+	public Long execute() throws Exception {
+		try {
+			if (this.taskMix == TaskMix.SLEEP) {
+				LockSupport.parkNanos(SLEEP_NANOS);
+
+			} else if (this.taskMix == TaskMix.SPIN) {
+				Blackhole.consumeCPU(SPIN_TOKENS);
+			}
+
+			return 0L;
+
+		} finally {
+			if (this.latch != null) {
+				this.latch.countDown();
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the Task Manager benchmarked, configured from puma-benchmarks.properties with the thread pool sizes of the
+ * benchmark parameters
+ */
+public final class BenchmarkTaskManagers {
+
+	private BenchmarkTaskManagers() {
+	}
+
+	/**
+	 * Creates an application context holding a Task Manager
+	 * @param threadPoolSize The number of threads of the DEFAULT lane
+	 * @param completionThreadPoolSize The number of completion threads (0 to notify handlers on the worker threads)
+	 * @return The started application context
+	 * @throws IOException if the benchmark properties cannot be read
+	 */
+	public static AnnotationConfigApplicationContext createContext(int threadPoolSize, int completionThreadPoolSize) throws IOException {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("puma.taskManager.threadPoolSize", threadPoolSize);
+		parameters.put("puma.taskManager.completionThreadPoolSize", completionThreadPoolSize);
+
+		MutablePropertySources propertySources = context.getEnvironment().getPropertySources();
+		propertySources.addFirst(new MapPropertySource("benchmarkParameters", parameters));
+		propertySources.addLast(new ResourcePropertySource("classpath:puma-benchmarks.properties"));
+
+		context.register(TaskManagerConfiguration.class, TaskManager.class);
+		context.refresh();
+
+		return context;
+	}
+}
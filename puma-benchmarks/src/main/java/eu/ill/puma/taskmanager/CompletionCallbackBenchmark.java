@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import eu.ill.puma.core.error.PumaError;
+import eu.ill.puma.taskmanager.annotation.ConcurrentCompletionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of notifying completion handlers : a batch of tasks is executed without handler (the tasks
+ * count down the latch), with a handler notified one task at a time, or with a @ConcurrentCompletionHandler.
+ * Handlers are notified by the worker threads, or by the completion threads when completionThreads is not 0.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompletionCallbackBenchmark {
+
+	public enum HandlerType {
+		NONE, SERIAL, CONCURRENT
+	}
+
+	@Param({"1", "4", "16"})
+	public int poolSize;
+
+	@Param({"64", "1024"})
+	public int queueDepth;
+
+	@Param({"0", "2"})
+	public int completionThreads;
+
+	@Param({"NONE", "SERIAL", "CONCURRENT"})
+	public HandlerType handlerType;
+
+	@Param({"NOOP", "SLEEP"})
+	public TaskMix taskMix;
+
+	private AnnotationConfigApplicationContext context;
+	private TaskManager taskManager;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.context = BenchmarkTaskManagers.createContext(this.poolSize, this.completionThreads);
+		this.taskManager = this.context.getBean(TaskManager.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.taskManager.shutdown();
+		this.context.close();
+	}
+
+	@Benchmark
+	public void completeTasks() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(this.queueDepth);
+
+		if (this.handlerType == HandlerType.NONE) {
+			for (int i = 0; i < this.queueDepth; i++) {
+				this.taskManager.executeTask(BenchmarkTask.create(this.taskMix, i, latch));
+			}
+
+		} else {
+			LatchCompletionHandler handler = this.handlerType == HandlerType.SERIAL ? new LatchCompletionHandler(latch) : new ConcurrentLatchCompletionHandler(latch);
+			for (int i = 0; i < this.queueDepth; i++) {
+				this.taskManager.executeTask(BenchmarkTask.create(this.taskMix, i, null), handler);
+			}
+		}
+
+		latch.await();
+	}
+
+	private static class LatchCompletionHandler implements TaskCompletionHandler {
+
+		private final CountDownLatch latch;
+
+		LatchCompletionHandler(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public void onTaskCompleted(Task task) {
+			this.latch.countDown();
+		}
+
+		@Override
+		public void onTaskError(Task task, PumaError error) {
+			this.latch.countDown();
+		}
+	}
+
+	@ConcurrentCompletionHandler
+	private static class ConcurrentLatchCompletionHandler extends LatchCompletionHandler {
+
+		ConcurrentLatchCompletionHandler(CountDownLatch latch) {
+			super(latch);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the TaskDispatcher without the bookkeeping of the TaskManager, and the cost of ordering queued tasks with
+ * the TaskPriorityComparator. Tasks are submitted with a single priority or with priorities cycling from LOW to URGENT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskDispatcherBenchmark {
+
+	private static final TaskPriority[] PRIORITIES = {TaskPriority.LOW, TaskPriority.DEFAULT, TaskPriority.HIGH, TaskPriority.URGENT};
+	private static final long PRIORITY_AGING_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	@Param({"1", "4", "16"})
+	public int poolSize;
+
+	@Param({"1", "64", "1024"})
+	public int queueDepth;
+
+	@Param({"NOOP", "SPIN"})
+	public TaskMix taskMix;
+
+	@Param({"false", "true"})
+	public boolean mixedPriorities;
+
+	private TaskDispatcher taskDispatcher;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.taskDispatcher = new TaskDispatcher();
+		this.taskDispatcher.setCompletionThreadPoolSize(0);
+		this.taskDispatcher.init(this.poolSize, null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.taskDispatcher.shutdown();
+	}
+
+	private BenchmarkTask createTask(int index, CountDownLatch latch) {
+		BenchmarkTask task = BenchmarkTask.create(this.taskMix, index, latch);
+		if (this.mixedPriorities) {
+			task.setPriority(PRIORITIES[index % PRIORITIES.length]);
+		}
+
+		return task;
+	}
+
+	@Benchmark
+	public void dispatch() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(this.queueDepth);
+
+		for (int i = 0; i < this.queueDepth; i++) {
+			this.taskDispatcher.executeTask(new TaskWrapper(this.createTask(i, latch), null));
+		}
+
+		latch.await();
+	}
+
+	@Benchmark
+	public void priorityQueue(Blackhole blackhole) {
+		PriorityBlockingQueue<TaskWrapper> queue = new PriorityBlockingQueue<>(20, new TaskPriorityComparator<>());
+
+		for (int i = 0; i < this.queueDepth; i++) {
+			TaskWrapper taskWrapper = new TaskWrapper(this.createTask(i, null), null);
+			taskWrapper.onAddedToThreadPool(i, PRIORITY_AGING_NANOS, null);
+			queue.offer(taskWrapper);
+		}
+
+		TaskWrapper taskWrapper;
+		while ((taskWrapper = queue.poll()) != null) {
+			blackhole.consume(taskWrapper);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to execute a batch of tasks through TaskManager.executeTask : the batch size sets the depth of
+ * the queue of the DEFAULT lane when all tasks have been submitted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskManagerBenchmark {
+
+	@Param({"1", "4", "16"})
+	public int poolSize;
+
+	@Param({"1", "64", "1024"})
+	public int queueDepth;
+
+	@Param({"NOOP", "SLEEP", "SPIN", "MIXED"})
+	public TaskMix taskMix;
+
+	private AnnotationConfigApplicationContext context;
+	private TaskManager taskManager;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.context = BenchmarkTaskManagers.createContext(this.poolSize, 0);
+		this.taskManager = this.context.getBean(TaskManager.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.taskManager.shutdown();
+		this.context.close();
+	}
+
+	@Benchmark
+	public void executeTask() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(this.queueDepth);
+
+		for (int i = 0; i < this.queueDepth; i++) {
+			this.taskManager.executeTask(BenchmarkTask.create(this.taskMix, i, latch));
+		}
+
+		latch.await();
+	}
+}
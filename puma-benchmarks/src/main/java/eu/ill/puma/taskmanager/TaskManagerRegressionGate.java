@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Regression gate for the hot path of the task manager : runs a fixed selection of the benchmarks and compares their
+ * average times with a baseline file, failing (exit code 1) if any is slower than the baseline by more than the
+ * tolerance. The baseline is created by the first run when the file does not exist.
+ *
+ * Usage : java -cp benchmarks.jar eu.ill.puma.taskmanager.TaskManagerRegressionGate baseline.properties [tolerance]
+ * where the tolerance is a fraction of the baseline (0.2 by default).
+ */
+public final class TaskManagerRegressionGate {
+
+	private static final double DEFAULT_TOLERANCE = 0.2;
+
+	private TaskManagerRegressionGate() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage : TaskManagerRegressionGate <baseline file> [tolerance]");
+			System.exit(2);
+		}
+
+		Path baselinePath = Paths.get(args[0]);
+		double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_TOLERANCE;
+
+		Properties scores = run();
+
+		if (!Files.exists(baselinePath)) {
+			try (Writer writer = Files.newBufferedWriter(baselinePath, StandardCharsets.UTF_8)) {
+				scores.store(writer, "Task manager benchmark baseline (average time in microseconds)");
+			}
+			System.out.println("Baseline written to " + baselinePath);
+			return;
+		}
+
+		Properties baseline = new Properties();
+		try (Reader reader = Files.newBufferedReader(baselinePath, StandardCharsets.UTF_8)) {
+			baseline.load(reader);
+		}
+
+		List<String> regressions = compare(baseline, scores, tolerance);
+		if (!regressions.isEmpty()) {
+			regressions.forEach(System.err::println);
+			System.exit(1);
+		}
+
+		System.out.println("No regression above " + (tolerance * 100) + "% of the baseline");
+	}
+
+	private static Properties run() throws Exception {
+		Options options = new OptionsBuilder()
+				.include(TaskManagerBenchmark.class.getSimpleName() + ".executeTask")
+				.include(TaskDispatcherBenchmark.class.getSimpleName() + ".priorityQueue")
+				.include(CompletionCallbackBenchmark.class.getSimpleName() + ".completeTasks")
+				.param("poolSize", "4")
+				.param("queueDepth", "1024")
+				.param("taskMix", "NOOP")
+				.param("mixedPriorities", "true")
+				.param("completionThreads", "2")
+				.param("handlerType", "SERIAL")
+				.build();
+
+		Collection<RunResult> runResults = new Runner(options).run();
+
+		Properties scores = new Properties();
+		for (RunResult runResult : runResults) {
+			scores.setProperty(getKey(runResult), String.valueOf(runResult.getPrimaryResult().getScore()));
+		}
+
+		return scores;
+	}
+
+	private static String getKey(RunResult runResult) {
+		StringBuilder key = new StringBuilder(runResult.getParams().getBenchmark());
+		for (String param : new TreeSet<>(runResult.getParams().getParamsKeys())) {
+			key.append(':').append(param).append('=').append(runResult.getParams().getParam(param));
+		}
+
+		return key.toString();
+	}
+
+	private static List<String> compare(Properties baseline, Properties scores, double tolerance) {
+		List<String> regressions = new ArrayList<>();
+
+		for (String key : scores.stringPropertyNames()) {
+			String baselineScore = baseline.getProperty(key);
+			if (baselineScore == null) {
+				System.out.println("No baseline for " + key);
+				continue;
+			}
+
+			double score = Double.parseDouble(scores.getProperty(key));
+			double reference = Double.parseDouble(baselineScore);
+			if (score > reference * (1 + tolerance)) {
+				regressions.add("Regression of " + key + " : " + score + "us against " + reference + "us");
+			}
+		}
+
+		return regressions;
+	}
+}
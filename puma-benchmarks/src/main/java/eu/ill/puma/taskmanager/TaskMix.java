@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+/**
+ * Work done by the benchmark tasks
+ */
+public enum TaskMix {
+
+	/**
+	 * Tasks returning immediately : measures the overhead of the task manager only
+	 */
+	NOOP,
+
+	/**
+	 * Tasks parking for a short time, as an I/O bound task waiting on a socket
+	 */
+	SLEEP,
+
+	/**
+	 * Tasks spinning on the CPU for a short time, as a CPU bound analysis task
+	 */
+	SPIN,
+
+	/**
+	 * Tasks cycling through the no-op, sleeping and spinning tasks
+	 */
+	MIXED
+}
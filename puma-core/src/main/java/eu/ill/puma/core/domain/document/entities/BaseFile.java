@@ -15,8 +15,11 @@
  */
 package eu.ill.puma.core.domain.document.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import eu.ill.puma.core.domain.document.enumeration.BaseFileType;
 
+import java.nio.file.Path;
+
 public class BaseFile extends BaseEntity {
 
 	private String data = null;
@@ -28,6 +31,7 @@ public class BaseFile extends BaseEntity {
 	private BaseFileType type = null;
 	private Boolean base64Encoded = true;
 	private String hash;
+	private Path dataPath = null;
 
 	public String getData() {
 		return data;
@@ -100,5 +104,20 @@ public class BaseFile extends BaseEntity {
 	public void setHash(String hash) {
 		this.hash = hash;
 	}
+
+	/**
+	 * Returns the temporary file holding the decoded data when the file has been streamed from an importer response
+	 * rather than held in memory
+	 * @return The path of the decoded data, null if the data is held in memory
+	 */
+	@JsonIgnore
+	public Path getDataPath() {
+		return dataPath;
+	}
+
+	@JsonIgnore
+	public void setDataPath(Path dataPath) {
+		this.dataPath = dataPath;
+	}
 }
 
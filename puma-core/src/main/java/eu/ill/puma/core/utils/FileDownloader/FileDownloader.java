@@ -58,6 +58,9 @@ public class FileDownloader {
 
 	boolean randomUserAgent;
 
+	//request being executed, can be aborted from another thread
+	private volatile HttpGet currentRequest;
+
 	public FileDownloader(boolean randomUserAgent) {
 		//init random generator
 		randomGenerator = new Random();
@@ -115,6 +118,7 @@ public class FileDownloader {
 
 			//build request
 			HttpGet request = this.buildRequest(urlString);
+			this.currentRequest = request;
 
 			//do query
 			CloseableHttpResponse response = httpClient.execute(request);
@@ -144,6 +148,7 @@ public class FileDownloader {
 		} catch (IOException e) {
 			throw new PumaException("Download failed from URL " + urlString + ": + " + e.getMessage(), e);
 		} finally {
+			this.currentRequest = null;
 			try {
 				// Close client
 				httpClient.close();
@@ -156,6 +161,16 @@ public class FileDownloader {
 		return webClientResponse;
 	}
 
+	/**
+	 * abort the download in progress (if any) : the downloading thread gets an IOException
+	 */
+	public void abort() {
+		HttpGet request = this.currentRequest;
+		if (request != null) {
+			request.abort();
+		}
+	}
+
 	/**
 	 * build the request
 	 *
@@ -21,24 +21,33 @@ import eu.ill.puma.core.domain.importer.MetaDataAnalysisState;
 import eu.ill.puma.core.error.PumaError;
 import eu.ill.puma.core.error.PumaException;
 import eu.ill.puma.importermanager.downloader.PumaFileDownloader;
+import eu.ill.puma.importermanager.importer.ImportPipeline;
+import eu.ill.puma.importermanager.importer.ImporterCircuitBreaker;
+import eu.ill.puma.importermanager.importer.ImporterClientPool;
 import eu.ill.puma.importermanager.importer.ImporterInfoHelper;
+import eu.ill.puma.importermanager.importer.ImporterPageSpool;
+import eu.ill.puma.importermanager.importer.ImporterResponseReader;
 import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
 import eu.ill.puma.importermanager.importer.domain.ImporterStatusEnum;
 import eu.ill.puma.importermanager.importer.domain.ResponseMetadata;
 import eu.ill.puma.importermanager.importer.task.*;
 import eu.ill.puma.importermanager.resolver.PumaFileUrlResolver;
 import eu.ill.puma.persistence.domain.document.DocumentVersion;
+import eu.ill.puma.persistence.domain.document.ResolverInfo;
+import eu.ill.puma.persistence.domain.document.enumeration.ResolverInfoStatus;
 import eu.ill.puma.persistence.domain.importer.Importer;
 import eu.ill.puma.persistence.domain.importer.ImporterOperation;
 import eu.ill.puma.persistence.domain.importer.ImporterOperationStatus;
-import eu.ill.puma.persistence.service.converterV2.exception.PumaDocumentConversionException;
 import eu.ill.puma.persistence.service.converterV2.DocumentConverter;
-import eu.ill.puma.persistence.service.document.PumaFileService;
+import eu.ill.puma.persistence.service.document.DocumentVersionService;
 import eu.ill.puma.persistence.service.importer.CachedImporterFileService;
 import eu.ill.puma.persistence.service.importer.ImporterService;
 import eu.ill.puma.taskmanager.Task;
 import eu.ill.puma.taskmanager.TaskCompletionHandler;
 import eu.ill.puma.taskmanager.TaskManager;
+import eu.ill.puma.taskmanager.annotation.ConcurrentCompletionHandler;
+import eu.ill.puma.taskmanager.pipeline.DocumentPipeline;
+import eu.ill.puma.taskmanager.pipeline.PipelineStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,10 +55,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 
 /**
@@ -63,6 +73,10 @@ import java.util.*;
  *
  * The Puma-documents are persisted in the database.
  *
+ * When a read-ahead depth is configured, imports using cursors are pipelined : the next page is fetched as soon as
+ * its cursor is known while the current page is integrated on a separate stage. The cursor and statistics of the
+ * operation are only updated once a page is integrated, in the order of the pages.
+ *
  */
 @Component
 public class ImporterManager implements TaskCompletionHandler {
@@ -96,19 +110,77 @@ public class ImporterManager implements TaskCompletionHandler {
 	@Autowired
 	private DocumentConverter documentConverter;
 
+	@Autowired
+	private DocumentVersionService documentVersionService;
+
 //	@Autowired
 //	private DocumentConverterService documentConverterService;
 
 	@Autowired
 	ImporterInfoHelper importerInfoHelper;
 
+	@Autowired
+	private ImporterClientPool importerClientPool;
+
+	@Autowired
+	private ImporterPageSpool importerPageSpool;
+
 	@Autowired
 	ImporterAnalysisStateCreator analysisStateCreator;
 
+	@Autowired
+	private DocumentPipeline documentPipeline;
+
 	private Map<String, ImporterInfo> importerInfos = new HashMap<>();
 
 	private Map<ImporterOperation, ImportTask> operationTasks = new HashMap<>();
 
+	private Map<ImporterOperation, ImportPipeline> importPipelines = new HashMap<>();
+
+	private Map<String, ImporterCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+	private final PageIntegrationHandler pageIntegrationHandler = new PageIntegrationHandler();
+
+	/**
+	 * Integration stage of pipelined imports : pages are integrated by IntegrateImportPageTasks on the
+	 * PAGE_INTEGRATION lane, outside of the lock of the ImporterManager, so that the handling of the import tasks
+	 * (and the fetch of the following pages) is not blocked by the integration. The pipeline of an operation only
+	 * integrates one page at a time, so pages of different operations can be integrated concurrently.
+	 */
+	@ConcurrentCompletionHandler
+	private class PageIntegrationHandler implements TaskCompletionHandler {
+
+		@Override
+		public void onTaskCompleted(Task task) {
+			IntegrateImportPageTask integrateImportPageTask = (IntegrateImportPageTask)task;
+			ImporterOperation importerOperation = integrateImportPageTask.getImporterOperation();
+
+			try {
+				onPageIntegrated(importerOperation, integrateImportPageTask.getPage(), integrateImportPageTask.get());
+
+			} catch (Exception e) {
+				// Fail the import
+				failImport(importerOperation);
+
+				log.error("Failed to integrate page from Importer " + importerOperation.getImporter() + " with operation " + importerOperation.toString(), e);
+			}
+		}
+
+		@Override
+		public void onTaskError(Task task, PumaError error) {
+			IntegrateImportPageTask integrateImportPageTask = (IntegrateImportPageTask)task;
+			ImporterOperation importerOperation = integrateImportPageTask.getImporterOperation();
+
+			// Delete the data streamed to temporary files if the task has not been run
+			ImporterResponseReader.deleteDataFiles(integrateImportPageTask.getPage().getData());
+
+			// Fail the import
+			failImport(importerOperation);
+
+			log.error("Failed to integrate page from Importer " + importerOperation.getImporter() + " with operation " + importerOperation.toString() + ". Got error " + error.getMessage());
+		}
+	}
+
 	@Value("${puma.importerManager.importer.recoverOnRestart}")
 	private Boolean recoverOnRestart;
 
@@ -126,13 +198,38 @@ public class ImporterManager implements TaskCompletionHandler {
 	}
 
 	/**
-	 * Determines if a particular importer is healthy (running correctly).
+	 * Determines if a particular importer is healthy (running correctly). The health is cached for a limited time and
+	 * the importer is not called while its circuit breaker is open.
 	 * @return True if the importer is healthy
 	 */
 	public boolean isHealthy(Importer importer) {
+		ImporterCircuitBreaker circuitBreaker = this.getCircuitBreaker(importer);
+
+		// Use the cached health (unhealthy while the circuit is open)
+		Boolean cachedHealth = circuitBreaker.getCachedHealth(System.currentTimeMillis());
+		if (cachedHealth != null) {
+			return cachedHealth;
+		}
+
+		boolean healthy = this.checkHealth(importer);
+		circuitBreaker.setHealth(healthy, System.currentTimeMillis());
+
+		return healthy;
+	}
+
+	/**
+	 * Returns the circuit breaker of an importer
+	 * @param importer The importer
+	 * @return The circuit breaker, created on first use
+	 */
+	public ImporterCircuitBreaker getCircuitBreaker(Importer importer) {
+		return this.circuitBreakers.computeIfAbsent(importer.getUrl(), importerUrl -> new ImporterCircuitBreaker(this.configuration.importerCircuitBreakerFailureThreshold, this.configuration.importerCircuitBreakerOpenDuration, this.configuration.importerHealthCacheDuration));
+	}
+
+	private boolean checkHealth(Importer importer) {
 
 		// Build HTTP client request
-		WebTarget target = ClientBuilder.newClient().target(importer.getUrl()).
+		WebTarget target = this.importerClientPool.getClient(importer).target(importer.getUrl()).
 				path(configuration.importerApiBaseUrl).
 				path(configuration.importerHealthUrl);
 
@@ -140,7 +237,12 @@ public class ImporterManager implements TaskCompletionHandler {
 		try {
 			log.info("Performing health test of importer " + importer.toString());
 			Response response = target.request().get();
-			return response.getStatusInfo().equals(Response.Status.OK);
+			boolean healthy = response.getStatusInfo().equals(Response.Status.OK);
+
+			// Close the response to release the connection
+			response.close();
+
+			return healthy;
 
 		} catch (Exception e) {
 			log.warn("Importer " + importer.toString() + " fails health check : " + e.getMessage(), e);
@@ -187,6 +289,13 @@ public class ImporterManager implements TaskCompletionHandler {
 	 * @param importerOperation The importer operation containing data to create the task
 	 */
 	private synchronized void createAndExecuteImportTask(ImporterOperation importerOperation) {
+		// No new request once the importer clients are closed by the shutdown (pages being integrated are still
+		// checkpointed) : running operations are recovered on restart
+		if (!importerOperation.getReplaySpool() && this.importerClientPool.isClosed()) {
+			log.info("Importer clients closed : not continuing operation " + importerOperation + " before shutdown");
+			return;
+		}
+
 		ImporterOperationStatus oldStatus = importerOperation.getStatus();
 
 		// Update operation status
@@ -194,9 +303,24 @@ public class ImporterManager implements TaskCompletionHandler {
 		this.importerService.updateOperation(importerOperation);
 
 		ImportTask importTask = null;
-		if (importerOperation.getCursor() != null) {
+		ImportPipeline importPipeline = this.getImportPipeline(importerOperation);
+		if (importerOperation.getReplaySpool()) {
+			if (!importerOperation.getUpdateCitations()) {
+				// Force update to true
+				importerOperation.setUpdateExisting(true);
+			}
+
+			// Create a task to read the next page from the spool rather than from the importer
+			String cursor = importPipeline != null && importPipeline.getFetchCursor() != null ? importPipeline.getFetchCursor() : importerOperation.getCursor();
+			importTask = new ReplaySpoolTask(importerOperation, this.configuration, this.importerPageSpool, cursor);
+
+		} else if (importPipeline != null && importPipeline.getFetchCursor() != null) {
+			// Create a task to fetch the next page ahead of the integrated cursor
+			importTask = new ImportWithCursorTask(importerOperation, this.configuration, this.importerClientPool.getClient(importerOperation.getImporter()), importPipeline.getFetchCursor());
+
+		} else if (importerOperation.getCursor() != null) {
 			// Create a task to call importer API using a cursor
-			importTask = new ImportWithCursorTask(importerOperation, this.configuration);
+			importTask = new ImportWithCursorTask(importerOperation, this.configuration, this.importerClientPool.getClient(importerOperation.getImporter()));
 
 		} else if (importerOperation.getReimportAll()) {
 			if (!importerOperation.getUpdateCitations()) {
@@ -204,28 +328,60 @@ public class ImporterManager implements TaskCompletionHandler {
 				importerOperation.setUpdateExisting(true);
 			}
 
-			// Create a task to reimport all documents associated with an importer
+			// Create a task to reimport the next block of documents associated with an importer
 			if (!oldStatus.equals(ImporterOperationStatus.FAILED)) {
-				DocumentVersion documentVersion = this.getNextDocumentVersionForReimport(importerOperation.getImporter(), importerOperation.getLastReimportDocumentVersionId());
-				if (documentVersion != null) {
-					importerOperation.setLastReimportDocumentVersionId(documentVersion.getId());
-					importTask = new ReimportAllTask(importerOperation, this.configuration, documentVersion);
+				// A pipelined reimport reads the block following the last one fetched rather than the last one integrated
+				Long lastReimportDocumentVersionId = importPipeline != null ? importPipeline.getReimportFetchPosition() : importerOperation.getLastReimportDocumentVersionId();
+				SortedMap<Long, String> sourceIds = this.importerService.getNextSourceIdsForReimport(importerOperation.getImporter(), lastReimportDocumentVersionId, Math.max(1, this.configuration.importerReimportBatchSize));
+				if (!sourceIds.isEmpty()) {
+					importTask = new ReimportAllTask(importerOperation, this.configuration, this.importerClientPool.getClient(importerOperation.getImporter()), sourceIds);
 				} else {
-					this.terminateImport(importerOperation);
+					this.finishFetching(importerOperation);
 				}
 			}
 
 		} else {
-			importTask = new ImportSearchTask(importerOperation, this.configuration);
+			importTask = new ImportSearchTask(importerOperation, this.configuration, this.importerClientPool.getClient(importerOperation.getImporter()));
 		}
 
 		if (importTask != null) {
 			// Store task with operation
 			this.operationTasks.put(importerOperation, importTask);
 
-			// Send task to task manager with a callback
-			this.taskManager.executeTask(importTask, this);
+			// Send task to task manager with a callback, delayed while the circuit of the importer is open
+			ImporterCircuitBreaker circuitBreaker = this.getCircuitBreaker(importerOperation.getImporter());
+			ImportTask requester = importTask;
+			long delayMillis = importerOperation.getReplaySpool() ? 0 : circuitBreaker.getDelayBeforeRequest(System.currentTimeMillis(), requester);
+			if (delayMillis > 0) {
+				log.info("Circuit open for importer " + importerOperation.getImporter() + " : import (" + importerOperation.getId() + ") delayed by " + delayMillis + "ms");
+
+				// The circuit is checked again when the delay has elapsed : only one delayed task obtains the trial request
+				this.taskManager.executeTaskAfter(importTask, delayMillis, () -> circuitBreaker.getDelayBeforeRequest(System.currentTimeMillis(), requester), this);
+
+			} else {
+				this.taskManager.executeTask(importTask, this);
+			}
+		}
+	}
+
+	/**
+	 * Returns the pipeline of an importer operation, creating it if the operation can be pipelined
+	 * @param importerOperation The importer operation
+	 * @return The pipeline of the operation or null if the operation is not pipelined
+	 */
+	private ImportPipeline getImportPipeline(ImporterOperation importerOperation) {
+		if (this.configuration.importerPipelineReadAheadDepth <= 0) {
+			return null;
 		}
+
+		return this.importPipelines.computeIfAbsent(importerOperation, operation -> {
+			ImportPipeline importPipeline = new ImportPipeline(operation.getCursor(), this.configuration.importerPipelineReadAheadDepth);
+
+			// Reimports are driven by the documents in the DB rather than by cursors
+			importPipeline.setReimportFetchPosition(operation.getLastReimportDocumentVersionId());
+
+			return importPipeline;
+		});
 	}
 
 	/**
@@ -272,9 +428,15 @@ public class ImporterManager implements TaskCompletionHandler {
 			if (importTask != null) {
 				this.taskManager.cancelTask(importTask);
 
+				// The outcome of the task will not be reported to the circuit breaker
+				this.getCircuitBreaker(importerOperation.getImporter()).onTrialAbandoned(importTask);
+
 				// Remove the task from the operations map
 				this.operationTasks.remove(importerOperation);
 			}
+
+			// Drop pages waiting for integration
+			this.discardPipeline(importerOperation);
 		}
 	}
 
@@ -292,6 +454,7 @@ public class ImporterManager implements TaskCompletionHandler {
 
 			// Remove the task from the operations map
 			this.operationTasks.remove(importerOperation);
+			this.discardPipeline(importerOperation);
 		}
 	}
 
@@ -309,9 +472,37 @@ public class ImporterManager implements TaskCompletionHandler {
 
 			// Remove the task from the operations map
 			this.operationTasks.remove(importerOperation);
+			this.discardPipeline(importerOperation);
 		}
 	}
 
+	/**
+	 * Terminates an import operation once all its pages have been fetched : a pipelined operation is only terminated
+	 * when all its pages are integrated
+	 * @param importerOperation The import operation that has no more pages to fetch
+	 */
+	private synchronized void finishFetching(ImporterOperation importerOperation) {
+		ImportPipeline importPipeline = this.importPipelines.get(importerOperation);
+		if (importPipeline != null) {
+			importPipeline.setLastPageFetched(true);
+		}
+
+		if (importPipeline == null || importPipeline.isComplete()) {
+			this.terminateImport(importerOperation);
+		}
+	}
+
+	private synchronized void discardPipeline(ImporterOperation importerOperation) {
+		ImportPipeline importPipeline = this.importPipelines.remove(importerOperation);
+		if (importPipeline != null) {
+			importPipeline.discard();
+		}
+	}
+
+	private synchronized boolean isOperationRunning(ImporterOperation importerOperation) {
+		return this.operationTasks.containsKey(importerOperation);
+	}
+
 	/**
 	 * Callback from the TaskManager when an import task has executed correctly. During the callback
 	 * the importer data is converted into Puma documents which are integrated in to the DB.
@@ -326,25 +517,39 @@ public class ImporterManager implements TaskCompletionHandler {
 
 		Importer importer = importerOperation.getImporter();
 
-		// Verify task not cancelled
-		if (!this.operationTasks.containsKey(importerOperation)) {
-			log.info("Ignoring results from operation " + importerOperation);
-			// Operation was cancelled
-			return;
-		}
-
-		// Update operation run time
-		importerOperation.increaseRunTime(task.getDurationInMillis());
-
+		ImporterResponse response = null;
+		boolean pagePipelined = false;
 		try {
 			// Get task data
-			ImporterResponse response = importTask.get();
+			response = importTask.get();
+
+			// Verify task not cancelled
+			if (!this.operationTasks.containsKey(importerOperation)) {
+				log.info("Ignoring results from operation " + importerOperation);
+				// Operation was cancelled : release the trial request of the circuit breaker if the task had it
+				this.getCircuitBreaker(importer).onTrialAbandoned(importTask);
+				return;
+			}
+
+			// Update operation run time
+			importerOperation.increaseRunTime(task.getDurationInMillis());
 
 			// Get the meta data
 			ResponseMetadata metadata = response.getMetadata();
 
 			// Determine if the response has returned an error
 			ImporterStatusEnum importerStatus = metadata.getStatus();
+
+			// Feed the circuit breaker of the importer
+			if (importTask instanceof ReplaySpoolTask) {
+				// Replayed pages do not come from the importer
+
+			} else if (importerStatus.equals(ImporterStatusEnum.BUSY) || importerStatus.equals(ImporterStatusEnum.ERROR)) {
+				this.getCircuitBreaker(importer).onFailure(System.currentTimeMillis());
+
+			} else {
+				this.getCircuitBreaker(importer).onSuccess(System.currentTimeMillis());
+			}
 			if (importerStatus.equals(ImporterStatusEnum.BUSY)) {
 				// Retry/fail
 				this.retryTask(importerOperation, new PumaError("BUSY response from Importer"));
@@ -358,54 +563,49 @@ public class ImporterManager implements TaskCompletionHandler {
 				this.failImport(importerOperation);
 
 				log.error("NOT_SUPPORTED response from Importer " + importerOperation.getImporter().toString() + " with operation " + importerOperation.toString());
+			} else if (importerStatus.equals(ImporterStatusEnum.NOT_FOUND) && importTask instanceof ReimportAllTask) {
+				// Documents no longer available from the importer : skip the block
+				ImportPipeline importPipeline = this.importPipelines.get(importerOperation);
+				if (importPipeline != null) {
+					importPipeline.setReimportFetchPosition(((ReimportAllTask)importTask).getLastDocumentVersionId());
+
+				} else {
+					importerOperation.setLastReimportDocumentVersionId(((ReimportAllTask)importTask).getLastDocumentVersionId());
+					this.importerService.updateOperation(importerOperation);
+				}
+
+				this.createAndExecuteImportTask(importerOperation);
+
 			} else if (importerStatus.equals(ImporterStatusEnum.NOT_FOUND)) {
 				// Terminate import
-				this.terminateImport(importerOperation);
+				this.finishFetching(importerOperation);
 
 				log.info("NOT_FOUND response from Importer " + importerOperation.getImporter().toString() + " with operation " + importerOperation.toString());
 
-			} else {
+			} else if (this.importPipelines.containsKey(importerOperation)) {
+				// Hand the page over to the integration stage and fetch ahead
+				this.pipelinePage(importerOperation, importTask, response);
+				pagePipelined = true;
 
-				// Update operation
-				importerOperation.setCursor(metadata.getNextCursor());
-				importerOperation.setLastCursor(metadata.getPreviousCursor());
-				if (importerOperation.getReimportAll()) {
-					importerOperation.setDocumentsReceived(importerOperation.getDocumentsReceived() + response.getData().size());
-					importerOperation.setTotalDocumentCount(-1l);
-				} else {
-					importerOperation.setDocumentsReceived(metadata.getCurrentCount());
-					importerOperation.setTotalDocumentCount(metadata.getTotalCount());
-				}
+			} else {
 				importerOperation.setRetryCount(0);
 
-				// Convert to PCC persisted objects
-				List<BaseDocument> importedDocuments = response.getData();
-				List<DocumentVersion> documentVersions = this.convertAndIntegrateDocuments(importedDocuments, importer, importerOperation.getUpdateExisting(), importerOperation.getUpdateCitations());
-				importerOperation.setDocumentsIntegrated(importerOperation.getDocumentsIntegrated() + documentVersions.size());
-
-				// Get highest documentVersionId
-				OptionalLong maxDocumentVersionId = documentVersions.stream().map(documentVersion -> documentVersion.getId()).mapToLong(Long::longValue).max();
-				if (maxDocumentVersionId.isPresent()) {
-					importerOperation.setLastImportedDocumentVersionId(maxDocumentVersionId.getAsLong());
+				// Keep a copy of the page for later replays (pipelined pages are spooled by the integration stage)
+				if (!(importTask instanceof ReplaySpoolTask)) {
+					this.spoolPage(importerOperation, response);
 				}
 
-				if (!importerOperation.getUpdateCitations()) {
-					// Initialise analysis state
-					this.initialiseAnalysisState(documentVersions, importer);
-
-					// Obtain cached files initially
-					this.obtainCachedFiles(documentVersions);
-
-					if (importerOperation.getDownloadFiles()) {
-						// Download files
-						this.initiateFileDownloads(documentVersions);
+				// Convert to PCC persisted objects
+				List<DocumentVersion> documentVersions = this.integratePage(importerOperation, response.getData());
 
-						// Resolve URLs
-						this.initiateResolvers(documentVersions);
-					}
-				}
+				// Trace the import in the lifecycle of the integrated documents
+				importTask.getTraceContext().addDocumentVersions(documentVersions.stream().map(DocumentVersion::getId).collect(Collectors.toList()));
 
 				// Update the importer operation
+				this.checkpointPage(importerOperation, response, documentVersions);
+				if (importTask instanceof ReimportAllTask) {
+					importerOperation.setLastReimportDocumentVersionId(((ReimportAllTask)importTask).getLastDocumentVersionId());
+				}
 				this.importerService.updateOperation(importerOperation);
 
 				// Is response status working or finished
@@ -422,6 +622,190 @@ public class ImporterManager implements TaskCompletionHandler {
 			this.failImport(importerOperation);
 
 			log.error("Failed to handle response from Importer " + importer + " with operation " + importerOperation.toString(), e);
+
+		} finally {
+			// Delete the data streamed to temporary files unless the page waits for integration
+			if (response != null && !pagePipelined) {
+				ImporterResponseReader.deleteDataFiles(response.getData());
+			}
+		}
+	}
+
+	/**
+	 * Writes a page returned by an importer to the spool if enabled. A page that cannot be spooled is still integrated.
+	 * Called by the integration stage for pipelined imports, outside of the lock of the ImporterManager.
+	 * @param importerOperation The importer operation
+	 * @param response The page returned by the importer
+	 */
+	private void spoolPage(ImporterOperation importerOperation, ImporterResponse response) {
+		ImporterStatusEnum importerStatus = response.getMetadata().getStatus();
+		if (!this.importerPageSpool.isEnabled() || !(importerStatus.equals(ImporterStatusEnum.WORKING) || importerStatus.equals(ImporterStatusEnum.FINISHED))) {
+			return;
+		}
+
+		try {
+			this.importerPageSpool.spoolPage(importerOperation, response);
+
+		} catch (Exception e) {
+			log.error("Failed to spool page from Importer " + importerOperation.getImporter() + " with operation " + importerOperation.toString(), e);
+		}
+	}
+
+	/**
+	 * Queues a page of a pipelined import for integration and fetches the next page if the read-ahead depth allows it
+	 * @param importerOperation The importer operation
+	 * @param importTask The task having fetched the page
+	 * @param response The page returned by the importer
+	 */
+	private synchronized void pipelinePage(ImporterOperation importerOperation, ImportTask importTask, ImporterResponse response) {
+		ImportPipeline importPipeline = this.importPipelines.get(importerOperation);
+		ResponseMetadata metadata = response.getMetadata();
+
+		importerOperation.setRetryCount(0);
+
+		// Queue the page for integration
+		if (importTask instanceof ReimportAllTask) {
+			importPipeline.addFetchedReimportPage(response, ((ReimportAllTask)importTask).getLastDocumentVersionId());
+
+		} else {
+			importPipeline.addFetchedPage(response);
+		}
+		this.integrateNextPage(importerOperation, importPipeline);
+
+		// A reimport continues with the next block until no documents remain (see createAndExecuteImportTask)
+		if (importerOperation.getReimportAll() || (metadata.getStatus().equals(ImporterStatusEnum.WORKING) && metadata.getNextCursor() != null)) {
+			if (!importerOperation.getReimportAll()) {
+				importPipeline.setFetchCursor(metadata.getNextCursor());
+			}
+
+			// Fetch the next page straight away unless too many pages are waiting for integration
+			if (importPipeline.canFetch()) {
+				this.createAndExecuteImportTask(importerOperation);
+
+			} else {
+				importPipeline.setFetchWaiting(true);
+			}
+
+		} else {
+			this.finishFetching(importerOperation);
+		}
+	}
+
+	/**
+	 * Sends the next fetched page of a pipelined import to the integration stage if no page is being integrated
+	 * @param importerOperation The importer operation
+	 * @param importPipeline The pipeline of the operation
+	 */
+	private synchronized void integrateNextPage(ImporterOperation importerOperation, ImportPipeline importPipeline) {
+		ImporterResponse page = importPipeline.startIntegration();
+		if (page != null) {
+			// Replayed pages are already in the spool
+			IntegrateImportPageTask.PageSpooler pageSpooler = importerOperation.getReplaySpool() ? null : this::spoolPage;
+			this.taskManager.executeTask(new IntegrateImportPageTask(this::integratePage, pageSpooler, importerOperation, page), this.pageIntegrationHandler);
+		}
+	}
+
+	/**
+	 * Called by the integration stage once a page of a pipelined import is integrated : the operation is checkpointed
+	 * and the pipeline moves on to the next page
+	 * @param importerOperation The importer operation
+	 * @param page The integrated page
+	 * @param documentVersions The integrated documents
+	 */
+	private synchronized void onPageIntegrated(ImporterOperation importerOperation, ImporterResponse page, List<DocumentVersion> documentVersions) {
+		ImportPipeline importPipeline = this.importPipelines.get(importerOperation);
+
+		// Verify operation not cancelled
+		if (importPipeline == null || !this.operationTasks.containsKey(importerOperation)) {
+			return;
+		}
+
+		// Update the importer operation
+		this.checkpointPage(importerOperation, page, documentVersions);
+		Long lastReimportDocumentVersionId = importPipeline.takeReimportPagePosition(page);
+		if (lastReimportDocumentVersionId != null) {
+			importerOperation.setLastReimportDocumentVersionId(lastReimportDocumentVersionId);
+		}
+		this.importerService.updateOperation(importerOperation);
+
+		// Integrate the next page
+		importPipeline.endIntegration();
+		this.integrateNextPage(importerOperation, importPipeline);
+
+		// Resume fetching if it was held back by the read-ahead depth
+		if (importPipeline.isFetchWaiting() && importPipeline.canFetch()) {
+			importPipeline.setFetchWaiting(false);
+			this.createAndExecuteImportTask(importerOperation);
+		}
+
+		if (importPipeline.isComplete()) {
+			this.terminateImport(importerOperation);
+		}
+	}
+
+	/**
+	 * Converts and integrates the documents of a page, initialising their analysis state and files
+	 * @param importerOperation The importer operation
+	 * @param importedDocuments The documents of the page
+	 * @return The integrated documents (none if the operation has been cancelled)
+	 */
+	private List<DocumentVersion> integratePage(ImporterOperation importerOperation, List<BaseDocument> importedDocuments) {
+		// Verify operation not cancelled
+		if (!this.isOperationRunning(importerOperation)) {
+			return new ArrayList<>();
+		}
+
+		Importer importer = importerOperation.getImporter();
+
+		// Convert to PCC persisted objects
+		List<DocumentVersion> documentVersions = this.convertAndIntegrateDocuments(importedDocuments, importer, importerOperation.getUpdateExisting(), importerOperation.getUpdateCitations());
+
+		if (!importerOperation.getUpdateCitations()) {
+			// Initialise analysis state
+			this.initialiseAnalysisState(documentVersions, importer);
+
+			// Obtain cached files initially
+			this.obtainCachedFiles(documentVersions);
+
+			if (importerOperation.getDownloadFiles()) {
+				// Download files
+				this.initiateFileDownloads(documentVersions);
+
+				// Resolve URLs
+				this.initiateResolvers(documentVersions);
+			}
+
+			// Documents not waiting for downloads can be analysed straight away
+			this.notifyFilesSaved(documentVersions);
+		}
+
+		return documentVersions;
+	}
+
+	/**
+	 * Updates the cursor and statistics of an operation once a page is integrated
+	 * @param importerOperation The importer operation
+	 * @param response The integrated page
+	 * @param documentVersions The integrated documents
+	 */
+	private synchronized void checkpointPage(ImporterOperation importerOperation, ImporterResponse response, List<DocumentVersion> documentVersions) {
+		ResponseMetadata metadata = response.getMetadata();
+
+		importerOperation.setCursor(metadata.getNextCursor());
+		importerOperation.setLastCursor(metadata.getPreviousCursor());
+		if (importerOperation.getReimportAll() || importerOperation.getReplaySpool()) {
+			importerOperation.setDocumentsReceived(importerOperation.getDocumentsReceived() + response.getData().size());
+			importerOperation.setTotalDocumentCount(-1l);
+		} else {
+			importerOperation.setDocumentsReceived(metadata.getCurrentCount());
+			importerOperation.setTotalDocumentCount(metadata.getTotalCount());
+		}
+		importerOperation.setDocumentsIntegrated(importerOperation.getDocumentsIntegrated() + documentVersions.size());
+
+		// Get highest documentVersionId
+		OptionalLong maxDocumentVersionId = documentVersions.stream().map(documentVersion -> documentVersion.getId()).mapToLong(Long::longValue).max();
+		if (maxDocumentVersionId.isPresent()) {
+			importerOperation.setLastImportedDocumentVersionId(maxDocumentVersionId.getAsLong());
 		}
 	}
 
@@ -438,13 +822,27 @@ public class ImporterManager implements TaskCompletionHandler {
 
 		// Verify task not cancelled
 		if (!this.operationTasks.containsKey(importerOperation)) {
-			// Operation was cancelled
+			// Operation was cancelled : release the trial request of the circuit breaker if the task had it
+			this.getCircuitBreaker(importerOperation.getImporter()).onTrialAbandoned(importTask);
+			return;
+		}
+
+		// Request interrupted by the closing of the importer clients at shutdown : the operation is left running (rather
+		// than retried and failed) so that it is recovered on restart
+		if (!(importTask instanceof ReplaySpoolTask) && this.importerClientPool.isClosed()) {
+			log.info("Import of operation " + importerOperation + " interrupted by the shutdown : it will be recovered on restart");
+			this.getCircuitBreaker(importerOperation.getImporter()).onTrialAbandoned(importTask);
 			return;
 		}
 
 		// Update operation run time
 		importerOperation.increaseRunTime(task.getDurationInMillis());
 
+		// Feed the circuit breaker of the importer
+		if (!(importTask instanceof ReplaySpoolTask)) {
+			this.getCircuitBreaker(importerOperation.getImporter()).onFailure(System.currentTimeMillis());
+		}
+
 		// Retry/fail
 		this.retryTask(importerOperation, error);
 	}
@@ -468,31 +866,104 @@ public class ImporterManager implements TaskCompletionHandler {
 	}
 
 	/**
-	 * Converts data from an importer into puma entities and persists them in the Puma DB.
+	 * Converts data from an importer into puma entities and persists them in the Puma DB. The documents are split
+	 * between a bounded number of IntegrateDocumentsTasks run in parallel on the INTEGRATION lane. Documents with
+	 * the same source Id are integrated by the same task so that they are never converted concurrently.
 	 * @param importedDocuments The data returned from the importer
 	 * @param importer The importer from which the data was obtained
 	 * @return The integrated documents
 	 */
-
 	public List<DocumentVersion> convertAndIntegrateDocuments(List<BaseDocument> importedDocuments, Importer importer, boolean forceUpdate, boolean updateCitations) {
 
-		List<DocumentVersion> documentVersions = new ArrayList<>();
-		for (BaseDocument importerDocument : importedDocuments) {
-			try {
-				DocumentVersion documentVersion = documentConverter.convert(importerDocument, importer.getShortName(), forceUpdate, updateCitations);
-				//DocumentVersion documentVersion = documentConverterService.convertAndIntegrateImportedDocument(importerDocument, importer);
+		// Skip the documents already imported and unchanged
+		List<BaseDocument> documentsToConvert = this.removeUnchangedDocuments(importedDocuments, importer, forceUpdate, updateCitations);
+		if (documentsToConvert.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		// Split the documents between the integration tasks
+		int numberOfTasks = Math.max(1, Math.min(this.configuration.getIntegrationParallelism(), documentsToConvert.size()));
+		List<IntegrateDocumentsTask> integrateDocumentsTasks = new ArrayList<>(numberOfTasks);
+		for (int i = 0; i < numberOfTasks; i++) {
+			integrateDocumentsTasks.add(new IntegrateDocumentsTask(this.documentConverter, importer.getShortName(), forceUpdate, updateCitations));
+		}
+		for (BaseDocument importerDocument : documentsToConvert) {
+			integrateDocumentsTasks.get(Math.floorMod(Objects.hashCode(importerDocument.getSourceId()), numberOfTasks)).addImportedDocument(importerDocument);
+		}
+
+		try {
+			if (numberOfTasks == 1) {
+				// Integrate on the calling thread
+				return integrateDocumentsTasks.get(0).execute();
+			}
+
+			for (IntegrateDocumentsTask integrateDocumentsTask : integrateDocumentsTasks) {
+				this.taskManager.executeTask(integrateDocumentsTask);
+			}
 
-				// Returns null if document is already integrated
-				if (documentVersion != null) {
-					documentVersions.add(documentVersion);
+			// Wait for all tasks before failing so that no task is still integrating documents
+			List<DocumentVersion> documentVersions = new ArrayList<>();
+			Exception integrationException = null;
+			for (IntegrateDocumentsTask integrateDocumentsTask : integrateDocumentsTasks) {
+				try {
+					List<DocumentVersion> integratedDocumentVersions = integrateDocumentsTask.get();
+					if (integratedDocumentVersions == null) {
+						throw new PumaImporterOperationException("Integration of documents was interrupted");
+					}
+					documentVersions.addAll(integratedDocumentVersions);
+
+				} catch (Exception e) {
+					integrationException = e;
 				}
+			}
 
-			} catch (PumaDocumentConversionException | PumaFileService.PumaFilePersistenceException pdce) {
-				log.error("Could not integrate document (" + importerDocument.toString() + ") : " + pdce.getMessage(), pdce);
+			if (integrationException != null) {
+				throw integrationException;
 			}
+
+			return documentVersions;
+
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to integrate documents from importer " + importer + " : " + e.getMessage(), e);
 		}
+	}
 
-		return documentVersions;
+	/**
+	 * Removes the documents of a page that are already imported and not modified at source : the DocumentConverter
+	 * would not integrate them. The documents already imported are resolved for the whole page with a single query
+	 * rather than by a lookup in the conversion of each document.
+	 * @param importedDocuments The documents of the page
+	 * @param importer The importer from which the documents were obtained
+	 * @param forceUpdate True if existing documents are updated
+	 * @param updateCitations True if the citations of existing documents are updated
+	 * @return The documents to convert
+	 */
+	private List<BaseDocument> removeUnchangedDocuments(List<BaseDocument> importedDocuments, Importer importer, boolean forceUpdate, boolean updateCitations) {
+		if (forceUpdate || updateCitations || importedDocuments.isEmpty()) {
+			return importedDocuments;
+		}
+
+		Set<String> sourceIds = importedDocuments.stream().map(BaseDocument::getSourceId).filter(Objects::nonNull).collect(Collectors.toSet());
+		Map<String, Long> documentVersionIds = this.documentVersionService.getDocumentVersionIdsAlreadyPresent(sourceIds, importer.getShortName());
+
+		List<BaseDocument> documentsToConvert = new ArrayList<>();
+		for (BaseDocument importerDocument : importedDocuments) {
+			if (importerDocument.isModifiedAtSource() || !documentVersionIds.containsKey(importerDocument.getSourceId())) {
+				documentsToConvert.add(importerDocument);
+
+			} else {
+				log.debug("Document version already exists " + documentVersionIds.get(importerDocument.getSourceId()) + " : " + importerDocument.getSourceId() + " for importer " + importer.getShortName());
+
+				// Delete the data streamed to temporary files
+				ImporterResponseReader.deleteDataFiles(importerDocument);
+			}
+		}
+
+		if (documentsToConvert.size() < importedDocuments.size()) {
+			log.info("Skipping " + (importedDocuments.size() - documentsToConvert.size()) + " documents already imported from importer " + importer.getShortName());
+		}
+
+		return documentsToConvert;
 	}
 
 	/**
@@ -515,6 +986,32 @@ public class ImporterManager implements TaskCompletionHandler {
 		}
 	}
 
+	/**
+	 * Iterate over documents and pass those having no active download nor pending resolver to the next stage of the
+	 * document pipeline (the others are passed by the FileDownloader or the URLResolver once they have terminated).
+	 * @param documentVersions The document versions containing PumaFiles
+	 */
+	private void notifyFilesSaved(List<DocumentVersion> documentVersions) {
+		List<Long> documentVersionIds = new ArrayList<>();
+		for (DocumentVersion documentVersion : documentVersions) {
+			if (!this.fileDownloader.isDownloadingFilesForDocumentVersion(documentVersion) && !this.isResolvingUrlsForDocumentVersion(documentVersion)) {
+				documentVersionIds.add(documentVersion.getId());
+			}
+		}
+
+		this.documentPipeline.onStageCompleted(PipelineStage.FILES_SAVED, documentVersionIds);
+	}
+
+	private boolean isResolvingUrlsForDocumentVersion(DocumentVersion documentVersion) {
+		for (ResolverInfo resolverInfo : documentVersion.getResolverInfos()) {
+			if (resolverInfo.getStatus().equals(ResolverInfoStatus.PENDING) || this.urlResolver.isResolving(resolverInfo)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	/**
 	 * Iterate over documents and request URLResolver to resolve all those required for the document.
 	 * @param documentVersions The document versions containing ResolverInfos
@@ -567,8 +1064,4 @@ public class ImporterManager implements TaskCompletionHandler {
 	public long getNumberOfActiveOperations() {
 		return this.operationTasks.size();
 	}
-
-	private DocumentVersion getNextDocumentVersionForReimport(Importer importer, Long lastReimportId) {
-		return this.importerService.getNextDocumentVersionForReimport(importer, lastReimportId);
-	}
 }
@@ -15,6 +15,7 @@
  */
 package eu.ill.puma.importermanager;
 
+import eu.ill.puma.taskmanager.TaskBackoffPolicy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
@@ -39,6 +40,42 @@ public class ImporterManagerConfiguration {
 	@Value("${puma.importerManager.importer.healthUrl}")
 	public String importerHealthUrl;
 
+	@Value("${puma.importerManager.importer.pipeline.readAheadDepth}")
+	public int importerPipelineReadAheadDepth;
+
+	@Value("${puma.importerManager.importer.integration.parallelism}")
+	public int importerIntegrationParallelism;
+
+	@Value("${puma.importerManager.importer.reimport.batchSize}")
+	public int importerReimportBatchSize;
+
+	@Value("${puma.importerManager.importer.streaming.enabled}")
+	public boolean importerStreamingEnabled;
+
+	@Value("${puma.importerManager.importer.client.maxConnectionsPerRoute}")
+	public int importerClientMaxConnectionsPerRoute;
+
+	@Value("${puma.importerManager.importer.client.keepAliveDuration}")
+	public long importerClientKeepAliveDuration;
+
+	@Value("${puma.importerManager.importer.client.connectTimeout}")
+	public int importerClientConnectTimeout;
+
+	@Value("${puma.importerManager.importer.client.readTimeout}")
+	public int importerClientReadTimeout;
+
+	@Value("${puma.importerManager.importer.circuitBreaker.failureThreshold}")
+	public int importerCircuitBreakerFailureThreshold;
+
+	@Value("${puma.importerManager.importer.circuitBreaker.openDuration}")
+	public long importerCircuitBreakerOpenDuration;
+
+	@Value("${puma.importerManager.importer.health.cacheDuration}")
+	public long importerHealthCacheDuration;
+
+	@Value("${puma.importerManager.importer.spool.path}")
+	public String importerSpoolPath;
+
 	@Value("${puma.importerManager.resolver.url}")
 	public String resolverUrl;
 
@@ -51,4 +88,55 @@ public class ImporterManagerConfiguration {
 	@Value("${puma.importerManager.resolver.doiParamName}")
 	public String resolverDoiParamName;
 
+	@Value("${puma.importerManager.downloader.backoff.initialDelay}")
+	public long downloaderBackoffInitialDelay;
+
+	@Value("${puma.importerManager.downloader.backoff.maxDelay}")
+	public long downloaderBackoffMaxDelay;
+
+	@Value("${puma.importerManager.downloader.backoff.multiplier}")
+	public double downloaderBackoffMultiplier;
+
+	@Value("${puma.importerManager.downloader.backoff.jitter}")
+	public double downloaderBackoffJitter;
+
+	@Value("${puma.importerManager.resolver.backoff.initialDelay}")
+	public long resolverBackoffInitialDelay;
+
+	@Value("${puma.importerManager.resolver.backoff.maxDelay}")
+	public long resolverBackoffMaxDelay;
+
+	@Value("${puma.importerManager.resolver.backoff.multiplier}")
+	public double resolverBackoffMultiplier;
+
+	@Value("${puma.importerManager.resolver.backoff.jitter}")
+	public double resolverBackoffJitter;
+
+	@Value("${spring.datasource.hikari.maximum-pool-size:10}")
+	public int databaseMaximumPoolSize;
+
+	/**
+	 * Returns the number of tasks between which the documents of a page are integrated : the configured parallelism,
+	 * kept below the size of the database connection pool so that a connection remains for the other components
+	 * @return The integration parallelism
+	 */
+	public int getIntegrationParallelism() {
+		return Math.max(1, Math.min(this.importerIntegrationParallelism, this.databaseMaximumPoolSize - 1));
+	}
+
+	/**
+	 * Returns the backoff policy used to retry downloads that are BUSY
+	 * @return The downloader backoff policy
+	 */
+	public TaskBackoffPolicy getDownloaderBackoffPolicy() {
+		return new TaskBackoffPolicy(this.downloaderBackoffInitialDelay, this.downloaderBackoffMaxDelay, this.downloaderBackoffMultiplier, this.downloaderBackoffJitter);
+	}
+
+	/**
+	 * Returns the backoff policy used to retry resolves that are BUSY
+	 * @return The resolver backoff policy
+	 */
+	public TaskBackoffPolicy getResolverBackoffPolicy() {
+		return new TaskBackoffPolicy(this.resolverBackoffInitialDelay, this.resolverBackoffMaxDelay, this.resolverBackoffMultiplier, this.resolverBackoffJitter);
+	}
 }
@@ -18,7 +18,9 @@ package eu.ill.puma.importermanager.downloader;
 import eu.ill.puma.core.error.PumaError;
 import eu.ill.puma.core.utils.FileDownloader.FileDownloaderResponse;
 import eu.ill.puma.core.utils.FileDownloader.FileDownloaderResponseStatus;
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
 import eu.ill.puma.importermanager.downloader.task.ActivatePendingDownloadsTask;
+import eu.ill.puma.importermanager.downloader.task.ExecuteWaitingDownloadsTask;
 import eu.ill.puma.importermanager.downloader.task.DownloadFileTask;
 import eu.ill.puma.importermanager.resolver.PumaFileUrlResolver;
 import eu.ill.puma.persistence.domain.document.DocumentVersion;
@@ -27,7 +29,11 @@ import eu.ill.puma.persistence.domain.document.enumeration.PumaFileStatus;
 import eu.ill.puma.persistence.service.document.PumaFileService;
 import eu.ill.puma.taskmanager.Task;
 import eu.ill.puma.taskmanager.TaskCompletionHandler;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskManager;
+import eu.ill.puma.taskmanager.journal.TaskJournalEntry;
+import eu.ill.puma.taskmanager.pipeline.DocumentPipeline;
+import eu.ill.puma.taskmanager.pipeline.PipelineStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,8 +41,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 
@@ -45,6 +52,9 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 
 	private static final Logger log = LoggerFactory.getLogger(PumaFileDownloader.class);
 
+	// Maximum number of pending files read from the database at a time
+	private static final int ACTIVATION_GROUP_SIZE = 100;
+
 	@Autowired
 	private PumaFileService pumaFileService;
 
@@ -54,8 +64,26 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 	@Autowired
 	private TaskManager taskManager;
 
+	@Autowired
+	private ImporterManagerConfiguration configuration;
+
+	@Autowired
+	private DocumentPipeline documentPipeline;
+
 	private HashMap<PumaFile, DownloadFileTask> activeDownloads = new HashMap<>();
 
+	// Number of active downloads of each document version
+	private HashMap<Long, Integer> numberOfActiveDownloadsByDocumentVersionId = new HashMap<>();
+
+	// Downloads held back while the download lane is full
+	private Deque<DownloadFileTask> waitingDownloads = new ArrayDeque<>();
+	private boolean waitingForCapacity = false;
+
+	// Activation of the pending downloads : id of the last file read from the database (null when not activating) and
+	// number of downloads still to start (null for all)
+	private Long lastActivatedPumaFileId = null;
+	private Integer numberOfDownloadsToActivate = null;
+
 	@Value("${puma.importerManager.downloader.recoverOnRestart}")
 	private Boolean recoverOnRestart;
 
@@ -104,7 +132,7 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 				this.taskManager.cancelTask(activeDownloadTask);
 
 				// Remove from active downloads
-				this.activeDownloads.remove(pumaFile);
+				this.removeActiveDownload(pumaFile);
 			}
 		}
 	}
@@ -121,6 +149,27 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 		return this.activeDownloads.keySet().contains(pumaFile);
 	}
 
+	public synchronized boolean isDownloadingFilesForDocumentVersion(DocumentVersion documentVersion) {
+		return this.numberOfActiveDownloadsByDocumentVersionId.containsKey(documentVersion.getId());
+	}
+
+	private void addActiveDownload(PumaFile pumaFile, DownloadFileTask downloadFileTask) {
+		this.activeDownloads.put(pumaFile, downloadFileTask);
+
+		if (pumaFile.getDocumentVersion() != null) {
+			this.numberOfActiveDownloadsByDocumentVersionId.merge(pumaFile.getDocumentVersion().getId(), 1, Integer::sum);
+		}
+	}
+
+	private void removeActiveDownload(PumaFile pumaFile) {
+		DownloadFileTask downloadFileTask = this.activeDownloads.remove(pumaFile);
+
+		if (downloadFileTask != null && downloadFileTask.getPumaFile().getDocumentVersion() != null) {
+			// The count is removed with the last download of the document version
+			this.numberOfActiveDownloadsByDocumentVersionId.computeIfPresent(downloadFileTask.getPumaFile().getDocumentVersion().getId(), (documentVersionId, numberOfActiveDownloads) -> numberOfActiveDownloads > 1 ? numberOfActiveDownloads - 1 : null);
+		}
+	}
+
 	public List<PumaFile> getActiveAndPendingDownloads() {
 		// Get all files that are pending, have transient resolve errors, not saved or have resolve not supported status
 		List<PumaFile> pendingFiles = this.pumaFileService.getAllRequiringDownload();
@@ -129,7 +178,24 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 	}
 
 	private void recoverDownloads() {
-		this.activatePendingDownloads(null);
+		// Restart the downloads recorded in the task journal rather than scanning all files requiring a download
+		if (this.taskManager.isTaskJournalRecovered()) {
+			List<TaskJournalEntry> journaledDownloads = this.taskManager.takeRecoveredTasks(DownloadFileTask.JOURNAL_TYPE);
+
+			log.info("Restarting download of " + journaledDownloads.size() + " puma files from the task journal");
+
+			for (TaskJournalEntry journaledDownload : journaledDownloads) {
+				Long pumaFileId = journaledDownload.getIdAsLong();
+				PumaFile pumaFile = pumaFileId != null ? this.pumaFileService.getById(pumaFileId) : null;
+
+				if (pumaFile != null && (pumaFile.getStatus().equals(PumaFileStatus.PENDING) || pumaFile.getStatus().equals(PumaFileStatus.DOWNLOAD_COMPLETED))) {
+					this.performDownload(pumaFile);
+				}
+			}
+
+		} else {
+			this.activatePendingDownloads(null);
+		}
 	}
 
 	public void activatePendingDownloadsAsync(int maxNumberToDownload) {
@@ -149,39 +215,76 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 		});
 	}
 
-	public void activatePendingDownloads(Integer maxNumberToDownload) {
-		List<PumaFile> pendingFiles = this.getActiveAndPendingDownloads();
+	/**
+	 * Starts the download of the files requiring one. The files are read from the database a group at a time, each
+	 * group being no larger than the remaining capacity of the download lane.
+	 * @param maxNumberToDownload The maximum number of downloads to start (null for all)
+	 */
+	public synchronized void activatePendingDownloads(Integer maxNumberToDownload) {
+		log.info("Restarting download of " + (maxNumberToDownload == null ? "all" : maxNumberToDownload) + " pending puma files");
+
+		this.lastActivatedPumaFileId = 0L;
+		this.numberOfDownloadsToActivate = maxNumberToDownload;
 
-		// Cleanup duplicates (same origin url, doc version, doc type...)
-		List<PumaFile> uniquePendingFiles = this.cancelDuplicatedPendingFiles(pendingFiles);
+		this.activateNextPendingDownloads();
+	}
 
-		int numberToDownload = uniquePendingFiles.size();
-		if (maxNumberToDownload != null) {
-			numberToDownload = Math.min(numberToDownload, maxNumberToDownload);
+	private void activateNextPendingDownloads() {
+		// Not activating, or downloads are still waiting for the lane
+		if (this.lastActivatedPumaFileId == null || !this.waitingDownloads.isEmpty()) {
+			return;
 		}
 
-		log.info("Restarting download of " + numberToDownload + " puma files");
+		int groupSize = Math.min(this.taskManager.getRemainingCapacity(TaskLane.DOWNLOAD), ACTIVATION_GROUP_SIZE);
+		if (this.numberOfDownloadsToActivate != null) {
+			groupSize = Math.min(groupSize, this.numberOfDownloadsToActivate);
+		}
 
-		for (int i = 0; i < numberToDownload; i++) {
-			PumaFile pumaFile = uniquePendingFiles.get(i);
-			this.performDownload(pumaFile);
+		if (groupSize > 0) {
+			List<PumaFile> pendingFiles = this.pumaFileService.getNextGroupRequiringDownloadAfter(this.lastActivatedPumaFileId, groupSize);
+			for (PumaFile pumaFile : pendingFiles) {
+				this.lastActivatedPumaFileId = pumaFile.getId();
+
+				// Cleanup duplicates (same origin url, doc type...)
+				if (!this.cancelDuplicatedPendingFile(pumaFile)) {
+					this.performDownload(pumaFile);
+
+					if (this.numberOfDownloadsToActivate != null) {
+						this.numberOfDownloadsToActivate--;
+					}
+				}
+			}
+
+			if (pendingFiles.size() < groupSize) {
+				// No more files requiring a download
+				this.lastActivatedPumaFileId = null;
+			}
+		}
+
+		if (this.numberOfDownloadsToActivate != null && this.numberOfDownloadsToActivate <= 0) {
+			this.lastActivatedPumaFileId = null;
+		}
+
+		// Read the next group when the lane has capacity again
+		if (this.lastActivatedPumaFileId != null) {
+			this.waitForCapacity();
+
+		} else {
+			log.info("Pending puma file downloads have all been started");
 		}
 	}
 
-	private List<PumaFile> cancelDuplicatedPendingFiles(List<PumaFile> allPendingFiles) {
-		List<PumaFile> uniqueFiles = new ArrayList<>();
-		for (PumaFile pumaFile : allPendingFiles) {
-			if (uniqueFiles.contains(pumaFile)) {
-				pumaFile.setStatus(PumaFileStatus.CANCELLED);
-				this.pumaFileService.saveDBOnly(pumaFile);
-				log.info("Cancelling duplicated file" + pumaFile);
+	private boolean cancelDuplicatedPendingFile(PumaFile pumaFile) {
+		DownloadFileTask activeDownloadTask = this.activeDownloads.get(pumaFile);
+		if (activeDownloadTask != null && !activeDownloadTask.getPumaFile().getId().equals(pumaFile.getId())) {
+			pumaFile.setStatus(PumaFileStatus.CANCELLED);
+			this.pumaFileService.saveDBOnly(pumaFile);
+			log.info("Cancelling duplicated file" + pumaFile);
 
-			} else {
-				uniqueFiles.add(pumaFile);
-			}
+			return true;
 		}
 
-		return uniqueFiles;
+		return false;
 	}
 
 	private void download(PumaFile pumaFile) {
@@ -189,10 +292,52 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 		DownloadFileTask downloadFileTask = new DownloadFileTask(pumaFile);
 
 		// Add to active tasks
-		this.activeDownloads.put(pumaFile, downloadFileTask);
+		this.addActiveDownload(pumaFile, downloadFileTask);
+
+		// Execute task, or hold it back until the download lane has capacity (keeping the order of the waiting downloads)
+		if (!this.waitingDownloads.isEmpty() || !taskManager.tryExecuteTask(downloadFileTask, this)) {
+			this.waitingDownloads.add(downloadFileTask);
+			this.taskManager.recordHeldTask(downloadFileTask);
+			this.waitForCapacity();
+		}
+	}
+
+	private void waitForCapacity() {
+		if (!this.waitingForCapacity) {
+			this.waitingForCapacity = true;
+			// The waiting downloads are submitted (and the activation continued) by a task rather than by the scheduler thread
+			this.taskManager.whenCapacityAvailable(TaskLane.DOWNLOAD, () -> this.taskManager.executeTask(new ExecuteWaitingDownloadsTask(this)));
+		}
+	}
+
+	/**
+	 * Submits the downloads held back while the download lane was full then continues the activation of the pending
+	 * downloads. Called by the ExecuteWaitingDownloadsTask once the lane has capacity.
+	 */
+	public synchronized void executeWaitingDownloads() {
+		this.waitingForCapacity = false;
+
+		while (!this.waitingDownloads.isEmpty()) {
+			DownloadFileTask downloadFileTask = this.waitingDownloads.peek();
+
+			// Ignore downloads cancelled while waiting
+			if (this.activeDownloads.get(downloadFileTask.getPumaFile()) != downloadFileTask) {
+				this.waitingDownloads.poll();
+				this.taskManager.releaseHeldTask(downloadFileTask);
+
+			} else if (taskManager.tryExecuteTask(downloadFileTask, this)) {
+				this.waitingDownloads.poll();
+				this.taskManager.releaseHeldTask(downloadFileTask);
+
+			} else {
+				// Lane full again
+				this.waitForCapacity();
+				return;
+			}
+		}
 
-		// Execute task
-		taskManager.executeTask(downloadFileTask, this);
+		// Continue the activation of the pending downloads
+		this.activateNextPendingDownloads();
 	}
 
 	@Override
@@ -210,11 +355,9 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 
 			// Check for busy response
 			if (response.getStatus().equals(FileDownloaderResponseStatus.BUSY)) {
-				// Sleep to avoid excessive CPU with only a couple of tasks in the pipeline
-				Thread.sleep(1000);
-
-				// Put the task back into the task queue
-				taskManager.executeTask(downloadFileTask, this);
+				// Put the task back into the task queue after a backoff delay (without blocking this thread)
+				long delay = taskManager.retryTaskWithBackoff(downloadFileTask, this.configuration.getDownloaderBackoffPolicy(), this);
+				log.debug("Retrying download of puma file " + pumaFile + " in " + delay + "ms");
 
 				return;
 
@@ -251,7 +394,10 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 		pumaFile = pumaFileService.saveDBOnly(pumaFile);
 
 		// Remove from the hash map of current downloads
-		this.activeDownloads.remove(pumaFile);
+		this.removeActiveDownload(pumaFile);
+
+		// Start the analysis once all the files of the document have been downloaded
+		this.onDownloadTerminated(pumaFile);
 	}
 
 	@Override
@@ -273,11 +419,25 @@ public class PumaFileDownloader implements TaskCompletionHandler {
 		pumaFile = pumaFileService.saveDBOnly(pumaFile);
 
 		// Remove from the hash map of current downloads
-		this.activeDownloads.remove(pumaFile);
+		this.removeActiveDownload(pumaFile);
+
+		// Start the analysis once all the files of the document have been downloaded
+		this.onDownloadTerminated(pumaFile);
+	}
+
+	private void onDownloadTerminated(PumaFile pumaFile) {
+		DocumentVersion documentVersion = pumaFile.getDocumentVersion();
+		if (documentVersion != null && !this.isDownloadingFilesForDocumentVersion(documentVersion) && !this.urlResolver.hasPendingResolversForDocumentVersion(documentVersion)) {
+			this.documentPipeline.onStageCompleted(PipelineStage.FILES_SAVED, documentVersion.getId());
+		}
 	}
 
 	public long getNumberOfActiveDownloads() {
 		return this.activeDownloads.size();
 	}
 
+	public synchronized long getNumberOfWaitingDownloads() {
+		return this.waitingDownloads.size();
+	}
+
 }
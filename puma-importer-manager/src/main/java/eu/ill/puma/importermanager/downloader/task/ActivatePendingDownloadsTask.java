@@ -16,8 +16,11 @@
 package eu.ill.puma.importermanager.downloader.task;
 
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class ActivatePendingDownloadsTask extends Task<Integer>  {
 
 	private Integer maxNumberToDownload;
@@ -35,4 +38,9 @@ public class ActivatePendingDownloadsTask extends Task<Integer>  {
 	public Integer getMaxNumberToDownload() {
 		return this.maxNumberToDownload;
 	}
+
+	@Override
+	public String getCoalescingKey() {
+		return "activate-pending-downloads:" + this.maxNumberToDownload;
+	}
 }
@@ -18,8 +18,11 @@ package eu.ill.puma.importermanager.downloader.task;
 import eu.ill.puma.importermanager.downloader.PumaFileDownloader;
 import eu.ill.puma.persistence.domain.document.PumaFile;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class AsyncPumaFileDownloaderTask extends Task<Void>  {
 
 	private PumaFile pumaFile;
@@ -38,4 +41,10 @@ public class AsyncPumaFileDownloaderTask extends Task<Void>  {
 
 		return null;
 	}
+
+	@Override
+	public String getCoalescingKey() {
+		// The file is downloaded once whatever the number of resolved urls pointing to it
+		return this.pumaFile.getId() != null ? "download:" + this.pumaFile.getId() : null;
+	}
 }
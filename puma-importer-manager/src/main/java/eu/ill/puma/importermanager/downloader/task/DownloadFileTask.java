@@ -22,25 +22,41 @@ import eu.ill.puma.core.utils.throttle.Throttle;
 import eu.ill.puma.core.utils.throttle.ThrottleHosts;
 import eu.ill.puma.core.utils.throttle.ThrottleStore;
 import eu.ill.puma.persistence.domain.document.PumaFile;
+import eu.ill.puma.taskmanager.CancellationToken;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+import eu.ill.puma.taskmanager.annotation.ExecutionTimeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
+@ExecutionLane(TaskLane.DOWNLOAD)
+@ExecutionTimeout(value = 10, unit = TimeUnit.MINUTES)
 public class DownloadFileTask extends Task<FileDownloaderResponse>  {
 
 	private static final Logger log = LoggerFactory.getLogger(DownloadFileTask.class);
 
+	public static final String JOURNAL_TYPE = "download";
+
 	protected PumaFile pumaFile;
 
 	private FileDownloader fileDownloader;
+	private Runnable abortDownload;
 
 	public DownloadFileTask(PumaFile pumaFile) {
 		this.pumaFile = pumaFile;
 		this.fileDownloader = new FileDownloader(true);
+		this.abortDownload = this.fileDownloader::abort;
 		this.setPriority(TaskPriority.LOW);
+
+		// Trace the download in the lifecycle of the document
+		if (pumaFile.getDocumentVersion() != null) {
+			this.getTraceContext().addDocumentVersion(pumaFile.getDocumentVersion().getId());
+		}
 	}
 
 	@Override
@@ -61,7 +77,17 @@ public class DownloadFileTask extends Task<FileDownloaderResponse>  {
 		if (throttle.throttleOrBusy(ThrottleHosts.getInstance().getThrottleTime(host))) {
 			// perform download
 			log.info("Downloading puma file (" + pumaFile.getId() + ") from : " + urlString);
-			fileDownloaderResponse = fileDownloader.downloadFileFrom(urlString);
+
+			// A blocked socket read does not respond to interruption : abort the request if the task is stopped. The
+			// callback is only registered during the download so that callbacks do not pile up across retries.
+			CancellationToken cancellationToken = this.getCancellationToken();
+			cancellationToken.onCancellationRequested(this.abortDownload);
+			try {
+				fileDownloaderResponse = fileDownloader.downloadFileFrom(urlString);
+
+			} finally {
+				cancellationToken.removeCancellationCallback(this.abortDownload);
+			}
 			log.info("Downloaded  puma file (" + pumaFile.getId() + ") from : " + urlString);
 
 			if (fileDownloaderResponse.getFileData().length == 0) {
@@ -83,6 +109,11 @@ public class DownloadFileTask extends Task<FileDownloaderResponse>  {
 		return fileDownloaderResponse;
 	}
 
+	@Override
+	public String getJournalKey() {
+		return pumaFile.getId() != null ? JOURNAL_TYPE + ":" + pumaFile.getId() : null;
+	}
+
 	public PumaFile getPumaFile() {
 		return pumaFile;
 	}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.downloader.task;
+
+import eu.ill.puma.importermanager.downloader.PumaFileDownloader;
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
+import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+
+/**
+ * Submits the downloads held back while the download lane was full, once it has capacity again
+ */
+@ExecutionLane(TaskLane.CONTROL)
+public class ExecuteWaitingDownloadsTask extends Task<Void>  {
+
+	private PumaFileDownloader downloader;
+
+	public ExecuteWaitingDownloadsTask(PumaFileDownloader downloader) {
+		this.downloader = downloader;
+		this.setPriority(TaskPriority.ASAP);
+	}
+
+	@Override
+	public Void execute() throws Exception {
+		this.downloader.executeWaitingDownloads();
+		return null;
+	}
+
+	@Override
+	public String getCoalescingKey() {
+		return "execute-waiting-downloads";
+	}
+}
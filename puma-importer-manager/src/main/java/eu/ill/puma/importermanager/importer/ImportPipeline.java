@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * State of a pipelined import operation : the pages of the importer are fetched ahead of their integration, up to a
+ * bounded read-ahead depth, and integrated one at a time in the order in which they were fetched.
+ *
+ * The cursor of the next page to fetch is held here while the cursor of the ImporterOperation is only advanced once
+ * the corresponding page is integrated, so that a recovered operation restarts from the last integrated page. A
+ * reimport reads its blocks of documents from the database rather than with cursors : the Id of the last document
+ * version fetched is held here and that of each page is checkpointed once the page is integrated.
+ *
+ * Not thread safe : access is synchronised by the ImporterManager.
+ */
+public class ImportPipeline {
+
+	private final int readAheadDepth;
+	private final Deque<ImporterResponse> fetchedPages = new ArrayDeque<>();
+	private ImporterResponse integratingPage;
+	private String fetchCursor;
+	private Long reimportFetchPosition;
+	private final Map<ImporterResponse, Long> reimportPagePositions = new IdentityHashMap<>();
+	private boolean fetchWaiting = false;
+	private boolean lastPageFetched = false;
+
+	/**
+	 * Creates the pipeline of an operation
+	 * @param fetchCursor The cursor from which to fetch the first page (null for a new search)
+	 * @param readAheadDepth The maximum number of pages fetched ahead of the page being integrated
+	 */
+	public ImportPipeline(String fetchCursor, int readAheadDepth) {
+		this.fetchCursor = fetchCursor;
+		this.readAheadDepth = readAheadDepth;
+	}
+
+	/**
+	 * Adds a fetched page, waiting to be integrated
+	 * @param page The page returned by the importer
+	 */
+	public void addFetchedPage(ImporterResponse page) {
+		this.fetchedPages.add(page);
+	}
+
+	/**
+	 * Adds a fetched page of a reimport, waiting to be integrated
+	 * @param page The page returned by the importer
+	 * @param lastDocumentVersionId The Id of the last document version of the page, from which the next block is read
+	 */
+	public void addFetchedReimportPage(ImporterResponse page, Long lastDocumentVersionId) {
+		this.fetchedPages.add(page);
+		this.reimportFetchPosition = lastDocumentVersionId;
+		this.reimportPagePositions.put(page, lastDocumentVersionId);
+	}
+
+	/**
+	 * Takes the Id of the last document version of an integrated page of a reimport
+	 * @param page The integrated page
+	 * @return The Id of the last document version of the page (null if not a page of a reimport)
+	 */
+	public Long takeReimportPagePosition(ImporterResponse page) {
+		return this.reimportPagePositions.remove(page);
+	}
+
+	/**
+	 * Takes the next page to integrate if no page is already being integrated
+	 * @return The page to integrate, null if none available or if a page is already being integrated
+	 */
+	public ImporterResponse startIntegration() {
+		if (this.integratingPage != null) {
+			return null;
+		}
+
+		this.integratingPage = this.fetchedPages.poll();
+
+		return this.integratingPage;
+	}
+
+	/**
+	 * Marks the page being integrated as done
+	 */
+	public void endIntegration() {
+		this.integratingPage = null;
+	}
+
+	/**
+	 * Determines if another page can be fetched without exceeding the read-ahead depth
+	 * @return True if the next page can be fetched
+	 */
+	public boolean canFetch() {
+		return this.fetchedPages.size() < this.readAheadDepth;
+	}
+
+	/**
+	 * Determines if all pages have been fetched and integrated
+	 * @return True if the operation is complete
+	 */
+	public boolean isComplete() {
+		return this.lastPageFetched && this.integratingPage == null && this.fetchedPages.isEmpty();
+	}
+
+	/**
+	 * Drops the pages waiting for integration, deleting the data they streamed to temporary files. The page being
+	 * integrated is left to the integration stage.
+	 */
+	public void discard() {
+		this.fetchedPages.forEach(page -> ImporterResponseReader.deleteDataFiles(page.getData()));
+		this.fetchedPages.clear();
+		this.reimportPagePositions.clear();
+	}
+
+	public int getNumberOfFetchedPages() {
+		return this.fetchedPages.size();
+	}
+
+	public String getFetchCursor() {
+		return fetchCursor;
+	}
+
+	public void setFetchCursor(String fetchCursor) {
+		this.fetchCursor = fetchCursor;
+	}
+
+	public Long getReimportFetchPosition() {
+		return reimportFetchPosition;
+	}
+
+	public void setReimportFetchPosition(Long reimportFetchPosition) {
+		this.reimportFetchPosition = reimportFetchPosition;
+	}
+
+	public boolean isFetchWaiting() {
+		return fetchWaiting;
+	}
+
+	public void setFetchWaiting(boolean fetchWaiting) {
+		this.fetchWaiting = fetchWaiting;
+	}
+
+	public boolean isLastPageFetched() {
+		return lastPageFetched;
+	}
+
+	public void setLastPageFetched(boolean lastPageFetched) {
+		this.lastPageFetched = lastPageFetched;
+	}
+}
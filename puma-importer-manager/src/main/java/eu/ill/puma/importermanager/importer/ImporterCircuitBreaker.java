@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+/**
+ * Circuit breaker of an importer, fed by the outcome of the import tasks, also caching the health of the importer.
+ *
+ * The circuit is CLOSED while the importer responds. After a number of consecutive failures it is OPEN : requests to
+ * the importer are delayed until the end of the open duration. It is then HALF_OPEN : a single trial request is let
+ * through, closing the circuit if it succeeds and opening it again if it fails. A trial request whose outcome is not
+ * known (its operation has been cancelled) is released so that another request can be tried.
+ *
+ * Times are passed by the caller (System.currentTimeMillis()) so that the transitions can be tested.
+ */
+public class ImporterCircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openDurationMillis;
+	private final long healthCacheDurationMillis;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures = 0;
+	private long openedAt;
+	private boolean trialInProgress = false;
+	private Object trialRequester;
+
+	private Boolean cachedHealth = null;
+	private long healthCheckedAt;
+
+	/**
+	 * @param failureThreshold The number of consecutive failures opening the circuit
+	 * @param openDurationMillis The time during which requests are delayed once the circuit is open
+	 * @param healthCacheDurationMillis The time during which the health of the importer is cached
+	 */
+	public ImporterCircuitBreaker(int failureThreshold, long openDurationMillis, long healthCacheDurationMillis) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openDurationMillis = Math.max(0, openDurationMillis);
+		this.healthCacheDurationMillis = Math.max(0, healthCacheDurationMillis);
+	}
+
+	/**
+	 * Determines when a request can be sent to the importer. When the open duration has elapsed the circuit becomes
+	 * HALF_OPEN and the caller obtains the trial request.
+	 * @param now The current time in milliseconds
+	 * @return The delay in milliseconds before sending the request, 0 to send it straight away
+	 */
+	public long getDelayBeforeRequest(long now) {
+		return this.getDelayBeforeRequest(now, null);
+	}
+
+	/**
+	 * Determines when a request can be sent to the importer, recording the requester obtaining the trial request so
+	 * that the trial can be released if it is abandoned (see onTrialAbandoned)
+	 * @param now The current time in milliseconds
+	 * @param requester The requester (can be null)
+	 * @return The delay in milliseconds before sending the request, 0 to send it straight away
+	 */
+	public synchronized long getDelayBeforeRequest(long now, Object requester) {
+		if (this.state == State.CLOSED) {
+			return 0;
+		}
+
+		long remainingMillis = this.openedAt + this.openDurationMillis - now;
+		if (this.state == State.OPEN && remainingMillis <= 0) {
+			this.state = State.HALF_OPEN;
+		}
+
+		if (this.state == State.HALF_OPEN && !this.trialInProgress) {
+			this.trialInProgress = true;
+			this.trialRequester = requester;
+			return 0;
+		}
+
+		// Wait for the end of the open duration or for the outcome of the trial
+		return remainingMillis > 0 ? remainingMillis : this.openDurationMillis;
+	}
+
+	/**
+	 * Records a request answered by the importer : the circuit is closed
+	 * @param now The current time in milliseconds
+	 */
+	public synchronized void onSuccess(long now) {
+		this.state = State.CLOSED;
+		this.consecutiveFailures = 0;
+		this.trialInProgress = false;
+		this.trialRequester = null;
+
+		this.setHealth(true, now);
+	}
+
+	/**
+	 * Records a failed request : the circuit opens once the failure threshold is reached or if the trial failed
+	 * @param now The current time in milliseconds
+	 */
+	public synchronized void onFailure(long now) {
+		this.consecutiveFailures++;
+
+		if (this.state == State.HALF_OPEN || this.consecutiveFailures >= this.failureThreshold) {
+			this.state = State.OPEN;
+			this.openedAt = now;
+			this.trialInProgress = false;
+			this.trialRequester = null;
+
+			this.setHealth(false, now);
+		}
+	}
+
+	/**
+	 * Releases the trial request if it was obtained by the given requester and its outcome will not be reported (the
+	 * request has been cancelled or its result ignored) : the next request becomes the trial
+	 * @param requester The requester that obtained the trial
+	 */
+	public synchronized void onTrialAbandoned(Object requester) {
+		if (this.state == State.HALF_OPEN && this.trialInProgress && requester != null && this.trialRequester == requester) {
+			this.trialInProgress = false;
+			this.trialRequester = null;
+		}
+	}
+
+	/**
+	 * Returns the health of the importer if known : unhealthy while the circuit is open, otherwise the result of the
+	 * last health check or request if still valid
+	 * @param now The current time in milliseconds
+	 * @return The health of the importer, null if it must be checked
+	 */
+	public synchronized Boolean getCachedHealth(long now) {
+		if (this.state == State.OPEN && now < this.openedAt + this.openDurationMillis) {
+			return false;
+		}
+
+		if (this.cachedHealth != null && now - this.healthCheckedAt < this.healthCacheDurationMillis) {
+			return this.cachedHealth;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Caches the health of the importer
+	 * @param healthy True if the importer is healthy
+	 * @param now The current time in milliseconds
+	 */
+	public synchronized void setHealth(boolean healthy, long now) {
+		this.cachedHealth = healthy;
+		this.healthCheckedAt = now;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+}
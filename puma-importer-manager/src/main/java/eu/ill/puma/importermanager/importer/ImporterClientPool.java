@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.persistence.domain.importer.Importer;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Provides the HTTP clients used to call the importers : a single client is shared by all the calls to an importer so
+ * that connections are kept alive and reused from one page to the next, within the limits of a connection pool.
+ *
+ * Responses must be closed (or their entity fully read) for the connections to return to the pool.
+ *
+ * The clients are closed at shutdown, possibly before the import tasks have stopped : the ImporterManager treats the
+ * failure of an import once the pool is closed as an interruption, leaving the operation to be recovered on restart.
+ */
+@Component
+public class ImporterClientPool {
+
+	private static final Logger log = LoggerFactory.getLogger(ImporterClientPool.class);
+
+	@Autowired
+	private ImporterManagerConfiguration configuration;
+
+	private final Map<String, PooledClient> pooledClients = new ConcurrentHashMap<>();
+
+	private volatile boolean closed = false;
+
+	private static class PooledClient {
+
+		private final Client client;
+		private final PoolingHttpClientConnectionManager connectionManager;
+
+		PooledClient(Client client, PoolingHttpClientConnectionManager connectionManager) {
+			this.client = client;
+			this.connectionManager = connectionManager;
+		}
+	}
+
+	/**
+	 * The connector aborts the connection of a response that is closed before the end of its entity has been read, which
+	 * is usually the case once the JSON has been parsed : the end of the entity is read on close so that the connection
+	 * is returned to the pool, unless too much data remains.
+	 */
+	private static class ConnectionReleasingFilter implements ClientResponseFilter {
+
+		private static final int MAX_DRAINED_BYTES = 64 * 1024;
+
+		@Override
+		public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+			if (!responseContext.hasEntity()) {
+				return;
+			}
+
+			responseContext.setEntityStream(new FilterInputStream(responseContext.getEntityStream()) {
+
+				private boolean closed = false;
+
+				@Override
+				public void close() throws IOException {
+					if (this.closed) {
+						return;
+					}
+					this.closed = true;
+
+					try {
+						byte[] buffer = new byte[4096];
+						int drainedBytes = 0;
+						int readBytes;
+						while (drainedBytes < MAX_DRAINED_BYTES && (readBytes = this.in.read(buffer)) != -1) {
+							drainedBytes += readBytes;
+						}
+
+					} finally {
+						super.close();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the client of an importer, created on first use
+	 * @param importer The importer
+	 * @return The shared client of the importer
+	 */
+	public Client getClient(Importer importer) {
+		return this.pooledClients.computeIfAbsent(importer.getUrl(), this::createPooledClient).client;
+	}
+
+	/**
+	 * Returns the state of the connection pools of the importers
+	 * @return The connection statistics of each importer client
+	 */
+	public List<ImporterConnectionStatistics> getConnectionStatistics() {
+		return this.pooledClients.entrySet().stream().map(entry -> {
+			PoolStats poolStats = entry.getValue().connectionManager.getTotalStats();
+
+			ImporterConnectionStatistics statistics = new ImporterConnectionStatistics();
+			statistics.setImporterUrl(entry.getKey());
+			statistics.setNumberOfLeasedConnections(poolStats.getLeased());
+			statistics.setNumberOfAvailableConnections(poolStats.getAvailable());
+			statistics.setNumberOfPendingRequests(poolStats.getPending());
+			statistics.setMaxConnections(poolStats.getMax());
+
+			return statistics;
+		}).collect(Collectors.toList());
+	}
+
+	/**
+	 * Closes the clients and their connections
+	 */
+	@PreDestroy
+	public void close() {
+		this.closed = true;
+
+		this.pooledClients.forEach((importerUrl, pooledClient) -> {
+			log.info("Closing client of importer " + importerUrl);
+			pooledClient.client.close();
+		});
+		this.pooledClients.clear();
+	}
+
+	/**
+	 * Returns true once the clients have been closed (at shutdown)
+	 * @return True if the pool is closed
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	private PooledClient createPooledClient(String importerUrl) {
+		log.info("Creating client of importer " + importerUrl);
+
+		// Connections are kept alive for reuse up to the given duration
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(this.configuration.importerClientKeepAliveDuration, TimeUnit.MILLISECONDS);
+		connectionManager.setDefaultMaxPerRoute(this.configuration.importerClientMaxConnectionsPerRoute);
+		connectionManager.setMaxTotal(this.configuration.importerClientMaxConnectionsPerRoute);
+
+		ClientConfig clientConfig = new ClientConfig();
+		clientConfig.connectorProvider(new ApacheConnectorProvider());
+		clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+		clientConfig.property(ClientProperties.CONNECT_TIMEOUT, this.configuration.importerClientConnectTimeout);
+		clientConfig.property(ClientProperties.READ_TIMEOUT, this.configuration.importerClientReadTimeout);
+		clientConfig.register(new ConnectionReleasingFilter());
+
+		return new PooledClient(ClientBuilder.newClient(clientConfig), connectionManager);
+	}
+}
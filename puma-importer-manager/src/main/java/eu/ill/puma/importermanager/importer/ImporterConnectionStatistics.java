@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+/**
+ * Snapshot of the connection pool of an importer client, used for monitoring
+ */
+public class ImporterConnectionStatistics {
+
+	private String importerUrl;
+	private int numberOfLeasedConnections;
+	private int numberOfAvailableConnections;
+	private int numberOfPendingRequests;
+	private int maxConnections;
+
+	public String getImporterUrl() {
+		return importerUrl;
+	}
+
+	public void setImporterUrl(String importerUrl) {
+		this.importerUrl = importerUrl;
+	}
+
+	public int getNumberOfLeasedConnections() {
+		return numberOfLeasedConnections;
+	}
+
+	public void setNumberOfLeasedConnections(int numberOfLeasedConnections) {
+		this.numberOfLeasedConnections = numberOfLeasedConnections;
+	}
+
+	public int getNumberOfAvailableConnections() {
+		return numberOfAvailableConnections;
+	}
+
+	public void setNumberOfAvailableConnections(int numberOfAvailableConnections) {
+		this.numberOfAvailableConnections = numberOfAvailableConnections;
+	}
+
+	public int getNumberOfPendingRequests() {
+		return numberOfPendingRequests;
+	}
+
+	public void setNumberOfPendingRequests(int numberOfPendingRequests) {
+		this.numberOfPendingRequests = numberOfPendingRequests;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+}
@@ -25,7 +25,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import java.util.HashMap;
@@ -43,6 +42,9 @@ public class ImporterInfoHelper {
 	@Autowired
 	private ImporterService importerService;
 
+	@Autowired
+	private ImporterClientPool importerClientPool;
+
 
 	public Map<String, ImporterInfo> getAllImporterInfos() {
 		Map<String, ImporterInfo> importerInfos = new HashMap<>();
@@ -66,7 +68,7 @@ public class ImporterInfoHelper {
 	private ImporterInfo makeImporterInfoRequest(Importer importer) {
 		try {
 			// Build HTTP client request to get the short name from the importer
-			Client client = ClientBuilder.newClient();
+			Client client = this.importerClientPool.getClient(importer);
 
 			// Create target
 			WebTarget target = client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(configuration.importerInfoUrl);
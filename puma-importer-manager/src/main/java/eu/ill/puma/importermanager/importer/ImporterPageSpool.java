@@ -0,0 +1,331 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.core.domain.document.entities.BaseFile;
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.importermanager.importer.domain.ImporterStatusEnum;
+import eu.ill.puma.importermanager.importer.domain.ResponseMetadata;
+import eu.ill.puma.persistence.domain.importer.Importer;
+import eu.ill.puma.persistence.domain.importer.ImporterOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a copy of the raw pages returned by the importers so that imports can be replayed from disk rather than
+ * from the network (see ImporterOperation.getReplaySpool), for instance to rebuild the corpus when the conversion
+ * of the documents changes.
+ *
+ * Each page is written as gzipped lines of JSON, the metadata of the page (with the cursors of the importer) followed
+ * by one document per line, in {spool path}/{importer id}/{operation id}/page-{number}.ndjson.gz. The pages of an
+ * importer are replayed in the order of the operations then of the pages, the cursor of a replayed page being its path
+ * relative to the directory of the importer. The spool is disabled when no path is configured.
+ */
+@Component
+public class ImporterPageSpool {
+
+	private static final Logger log = LoggerFactory.getLogger(ImporterPageSpool.class);
+
+	private static final String PAGE_PREFIX = "page-";
+	private static final String PAGE_SUFFIX = ".ndjson.gz";
+	private static final String PAGE_FORMAT = PAGE_PREFIX + "%08d" + PAGE_SUFFIX;
+	private static final String OPERATION_FORMAT = "%010d";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	@Autowired
+	private ImporterManagerConfiguration configuration;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Map<Long, Integer> lastPageNumbers = new HashMap<>();
+
+	/**
+	 * The derived current count is not part of the metadata returned by the importers
+	 */
+	@JsonIgnoreProperties({"currentCount"})
+	private static abstract class ResponseMetadataMixIn {
+	}
+
+	/**
+	 * Serializes a file with its data last, so that the base64Encoded flag precedes it as expected by the
+	 * ImporterResponseReader. Data streamed to a temporary file is encoded again in base64 from the file.
+	 */
+	private static class SpooledFileSerializer extends StdSerializer<BaseFile> {
+
+		private static final String FILE_DATA_FIELD = "data";
+		private static final String FILE_BASE64_ENCODED_FIELD = "base64Encoded";
+
+		private final ObjectMapper fileMapper = new ObjectMapper();
+
+		SpooledFileSerializer() {
+			super(BaseFile.class);
+		}
+
+		@Override
+		public void serialize(BaseFile baseFile, JsonGenerator generator, SerializerProvider provider) throws IOException {
+			ObjectNode fields = this.fileMapper.valueToTree(baseFile);
+			fields.remove(FILE_DATA_FIELD);
+
+			Path dataPath = baseFile.getDataPath();
+			if (dataPath != null) {
+				fields.put(FILE_BASE64_ENCODED_FIELD, true);
+			}
+
+			generator.writeStartObject();
+			Iterator<Map.Entry<String, JsonNode>> iterator = fields.fields();
+			while (iterator.hasNext()) {
+				Map.Entry<String, JsonNode> field = iterator.next();
+				provider.defaultSerializeField(field.getKey(), field.getValue(), generator);
+			}
+
+			if (dataPath != null) {
+				generator.writeFieldName(FILE_DATA_FIELD);
+				try (InputStream inputStream = Files.newInputStream(dataPath)) {
+					generator.writeBinary(inputStream, (int)Files.size(dataPath));
+				}
+
+			} else if (baseFile.getData() != null) {
+				generator.writeStringField(FILE_DATA_FIELD, baseFile.getData());
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	public ImporterPageSpool() {
+		SimpleModule module = new SimpleModule();
+		module.addSerializer(BaseFile.class, new SpooledFileSerializer());
+		this.objectMapper.registerModule(module);
+		this.objectMapper.addMixIn(ResponseMetadata.class, ResponseMetadataMixIn.class);
+	}
+
+	/**
+	 * Determines if the spool is enabled, ie if its path is configured
+	 * @return True if the pages are spooled
+	 */
+	public boolean isEnabled() {
+		return this.configuration.importerSpoolPath != null && !this.configuration.importerSpoolPath.isEmpty();
+	}
+
+	/**
+	 * Writes a page returned by an importer to the spool, after the pages already spooled by the operation
+	 * @param importerOperation The importer operation
+	 * @param response The page returned by the importer
+	 * @return The path of the spooled page
+	 * @throws IOException If the page cannot be written
+	 */
+	public synchronized Path spoolPage(ImporterOperation importerOperation, ImporterResponse response) throws IOException {
+		Path operationDirectory = this.getImporterDirectory(importerOperation.getImporter()).resolve(String.format(OPERATION_FORMAT, importerOperation.getId()));
+		Files.createDirectories(operationDirectory);
+
+		// Number the page after those spooled by the operation, including those spooled before a restart
+		Integer lastPageNumber = this.lastPageNumbers.get(importerOperation.getId());
+		if (lastPageNumber == null) {
+			List<Integer> pageNumbers = getPageNumbers(operationDirectory);
+			lastPageNumber = pageNumbers.isEmpty() ? 0 : pageNumbers.get(pageNumbers.size() - 1);
+		}
+		int pageNumber = lastPageNumber + 1;
+		Path pagePath = operationDirectory.resolve(String.format(PAGE_FORMAT, pageNumber));
+
+		// Write to a temporary file first so that a spooled page is always complete
+		Path temporaryPath = operationDirectory.resolve(pagePath.getFileName() + TEMPORARY_SUFFIX);
+		try {
+			try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(temporaryPath))) {
+				this.writePage(outputStream, response);
+			}
+			Files.move(temporaryPath, pagePath, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temporaryPath);
+			throw e;
+		}
+
+		this.lastPageNumbers.put(importerOperation.getId(), pageNumber);
+
+		return pagePath;
+	}
+
+	/**
+	 * Reads a spooled page of an importer. The cursors of the returned page are those of the spool : the status is
+	 * WORKING while pages remain, FINISHED for the last page and NOT_FOUND if the spool of the importer is empty.
+	 * @param importer The importer
+	 * @param cursor The cursor of the page in the spool, null for the first page
+	 * @return The spooled page, the data of the files being held in temporary files
+	 * @throws IOException If the page does not exist or cannot be read
+	 */
+	public ImporterResponse readPage(Importer importer, String cursor) throws IOException {
+		Path importerDirectory = this.getImporterDirectory(importer);
+		Path pagePath = cursor == null ? getFirstPage(importerDirectory, null) : importerDirectory.resolve(cursor).normalize();
+
+		if (pagePath == null) {
+			ResponseMetadata metadata = new ResponseMetadata();
+			metadata.setStatus(ImporterStatusEnum.NOT_FOUND);
+			metadata.setMessage("No page spooled for importer " + importer.getId());
+
+			ImporterResponse emptyResponse = new ImporterResponse();
+			emptyResponse.setMetadata(metadata);
+
+			return emptyResponse;
+		}
+
+		if (!pagePath.startsWith(importerDirectory) || getPageNumber(pagePath) == null || !Files.isRegularFile(pagePath)) {
+			throw new IOException("Spooled page " + cursor + " not found for importer " + importer.getId());
+		}
+
+		ImporterResponse page;
+		try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(pagePath))) {
+			page = new ImporterResponseReader().readValues(inputStream);
+		}
+
+		// Replace the cursors of the importer by those of the spool
+		Path nextPagePath = getNextPage(importerDirectory, pagePath);
+
+		ResponseMetadata metadata = new ResponseMetadata();
+		metadata.setStatus(nextPagePath != null ? ImporterStatusEnum.WORKING : ImporterStatusEnum.FINISHED);
+		metadata.setPreviousCursor(toCursor(pagePath));
+		metadata.setNextCursor(nextPagePath != null ? toCursor(nextPagePath) : null);
+		metadata.setCount((long)page.getData().size());
+		page.setMetadata(metadata);
+
+		return page;
+	}
+
+	private Path getImporterDirectory(Importer importer) throws IOException {
+		if (!this.isEnabled()) {
+			throw new IOException("The importer page spool path is not configured");
+		}
+
+		return Paths.get(this.configuration.importerSpoolPath, String.valueOf(importer.getId())).toAbsolutePath().normalize();
+	}
+
+	private void writePage(OutputStream outputStream, ImporterResponse response) throws IOException {
+		try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+			// One JSON value per line
+			generator.setRootValueSeparator(new SerializedString("\n"));
+
+			this.objectMapper.writeValue(generator, response.getMetadata());
+			for (BaseDocument document : response.getData()) {
+				this.objectMapper.writeValue(generator, document);
+			}
+		}
+	}
+
+	/**
+	 * Returns the page following a page of the spool : the next page of the same operation or the first page of
+	 * the next operation
+	 */
+	private static Path getNextPage(Path importerDirectory, Path pagePath) throws IOException {
+		Path operationDirectory = pagePath.getParent();
+		int pageNumber = getPageNumber(pagePath);
+
+		for (Integer nextPageNumber : getPageNumbers(operationDirectory)) {
+			if (nextPageNumber > pageNumber) {
+				return operationDirectory.resolve(String.format(PAGE_FORMAT, nextPageNumber));
+			}
+		}
+
+		return getFirstPage(importerDirectory, operationDirectory.getFileName().toString());
+	}
+
+	/**
+	 * Returns the first page of the first operation with spooled pages, after a given operation if specified
+	 */
+	private static Path getFirstPage(Path importerDirectory, String afterOperationDirectoryName) throws IOException {
+		if (!Files.isDirectory(importerDirectory)) {
+			return null;
+		}
+
+		List<Path> operationDirectories = new ArrayList<>();
+		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(importerDirectory, Files::isDirectory)) {
+			directoryStream.forEach(operationDirectories::add);
+		}
+		Collections.sort(operationDirectories);
+
+		for (Path operationDirectory : operationDirectories) {
+			if (afterOperationDirectoryName == null || operationDirectory.getFileName().toString().compareTo(afterOperationDirectoryName) > 0) {
+				List<Integer> pageNumbers = getPageNumbers(operationDirectory);
+				if (!pageNumbers.isEmpty()) {
+					return operationDirectory.resolve(String.format(PAGE_FORMAT, pageNumbers.get(0)));
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private static List<Integer> getPageNumbers(Path operationDirectory) throws IOException {
+		List<Integer> pageNumbers = new ArrayList<>();
+		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(operationDirectory, PAGE_PREFIX + "*" + PAGE_SUFFIX)) {
+			for (Path pagePath : directoryStream) {
+				Integer pageNumber = getPageNumber(pagePath);
+				if (pageNumber != null) {
+					pageNumbers.add(pageNumber);
+				}
+			}
+		}
+		Collections.sort(pageNumbers);
+
+		return pageNumbers;
+	}
+
+	private static Integer getPageNumber(Path pagePath) {
+		String fileName = pagePath.getFileName().toString();
+		if (!fileName.startsWith(PAGE_PREFIX) || !fileName.endsWith(PAGE_SUFFIX)) {
+			return null;
+		}
+
+		try {
+			return Integer.parseInt(fileName.substring(PAGE_PREFIX.length(), fileName.length() - PAGE_SUFFIX.length()));
+
+		} catch (NumberFormatException e) {
+			log.warn("Ignoring spooled file " + pagePath);
+			return null;
+		}
+	}
+
+	private static String toCursor(Path pagePath) {
+		return pagePath.getParent().getFileName() + "/" + pagePath.getFileName();
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.core.domain.document.entities.BaseFile;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.importermanager.importer.domain.ResponseMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads importer responses with the Jackson streaming parser rather than binding the whole response in memory.
+ *
+ * The metadata is read first whatever its position in the response, then the documents are handed over one at a
+ * time. The data of the files is decoded from base64 straight into temporary files (see BaseFile.getDataPath) so
+ * that the payloads never exist as Java strings : the temporary files must be deleted once the documents have been
+ * integrated (see deleteDataFiles). The base64Encoded flag of a file, true by default, is taken into account only if
+ * it precedes the data.
+ */
+public class ImporterResponseReader {
+
+	private static final Logger log = LoggerFactory.getLogger(ImporterResponseReader.class);
+
+	private static final String METADATA_FIELD = "metadata";
+	private static final String DATA_FIELD = "data";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * Deserializes a file, streaming its data to a temporary file. The other fields are bound by a mapper without
+	 * this deserializer.
+	 */
+	private static class StreamedFileDeserializer extends StdDeserializer<BaseFile> {
+
+		private static final String FILE_DATA_FIELD = "data";
+		private static final String FILE_BASE64_ENCODED_FIELD = "base64Encoded";
+
+		private final ObjectMapper fileMapper = new ObjectMapper();
+
+		StreamedFileDeserializer() {
+			super(BaseFile.class);
+		}
+
+		@Override
+		public BaseFile deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+			ObjectNode fields = this.fileMapper.createObjectNode();
+			Path dataPath = null;
+			boolean base64Encoded = true;
+
+			try {
+				JsonToken token = parser.getCurrentToken() == JsonToken.START_OBJECT ? parser.nextToken() : parser.getCurrentToken();
+				for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+					String fieldName = parser.getCurrentName();
+					JsonToken valueToken = parser.nextToken();
+
+					if (FILE_DATA_FIELD.equals(fieldName) && valueToken == JsonToken.VALUE_STRING && dataPath == null) {
+						dataPath = Files.createTempFile("puma-import-", ".data");
+						writeData(parser, dataPath, base64Encoded);
+
+					} else {
+						JsonNode value = parser.readValueAsTree();
+						fields.set(fieldName, value);
+
+						if (FILE_BASE64_ENCODED_FIELD.equals(fieldName)) {
+							base64Encoded = value.asBoolean(true);
+						}
+					}
+				}
+
+				BaseFile baseFile = this.fileMapper.treeToValue(fields, BaseFile.class);
+				baseFile.setDataPath(dataPath);
+
+				return baseFile;
+
+			} catch (IOException | RuntimeException e) {
+				deleteDataFile(dataPath);
+				throw e;
+			}
+		}
+
+		private static void writeData(JsonParser parser, Path dataPath, boolean base64Encoded) throws IOException {
+			try (OutputStream outputStream = Files.newOutputStream(dataPath)) {
+				if (base64Encoded) {
+					// Decode the base64 data chunk by chunk
+					parser.readBinaryValue(outputStream);
+
+				} else {
+					Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+					parser.getText(writer);
+					writer.flush();
+				}
+			}
+		}
+	}
+
+	public ImporterResponseReader() {
+		SimpleModule module = new SimpleModule();
+		module.addDeserializer(BaseFile.class, new StreamedFileDeserializer());
+		this.objectMapper.registerModule(module);
+	}
+
+	/**
+	 * Reads a complete importer response
+	 * @param inputStream The stream of the response
+	 * @return The importer response, the data of the files being held in temporary files
+	 * @throws IOException If the response cannot be read
+	 */
+	public ImporterResponse read(InputStream inputStream) throws IOException {
+		ImporterResponse importerResponse = new ImporterResponse();
+		try {
+			importerResponse.setMetadata(this.read(inputStream, importerResponse.getData()::add));
+
+		} catch (IOException | RuntimeException e) {
+			deleteDataFiles(importerResponse.getData());
+			throw e;
+		}
+
+		return importerResponse;
+	}
+
+	/**
+	 * Reads an importer response handing the documents to a consumer as soon as they are read
+	 * @param inputStream The stream of the response
+	 * @param documentConsumer The consumer of the documents
+	 * @return The metadata of the response
+	 * @throws IOException If the response cannot be read
+	 */
+	public ResponseMetadata read(InputStream inputStream, Consumer<BaseDocument> documentConsumer) throws IOException {
+		ResponseMetadata metadata = null;
+
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(inputStream)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Importer response is not a JSON object");
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken valueToken = parser.nextToken();
+
+				if (METADATA_FIELD.equals(fieldName)) {
+					metadata = this.objectMapper.readValue(parser, ResponseMetadata.class);
+
+				} else if (DATA_FIELD.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						documentConsumer.accept(this.objectMapper.readValue(parser, BaseDocument.class));
+					}
+
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+
+		return metadata;
+	}
+
+	/**
+	 * Reads an importer response written as a sequence of JSON values, the metadata followed by the documents (one per
+	 * line in the page spool, see ImporterPageSpool)
+	 * @param inputStream The stream of the response
+	 * @return The importer response, the data of the files being held in temporary files
+	 * @throws IOException If the response cannot be read
+	 */
+	public ImporterResponse readValues(InputStream inputStream) throws IOException {
+		ImporterResponse importerResponse = new ImporterResponse();
+
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(inputStream)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Importer response does not start with the metadata");
+			}
+			importerResponse.setMetadata(this.objectMapper.readValue(parser, ResponseMetadata.class));
+
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				importerResponse.getData().add(this.objectMapper.readValue(parser, BaseDocument.class));
+			}
+
+		} catch (IOException | RuntimeException e) {
+			deleteDataFiles(importerResponse.getData());
+			throw e;
+		}
+
+		return importerResponse;
+	}
+
+	/**
+	 * Deletes the temporary files holding the data of the files of documents
+	 * @param documents The documents
+	 */
+	public static void deleteDataFiles(List<BaseDocument> documents) {
+		documents.forEach(ImporterResponseReader::deleteDataFiles);
+	}
+
+	/**
+	 * Deletes the temporary files holding the data of the files of a document
+	 * @param document The document
+	 */
+	public static void deleteDataFiles(BaseDocument document) {
+		if (document.getFiles() == null) {
+			return;
+		}
+
+		for (BaseFile baseFile : document.getFiles()) {
+			deleteDataFile(baseFile.getDataPath());
+			baseFile.setDataPath(null);
+		}
+	}
+
+	private static void deleteDataFile(Path dataPath) {
+		if (dataPath == null) {
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(dataPath);
+
+		} catch (IOException e) {
+			log.warn("Could not delete temporary file " + dataPath + " : " + e.getMessage());
+		}
+	}
+}
@@ -17,8 +17,11 @@ package eu.ill.puma.importermanager.importer.task;
 
 import eu.ill.puma.persistence.domain.importer.ImporterOperation;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class CancelImportTask extends Task<ImporterOperation>  {
 
 	private ImporterOperation importerOperation;
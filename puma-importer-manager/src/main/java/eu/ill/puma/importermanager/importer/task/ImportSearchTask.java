@@ -23,17 +23,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
 import java.util.Map;
 
 public class ImportSearchTask extends ImportTask {
 
 	private static final Logger log = LoggerFactory.getLogger(ImportSearchTask.class);
 
-	public ImportSearchTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration) {
-		super(importerOperation, configuration);
+	public ImportSearchTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, Client client) {
+		super(importerOperation, configuration, client);
 	}
 
 	@Override
@@ -42,12 +40,9 @@ public class ImportSearchTask extends ImportTask {
 		// Get the base importer URL
 		Importer importer = this.importerOperation.getImporter();
 
-		// Build HTTP client request
-		Client client = ClientBuilder.newClient();
-
 		// Create target
 		String endpoint = this.importerOperation.getUpdateCitations() ? configuration.importerCitationsUrl : configuration.importerDocumentsUrl;
-		WebTarget target = client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(endpoint);
+		WebTarget target = this.client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(endpoint);
 		Map<String, Object> params = importerOperation.getParams();
 
 		// Build up query params
@@ -59,7 +54,7 @@ public class ImportSearchTask extends ImportTask {
 		log.info("Performing import (" + importerOperation.getId() + ") task to endpoint : " + target.getUri().toString());
 
 		// Perform client HTTP request to the importer and convert to ImporterResponse
-		ImporterResponse importerResponse = target.request(MediaType.APPLICATION_JSON_TYPE).get(ImporterResponse.class);
+		ImporterResponse importerResponse = this.requestImporterResponse(target);
 
 		log.info("Got import (" + importerOperation.getId() + ") task result for endpoint : " + target.getUri().toString() + ", obtained " + importerResponse.getMetadata().getCurrentCount() + " documents out of " + importerResponse.getMetadata().getTotalCount());
 
@@ -16,19 +16,39 @@
 package eu.ill.puma.importermanager.importer.task;
 
 import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.importermanager.importer.ImporterResponseReader;
 import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
 import eu.ill.puma.persistence.domain.importer.ImporterOperation;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.InputStream;
+
+@ExecutionLane(TaskLane.IMPORT)
 public abstract class ImportTask extends Task<ImporterResponse> {
 
 	protected ImporterOperation importerOperation;
 	protected ImporterManagerConfiguration configuration;
+	protected Client client;
 
-	public ImportTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration) {
+	/**
+	 * Creates the task
+	 * @param importerOperation The importer operation
+	 * @param configuration The importer manager configuration
+	 * @param client The shared client of the importer (see ImporterClientPool)
+	 */
+	public ImportTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, Client client) {
 		this.importerOperation = importerOperation;
 		this.configuration = configuration;
+		this.client = client;
 
 		this.setPriority(TaskPriority.HIGH);
 	}
@@ -37,4 +57,32 @@ public abstract class ImportTask extends Task<ImporterResponse> {
 		return importerOperation;
 	}
 
+	/**
+	 * Performs the HTTP request to the importer and converts the response. In streaming mode the response is read
+	 * with the streaming parser and the data of the files is decoded into temporary files.
+	 * @param target The target of the request
+	 * @return The importer response
+	 * @throws Exception If the request fails or the response cannot be read
+	 */
+	protected ImporterResponse requestImporterResponse(WebTarget target) throws Exception {
+		Invocation.Builder request = target.request(MediaType.APPLICATION_JSON_TYPE);
+		if (!this.configuration.importerStreamingEnabled) {
+			return request.get(ImporterResponse.class);
+		}
+
+		Response response = request.get();
+		try {
+			if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+				throw new WebApplicationException("Importer request failed with status " + response.getStatus(), response.getStatus());
+			}
+
+			try (InputStream inputStream = response.readEntity(InputStream.class)) {
+				return new ImporterResponseReader().read(inputStream);
+			}
+
+		} finally {
+			response.close();
+		}
+	}
+
 }
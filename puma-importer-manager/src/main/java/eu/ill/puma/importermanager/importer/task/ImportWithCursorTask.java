@@ -23,36 +23,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
 
 public class ImportWithCursorTask extends ImportTask {
 
 	private static final Logger log = LoggerFactory.getLogger(ImportWithCursorTask.class);
 
-	public ImportWithCursorTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration) {
-		super(importerOperation, configuration);
+	private String cursor;
+
+	public ImportWithCursorTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, Client client) {
+		this(importerOperation, configuration, client, importerOperation.getCursor());
+	}
+
+	/**
+	 * Creates a task fetching the page of a given cursor, which can be ahead of the cursor of the operation when
+	 * the import is pipelined
+	 * @param importerOperation The importer operation
+	 * @param configuration The importer manager configuration
+	 * @param client The shared client of the importer
+	 * @param cursor The cursor of the page to fetch
+	 */
+	public ImportWithCursorTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, Client client, String cursor) {
+		super(importerOperation, configuration, client);
+		this.cursor = cursor;
 	}
 
 	@Override
 	public ImporterResponse execute() throws Exception {
-		String cursor = this.importerOperation.getCursor();
+		String cursor = this.cursor;
 
 		// Get the base importer URL
 		Importer importer = this.importerOperation.getImporter();
 
-		// Build HTTP client request
-		Client client = ClientBuilder.newClient();
-
 		// Create target
 		String endpoint = this.importerOperation.getUpdateCitations() ? configuration.importerCitationsUrl : configuration.importerDocumentsUrl;
-		WebTarget target = client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(endpoint).path(configuration.importerCursorUrl).path(cursor);
+		WebTarget target = this.client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(endpoint).path(configuration.importerCursorUrl).path(cursor);
 
 		log.info("Performing import (" + importerOperation.getId() + ") with cursor task to endpoint : " + target.getUri().toString());
 
 		// Perform client HTTP request to the importer and convert to ImporterResponse
-		ImporterResponse importerResponse = target.request(MediaType.APPLICATION_JSON_TYPE).get(ImporterResponse.class);
+		ImporterResponse importerResponse = this.requestImporterResponse(target);
 
 		log.info("Got import (" + importerOperation.getId() + ") with cursor task result for endpoint : " + target.getUri().toString() + ", obtained " + importerResponse.getMetadata().getCurrentCount() + " documents out of " + importerResponse.getMetadata().getTotalCount());
 
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer.task;
+
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.importermanager.importer.ImporterResponseReader;
+import eu.ill.puma.persistence.domain.document.DocumentVersion;
+import eu.ill.puma.persistence.service.converterV2.DocumentConverter;
+import eu.ill.puma.persistence.service.converterV2.exception.PumaDocumentConversionException;
+import eu.ill.puma.persistence.service.document.PumaFileService;
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
+import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.TransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Task converting and integrating a share of the documents of a page. Each document is converted in its own
+ * transaction : a document that fails to be integrated does not affect the others. The entities shared between
+ * documents are created beforehand so that no transaction is nested in that of the document.
+ */
+@ExecutionLane(TaskLane.INTEGRATION)
+public class IntegrateDocumentsTask extends Task<List<DocumentVersion>> {
+
+	private static final Logger log = LoggerFactory.getLogger(IntegrateDocumentsTask.class);
+
+	private DocumentConverter documentConverter;
+	private List<BaseDocument> importedDocuments = new ArrayList<>();
+	private String importerShortName;
+	private boolean forceUpdate;
+	private boolean updateCitations;
+
+	public IntegrateDocumentsTask(DocumentConverter documentConverter, String importerShortName, boolean forceUpdate, boolean updateCitations) {
+		this.documentConverter = documentConverter;
+		this.importerShortName = importerShortName;
+		this.forceUpdate = forceUpdate;
+		this.updateCitations = updateCitations;
+
+		this.setPriority(TaskPriority.HIGH);
+	}
+
+	public void addImportedDocument(BaseDocument importedDocument) {
+		this.importedDocuments.add(importedDocument);
+	}
+
+	@Override
+	public List<DocumentVersion> execute() throws Exception {
+		List<DocumentVersion> documentVersions = new ArrayList<>();
+		for (BaseDocument importerDocument : this.importedDocuments) {
+			try {
+				this.documentConverter.createSharedEntities(importerDocument);
+
+				DocumentVersion documentVersion = this.documentConverter.convert(importerDocument, this.importerShortName, this.forceUpdate, this.updateCitations);
+
+				// Returns null if document is already integrated
+				if (documentVersion != null) {
+					documentVersions.add(documentVersion);
+				}
+
+			} catch (PumaDocumentConversionException | PumaFileService.PumaFilePersistenceException pdce) {
+				log.error("Could not integrate document (" + importerDocument.toString() + ") : " + pdce.getMessage(), pdce);
+
+			} catch (TransactionException te) {
+				log.error("Could not obtain a transaction to integrate document (" + importerDocument.toString() + ") : " + te.getMessage(), te);
+			}
+
+			// Delete the data streamed to temporary files
+			ImporterResponseReader.deleteDataFiles(importerDocument);
+		}
+
+		return documentVersions;
+	}
+}
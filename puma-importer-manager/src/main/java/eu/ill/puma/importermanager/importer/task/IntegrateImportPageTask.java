@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer.task;
+
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.importermanager.importer.ImporterResponseReader;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.persistence.domain.document.DocumentVersion;
+import eu.ill.puma.persistence.domain.importer.ImporterOperation;
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
+import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Task integrating a fetched page of a pipelined import. The page is integrated on its own lane so that neither the
+ * handling of the import tasks nor the completion handlers are blocked by the integration. The documents of the page
+ * are split between IntegrateDocumentsTasks on the INTEGRATION lane, which this task waits for. The page is written
+ * to the spool (see ImporterPageSpool) before being integrated.
+ */
+@ExecutionLane(TaskLane.PAGE_INTEGRATION)
+public class IntegrateImportPageTask extends Task<List<DocumentVersion>> {
+
+	/**
+	 * Integrates the documents of a page
+	 */
+	public interface PageIntegrator {
+		List<DocumentVersion> integratePage(ImporterOperation importerOperation, List<BaseDocument> importedDocuments) throws Exception;
+	}
+
+	/**
+	 * Writes a page to the spool
+	 */
+	public interface PageSpooler {
+		void spoolPage(ImporterOperation importerOperation, ImporterResponse page);
+	}
+
+	private PageIntegrator pageIntegrator;
+	private PageSpooler pageSpooler;
+	private ImporterOperation importerOperation;
+	private ImporterResponse page;
+
+	/**
+	 * Creates the task
+	 * @param pageIntegrator Integrates the documents of the page
+	 * @param pageSpooler Writes the page to the spool (null if the page is not spooled)
+	 * @param importerOperation The importer operation
+	 * @param page The page to integrate
+	 */
+	public IntegrateImportPageTask(PageIntegrator pageIntegrator, PageSpooler pageSpooler, ImporterOperation importerOperation, ImporterResponse page) {
+		this.pageIntegrator = pageIntegrator;
+		this.pageSpooler = pageSpooler;
+		this.importerOperation = importerOperation;
+		this.page = page;
+		this.setPriority(TaskPriority.HIGH);
+	}
+
+	@Override
+	public List<DocumentVersion> execute() throws Exception {
+		try {
+			// Keep a copy of the page for later replays
+			if (this.pageSpooler != null) {
+				this.pageSpooler.spoolPage(this.importerOperation, this.page);
+			}
+
+			List<DocumentVersion> documentVersions = this.pageIntegrator.integratePage(this.importerOperation, this.page.getData());
+
+			// Trace the import in the lifecycle of the integrated documents
+			this.getTraceContext().addDocumentVersions(documentVersions.stream().map(DocumentVersion::getId).collect(Collectors.toList()));
+
+			return documentVersions;
+
+		} finally {
+			// Delete the data streamed to temporary files that has not been integrated
+			ImporterResponseReader.deleteDataFiles(this.page.getData());
+		}
+	}
+
+	public ImporterOperation getImporterOperation() {
+		return importerOperation;
+	}
+
+	public ImporterResponse getPage() {
+		return page;
+	}
+}
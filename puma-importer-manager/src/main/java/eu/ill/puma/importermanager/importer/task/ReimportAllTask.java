@@ -17,26 +17,42 @@ package eu.ill.puma.importermanager.importer.task;
 
 import eu.ill.puma.importermanager.ImporterManagerConfiguration;
 import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
-import eu.ill.puma.persistence.domain.document.DocumentVersion;
 import eu.ill.puma.persistence.domain.importer.Importer;
 import eu.ill.puma.persistence.domain.importer.ImporterOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
-import javax.ws.rs.core.MediaType;
+import java.util.SortedMap;
 
+/**
+ * Task reimporting a block of documents of an importer, requested by their source Ids in a single call
+ */
 public class ReimportAllTask extends ImportTask {
 
 	private static final Logger log = LoggerFactory.getLogger(ReimportAllTask.class);
 
-	DocumentVersion documentVersion;
+	private SortedMap<Long, String> sourceIds;
+
+	/**
+	 * Creates the task
+	 * @param importerOperation The importer operation
+	 * @param configuration The importer manager configuration
+	 * @param client The shared client of the importer
+	 * @param sourceIds The source Ids of the documents to reimport, indexed by document version Id
+	 */
+	public ReimportAllTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, Client client, SortedMap<Long, String> sourceIds) {
+		super(importerOperation, configuration, client);
+		this.sourceIds = sourceIds;
+	}
 
-	public ReimportAllTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, DocumentVersion documentVersion) {
-		super(importerOperation, configuration);
-		this.documentVersion = documentVersion;
+	/**
+	 * Returns the Id of the last document version of the block, checkpointed once the block is reimported
+	 * @return The highest document version Id of the block
+	 */
+	public Long getLastDocumentVersionId() {
+		return this.sourceIds.lastKey();
 	}
 
 	@Override
@@ -45,20 +61,17 @@ public class ReimportAllTask extends ImportTask {
 		// Get the base importer URL
 		Importer importer = this.importerOperation.getImporter();
 
-		// Build HTTP client request
-		Client client = ClientBuilder.newClient();
-
 		// Create target
 		String endpoint = this.importerOperation.getUpdateCitations() ? configuration.importerCitationsUrl : configuration.importerDocumentsUrl;
-		WebTarget target = client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(endpoint);
+		WebTarget target = this.client.target(importer.getUrl()).path(configuration.importerApiBaseUrl).path(endpoint);
 
-		// Set ID of doc to obtain
-		target = target.queryParam("ids", "[" + documentVersion.getSources().get(0).getSourceId() + "]");
+		// Set IDs of docs to obtain
+		target = target.queryParam("ids", "[" + String.join(",", this.sourceIds.values()) + "]");
 
 		log.info("Performing import (" + importerOperation.getId() + ") task to endpoint : " + target.getUri().toString());
 
 		// Perform client HTTP request to the importer and convert to ImporterResponse
-		ImporterResponse importerResponse = target.request(MediaType.APPLICATION_JSON_TYPE).get(ImporterResponse.class);
+		ImporterResponse importerResponse = this.requestImporterResponse(target);
 
 		log.info("Got import (" + importerOperation.getId() + ") task result for endpoint : " + target.getUri().toString() + ", obtained " + importerResponse.getMetadata().getCurrentCount() + " documents out of " + importerResponse.getMetadata().getTotalCount());
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer.task;
+
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.importermanager.importer.ImporterPageSpool;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.persistence.domain.importer.ImporterOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a page of the spool of an importer in place of a request to the importer
+ */
+public class ReplaySpoolTask extends ImportTask {
+
+	private static final Logger log = LoggerFactory.getLogger(ReplaySpoolTask.class);
+
+	private ImporterPageSpool importerPageSpool;
+	private String cursor;
+
+	/**
+	 * Creates a task reading the page of a given cursor of the spool
+	 * @param importerOperation The importer operation
+	 * @param configuration The importer manager configuration
+	 * @param importerPageSpool The page spool
+	 * @param cursor The cursor of the page in the spool, null for the first page
+	 */
+	public ReplaySpoolTask(ImporterOperation importerOperation, ImporterManagerConfiguration configuration, ImporterPageSpool importerPageSpool, String cursor) {
+		super(importerOperation, configuration, null);
+		this.importerPageSpool = importerPageSpool;
+		this.cursor = cursor;
+	}
+
+	@Override
+	public ImporterResponse execute() throws Exception {
+		log.info("Performing replay (" + importerOperation.getId() + ") of spooled page " + (this.cursor == null ? "(first)" : this.cursor));
+
+		ImporterResponse importerResponse = this.importerPageSpool.readPage(this.importerOperation.getImporter(), this.cursor);
+
+		log.info("Got replay (" + importerOperation.getId() + ") result, obtained " + importerResponse.getData().size() + " documents");
+
+		return importerResponse;
+	}
+
+}
@@ -24,6 +24,7 @@ import eu.ill.puma.importermanager.resolver.domain.ResolverResponseCode;
 import eu.ill.puma.importermanager.resolver.domain.ResolverResponseDownloadData;
 import eu.ill.puma.importermanager.resolver.domain.ResolverResponseUrl;
 import eu.ill.puma.importermanager.resolver.task.ActivatePendingResolversTask;
+import eu.ill.puma.importermanager.resolver.task.ExecuteWaitingResolversTask;
 import eu.ill.puma.importermanager.resolver.task.ResolveFileUrlTask;
 import eu.ill.puma.importermanager.resolver.task.ResolveForHostTask;
 import eu.ill.puma.persistence.domain.document.DocumentVersion;
@@ -36,7 +37,11 @@ import eu.ill.puma.persistence.service.document.PumaFileService;
 import eu.ill.puma.persistence.service.document.ResolverInfoService;
 import eu.ill.puma.taskmanager.Task;
 import eu.ill.puma.taskmanager.TaskCompletionHandler;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskManager;
+import eu.ill.puma.taskmanager.journal.TaskJournalEntry;
+import eu.ill.puma.taskmanager.pipeline.DocumentPipeline;
+import eu.ill.puma.taskmanager.pipeline.PipelineStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +59,9 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 
 	private static final Logger log = LoggerFactory.getLogger(PumaFileUrlResolver.class);
 
+	// Maximum number of pending resolvers read from the database at a time
+	private static final int ACTIVATION_GROUP_SIZE = 100;
+
 	@Autowired
 	private TaskManager taskManager;
 
@@ -72,8 +80,20 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 	@Autowired
 	private ImporterManagerConfiguration configuration;
 
+	@Autowired
+	private DocumentPipeline documentPipeline;
+
 	private LinkedHashMap<ResolverInfo, ResolveFileUrlTask> activeResolvers = new LinkedHashMap<ResolverInfo, ResolveFileUrlTask>();
 
+	// Resolvers held back while the resolve lane is full
+	private Deque<ResolveFileUrlTask> waitingResolvers = new ArrayDeque<>();
+	private boolean waitingForCapacity = false;
+
+	// Activation of the pending resolvers : id of the last resolver read from the database (null when not activating)
+	// and number of resolvers still to start (null for all)
+	private Long lastActivatedResolverInfoId = null;
+	private Integer numberOfResolversToActivate = null;
+
 	private boolean available = true;
 
 	@Value("${puma.importerManager.resolver.recoverOnRestart}")
@@ -147,8 +167,12 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 			// Add to active tasks
 			this.activeResolvers.put(resolverInfo, resolveFileUrlTask);
 
-			// Execute task
-			taskManager.executeTask(resolveFileUrlTask, this);
+			// Execute task, or hold it back until the resolve lane has capacity (keeping the order of the waiting resolvers)
+			if (!this.waitingResolvers.isEmpty() || !taskManager.tryExecuteTask(resolveFileUrlTask, this)) {
+				this.waitingResolvers.add(resolveFileUrlTask);
+				this.taskManager.recordHeldTask(resolveFileUrlTask);
+				this.waitForCapacity();
+			}
 
 			returnValue = resolverInfo;
 		}
@@ -156,6 +180,44 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 		return returnValue;
 	}
 
+	private void waitForCapacity() {
+		if (!this.waitingForCapacity) {
+			this.waitingForCapacity = true;
+			// The waiting resolvers are submitted (and the activation continued) by a task rather than by the scheduler thread
+			this.taskManager.whenCapacityAvailable(TaskLane.RESOLVE, () -> this.taskManager.executeTask(new ExecuteWaitingResolversTask(this)));
+		}
+	}
+
+	/**
+	 * Submits the resolvers held back while the resolve lane was full then continues the activation of the pending
+	 * resolvers. Called by the ExecuteWaitingResolversTask once the lane has capacity.
+	 */
+	public synchronized void executeWaitingResolvers() {
+		this.waitingForCapacity = false;
+
+		while (!this.waitingResolvers.isEmpty()) {
+			ResolveFileUrlTask resolveFileUrlTask = this.waitingResolvers.peek();
+
+			// Ignore resolvers cancelled while waiting
+			if (this.activeResolvers.get(resolveFileUrlTask.getResolverInfo()) != resolveFileUrlTask) {
+				this.waitingResolvers.poll();
+				this.taskManager.releaseHeldTask(resolveFileUrlTask);
+
+			} else if (taskManager.tryExecuteTask(resolveFileUrlTask, this)) {
+				this.waitingResolvers.poll();
+				this.taskManager.releaseHeldTask(resolveFileUrlTask);
+
+			} else {
+				// Lane full again
+				this.waitForCapacity();
+				return;
+			}
+		}
+
+		// Continue the activation of the pending resolvers
+		this.activateNextPendingResolvers();
+	}
+
 	public synchronized List<ResolverInfo> resolve(List<ResolverInfo> resolverInfos) {
 		List<ResolverInfo> returnedResolverInfos = new ArrayList<>();
 		for (ResolverInfo resolverInfo : resolverInfos) {
@@ -247,13 +309,15 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 		resolverInfo.setResolveCounter(resolverInfo.getResolveCounter() + 1);
 		resolverInfo.setLastResolveDate(new Date());
 
+		boolean downloadsRequested = false;
 		try {
 			ResolverResponse response = resolveFileUrlTask.get();
 
 			// Check for busy response
 			if (response.getCode().equals(ResolverResponseCode.BUSY)) {
-				// Put the task back into the task queue
-				taskManager.executeTask(resolveFileUrlTask, this);
+				// Put the task back into the task queue after a backoff delay
+				long delay = taskManager.retryTaskWithBackoff(resolveFileUrlTask, this.configuration.getResolverBackoffPolicy(), this);
+				log.debug("Retrying resolve of " + resolverInfo.getOriginUrl() + " in " + delay + "ms");
 
 				return;
 			}
@@ -294,6 +358,7 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 
 					// Create task to do download
 					this.taskManager.executeTask(new AsyncPumaFileDownloaderTask(pumaFile, pumaFileDownloader));
+					downloadsRequested = true;
 				}
 
 				resolverInfo.setStatus(ResolverInfoStatus.RESOLVE_COMPLETED);
@@ -328,6 +393,11 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 
 		// remove from hash map of current resolvers
 		this.activeResolvers.remove(resolverInfo);
+
+		// Start the analysis once all the urls of the document have been resolved (and no files are to be downloaded)
+		if (!downloadsRequested) {
+			this.onResolveTerminated(resolverInfo);
+		}
 	}
 
 	@Override
@@ -350,6 +420,32 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 
 		// remove from hash map of current resolvers
 		this.activeResolvers.remove(resolverInfo);
+
+		// Start the analysis once all the urls of the document have been resolved
+		this.onResolveTerminated(resolverInfo);
+	}
+
+	private void onResolveTerminated(ResolverInfo resolverInfo) {
+		DocumentVersion documentVersion = resolverInfo.getDocumentVersion();
+		if (documentVersion != null && !this.hasPendingResolversForDocumentVersion(documentVersion) && !this.pumaFileDownloader.isDownloadingFilesForDocumentVersion(documentVersion)) {
+			this.documentPipeline.onStageCompleted(PipelineStage.FILES_SAVED, documentVersion.getId());
+		}
+	}
+
+	/**
+	 * Determines if the urls of a document version are still to be resolved (read from the database, without taking
+	 * the lock of the resolver)
+	 * @param documentVersion The document version
+	 * @return true if a resolver of the document version is pending
+	 */
+	public boolean hasPendingResolversForDocumentVersion(DocumentVersion documentVersion) {
+		for (ResolverInfo resolverInfo : this.resolverInfoService.getAllForDocumentVersion(documentVersion)) {
+			if (resolverInfo.getStatus().equals(ResolverInfoStatus.PENDING)) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 
 
@@ -394,42 +490,98 @@ public class PumaFileUrlResolver implements TaskCompletionHandler {
 	}
 
 	private void recoverResolvers() {
-		this.recoverResolvers(null);
+		// Restart the resolvers recorded in the task journal rather than scanning all resolvers requiring a resolve
+		if (this.taskManager.isTaskJournalRecovered()) {
+			List<TaskJournalEntry> journaledResolvers = this.taskManager.takeRecoveredTasks(ResolveFileUrlTask.JOURNAL_TYPE);
+
+			log.info("Restarting resolve of " + journaledResolvers.size() + " puma files from the task journal");
+
+			for (TaskJournalEntry journaledResolver : journaledResolvers) {
+				Long resolverInfoId = journaledResolver.getIdAsLong();
+				ResolverInfo resolverInfo = resolverInfoId != null ? this.resolverInfoService.getById(resolverInfoId) : null;
+
+				if (resolverInfo != null && (resolverInfo.getStatus().equals(ResolverInfoStatus.PENDING)
+						|| resolverInfo.getStatus().equals(ResolverInfoStatus.RESOLVE_NOT_SUPPORTED)
+						|| resolverInfo.getStatus().equals(ResolverInfoStatus.RESOLVE_ERROR))) {
+					this.resolve(resolverInfo);
+				}
+			}
+
+		} else {
+			this.recoverResolvers(null);
+		}
 	}
 
-	private void recoverResolvers(Integer maxNumberToResolve) {
-		List<ResolverInfo> pendingResolvers = this.getRemainingResolvers();
+	/**
+	 * Starts the resolvers requiring a resolve. The resolvers are read from the database a group at a time, each group
+	 * being no larger than the remaining capacity of the resolve lane.
+	 * @param maxNumberToResolve The maximum number of resolvers to start (null for all)
+	 */
+	private synchronized void recoverResolvers(Integer maxNumberToResolve) {
+		log.info("Restarting resolve of " + (maxNumberToResolve == null ? "all" : maxNumberToResolve) + " pending puma files");
 
-		// Cleanup duplicates (same origin url)
-		List<ResolverInfo> uniquePendingResolvers = this.cancelDuplicatedPendingResolvers(pendingResolvers);
+		this.lastActivatedResolverInfoId = 0L;
+		this.numberOfResolversToActivate = maxNumberToResolve;
 
-		int numberToResolve = uniquePendingResolvers.size();
-		if (maxNumberToResolve != null) {
-			numberToResolve = Math.min(numberToResolve, maxNumberToResolve);
+		this.activateNextPendingResolvers();
+	}
+
+	private void activateNextPendingResolvers() {
+		// Not activating, or resolvers are still waiting for the lane
+		if (this.lastActivatedResolverInfoId == null || !this.waitingResolvers.isEmpty()) {
+			return;
+		}
+
+		int groupSize = Math.min(this.taskManager.getRemainingCapacity(TaskLane.RESOLVE), ACTIVATION_GROUP_SIZE);
+		if (this.numberOfResolversToActivate != null) {
+			groupSize = Math.min(groupSize, this.numberOfResolversToActivate);
 		}
 
-		log.info("Restarting resolve of " + numberToResolve + " puma files");
+		if (groupSize > 0) {
+			List<ResolverInfo> pendingResolvers = this.resolverInfoService.getNextGroupRequiringResolveAfter(this.lastActivatedResolverInfoId, groupSize);
+			for (ResolverInfo resolverInfo : pendingResolvers) {
+				this.lastActivatedResolverInfoId = resolverInfo.getId();
 
-		for (int i = 0; i < numberToResolve; i++) {
-			ResolverInfo resolverInfo = uniquePendingResolvers.get(i);
-			this.resolve(resolverInfo);
+				// Cleanup duplicates (same origin url)
+				if (!this.cancelDuplicatedPendingResolver(resolverInfo)) {
+					this.resolve(resolverInfo);
+
+					if (this.numberOfResolversToActivate != null) {
+						this.numberOfResolversToActivate--;
+					}
+				}
+			}
+
+			if (pendingResolvers.size() < groupSize) {
+				// No more resolvers requiring a resolve
+				this.lastActivatedResolverInfoId = null;
+			}
+		}
+
+		if (this.numberOfResolversToActivate != null && this.numberOfResolversToActivate <= 0) {
+			this.lastActivatedResolverInfoId = null;
+		}
+
+		// Read the next group when the lane has capacity again
+		if (this.lastActivatedResolverInfoId != null) {
+			this.waitForCapacity();
+
+		} else {
+			log.info("Pending puma file resolvers have all been started");
 		}
 	}
 
-	private List<ResolverInfo> cancelDuplicatedPendingResolvers(List<ResolverInfo> allPendingResolvers) {
-		List<ResolverInfo> uniqueResolvers = new ArrayList<>();
-		for (ResolverInfo resolverInfo : allPendingResolvers) {
-			if (uniqueResolvers.contains(resolverInfo)) {
-				resolverInfo.setStatus(ResolverInfoStatus.CANCELLED);
-				this.resolverInfoService.save(resolverInfo);
-				log.info("Cancelling duplicated resolver " + resolverInfo);
+	private boolean cancelDuplicatedPendingResolver(ResolverInfo resolverInfo) {
+		ResolveFileUrlTask activeResolveTask = this.activeResolvers.get(resolverInfo);
+		if (activeResolveTask != null && !activeResolveTask.getResolverInfo().getId().equals(resolverInfo.getId())) {
+			resolverInfo.setStatus(ResolverInfoStatus.CANCELLED);
+			this.resolverInfoService.save(resolverInfo);
+			log.info("Cancelling duplicated resolver " + resolverInfo);
 
-			} else {
-				uniqueResolvers.add(resolverInfo);
-			}
+			return true;
 		}
 
-		return uniqueResolvers;
+		return false;
 	}
 
 	public long getNumberOfActiveResolvers() {
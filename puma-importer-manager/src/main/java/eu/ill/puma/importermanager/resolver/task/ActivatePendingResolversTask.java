@@ -16,8 +16,11 @@
 package eu.ill.puma.importermanager.resolver.task;
 
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class ActivatePendingResolversTask extends Task<Integer>  {
 
 	private Integer maxNumberToResolve;
@@ -35,4 +38,9 @@ public class ActivatePendingResolversTask extends Task<Integer>  {
 	public Integer getMaxNumberToResolve() {
 		return this.maxNumberToResolve;
 	}
+
+	@Override
+	public String getCoalescingKey() {
+		return "activate-pending-resolvers:" + this.maxNumberToResolve;
+	}
 }
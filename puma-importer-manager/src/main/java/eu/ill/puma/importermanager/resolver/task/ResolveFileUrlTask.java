@@ -20,7 +20,9 @@ import eu.ill.puma.importermanager.resolver.domain.ResolverResponse;
 import eu.ill.puma.importermanager.resolver.domain.ResolverResponseCode;
 import eu.ill.puma.persistence.domain.document.ResolverInfo;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,10 +31,13 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 
+@ExecutionLane(TaskLane.RESOLVE)
 public class ResolveFileUrlTask extends Task<ResolverResponse>  {
 
 	private static final Logger log = LoggerFactory.getLogger(ResolveFileUrlTask.class);
 
+	public static final String JOURNAL_TYPE = "resolve";
+
 	private ResolverInfo resolverInfo;
 	private ImporterManagerConfiguration configuration;
 
@@ -42,6 +47,11 @@ public class ResolveFileUrlTask extends Task<ResolverResponse>  {
 		this.configuration = configuration;
 
 		this.setPriority(TaskPriority.LOW);
+
+		// Trace the resolve in the lifecycle of the document
+		if (resolverInfo.getDocumentVersion() != null) {
+			this.getTraceContext().addDocumentVersion(resolverInfo.getDocumentVersion().getId());
+		}
 	}
 
 	@Override
@@ -82,6 +92,11 @@ public class ResolveFileUrlTask extends Task<ResolverResponse>  {
 		}
 	}
 
+	@Override
+	public String getJournalKey() {
+		return resolverInfo.getId() != null ? JOURNAL_TYPE + ":" + resolverInfo.getId() : null;
+	}
+
 	public ResolverInfo getResolverInfo() {
 		return resolverInfo;
 	}
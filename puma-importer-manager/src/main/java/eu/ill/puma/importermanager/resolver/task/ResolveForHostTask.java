@@ -17,8 +17,11 @@ package eu.ill.puma.importermanager.resolver.task;
 
 import eu.ill.puma.importermanager.resolver.PumaFileUrlResolver;
 import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class ResolveForHostTask extends Task<Void>  {
 
 	private PumaFileUrlResolver resolver;
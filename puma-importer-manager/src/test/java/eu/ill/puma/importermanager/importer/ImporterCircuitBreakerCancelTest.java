@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import eu.ill.puma.importermanager.ImporterManager;
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.importermanager.utils.MockImporterServer;
+import eu.ill.puma.persistence.domain.importer.Importer;
+import eu.ill.puma.persistence.domain.importer.ImporterOperation;
+import eu.ill.puma.persistence.domain.importer.ImporterOperationStatus;
+import eu.ill.puma.persistence.service.importer.ImporterService;
+import eu.ill.puma.taskmanager.TaskManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+
+@ActiveProfiles("test")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration( locations={
+		"classpath:/applicationContext-test.xml"
+})
+@TestExecutionListeners( {
+		DependencyInjectionTestExecutionListener.class,
+		DirtiesContextTestExecutionListener.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ImporterCircuitBreakerCancelTest {
+
+	private static final long IMPORTER_LATENCY_MILLIS = 1000;
+
+	@Autowired
+	private TaskManager taskManager;
+
+	@Autowired
+	private ImporterService importerService;
+
+	@Autowired
+	private ImporterManager importerManager;
+
+	@Autowired
+	private ImporterManagerConfiguration configuration;
+
+	private MockImporterServer mockImporterServer;
+
+	@Before
+	public void beforeMethod() throws Exception {
+		this.mockImporterServer = new MockImporterServer();
+		this.mockImporterServer.setNumberOfDocuments(10);
+		this.mockImporterServer.setPageSize(10);
+		this.mockImporterServer.setLatencyMillis(IMPORTER_LATENCY_MILLIS);
+		this.mockImporterServer.start();
+	}
+
+	@After
+	public void afterMethod() {
+		this.taskManager.setAsync(false);
+		this.mockImporterServer.stop();
+	}
+
+	@Test
+	public void testCancelDuringHalfOpenTrial() throws Exception {
+		Importer importer = new Importer();
+		importer.setName("Mock Importer");
+		importer.setShortName(this.mockImporterServer.getShortName());
+		importer.setUrl(this.mockImporterServer.getUrl());
+		this.importerService.save(importer);
+		importer = this.importerService.getById(importer.getId());
+
+		// Open the circuit with an open period that has already elapsed
+		ImporterCircuitBreaker circuitBreaker = this.importerManager.getCircuitBreaker(importer);
+		long openedAt = System.currentTimeMillis() - this.configuration.importerCircuitBreakerOpenDuration;
+		for (int i = 0; i < this.configuration.importerCircuitBreakerFailureThreshold; i++) {
+			circuitBreaker.onFailure(openedAt);
+		}
+		Assert.assertEquals(ImporterCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+		// The import is the trial request, running while the operation is cancelled
+		ImporterOperation importerOperation = this.importerService.addImporterOperation(importer, new ImporterOperation());
+		this.taskManager.setAsync(true);
+		this.importerManager.performImport(importerOperation);
+		Assert.assertEquals(ImporterCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		Assert.assertTrue(circuitBreaker.getDelayBeforeRequest(System.currentTimeMillis()) > 0);
+
+		this.taskManager.setAsync(false);
+		this.importerManager.performCancel(importerOperation);
+		Assert.assertEquals(ImporterOperationStatus.CANCELLED, this.importerService.getOperationById(importerOperation.getId()).getStatus());
+
+		// Wait for the result of the trial to be ignored
+		Thread.sleep(2 * IMPORTER_LATENCY_MILLIS);
+
+		// The trial has been released : the next request is let through
+		Assert.assertEquals(ImporterCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(System.currentTimeMillis()));
+	}
+}
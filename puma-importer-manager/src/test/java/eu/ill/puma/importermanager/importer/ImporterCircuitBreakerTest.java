@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImporterCircuitBreakerTest {
+
+	@Test
+	public void testCircuitOpensAfterFailures() {
+		ImporterCircuitBreaker circuitBreaker = new ImporterCircuitBreaker(3, 1000, 500);
+
+		circuitBreaker.onFailure(0);
+		circuitBreaker.onFailure(10);
+		Assert.assertEquals(ImporterCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(20));
+
+		// A success resets the failures
+		circuitBreaker.onSuccess(20);
+		circuitBreaker.onFailure(30);
+		circuitBreaker.onFailure(40);
+		Assert.assertEquals(ImporterCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+		circuitBreaker.onFailure(50);
+		Assert.assertEquals(ImporterCircuitBreaker.State.OPEN, circuitBreaker.getState());
+		Assert.assertEquals(900, circuitBreaker.getDelayBeforeRequest(150));
+		Assert.assertFalse(circuitBreaker.getCachedHealth(150));
+	}
+
+	@Test
+	public void testHalfOpenTrial() {
+		ImporterCircuitBreaker circuitBreaker = new ImporterCircuitBreaker(1, 1000, 500);
+		circuitBreaker.onFailure(0);
+
+		// Single trial once the open duration has elapsed
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(1000));
+		Assert.assertEquals(ImporterCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		Assert.assertEquals(1000, circuitBreaker.getDelayBeforeRequest(1010));
+
+		// Failed trial opens the circuit again
+		circuitBreaker.onFailure(1100);
+		Assert.assertEquals(ImporterCircuitBreaker.State.OPEN, circuitBreaker.getState());
+		Assert.assertEquals(1000, circuitBreaker.getDelayBeforeRequest(1100));
+
+		// Successful trial closes it
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(2100));
+		circuitBreaker.onSuccess(2200);
+		Assert.assertEquals(ImporterCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(2200));
+	}
+
+	@Test
+	public void testAbandonedTrial() {
+		ImporterCircuitBreaker circuitBreaker = new ImporterCircuitBreaker(1, 1000, 500);
+		circuitBreaker.onFailure(0);
+
+		Object trialRequester = new Object();
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(1000, trialRequester));
+
+		// Only the requester of the trial releases it
+		circuitBreaker.onTrialAbandoned(new Object());
+		Assert.assertEquals(1000, circuitBreaker.getDelayBeforeRequest(1010));
+
+		// The next request becomes the trial
+		circuitBreaker.onTrialAbandoned(trialRequester);
+		Assert.assertEquals(ImporterCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		Assert.assertEquals(0, circuitBreaker.getDelayBeforeRequest(1020));
+	}
+
+	@Test
+	public void testHealthCache() {
+		ImporterCircuitBreaker circuitBreaker = new ImporterCircuitBreaker(3, 1000, 500);
+		Assert.assertNull(circuitBreaker.getCachedHealth(0));
+
+		circuitBreaker.setHealth(true, 0);
+		Assert.assertTrue(circuitBreaker.getCachedHealth(499));
+		Assert.assertNull(circuitBreaker.getCachedHealth(500));
+	}
+}
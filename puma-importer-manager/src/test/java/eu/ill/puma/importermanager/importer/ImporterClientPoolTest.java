@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.persistence.domain.importer.Importer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ImporterClientPoolTest {
+
+	private HttpServer server;
+	private Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+	private ImporterClientPool importerClientPool;
+	private Importer importer;
+
+	@Before
+	public void beforeMethod() throws Exception {
+		byte[] body = "{\"metadata\":{\"status\":\"FINISHED\"},\"data\":[{\"sourceId\":\"1\"}]}".getBytes(StandardCharsets.UTF_8);
+
+		// Importer returning the same page, recording the port of each connection
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/", exchange -> {
+			this.clientPorts.add(exchange.getRemoteAddress().getPort());
+			exchange.getResponseHeaders().add("Content-Type", MediaType.APPLICATION_JSON);
+			exchange.sendResponseHeaders(200, body.length);
+			exchange.getResponseBody().write(body);
+			exchange.close();
+		});
+		this.server.start();
+
+		ImporterManagerConfiguration configuration = new ImporterManagerConfiguration();
+		configuration.importerClientMaxConnectionsPerRoute = 2;
+		configuration.importerClientKeepAliveDuration = 60000;
+		configuration.importerClientConnectTimeout = 1000;
+		configuration.importerClientReadTimeout = 1000;
+
+		this.importerClientPool = new ImporterClientPool();
+		ReflectionTestUtils.setField(this.importerClientPool, "configuration", configuration);
+
+		this.importer = new Importer();
+		this.importer.setUrl("http://localhost:" + this.server.getAddress().getPort());
+	}
+
+	@After
+	public void afterMethod() {
+		this.importerClientPool.close();
+		this.server.stop(0);
+	}
+
+	@Test
+	public void testConnectionReused() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			ImporterResponse importerResponse = this.importerClientPool.getClient(this.importer).target(this.importer.getUrl()).path("documents").request(MediaType.APPLICATION_JSON_TYPE).get(ImporterResponse.class);
+			Assert.assertEquals("1", importerResponse.getData().get(0).getSourceId());
+		}
+
+		// Streamed responses and unread responses release their connection too
+		for (int i = 0; i < 3; i++) {
+			Response response = this.importerClientPool.getClient(this.importer).target(this.importer.getUrl()).path("documents").request().get();
+			try (InputStream inputStream = response.readEntity(InputStream.class)) {
+				Assert.assertEquals(1, new ImporterResponseReader().read(inputStream).getData().size());
+			}
+			response.close();
+
+			this.importerClientPool.getClient(this.importer).target(this.importer.getUrl()).path("health").request().get().close();
+		}
+
+		Assert.assertEquals(1, this.clientPorts.size());
+
+		ImporterConnectionStatistics statistics = this.importerClientPool.getConnectionStatistics().get(0);
+		Assert.assertEquals(this.importer.getUrl(), statistics.getImporterUrl());
+		Assert.assertEquals(0, statistics.getNumberOfLeasedConnections());
+		Assert.assertEquals(1, statistics.getNumberOfAvailableConnections());
+		Assert.assertEquals(2, statistics.getMaxConnections());
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import eu.ill.puma.importermanager.ImporterManager;
+import eu.ill.puma.importermanager.utils.MockImporterServer;
+import eu.ill.puma.persistence.domain.importer.Importer;
+import eu.ill.puma.persistence.domain.importer.ImporterOperation;
+import eu.ill.puma.persistence.domain.importer.ImporterOperationStatus;
+import eu.ill.puma.persistence.service.document.DocumentVersionService;
+import eu.ill.puma.persistence.service.importer.ImporterService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Load harness driving the ImporterManager end-to-end against the MockImporterServer, reporting the import throughput,
+ * the number of DB statements per document and the heap use. Runs offline, only when requested :
+ *
+ *   mvn test -Dtest=ImporterLoadHarnessTest -Dpuma.importer.loadHarness=true
+ *
+ * The corpus is set with -Dpuma.importer.loadHarness.documents, .pageSize, .keywords, .persons, .fileSize (bytes of
+ * the file embedded in each document, 0 for none), .latency (milliseconds per importer request) and .timeout (seconds
+ * after which the import fails the test, 600 by default). The test H2
+ * database is used unless puma.persistence.datasource.url (and username/password) point to a local Postgres.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration( locations={
+		"classpath:/applicationContext-test.xml"
+})
+@TestExecutionListeners( {
+		DependencyInjectionTestExecutionListener.class,
+		DirtiesContextTestExecutionListener.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ImporterLoadHarnessTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ImporterLoadHarnessTest.class);
+
+	private static final String PROPERTY_PREFIX = "puma.importer.loadHarness";
+
+	@Autowired
+	private ImporterManager importerManager;
+
+	@Autowired
+	private ImporterService importerService;
+
+	@Autowired
+	private DocumentVersionService documentVersionService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private MockImporterServer mockImporterServer;
+
+	@BeforeClass
+	public static void beforeClass() {
+		// Checked before the test instance is created so that the application context is only loaded when requested
+		org.junit.Assume.assumeTrue(Boolean.getBoolean(PROPERTY_PREFIX));
+	}
+
+	@Before
+	public void beforeMethod() throws Exception {
+		this.mockImporterServer = new MockImporterServer();
+		this.mockImporterServer.setNumberOfDocuments(Integer.getInteger(PROPERTY_PREFIX + ".documents", 1000));
+		this.mockImporterServer.setPageSize(Integer.getInteger(PROPERTY_PREFIX + ".pageSize", 100));
+		this.mockImporterServer.setNumberOfKeywords(Integer.getInteger(PROPERTY_PREFIX + ".keywords", 5));
+		this.mockImporterServer.setNumberOfPersons(Integer.getInteger(PROPERTY_PREFIX + ".persons", 3));
+		this.mockImporterServer.setFileSize(Integer.getInteger(PROPERTY_PREFIX + ".fileSize", 0));
+		this.mockImporterServer.setLatencyMillis(Long.getLong(PROPERTY_PREFIX + ".latency", 0l));
+		this.mockImporterServer.start();
+	}
+
+	@After
+	public void afterMethod() {
+		if (this.mockImporterServer != null) {
+			this.mockImporterServer.stop();
+		}
+	}
+
+	@Test
+	public void testImportThroughput() throws Exception {
+		Importer importer = new Importer();
+		importer.setName("Mock Importer");
+		importer.setShortName(this.mockImporterServer.getShortName());
+		importer.setUrl(this.mockImporterServer.getUrl());
+		this.importerService.save(importer);
+		importer = this.importerService.getById(importer.getId());
+
+		Assert.assertTrue(this.importerManager.isHealthy(importer));
+
+		ImporterOperation importerOperation = this.importerService.addImporterOperation(importer, new ImporterOperation());
+
+		// Count the statements from the start of the import
+		Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+
+		System.gc();
+		long heapUsedBefore = getHeapUsed();
+		ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+		long start = System.nanoTime();
+		this.importerManager.performImport(importerOperation);
+
+		// Wait for the end of the operation when the task manager is asynchronous
+		long deadline = System.currentTimeMillis() + Long.getLong(PROPERTY_PREFIX + ".timeout", 600l) * 1000;
+		ImporterOperation runningOperation = this.importerService.getOperationById(importerOperation.getId());
+		while (runningOperation.getStatus().equals(ImporterOperationStatus.RUNNING) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			runningOperation = this.importerService.getOperationById(importerOperation.getId());
+		}
+		double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+		long heapPeak = getHeapPeak();
+		long numberOfDocuments = this.documentVersionService.getAll().size();
+		long numberOfStatements = statistics.getPrepareStatementCount();
+
+		log.info("Load harness : " + numberOfDocuments + " documents imported in " + String.format("%.2f", elapsedSeconds) + "s from " + this.mockImporterServer.getNumberOfRequests() + " importer requests");
+		log.info("Load harness : " + String.format("%.1f", numberOfDocuments / elapsedSeconds) + " documents/s, " + String.format("%.1f", (double)numberOfStatements / Math.max(1, numberOfDocuments)) + " DB statements/document (" + numberOfStatements + " statements)");
+		log.info("Load harness : heap used " + toMegaBytes(heapUsedBefore) + "MB before import, peak " + toMegaBytes(heapPeak) + "MB during import");
+
+		Assert.assertEquals(ImporterOperationStatus.TERMINATED, runningOperation.getStatus());
+		Assert.assertEquals(this.mockImporterServer.getNumberOfDocuments(), numberOfDocuments);
+	}
+
+	private static long getHeapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long getHeapPeak() {
+		return ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP)
+				.mapToLong(memoryPool -> memoryPool.getPeakUsage().getUsed())
+				.sum();
+	}
+
+	private static long toMegaBytes(long bytes) {
+		return bytes / (1024 * 1024);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.core.domain.document.entities.BaseFile;
+import eu.ill.puma.importermanager.ImporterManagerConfiguration;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.importermanager.importer.domain.ImporterStatusEnum;
+import eu.ill.puma.importermanager.importer.domain.ResponseMetadata;
+import eu.ill.puma.persistence.domain.importer.Importer;
+import eu.ill.puma.persistence.domain.importer.ImporterOperation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+public class ImporterPageSpoolTest {
+
+	private Path spoolDirectory;
+	private ImporterPageSpool importerPageSpool;
+	private Importer importer;
+
+	@Before
+	public void beforeMethod() throws Exception {
+		this.spoolDirectory = Files.createTempDirectory("puma-spool-test");
+
+		ImporterManagerConfiguration configuration = new ImporterManagerConfiguration();
+		configuration.importerSpoolPath = this.spoolDirectory.toString();
+
+		this.importerPageSpool = new ImporterPageSpool();
+		ReflectionTestUtils.setField(this.importerPageSpool, "configuration", configuration);
+
+		this.importer = new Importer();
+		this.importer.setId(1L);
+	}
+
+	@After
+	public void afterMethod() {
+		FileSystemUtils.deleteRecursively(this.spoolDirectory.toFile());
+	}
+
+	@Test
+	public void testPagesReplayedInOrder() throws Exception {
+		ImporterOperation firstOperation = this.createOperation(1L);
+		ImporterOperation secondOperation = this.createOperation(2L);
+
+		this.importerPageSpool.spoolPage(firstOperation, this.createPage("1", "cursor-2"));
+		this.importerPageSpool.spoolPage(firstOperation, this.createPage("2", null));
+		this.importerPageSpool.spoolPage(secondOperation, this.createPage("3", null));
+
+		ImporterResponse page = this.importerPageSpool.readPage(this.importer, null);
+		Assert.assertEquals("1", page.getData().get(0).getSourceId());
+		Assert.assertEquals(ImporterStatusEnum.WORKING, page.getMetadata().getStatus());
+
+		page = this.importerPageSpool.readPage(this.importer, page.getMetadata().getNextCursor());
+		Assert.assertEquals("2", page.getData().get(0).getSourceId());
+		Assert.assertEquals(ImporterStatusEnum.WORKING, page.getMetadata().getStatus());
+
+		// Followed by the pages of the next operation
+		page = this.importerPageSpool.readPage(this.importer, page.getMetadata().getNextCursor());
+		Assert.assertEquals("3", page.getData().get(0).getSourceId());
+		Assert.assertEquals(ImporterStatusEnum.FINISHED, page.getMetadata().getStatus());
+		Assert.assertNull(page.getMetadata().getNextCursor());
+	}
+
+	@Test
+	public void testFileDataSpooled() throws Exception {
+		ImporterResponse response = this.createPage("1", null);
+
+		// Data streamed to a temporary file and data held in memory
+		BaseFile streamedFile = new BaseFile();
+		streamedFile.setName("1.pdf");
+		streamedFile.setDataPath(Files.createTempFile("puma-spool-test", ".data"));
+		Files.write(streamedFile.getDataPath(), "pdf content".getBytes(StandardCharsets.UTF_8));
+
+		BaseFile textFile = new BaseFile();
+		textFile.setName("1.txt");
+		textFile.setBase64Encoded(false);
+		textFile.setData("full text");
+
+		response.getData().get(0).getFiles().add(streamedFile);
+		response.getData().get(0).getFiles().add(textFile);
+
+		this.importerPageSpool.spoolPage(this.createOperation(1L), response);
+		ImporterResponseReader.deleteDataFiles(response.getData());
+
+		ImporterResponse page = this.importerPageSpool.readPage(this.importer, null);
+		BaseFile replayedStreamedFile = page.getData().get(0).getFiles().get(0);
+		BaseFile replayedTextFile = page.getData().get(0).getFiles().get(1);
+
+		Assert.assertEquals("1.pdf", replayedStreamedFile.getName());
+		Assert.assertEquals("pdf content", new String(Files.readAllBytes(replayedStreamedFile.getDataPath()), StandardCharsets.UTF_8));
+		Assert.assertFalse(replayedTextFile.getBase64Encoded());
+		Assert.assertEquals("full text", new String(Files.readAllBytes(replayedTextFile.getDataPath()), StandardCharsets.UTF_8));
+
+		ImporterResponseReader.deleteDataFiles(page.getData());
+	}
+
+	@Test
+	public void testEmptySpool() throws Exception {
+		Assert.assertEquals(ImporterStatusEnum.NOT_FOUND, this.importerPageSpool.readPage(this.importer, null).getMetadata().getStatus());
+	}
+
+	private ImporterOperation createOperation(Long id) {
+		ImporterOperation importerOperation = new ImporterOperation();
+		importerOperation.setId(id);
+		importerOperation.setImporter(this.importer);
+
+		return importerOperation;
+	}
+
+	private ImporterResponse createPage(String sourceId, String nextCursor) {
+		ResponseMetadata metadata = new ResponseMetadata();
+		metadata.setStatus(nextCursor != null ? ImporterStatusEnum.WORKING : ImporterStatusEnum.FINISHED);
+		metadata.setNextCursor(nextCursor);
+
+		BaseDocument document = new BaseDocument();
+		document.setSourceId(sourceId);
+
+		ImporterResponse response = new ImporterResponse();
+		response.setMetadata(metadata);
+		response.setData(Collections.singletonList(document));
+
+		return response;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.importer;
+
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.core.domain.document.entities.BaseFile;
+import eu.ill.puma.core.domain.document.enumeration.BaseFileType;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.importermanager.importer.domain.ImporterStatusEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+public class ImporterResponseReaderTest {
+
+	@Test
+	public void testReadStreamedResponse() throws Exception {
+		String pdfData = Base64.getEncoder().encodeToString("pdf content".getBytes(StandardCharsets.UTF_8));
+
+		// Documents before the metadata, file fields in any order
+		String json = "{\"data\":[" +
+				"{\"sourceId\":\"1\",\"files\":[{\"name\":\"1.pdf\",\"data\":\"" + pdfData + "\",\"type\":\"PUBLICATION\",\"md5\":\"abc\"}]}," +
+				"{\"sourceId\":\"2\",\"files\":[{\"base64Encoded\":false,\"name\":\"2.txt\",\"data\":\"full text\"}]}" +
+				"],\"metadata\":{\"status\":\"WORKING\",\"nextCursor\":\"next\",\"count\":2,\"totalCount\":10}}";
+
+		ImporterResponse importerResponse;
+		try (InputStream inputStream = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))) {
+			importerResponse = new ImporterResponseReader().read(inputStream);
+		}
+
+		Assert.assertEquals(ImporterStatusEnum.WORKING, importerResponse.getMetadata().getStatus());
+		Assert.assertEquals("next", importerResponse.getMetadata().getNextCursor());
+		Assert.assertEquals(2, importerResponse.getData().size());
+
+		BaseFile pdfFile = importerResponse.getData().get(0).getFiles().get(0);
+		Assert.assertEquals("1.pdf", pdfFile.getName());
+		Assert.assertEquals(BaseFileType.PUBLICATION, pdfFile.getType());
+		Assert.assertEquals("abc", pdfFile.getMd5());
+		Assert.assertNull(pdfFile.getData());
+		Assert.assertEquals("pdf content", new String(Files.readAllBytes(pdfFile.getDataPath()), StandardCharsets.UTF_8));
+
+		BaseFile textFile = importerResponse.getData().get(1).getFiles().get(0);
+		Assert.assertFalse(textFile.getBase64Encoded());
+		Assert.assertEquals("full text", new String(Files.readAllBytes(textFile.getDataPath()), StandardCharsets.UTF_8));
+
+		// Temporary files deleted once integrated
+		Path pdfDataPath = pdfFile.getDataPath();
+		ImporterResponseReader.deleteDataFiles(importerResponse.getData());
+		Assert.assertFalse(Files.exists(pdfDataPath));
+		Assert.assertNull(pdfFile.getDataPath());
+	}
+
+	@Test
+	public void testDocumentsHandedOverOneAtATime() throws Exception {
+		String json = "{\"metadata\":{\"status\":\"FINISHED\"},\"data\":[{\"sourceId\":\"1\"},{\"sourceId\":\"2\"},{\"sourceId\":\"3\"}]}";
+
+		StringBuilder sourceIds = new StringBuilder();
+		try (InputStream inputStream = new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))) {
+			ImporterStatusEnum status = new ImporterResponseReader().read(inputStream, (BaseDocument document) -> sourceIds.append(document.getSourceId())).getStatus();
+			Assert.assertEquals(ImporterStatusEnum.FINISHED, status);
+		}
+
+		Assert.assertEquals("123", sourceIds.toString());
+	}
+}
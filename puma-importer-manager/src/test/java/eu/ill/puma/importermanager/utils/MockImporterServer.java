@@ -0,0 +1,285 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.importermanager.utils;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.core.domain.document.entities.BaseFile;
+import eu.ill.puma.core.domain.document.entities.BasePerson;
+import eu.ill.puma.core.domain.document.entities.BaseStringEntity;
+import eu.ill.puma.core.domain.document.enumeration.BaseDocumentType;
+import eu.ill.puma.core.domain.document.enumeration.BaseFileType;
+import eu.ill.puma.core.domain.importer.ImporterInfo;
+import eu.ill.puma.importermanager.importer.domain.ImporterResponse;
+import eu.ill.puma.importermanager.importer.domain.ImporterStatusEnum;
+import eu.ill.puma.importermanager.importer.domain.ResponseMetadata;
+import eu.ill.puma.persistence.util.MD5Checksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in importer serving synthetic pages of documents on localhost, used to measure the import throughput without
+ * an upstream importer. The documents are generated from their index so that every run imports the same corpus.
+ *
+ * Implements the health, info, documents and documents/cursor/{cursor} endpoints of the importer API : the cursor
+ * of a page is the index of its first document.
+ */
+public class MockImporterServer {
+
+	private static final Logger log = LoggerFactory.getLogger(MockImporterServer.class);
+
+	private static final String API_BASE_URL = "/api/v1/";
+
+	private final ObjectMapper objectMapper = new ObjectMapper().addMixIn(ResponseMetadata.class, ResponseMetadataMixIn.class);
+
+	private int numberOfDocuments = 1000;
+	private int pageSize = 100;
+	private int numberOfKeywords = 5;
+	private int numberOfPersons = 3;
+	private int fileSize = 0;
+	private long latencyMillis = 0;
+	private String shortName = "MOCK";
+
+	private HttpServer server;
+	private final AtomicLong numberOfRequests = new AtomicLong();
+
+	/**
+	 * The derived current count is not part of the responses of the importers
+	 */
+	@JsonIgnoreProperties({"currentCount"})
+	private static abstract class ResponseMetadataMixIn {
+	}
+
+	/**
+	 * Starts the server on a free port of localhost
+	 * @throws IOException If the server cannot be started
+	 */
+	public void start() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.setExecutor(Executors.newCachedThreadPool());
+
+		this.server.createContext(API_BASE_URL + "health", exchange -> this.respond(exchange, 200, "OK".getBytes(StandardCharsets.UTF_8)));
+		this.server.createContext(API_BASE_URL + "info", exchange -> this.respondJson(exchange, this.createImporterInfo()));
+		this.server.createContext(API_BASE_URL + "documents", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			String cursorPath = API_BASE_URL + "documents/cursor/";
+
+			int first = path.startsWith(cursorPath) ? Integer.parseInt(path.substring(cursorPath.length())) : 0;
+			this.respondJson(exchange, this.createPage(first));
+		});
+
+		this.server.start();
+
+		log.info("Mock importer started at " + this.getUrl() + " serving " + this.numberOfDocuments + " documents in pages of " + this.pageSize);
+	}
+
+	public void stop() {
+		if (this.server != null) {
+			this.server.stop(0);
+			this.server = null;
+		}
+	}
+
+	/**
+	 * Returns the URL of the importer
+	 * @return The URL of the started server
+	 */
+	public String getUrl() {
+		return "http://localhost:" + this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Creates the page of documents starting at a given index
+	 * @param first The index of the first document of the page
+	 * @return The importer response
+	 */
+	public ImporterResponse createPage(int first) {
+		int last = Math.min(this.numberOfDocuments, first + this.pageSize);
+
+		ImporterResponse importerResponse = new ImporterResponse();
+		for (int index = first; index < last; index++) {
+			importerResponse.getData().add(this.createDocument(index));
+		}
+
+		ResponseMetadata metadata = new ResponseMetadata();
+		metadata.setFirst(first + 1l);
+		metadata.setCount((long)(last - first));
+		metadata.setTotalCount((long)this.numberOfDocuments);
+		if (last < this.numberOfDocuments) {
+			metadata.setStatus(ImporterStatusEnum.WORKING);
+			metadata.setNextCursor(String.valueOf(last));
+
+		} else {
+			metadata.setStatus(ImporterStatusEnum.FINISHED);
+		}
+		if (first > 0) {
+			metadata.setPreviousCursor(String.valueOf(Math.max(0, first - this.pageSize)));
+		}
+		importerResponse.setMetadata(metadata);
+
+		return importerResponse;
+	}
+
+	/**
+	 * Creates the synthetic document of a given index
+	 * @param index The index of the document
+	 * @return The document
+	 */
+	public BaseDocument createDocument(int index) {
+		BaseDocument document = new BaseDocument();
+		document.setSourceId(this.shortName.toLowerCase() + "-" + index);
+		document.setType(BaseDocumentType.PUBLICATION);
+		document.setDoi(new BaseStringEntity("10.0000/mock." + index));
+		document.setTitle(new BaseStringEntity("Mock document " + index));
+		document.setAbstract(new BaseStringEntity("Abstract of the mock document " + index + " served by the mock importer."));
+
+		// Keywords and persons are shared between documents as in a real corpus
+		for (int i = 0; i < this.numberOfKeywords; i++) {
+			document.getKeywords().add(new BaseStringEntity("keyword " + ((index + i) % 50)));
+		}
+		for (int i = 0; i < this.numberOfPersons; i++) {
+			BasePerson person = new BasePerson();
+			person.setFirstName("First" + ((index + i) % 200));
+			person.setLastName("Last" + ((index + i) % 200));
+			person.setPublicationName(person.getLastName() + ", " + person.getFirstName().charAt(0) + ".");
+			document.getPersons().add(person);
+		}
+
+		if (this.fileSize > 0) {
+			byte[] data = new byte[this.fileSize];
+			new Random(index).nextBytes(data);
+
+			BaseFile file = new BaseFile();
+			file.setName("mock-" + index + ".pdf");
+			file.setMimeType("application/pdf");
+			file.setType(BaseFileType.PUBLICATION);
+			file.setMd5(MD5Checksum.getMD5Checksum(data));
+			file.setData(Base64.getEncoder().encodeToString(data));
+			document.getFiles().add(file);
+		}
+
+		return document;
+	}
+
+	private ImporterInfo createImporterInfo() {
+		ImporterInfo importerInfo = new ImporterInfo();
+		importerInfo.setImporterName("Mock Importer");
+		importerInfo.setImporterShortName(this.shortName);
+		importerInfo.setVersion("1.0.0");
+
+		return importerInfo;
+	}
+
+	private void respondJson(HttpExchange exchange, Object value) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		this.respond(exchange, 200, this.objectMapper.writeValueAsBytes(value));
+	}
+
+	private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		this.numberOfRequests.incrementAndGet();
+
+		try {
+			if (this.latencyMillis > 0) {
+				Thread.sleep(this.latencyMillis);
+			}
+
+			exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+			if (body.length > 0) {
+				try (OutputStream outputStream = exchange.getResponseBody()) {
+					outputStream.write(body);
+				}
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+		} finally {
+			exchange.close();
+		}
+	}
+
+	public long getNumberOfRequests() {
+		return numberOfRequests.get();
+	}
+
+	public int getNumberOfDocuments() {
+		return numberOfDocuments;
+	}
+
+	public void setNumberOfDocuments(int numberOfDocuments) {
+		this.numberOfDocuments = numberOfDocuments;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	public int getNumberOfKeywords() {
+		return numberOfKeywords;
+	}
+
+	public void setNumberOfKeywords(int numberOfKeywords) {
+		this.numberOfKeywords = numberOfKeywords;
+	}
+
+	public int getNumberOfPersons() {
+		return numberOfPersons;
+	}
+
+	public void setNumberOfPersons(int numberOfPersons) {
+		this.numberOfPersons = numberOfPersons;
+	}
+
+	public int getFileSize() {
+		return fileSize;
+	}
+
+	public void setFileSize(int fileSize) {
+		this.fileSize = fileSize;
+	}
+
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	public String getShortName() {
+		return shortName;
+	}
+
+	public void setShortName(String shortName) {
+		this.shortName = shortName;
+	}
+}
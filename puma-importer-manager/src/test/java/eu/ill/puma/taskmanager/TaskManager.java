@@ -16,9 +16,14 @@
 package eu.ill.puma.taskmanager;
 
 import eu.ill.puma.core.error.PumaError;
+import eu.ill.puma.taskmanager.journal.TaskJournalEntry;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 //@Component
 public class TaskManager {
@@ -62,10 +67,60 @@ public class TaskManager {
 		}
 	}
 
+	public boolean tryExecuteTask(Task task, TaskCompletionHandler taskCompletionHandler) {
+		this.executeTask(task, taskCompletionHandler);
+
+		return true;
+	}
+
+	public void whenCapacityAvailable(TaskLane lane, Runnable callback) {
+		callback.run();
+	}
+
+	public int getRemainingCapacity(TaskLane lane) {
+		return Integer.MAX_VALUE;
+	}
+
+	public void executeTaskAfter(Task task, long delayMillis, TaskCompletionHandler taskCompletionHandler) {
+		if (this.isAsync) {
+			((ScheduledThreadPoolExecutor)threadPoolExecutor).schedule(new TaskWrapper(task, null, taskCompletionHandler), delayMillis, TimeUnit.MILLISECONDS);
+
+		} else {
+			this.executeTask(task, taskCompletionHandler);
+		}
+	}
+
+	public void executeTaskAfter(Task task, long delayMillis, LongSupplier delayWhenDue, TaskCompletionHandler taskCompletionHandler) {
+		this.executeTaskAfter(task, delayMillis, taskCompletionHandler);
+	}
+
+	public long retryTaskWithBackoff(Task task, TaskBackoffPolicy backoffPolicy, TaskCompletionHandler taskCompletionHandler) {
+		long delayMillis = backoffPolicy.getDelayMillis(task.onRetry());
+		this.executeTaskAfter(task, delayMillis, taskCompletionHandler);
+
+		return delayMillis;
+	}
+
 	public void cancelTask(Task task) {
 
 	}
 
+	public boolean isTaskJournalRecovered() {
+		return false;
+	}
+
+	public List<TaskJournalEntry> takeRecoveredTasks(String type) {
+		return Collections.emptyList();
+	}
+
+	public void recordHeldTask(Task task) {
+
+	}
+
+	public void releaseHeldTask(Task task) {
+
+	}
+
 	public int getPoolSize() {
 		return 1;
 	}
@@ -20,12 +20,16 @@ import eu.ill.puma.indexer.task.*;
 import eu.ill.puma.persistence.service.document.DocumentVersionService;
 import eu.ill.puma.taskmanager.Task;
 import eu.ill.puma.taskmanager.TaskCompletionHandler;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskManager;
+import eu.ill.puma.taskmanager.pipeline.DocumentPipeline;
+import eu.ill.puma.taskmanager.pipeline.PipelineStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -42,6 +46,9 @@ public class IndexerManager implements TaskCompletionHandler {
 	@Autowired
 	private TaskManager taskManager;
 
+	@Autowired
+	private DocumentPipeline documentPipeline;
+
 	private List<Task> activeTasks = new CopyOnWriteArrayList<>();
 
 	private List<Long> pendingDocumentIds = new CopyOnWriteArrayList();
@@ -51,6 +58,12 @@ public class IndexerManager implements TaskCompletionHandler {
 	public IndexerManager() {
 	}
 
+	@PostConstruct
+	public void init() {
+		// Index documents as soon as their analysis has terminated
+		this.documentPipeline.addStageHandler(PipelineStage.ANALYSED, this::indexAsync);
+	}
+
 	public void indexAsync(Long documentVersionId) {
 
 		if (this.state == IndexationState.Pending) {
@@ -191,7 +204,7 @@ public class IndexerManager implements TaskCompletionHandler {
 	 */
 	public synchronized void createNextTasks() {
 		// Add as many tasks as possible while we are running, we have a stage runner and stage runner is not terminated
-		while (this.state == IndexationState.Running && this.activeTasks.size() < this.taskManager.getPoolSize() && this.pendingDocumentIds.size() > 0) {
+		while (this.state == IndexationState.Running && this.activeTasks.size() < this.taskManager.getPoolSize(TaskLane.INDEX) && this.pendingDocumentIds.size() > 0) {
 
 			//build id list
 			List<Long> idsToIndex = new ArrayList<Long>();
@@ -16,11 +16,14 @@
 package eu.ill.puma.indexer.task;
 
 import eu.ill.puma.indexer.manager.IndexerManager;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
 import java.util.ArrayList;
 import java.util.List;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class AsyncIndexationTask extends IndexerTask {
 
 	private IndexerManager indexerManager;
@@ -40,4 +43,10 @@ public class AsyncIndexationTask extends IndexerTask {
 	public List<Long> getIds() {
 		return new ArrayList();
 	}
+
+	@Override
+	public String getCoalescingKey() {
+		// A single pending tick creates the next indexation tasks from all the pending document ids
+		return "index-tick";
+	}
 }
@@ -16,11 +16,14 @@
 package eu.ill.puma.indexer.task;
 
 import eu.ill.puma.indexer.manager.IndexerManager;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 
 import java.util.ArrayList;
 import java.util.List;
 
+@ExecutionLane(TaskLane.CONTROL)
 public class AsyncReIndexationTask extends IndexerTask {
 
 	private IndexerManager indexerManager;
@@ -41,4 +44,9 @@ public class AsyncReIndexationTask extends IndexerTask {
 	public List<Long> getIds() {
 		return new ArrayList();
 	}
+
+	@Override
+	public String getCoalescingKey() {
+		return "reindex";
+	}
 }
@@ -16,12 +16,15 @@
 package eu.ill.puma.indexer.task;
 
 import eu.ill.puma.indexer.manager.IndexerManager;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
+@ExecutionLane(TaskLane.INDEX)
 public class BulkIndexationTask extends IndexerTask {
 	private static final Logger log = LoggerFactory.getLogger(BulkIndexationTask.class);
 
@@ -33,6 +36,9 @@ public class BulkIndexationTask extends IndexerTask {
 		this.documentVersionsIdToIndex = documentVersionsIdToIndex;
 		this.indexerManager = indexerManager;
 		this.setPriority(TaskPriority.DEFAULT);
+
+		// Trace the indexation in the lifecycle of the documents
+		this.getTraceContext().addDocumentVersions(documentVersionsIdToIndex);
 	}
 
 	@Override
@@ -16,13 +16,16 @@
 package eu.ill.puma.indexer.task;
 
 import eu.ill.puma.indexer.manager.IndexerManager;
+import eu.ill.puma.taskmanager.TaskLane;
 import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 
+@ExecutionLane(TaskLane.INDEX)
 public class SimpleAsyncIndexationTask extends IndexerTask {
 	private static final Logger log = LoggerFactory.getLogger(BulkIndexationTask.class);
 
@@ -34,6 +37,9 @@ public class SimpleAsyncIndexationTask extends IndexerTask {
 		this.documentVersionIdToIndex = documentVersionIdToIndex;
 		this.indexerManager = indexerManager;
 		this.setPriority(TaskPriority.DEFAULT);
+
+		// Trace the indexation in the lifecycle of the document
+		this.getTraceContext().addDocumentVersion(documentVersionIdToIndex);
 	}
 
 	@Override
@@ -51,6 +51,9 @@ public class ImporterOperation implements Serializable {
 	@Column(name = "update_citations", columnDefinition = "boolean default false")
 	private Boolean updateCitations = false;
 
+	@Column(name = "replay_spool", columnDefinition = "boolean default false")
+	private Boolean replaySpool = false;
+
 	@Column(name = "last_imported_document_version_id")
 	private Long lastImportedDocumentVersionId = 0l;
 
@@ -152,6 +155,14 @@ public class ImporterOperation implements Serializable {
 		this.updateCitations = updateCitations;
 	}
 
+	public Boolean getReplaySpool() {
+		return replaySpool;
+	}
+
+	public void setReplaySpool(Boolean replaySpool) {
+		this.replaySpool = replaySpool;
+	}
+
 	public Long getLastImportedDocumentVersionId() {
 		return lastImportedDocumentVersionId;
 	}
@@ -63,10 +63,11 @@ public class DocumentVersionAnalysisStateRepository extends PumaRepository<Docum
 		return query.setMaxResults(limit).getResultList();
 	}
 
-	public List<Long> getNextGroupIdsRequiringAnalysis(String analysisSetup, int limit) {
+	public List<Long> getNextGroupIdsRequiringAnalysisAfter(String analysisSetup, Long documentVersionId, int limit) {
 		// Build up query string from parameters
 		String queryString = "select distinct d.documentVersion.id from DocumentVersionAnalysisState d, PumaFile f" +
 			" where d.documentVersion = f.documentVersion" +
+			" and d.documentVersion.id > :documentVersionId" +
 			" and (d.analysisSetup is null or d.analysisSetup not like :analysisSetup)" +
 			" and f.documentType in :validDocumentTypes" +
 			" and d.documentVersion not in (" +					// Remove documents that are still resolving URLS
@@ -85,6 +86,7 @@ public class DocumentVersionAnalysisStateRepository extends PumaRepository<Docum
 		// Set the query parameters
 		query.setParameter("analysisSetup", analysisSetup);
 		query.setParameter("validDocumentTypes", VALID_DOCUMENT_TYPES_FOR_ANALYSIS);
+		query.setParameter("documentVersionId", documentVersionId);
 
 		return query.setMaxResults(limit).getResultList();
 	}
@@ -23,6 +23,8 @@ import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import java.util.Date;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @Repository
 public class DocumentVersionRepository extends PumaRepository<DocumentVersion> {
@@ -118,33 +120,31 @@ public class DocumentVersionRepository extends PumaRepository<DocumentVersion> {
 
 	}
 
-	public DocumentVersion getNextDocumentVersionForReimport(String importerShortName, Long offsetId) {
-		// All documents with entities
-//		String queryString = "select d from DocumentVersion d, DocumentVersionSource s, DocumentVersionEntityOrigin o" +
-//			" where s.documentVersion.id = d.id" +
-//			" and o.documentVersion.id = d.id" +
-//			" and s.importerShortName = :importerShortName" +
-//			" and d.id > :offsetId" +
-//			" order by d.id";
-
-		// All documents
-		String queryString = "select d from DocumentVersion d, DocumentVersionSource s" +
-			" where s.documentVersion.id = d.id" +
-			" and s.importerShortName = :importerShortName" +
-			" and d.id > :offsetId" +
-			" order by d.id";
-
-		TypedQuery<DocumentVersion> query = entityManager.createQuery(queryString, DocumentVersion.class);
+	/**
+	 * Returns the source Ids of the next block of documents of an importer to reimport, using the document version
+	 * Id as a keyset so that each block is obtained with a single indexed query
+	 * @param importerShortName The short name of the importer
+	 * @param offsetId The Id of the last reimported document version
+	 * @param maxResults The maximum number of documents in the block
+	 * @return The source Ids indexed by document version Id, in the order of the Ids
+	 */
+	public SortedMap<Long, String> getNextSourceIdsForReimport(String importerShortName, Long offsetId, int maxResults) {
+		String queryString = "select s.documentVersion.id, s.sourceId from DocumentVersionSource s" +
+			" where s.importerShortName = :importerShortName" +
+			" and s.documentVersion.id > :offsetId" +
+			" order by s.documentVersion.id";
+
+		TypedQuery<Object[]> query = entityManager.createQuery(queryString, Object[].class);
 		// Set the query parameters
 		query.setParameter("importerShortName", importerShortName);
 		query.setParameter("offsetId", offsetId);
-		query.setMaxResults(1);
-
-		try {
-			return query.getSingleResult();
+		query.setMaxResults(maxResults);
 
-		} catch (NoResultException e) {
-			return null;
+		SortedMap<Long, String> sourceIds = new TreeMap<>();
+		for (Object[] row : query.getResultList()) {
+			sourceIds.put((Long)row[0], (String)row[1]);
 		}
+
+		return sourceIds;
 	}
 }
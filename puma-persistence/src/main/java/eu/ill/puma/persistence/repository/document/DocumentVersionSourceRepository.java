@@ -22,7 +22,10 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.TypedQuery;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class DocumentVersionSourceRepository extends PumaRepository<DocumentVersionSource> {
@@ -59,6 +62,35 @@ public class DocumentVersionSourceRepository extends PumaRepository<DocumentVers
 	}
 
 
+	/**
+	 * Returns the document versions already imported from an importer for a set of source Ids, in a single query
+	 * @param sourceIds The source Ids
+	 * @param importerShortName The short name of the importer
+	 * @return The document version Ids indexed by source Id, only for the source Ids already imported
+	 */
+	public Map<String, Long> getDocumentVersionIdsBySourceIds(Collection<String> sourceIds, String importerShortName) {
+		Map<String, Long> documentVersionIds = new HashMap<>();
+		if (sourceIds.isEmpty()) {
+			return documentVersionIds;
+		}
+
+		String queryString = "select s.sourceId, s.documentVersion.id from DocumentVersionSource s" +
+			" where s.importerShortName = :importerShortName" +
+			" and s.sourceId in :sourceIds" +
+			" order by s.id";
+
+		TypedQuery<Object[]> query = entityManager.createQuery(queryString, Object[].class);
+		query.setParameter("importerShortName", importerShortName);
+		query.setParameter("sourceIds", sourceIds);
+
+		// Keep the first source as getFirstBySourceIdAndImporterShortName
+		for (Object[] row : query.getResultList()) {
+			documentVersionIds.putIfAbsent((String)row[0], (Long)row[1]);
+		}
+
+		return documentVersionIds;
+	}
+
 	public DocumentVersionSource getLastSourceByImporterShortName(String importerShortName) {
 		String queryString = "select dvs from  DocumentVersionSource dvs where dvs.importerShortName = :importerShortName " +
 				"order by length(dvs.sourceId) desc, dvs.sourceId desc";
@@ -58,4 +58,21 @@ public class PumaFileRepository extends PumaDocumentEntityRepository<PumaFile> {
 
 		return query.getResultList();
 	}
+
+	public List<PumaFile> getNextForStatusesAfter(List<PumaFileStatus> pumaFileStatuses, Long pumaFileId, int maxResults) {
+
+		// Build up query string from parameters
+		String queryString = "select f from PumaFile f where obsolete = false and status in :statuses and f.id > :pumaFileId order by f.id asc";
+		log.debug(queryString);
+
+		// Generate the query
+		TypedQuery<PumaFile> query = this.entityManager.createQuery(queryString, PumaFile.class);
+
+		// Set the query parameters
+		query.setParameter("statuses", pumaFileStatuses);
+		query.setParameter("pumaFileId", pumaFileId);
+		query.setMaxResults(maxResults);
+
+		return query.getResultList();
+	}
 }
@@ -142,4 +142,21 @@ public class ResolverInfoRepository extends PumaRepository<ResolverInfo> {
 
 		return query.getResultList();
 	}
+
+	public List<ResolverInfo> getNextForStatusesAfter(List<ResolverInfoStatus> resolverInfoStatuses, Long resolverId, int maxResults) {
+
+		// Build up query string from parameters
+		String queryString = "select r from ResolverInfo r where status in :statuses and r.id > :resolverId order by r.id asc";
+		log.debug(queryString);
+
+		// Generate the query
+		TypedQuery<ResolverInfo> query = this.entityManager.createQuery(queryString, ResolverInfo.class);
+
+		// Set the query parameters
+		query.setParameter("statuses", resolverInfoStatuses);
+		query.setParameter("resolverId", resolverId);
+		query.setMaxResults(maxResults);
+
+		return query.getResultList();
+	}
 }
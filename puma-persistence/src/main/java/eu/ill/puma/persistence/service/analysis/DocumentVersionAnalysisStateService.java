@@ -104,8 +104,8 @@ public class DocumentVersionAnalysisStateService {
 		return this.completeDocumentRetrievalOfDocumentVersions(this.repository.getAnalysisHistory(limit), withFiles);
 	}
 
-	public List<Long> getNextDocumentVersionIdsRequiringAnalysis(String analysisSetup, int limit) {
-		return this.repository.getNextGroupIdsRequiringAnalysis(analysisSetup, limit);
+	public List<Long> getNextDocumentVersionIdsRequiringAnalysisAfter(String analysisSetup, Long documentVersionId, int limit) {
+		return this.repository.getNextGroupIdsRequiringAnalysisAfter(analysisSetup, documentVersionId, limit);
 	}
 
 	public long getNumberOfDocumentsRequiringAnalysis(String analysisSetup) {
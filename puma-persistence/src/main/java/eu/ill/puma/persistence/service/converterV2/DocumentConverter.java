@@ -92,6 +92,19 @@ public class DocumentConverter {
 	@Autowired
 	private CitationIntegrator citationIntegrator;
 
+	@Autowired
+	private SharedEntityIntegrator sharedEntityIntegrator;
+
+	/**
+	 * Creates the entities shared between documents (keywords, persons, laboratories...) that a document adds. Called
+	 * outside of a transaction before the document is converted, so that documents converted concurrently share these
+	 * entities without a transaction nested in that of the document.
+	 * @param baseDocument The document to convert
+	 */
+	public void createSharedEntities(BaseDocument baseDocument) {
+		this.sharedEntityIntegrator.createSharedEntities(baseDocument);
+	}
+
 
 	/**
 	 * @param baseDocument
@@ -25,6 +25,8 @@ import eu.ill.puma.persistence.service.converterV2.exception.PumaDocumentConvers
 import eu.ill.puma.persistence.util.MD5Checksum;
 import org.apache.commons.codec.binary.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Base64;
 import java.util.Date;
 
@@ -54,7 +56,16 @@ public class FileConverter {
 		pumaFile.setDocumentType(convertFileType(importerFile.getType()));
 
 		byte[] decoded;
-		if (importerFile.getBase64Encoded()) {
+		if (importerFile.getDataPath() != null) {
+			// Data already decoded to a temporary file while streaming the importer response
+			try {
+				decoded = Files.readAllBytes(importerFile.getDataPath());
+
+			} catch (IOException e) {
+				throw new PumaDocumentConversionException("Could not read streamed data of file " + importerFile.getName(), e);
+			}
+
+		} else if (importerFile.getBase64Encoded()) {
 			// Decode base64 data to byte array
 			decoded = Base64.getDecoder().decode(importerFile.getData());
 
@@ -58,7 +58,7 @@ public class FormulaIntegrator {
 				if (baseFormula.getPumaId() == null || baseFormula.getPumaId() >= 0) {
 					//new formula
 					Formula formulaToAdd = FormulaConverter.convert(baseFormula);
-					formulaToAdd = formulaService.save(formulaToAdd);
+					formulaToAdd = formulaService.getOrCreate(formulaToAdd);
 
 					if (!documentVersion.getFormulas().contains(formulaToAdd)) {
 						documentVersion.addFormula(formulaToAdd);
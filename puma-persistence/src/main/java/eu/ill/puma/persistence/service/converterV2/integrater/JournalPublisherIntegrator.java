@@ -73,7 +73,7 @@ public class JournalPublisherIntegrator {
 			if (baseJournal.getPumaId() == null || baseJournal.getPumaId() >= 0) {
 				//new Journal
 				Journal journal = JournalConverter.convert(baseJournal);
-				journal = journalService.save(journal);
+				journal = journalService.getOrCreate(journal);
 
 				boolean addedJournal = false;
 
@@ -91,7 +91,7 @@ public class JournalPublisherIntegrator {
 				} else {
 					for (BasePublisher basePublisher : baseDocument.getPublishers()) {
 						Publisher publisher = PublisherConverter.convert(basePublisher);
-						publisher = publisherService.save(publisher);
+						publisher = publisherService.getOrCreate(publisher);
 
 
 						JournalPublisherAffiliation journalPublisherAffiliation = new JournalPublisherAffiliation();
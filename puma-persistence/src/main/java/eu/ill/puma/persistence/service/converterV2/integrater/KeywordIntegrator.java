@@ -56,7 +56,7 @@ public class KeywordIntegrator {
 			if (baseKeyword.getPumaId() == null || baseKeyword.getPumaId() >= 0) {
 				//new keyword
 				Keyword keywordToAdd = KeywordConverter.convert(baseKeyword);
-				keywordToAdd = keywordService.save(keywordToAdd);
+				keywordToAdd = keywordService.getOrCreate(keywordToAdd);
 
 				if (!documentVersion.getKeywords().contains(keywordToAdd)) {
 					documentVersion.addKeyword(keywordToAdd);
@@ -117,7 +117,7 @@ public class LaboratoryPersonInstrumentIntegrator {
 			if (basePerson.getPumaId() == null || basePerson.getPumaId() >= 0) {
 				//person
 				Person personToAdd = PersonConverter.convert(basePerson);
-				personToAdd = personService.save(personToAdd);
+				personToAdd = personService.getOrCreate(personToAdd);
 
 
 				//affiliation
@@ -137,7 +137,7 @@ public class LaboratoryPersonInstrumentIntegrator {
 						laboratoryCacheMap.put(baseLaboratory, laboratoryToAdd);
 					}
 
-					laboratoryToAdd = this.laboratoryService.save(laboratoryToAdd);
+					laboratoryToAdd = this.laboratoryService.getOrCreate(laboratoryToAdd);
 					affiliation.setLaboratory(laboratoryToAdd);
 				}
 
@@ -195,7 +195,7 @@ public class LaboratoryPersonInstrumentIntegrator {
 						laboratoryCacheMap.put(baseLaboratory, laboratoryToAdd);
 					}
 
-					laboratoryToAdd = this.laboratoryService.save(laboratoryToAdd);
+					laboratoryToAdd = this.laboratoryService.getOrCreate(laboratoryToAdd);
 				}
 
 				//new instrument
@@ -253,7 +253,7 @@ public class LaboratoryPersonInstrumentIntegrator {
 					laboratoryCacheMap.put(baseLaboratory, laboratoryToAdd);
 				}
 
-				laboratoryToAdd = this.laboratoryService.save(laboratoryToAdd);
+				laboratoryToAdd = this.laboratoryService.getOrCreate(laboratoryToAdd);
 
 				PersonLaboratoryAffiliation affiliation = new PersonLaboratoryAffiliation();
 				affiliation.setLaboratory(laboratoryToAdd);
@@ -59,7 +59,7 @@ public class ResearchDomainIntegrator {
 				if (baseResearchDomain.getPumaId() == null || baseResearchDomain.getPumaId() >= 0) {
 					//new research domain
 					ResearchDomain researchDomainToAdd = ResearchDomainConverter.convert(baseResearchDomain);
-					researchDomainToAdd = researchDomainService.save(researchDomainToAdd);
+					researchDomainToAdd = researchDomainService.getOrCreate(researchDomainToAdd);
 
 					if (!documentVersion.getResearchDomains().contains(researchDomainToAdd)) {
 						documentVersion.addResearchDomain(researchDomainToAdd);
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.persistence.service.converterV2.integrater;
+
+import eu.ill.puma.core.domain.document.BaseDocument;
+import eu.ill.puma.core.domain.document.entities.BaseFormula;
+import eu.ill.puma.core.domain.document.entities.BaseJournal;
+import eu.ill.puma.core.domain.document.entities.BaseLaboratory;
+import eu.ill.puma.core.domain.document.entities.BasePerson;
+import eu.ill.puma.core.domain.document.entities.BasePublisher;
+import eu.ill.puma.core.domain.document.entities.BaseStringEntity;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.FormulaConverter;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.JournalConverter;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.KeywordConverter;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.LaboratoryConverter;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.PersonConverter;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.PublisherConverter;
+import eu.ill.puma.persistence.service.converterV2.entitityconverter.ResearchDomainConverter;
+import eu.ill.puma.persistence.service.document.FormulaService;
+import eu.ill.puma.persistence.service.document.JournalService;
+import eu.ill.puma.persistence.service.document.KeywordService;
+import eu.ill.puma.persistence.service.document.LaboratoryService;
+import eu.ill.puma.persistence.service.document.PersonService;
+import eu.ill.puma.persistence.service.document.PublisherService;
+import eu.ill.puma.persistence.service.document.ResearchDomainService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Creates the entities shared between documents (keywords, persons, laboratories, journals...) that a document adds,
+ * before the document is integrated. Called outside of a transaction, each entity is created in a transaction of its
+ * own : the integrators then find them within the transaction of the document.
+ */
+@Service
+public class SharedEntityIntegrator {
+
+	@Autowired
+	private KeywordService keywordService;
+
+	@Autowired
+	private ResearchDomainService researchDomainService;
+
+	@Autowired
+	private FormulaService formulaService;
+
+	@Autowired
+	private JournalService journalService;
+
+	@Autowired
+	private PublisherService publisherService;
+
+	@Autowired
+	private PersonService personService;
+
+	@Autowired
+	private LaboratoryService laboratoryService;
+
+	public void createSharedEntities(BaseDocument baseDocument) {
+
+		//keywords
+		for (BaseStringEntity baseKeyword : baseDocument.getKeywords()) {
+			if (isAdded(baseKeyword.getPumaId())) {
+				this.keywordService.getOrCreate(KeywordConverter.convert(baseKeyword));
+			}
+		}
+
+		//research domains
+		if (baseDocument.getResearchDomains() != null) {
+			for (BaseStringEntity baseResearchDomain : baseDocument.getResearchDomains()) {
+				if (isAdded(baseResearchDomain.getPumaId())) {
+					this.researchDomainService.getOrCreate(ResearchDomainConverter.convert(baseResearchDomain));
+				}
+			}
+		}
+
+		//formulas
+		if (baseDocument.getFormulas() != null) {
+			for (BaseFormula baseFormula : baseDocument.getFormulas()) {
+				if (isAdded(baseFormula.getPumaId())) {
+					this.formulaService.getOrCreate(FormulaConverter.convert(baseFormula));
+				}
+			}
+		}
+
+		//journal and publishers
+		BaseJournal baseJournal = baseDocument.getJournal();
+		if (baseJournal != null && isAdded(baseJournal.getPumaId())) {
+			this.journalService.getOrCreate(JournalConverter.convert(baseJournal));
+
+			for (BasePublisher basePublisher : baseDocument.getPublishers()) {
+				this.publisherService.getOrCreate(PublisherConverter.convert(basePublisher));
+			}
+		}
+
+		//persons
+		for (BasePerson basePerson : baseDocument.getPersons()) {
+			if (isAdded(basePerson.getPumaId())) {
+				this.personService.getOrCreate(PersonConverter.convert(basePerson));
+			}
+		}
+
+		//laboratories
+		for (BaseLaboratory baseLaboratory : baseDocument.getLaboratories()) {
+			if (isAdded(baseLaboratory.getPumaId())) {
+				this.laboratoryService.getOrCreate(LaboratoryConverter.convert(baseLaboratory));
+			}
+		}
+	}
+
+	/**
+	 * An entity is added (add & update operation) unless its puma Id is negative (delete operation)
+	 */
+	private static boolean isAdded(Long pumaId) {
+		return pumaId == null || pumaId >= 0;
+	}
+}
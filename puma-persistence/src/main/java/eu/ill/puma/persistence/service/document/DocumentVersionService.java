@@ -35,8 +35,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 
 @Service
 @Transactional
@@ -168,6 +171,18 @@ public class DocumentVersionService {
 		return null;
 	}
 
+	/**
+	 * Returns the document versions already imported from an importer for all the source Ids of a page, replacing a
+	 * call to getDocumentVersionAlreadyPresent per document
+	 *
+	 * @param sourceIds The source Ids
+	 * @param importerShortName The short name of the importer
+	 * @return The document version Ids indexed by source Id, only for the source Ids already imported
+	 */
+	public Map<String, Long> getDocumentVersionIdsAlreadyPresent(Collection<String> sourceIds, String importerShortName) {
+		return this.documentVersionSourceRepository.getDocumentVersionIdsBySourceIds(sourceIds, importerShortName);
+	}
+
 	/**
 	 * Return the last DocumentVersionSource importer by the specified importer
 	 *
@@ -305,13 +320,8 @@ public class DocumentVersionService {
 		this.documentEraser.eraseDocumentEntities(documentVersion);
 	}
 
-	public DocumentVersion getNextDocumentVersionForReimport(String shortName, Long offsetId) {
-		DocumentVersion documentVersion = this.documentVersionRepository.getNextDocumentVersionForReimport(shortName, offsetId);
-		if (documentVersion != null) {
-			Hibernate.initialize(documentVersion.getSources());
-		}
-
-		return documentVersion;
+	public SortedMap<Long, String> getNextSourceIdsForReimport(String shortName, Long offsetId, int maxResults) {
+		return this.documentVersionRepository.getNextSourceIdsForReimport(shortName, offsetId, maxResults);
 	}
 
 }
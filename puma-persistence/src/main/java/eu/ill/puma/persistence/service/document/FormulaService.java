@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class FormulaService {
 	@Autowired
 	private FormulaRepository formulaRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	/**
 	 * returns the Formula specified by the Id
 	 *
@@ -84,4 +88,14 @@ public class FormulaService {
 		return integratedFormula;
 	}
 
+	/**
+	 * Returns the persisted Formula matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param formula The Formula to integrate
+	 * @return The persisted Formula, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized Formula getOrCreate(Formula formula) {
+		return this.sharedEntityTransaction.getOrCreate(formula, Formula::getId, this::save, this.formulaRepository::getById);
+	}
+
 }
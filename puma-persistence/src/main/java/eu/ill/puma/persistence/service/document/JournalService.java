@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class JournalService {
 	@Autowired
 	private JournalRepository journalRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	@Autowired
 	private JournalPublisherAffiliationService journalPublisherAffiliationService;
 
@@ -89,4 +93,14 @@ public class JournalService {
 
 		return integratedJournal;
 	}
+
+	/**
+	 * Returns the persisted Journal matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param journal The Journal to integrate
+	 * @return The persisted Journal, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized Journal getOrCreate(Journal journal) {
+		return this.sharedEntityTransaction.getOrCreate(journal, Journal::getId, this::save, this.journalRepository::getById);
+	}
 }
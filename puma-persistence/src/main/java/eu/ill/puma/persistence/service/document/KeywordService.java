@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class KeywordService {
 	@Autowired
 	private KeywordRepository keywordRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	/**
 	 * Return a Keyword given its Id
 	 * @param id The Id of the keyword
@@ -71,6 +75,16 @@ public class KeywordService {
 		return integratedKeyword;
 	}
 
+	/**
+	 * Returns the persisted Keyword matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param keyword The Keyword to integrate
+	 * @return The persisted Keyword, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized Keyword getOrCreate(Keyword keyword) {
+		return this.sharedEntityTransaction.getOrCreate(keyword, Keyword::getId, this::save, this.keywordRepository::getById);
+	}
+
 	/**
 	 * Return all keywords
 	 * @return A list of all keywords
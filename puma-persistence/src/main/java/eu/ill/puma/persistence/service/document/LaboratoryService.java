@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -35,6 +36,9 @@ public class LaboratoryService {
 	@Autowired
 	private LaboratoryRepository laboratoryRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	@Autowired
 	private PersonLaboratoryAffiliationService personLaboratoryAffiliationService;
 
@@ -98,6 +102,16 @@ public class LaboratoryService {
 		return integratedLaboratory;
 	}
 
+	/**
+	 * Returns the persisted Laboratory matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param laboratory The Laboratory to integrate
+	 * @return The persisted Laboratory, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized Laboratory getOrCreate(Laboratory laboratory) {
+		return this.sharedEntityTransaction.getOrCreate(laboratory, Laboratory::getId, this::save, this.laboratoryRepository::getById);
+	}
+
 	/**
 	 * Returns the count of all laboratories
 	 */
@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class PersonService {
 	@Autowired
 	private PersonRepository personRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	@Autowired
 	private PersonLaboratoryAffiliationService personLaboratoryAffiliationService;
 
@@ -77,6 +81,16 @@ public class PersonService {
 		return integratedPerson;
 	}
 
+	/**
+	 * Returns the persisted Person matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param person The Person to integrate
+	 * @return The persisted Person, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized Person getOrCreate(Person person) {
+		return this.sharedEntityTransaction.getOrCreate(person, Person::getId, this::save, this.personRepository::getById);
+	}
+
 	/**
 	 * Soft deletes a person
 	 *
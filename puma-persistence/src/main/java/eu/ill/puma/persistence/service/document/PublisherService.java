@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class PublisherService {
 	@Autowired
 	private PublisherRepository publisherRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	@Autowired
 	private JournalPublisherAffiliationService journalPublisherAffiliationService;
 
@@ -82,4 +86,14 @@ public class PublisherService {
 
 		return integratedPublisher;
 	}
+
+	/**
+	 * Returns the persisted Publisher matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param publisher The Publisher to integrate
+	 * @return The persisted Publisher, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized Publisher getOrCreate(Publisher publisher) {
+		return this.sharedEntityTransaction.getOrCreate(publisher, Publisher::getId, this::save, this.publisherRepository::getById);
+	}
 }
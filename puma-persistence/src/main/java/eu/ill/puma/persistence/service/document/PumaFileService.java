@@ -350,6 +350,18 @@ public class PumaFileService {
 				PumaFileStatus.DOWNLOAD_COMPLETED));
 	}
 
+	/**
+	 * Returns the next files requiring a download, in order of id
+	 * @param pumaFileId The id after which files are returned
+	 * @param maxResults The maximum number of files returned
+	 * @return The files
+	 */
+	public List<PumaFile> getNextGroupRequiringDownloadAfter(Long pumaFileId, int maxResults) {
+		return this.pumaFileRepository.getNextForStatusesAfter(Arrays.asList(
+				PumaFileStatus.PENDING,
+				PumaFileStatus.DOWNLOAD_COMPLETED), pumaFileId, maxResults);
+	}
+
 	public List<PumaFile> getAllForStatus(PumaFileStatus pumaFileStatus) {
 		return this.pumaFileRepository.getAllForStatus(pumaFileStatus);
 	}
@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -34,6 +35,9 @@ public class ResearchDomainService {
 	@Autowired
 	private ResearchDomainRepository researchDomainRepository;
 
+	@Autowired
+	private SharedEntityTransaction sharedEntityTransaction;
+
 	/**
 	 * Returns ResearchDomain from the given Id
 	 * @param id The Id of the ResearchDomain
@@ -72,6 +76,16 @@ public class ResearchDomainService {
 		return integratedResearchDomain;
 	}
 
+	/**
+	 * Returns the persisted ResearchDomain matching the given one, creating it if necessary (see SharedEntityTransaction)
+	 * @param researchDomain The ResearchDomain to integrate
+	 * @return The persisted ResearchDomain, attached to the current transaction if any
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public synchronized ResearchDomain getOrCreate(ResearchDomain researchDomain) {
+		return this.sharedEntityTransaction.getOrCreate(researchDomain, ResearchDomain::getId, this::save, this.researchDomainRepository::getById);
+	}
+
 	/**
 	 * Return all research domains
 	 * @return A list of all research domains
@@ -26,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -130,6 +131,20 @@ public class ResolverInfoService {
 		return resolverInfos;
 	}
 
+	/**
+	 * Returns the next resolvers requiring a resolve, in order of id (whatever their status)
+	 * @param resolverId The id after which resolvers are returned
+	 * @param maxResults The maximum number of resolvers returned
+	 * @return The resolvers
+	 */
+	public List<ResolverInfo> getNextGroupRequiringResolveAfter(Long resolverId, int maxResults) {
+		return this.resolverInfoRepository.getNextForStatusesAfter(Arrays.asList(
+				ResolverInfoStatus.PENDING,
+				ResolverInfoStatus.RESOLVE_NOT_SUPPORTED,
+				ResolverInfoStatus.RESOLVE_ERROR,
+				ResolverInfoStatus.RESOLVE_FAILED), resolverId, maxResults);
+	}
+
 	public List<ResolverInfo> getAllRequiringResolveForHost(String host) {
 		List<ResolverInfo> resolverInfos = this.resolverInfoRepository.getAllForStatusAndHost(ResolverInfoStatus.RESOLVE_NOT_SUPPORTED, host);
 		resolverInfos.addAll(this.resolverInfoRepository.getAllForStatusAndHost(ResolverInfoStatus.RESOLVE_ERROR, host));
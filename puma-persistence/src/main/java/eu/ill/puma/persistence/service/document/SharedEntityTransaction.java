@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.persistence.service.document;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the get-or-create of entities shared between documents (keywords, persons, laboratories, journals...).
+ *
+ * The services look up and create shared entities while holding their lock. When the creation joins the transaction
+ * of the document being integrated, it is only visible to other threads once the document is committed, so documents
+ * integrated concurrently would create duplicates. The shared entities of a document are therefore created before its
+ * transaction is opened (see DocumentConverter.createSharedEntities) : outside of a transaction the get-or-create runs
+ * in a transaction committed before the lock is released.
+ *
+ * A new transaction is never nested in that of a document : it would need a second connection while holding the
+ * first one, so that concurrent integrations can exhaust the connection pool and wait for each other.
+ *
+ * Duplicates are only prevented by the lock of the services, within a single JVM : the shared entities are matched on
+ * several (sometimes approximate) fields that cannot be backed by unique constraints, so a single instance of the
+ * application integrating documents into a database is supported.
+ */
+@Component
+public class SharedEntityTransaction {
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	public void init() {
+		this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+	}
+
+	/**
+	 * Returns the persisted entity matching the given one, creating it if necessary. Called by the services holding their
+	 * lock : outside of a transaction (see DocumentConverter.createSharedEntities) the creation is committed before the
+	 * lock is released so that documents integrated concurrently share the same entity. Within a transaction the
+	 * creation joins it.
+	 * @param entity The entity to integrate
+	 * @param getId Returns the Id of the entity (null if not yet persisted)
+	 * @param save Saves the entity, returning the persisted entity matching it
+	 * @param getById Returns the persisted entity from its Id
+	 * @param <E> The type of the shared entity
+	 * @return The persisted entity, attached to the current transaction if any
+	 */
+	public <E> E getOrCreate(E entity, Function<E, Long> getId, Function<E, E> save, Function<Long, E> getById) {
+		Long entityId = getId.apply(entity);
+		if (entityId == null) {
+			entityId = this.execute(() -> getId.apply(save.apply(entity)));
+		}
+
+		return getById.apply(entityId);
+	}
+
+	/**
+	 * Runs the get-or-create in the current transaction if any, otherwise in a new transaction committed before returning
+	 * @param getOrCreate The get-or-create of the entity, returning its Id
+	 * @return The Id of the persisted entity
+	 */
+	public Long execute(Supplier<Long> getOrCreate) {
+		return this.transactionTemplate.execute(status -> getOrCreate.get());
+	}
+}
@@ -15,7 +15,6 @@
  */
 package eu.ill.puma.persistence.service.importer;
 
-import eu.ill.puma.persistence.domain.document.DocumentVersion;
 import eu.ill.puma.persistence.domain.importer.Importer;
 import eu.ill.puma.persistence.domain.importer.ImporterOperation;
 import eu.ill.puma.persistence.domain.importer.ImporterOperationStatus;
@@ -29,6 +28,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.SortedMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -220,7 +220,14 @@ public class ImporterService {
 		return importerRepository.isImporterName(candidate);
 	}
 
-	public DocumentVersion getNextDocumentVersionForReimport(Importer importer, Long lastReimportId) {
-		return this.documentVersionService.getNextDocumentVersionForReimport(importer.getShortName(), lastReimportId);
+	/**
+	 * Returns the source Ids of the next block of documents of an importer to reimport
+	 * @param importer The importer
+	 * @param lastReimportId The Id of the last reimported document version
+	 * @param maxResults The maximum number of documents in the block
+	 * @return The source Ids indexed by document version Id, in the order of the Ids
+	 */
+	public SortedMap<Long, String> getNextSourceIdsForReimport(Importer importer, Long lastReimportId, int maxResults) {
+		return this.documentVersionService.getNextSourceIdsForReimport(importer.getShortName(), lastReimportId, maxResults);
 	}
 }
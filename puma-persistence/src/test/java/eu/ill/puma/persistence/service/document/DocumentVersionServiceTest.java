@@ -26,10 +26,14 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 
 public class DocumentVersionServiceTest extends PumaTest {
 
@@ -150,4 +154,35 @@ public class DocumentVersionServiceTest extends PumaTest {
 		Assert.assertEquals(0, documentVersionIds.size());
 	}
 
+	@Test
+	public void testSourceIdsForReimport() throws Exception {
+		this.createDocumentsForIndexationTests();
+
+		// First block
+		SortedMap<Long, String> sourceIds = this.documentVersionService.getNextSourceIdsForReimport("TEST", 0l, 3);
+		Assert.assertEquals(3, sourceIds.size());
+		Assert.assertEquals("test1", sourceIds.get(sourceIds.firstKey()));
+
+		// Next block from the last document version Id of the first one
+		SortedMap<Long, String> nextSourceIds = this.documentVersionService.getNextSourceIdsForReimport("TEST", sourceIds.lastKey(), 3);
+		Assert.assertEquals(2, nextSourceIds.size());
+		Assert.assertTrue(nextSourceIds.firstKey() > sourceIds.lastKey());
+
+		Assert.assertEquals(0, this.documentVersionService.getNextSourceIdsForReimport("TEST", nextSourceIds.lastKey(), 3).size());
+		Assert.assertEquals(0, this.documentVersionService.getNextSourceIdsForReimport("OTHER", 0l, 3).size());
+	}
+
+	@Test
+	public void testDocumentVersionIdsAlreadyPresent() throws Exception {
+		this.createDocumentsForIndexationTests();
+
+		Map<String, Long> documentVersionIds = this.documentVersionService.getDocumentVersionIdsAlreadyPresent(Arrays.asList("test1", "test3", "unknown"), "TEST");
+		Assert.assertEquals(2, documentVersionIds.size());
+		Assert.assertEquals(this.documentVersionService.getDocumentVersionAlreadyPresent("test1", "TEST").getId(), documentVersionIds.get("test1"));
+		Assert.assertEquals(this.documentVersionService.getDocumentVersionAlreadyPresent("test3", "TEST").getId(), documentVersionIds.get("test3"));
+
+		Assert.assertEquals(0, this.documentVersionService.getDocumentVersionIdsAlreadyPresent(Arrays.asList("test1"), "OTHER").size());
+		Assert.assertEquals(0, this.documentVersionService.getDocumentVersionIdsAlreadyPresent(new ArrayList<>(), "TEST").size());
+	}
+
 }
@@ -22,6 +22,14 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class KeywordServiceTest extends PumaTest {
 
@@ -30,6 +38,9 @@ public class KeywordServiceTest extends PumaTest {
 	@Autowired
 	private eu.ill.puma.persistence.service.document.KeywordService KeywordService;
 
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
 	@Test
 	public void contextLoads() throws Exception {
 		Assert.assertNotNull(this.KeywordService);
@@ -69,4 +80,43 @@ public class KeywordServiceTest extends PumaTest {
 		Assert.assertEquals(keyword1Id, keyword2Id);
 	}
 
+	@Test
+	public void testConcurrentGetOrCreate() throws Exception {
+		String word = "this is a concurrent keyword";
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+
+		// Each thread creates the keyword before integrating it in a long running transaction, as for the integration of a document
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		List<Future<Long>> keywordIds = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			keywordIds.add(executorService.submit(() -> {
+				Keyword sharedKeyword = new Keyword();
+				sharedKeyword.setWord(word);
+				KeywordService.getOrCreate(sharedKeyword);
+
+				return transactionTemplate.execute(status -> {
+					Keyword keyword = new Keyword();
+					keyword.setWord(word);
+					Long keywordId = KeywordService.getOrCreate(keyword).getId();
+
+					try {
+						Thread.sleep(100);
+
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+
+					return keywordId;
+				});
+			}));
+		}
+
+		Long keywordId = keywordIds.get(0).get();
+		for (Future<Long> otherKeywordId : keywordIds) {
+			Assert.assertEquals(keywordId, otherKeywordId.get());
+		}
+		executorService.shutdown();
+
+		Assert.assertEquals(1, KeywordService.getAll().stream().filter(keyword -> keyword.getWord().equals(word)).count());
+	}
 }
@@ -232,6 +232,28 @@ public class PumaFileServiceTest extends PumaTest {
 		Assert.assertTrue(savedFiles.size() == 2);
 	}
 
+	@Test
+	public void verifyRetrievalRequiringDownloadByGroup() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			PumaFile pumaFile = this.createFile("file" + i);
+			pumaFile.setStatus(i == 2 ? PumaFileStatus.SAVED : PumaFileStatus.PENDING);
+			pumaFileService.save(pumaFile);
+		}
+
+		List<PumaFile> firstGroup = this.pumaFileService.getNextGroupRequiringDownloadAfter(0L, 2);
+		Assert.assertEquals(2, firstGroup.size());
+		Assert.assertEquals("file0", firstGroup.get(0).getName());
+		Assert.assertEquals("file1", firstGroup.get(1).getName());
+
+		List<PumaFile> secondGroup = this.pumaFileService.getNextGroupRequiringDownloadAfter(firstGroup.get(1).getId(), 2);
+		Assert.assertEquals(2, secondGroup.size());
+		Assert.assertEquals("file3", secondGroup.get(0).getName());
+		Assert.assertEquals("file4", secondGroup.get(1).getName());
+
+		List<PumaFile> lastGroup = this.pumaFileService.getNextGroupRequiringDownloadAfter(secondGroup.get(1).getId(), 2);
+		Assert.assertTrue(lastGroup.isEmpty());
+	}
+
 	@Test
 	public void verifyFileNameExtensionCreation() throws Exception {
 		PumaFile pumaFile1 = this.createFile("abcdef");
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Internal class adjusting the number of threads of the executor lanes from their throughput and execution times,
+ * following an AdaptiveConcurrencyPolicy. Called periodically by the TaskDispatcher.
+ *
+ * The DEFAULT lane, lanes running on virtual threads and work-stealing lanes keep their configured size.
+ */
+class AdaptiveConcurrencyController {
+
+	private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+	// Rate at which the reference execution time rises at each adjustment, so that it follows slow workload changes
+	private static final double BASELINE_DRIFT = 0.05;
+
+	private final AdaptiveConcurrencyPolicy policy;
+	private final Map<TaskLane, LaneSample> laneSamples = new EnumMap<>(TaskLane.class);
+
+	/**
+	 * Counters of a lane at the previous adjustment
+	 */
+	private static class LaneSample {
+		private final TaskLaneExecutor laneExecutor;
+		private long numberOfExecutedTasks;
+		private long totalExecutionNanos;
+		private double baselineExecutionNanos;
+
+		LaneSample(TaskLaneExecutor laneExecutor) {
+			this.laneExecutor = laneExecutor;
+			this.numberOfExecutedTasks = laneExecutor.getNumberOfExecutedTasks();
+			this.totalExecutionNanos = laneExecutor.getTotalExecutionNanos();
+		}
+	}
+
+	public AdaptiveConcurrencyController(AdaptiveConcurrencyPolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Adjusts the size of the lanes from their activity since the previous adjustment
+	 * @param laneExecutors The executors of the lanes
+	 */
+	public synchronized void adjust(Collection<TaskLaneExecutor> laneExecutors) {
+		for (TaskLaneExecutor laneExecutor : laneExecutors) {
+			if (laneExecutor.getLane() != TaskLane.DEFAULT && !laneExecutor.isVirtualThreads() && !laneExecutor.isWorkStealing()) {
+				this.adjust(laneExecutor);
+			}
+		}
+	}
+
+	private void adjust(TaskLaneExecutor laneExecutor) {
+		// Start again if the lane has been re-created (reset of the dispatcher)
+		LaneSample laneSample = this.laneSamples.get(laneExecutor.getLane());
+		if (laneSample == null || laneSample.laneExecutor != laneExecutor) {
+			laneSample = new LaneSample(laneExecutor);
+			this.laneSamples.put(laneExecutor.getLane(), laneSample);
+		}
+
+		// Tasks executed since the previous adjustment
+		long numberOfExecutedTasks = laneExecutor.getNumberOfExecutedTasks();
+		long totalExecutionNanos = laneExecutor.getTotalExecutionNanos();
+		long executedTasks = numberOfExecutedTasks - laneSample.numberOfExecutedTasks;
+		long executionNanos = totalExecutionNanos - laneSample.totalExecutionNanos;
+		laneSample.numberOfExecutedTasks = numberOfExecutedTasks;
+		laneSample.totalExecutionNanos = totalExecutionNanos;
+
+		boolean saturated = false;
+		if (executedTasks > 0) {
+			double meanExecutionNanos = (double)executionNanos / executedTasks;
+			saturated = laneSample.baselineExecutionNanos > 0 && meanExecutionNanos > laneSample.baselineExecutionNanos * this.policy.getLatencyTolerance();
+
+			// The reference is kept while saturated : it is the time a task takes when the lane is not
+			if (laneSample.baselineExecutionNanos == 0) {
+				laneSample.baselineExecutionNanos = meanExecutionNanos;
+
+			} else if (!saturated) {
+				laneSample.baselineExecutionNanos = Math.min(meanExecutionNanos, laneSample.baselineExecutionNanos * (1.0 + BASELINE_DRIFT));
+			}
+		}
+
+		int threadPoolSize = laneExecutor.getPoolSize();
+		int activeNumberOfThreads = laneExecutor.getActiveNumberOfThreads();
+		boolean backlog = laneExecutor.getNumberOfPendingTasks() > 0;
+
+		int newThreadPoolSize;
+		if (saturated) {
+			// Multiplicative decrease
+			newThreadPoolSize = this.policy.decrease(threadPoolSize);
+
+		} else if (backlog && activeNumberOfThreads >= threadPoolSize) {
+			// Additive increase
+			newThreadPoolSize = this.policy.increase(threadPoolSize);
+
+		} else if (!backlog && activeNumberOfThreads < threadPoolSize) {
+			// Give back unused threads
+			newThreadPoolSize = this.policy.shrink(threadPoolSize);
+
+		} else {
+			newThreadPoolSize = this.policy.limit(threadPoolSize);
+		}
+
+		if (newThreadPoolSize != threadPoolSize) {
+			log.debug("Changing the " + laneExecutor.getLane() + " lane from " + threadPoolSize + " to " + newThreadPoolSize + " threads");
+			laneExecutor.setPoolSize(newThreadPoolSize);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+/**
+ * Bounds and reactivity of the adaptive concurrency of the executor lanes (AIMD).
+ *
+ * While tasks are waiting and all threads are busy, a lane gains one thread per adjustment. When the mean execution
+ * time of the tasks exceeds the lowest recently observed execution time by more than the latency tolerance (the lane
+ * saturates a shared resource, eg the database or a remote server), the number of threads is multiplied by the
+ * decrease ratio. Idle lanes lose one thread per adjustment.
+ */
+public class AdaptiveConcurrencyPolicy {
+
+	public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+	public static final double DEFAULT_DECREASE_RATIO = 0.75;
+
+	private int minThreadPoolSize;
+	private int maxThreadPoolSize;
+	private double latencyTolerance;
+	private double decreaseRatio;
+
+	/**
+	 * @param minThreadPoolSize The minimum number of threads of a lane
+	 * @param maxThreadPoolSize The maximum number of threads of a lane
+	 */
+	public AdaptiveConcurrencyPolicy(int minThreadPoolSize, int maxThreadPoolSize) {
+		this(minThreadPoolSize, maxThreadPoolSize, DEFAULT_LATENCY_TOLERANCE, DEFAULT_DECREASE_RATIO);
+	}
+
+	/**
+	 * @param minThreadPoolSize The minimum number of threads of a lane
+	 * @param maxThreadPoolSize The maximum number of threads of a lane
+	 * @param latencyTolerance The ratio of the mean execution time to the lowest execution time above which the lane is considered saturated
+	 * @param decreaseRatio The factor (0 to 1) applied to the number of threads of a saturated lane
+	 */
+	public AdaptiveConcurrencyPolicy(int minThreadPoolSize, int maxThreadPoolSize, double latencyTolerance, double decreaseRatio) {
+		this.minThreadPoolSize = Math.max(1, minThreadPoolSize);
+		this.maxThreadPoolSize = Math.max(this.minThreadPoolSize, maxThreadPoolSize);
+		this.latencyTolerance = Math.max(1.0, latencyTolerance);
+		this.decreaseRatio = Math.min(1.0, Math.max(0.0, decreaseRatio));
+	}
+
+	/**
+	 * Returns the number of threads of a saturated lane
+	 * @param threadPoolSize The current number of threads
+	 * @return The decreased number of threads
+	 */
+	public int decrease(int threadPoolSize) {
+		return this.limit((int)Math.floor(threadPoolSize * this.decreaseRatio));
+	}
+
+	/**
+	 * Returns the number of threads of a lane with waiting tasks
+	 * @param threadPoolSize The current number of threads
+	 * @return The increased number of threads
+	 */
+	public int increase(int threadPoolSize) {
+		return this.limit(threadPoolSize + 1);
+	}
+
+	/**
+	 * Returns the number of threads of an idle lane
+	 * @param threadPoolSize The current number of threads
+	 * @return The reduced number of threads
+	 */
+	public int shrink(int threadPoolSize) {
+		return this.limit(threadPoolSize - 1);
+	}
+
+	/**
+	 * Returns the number of threads bounded by the minimum and maximum sizes
+	 * @param threadPoolSize The number of threads
+	 * @return The bounded number of threads
+	 */
+	public int limit(int threadPoolSize) {
+		return Math.min(this.maxThreadPoolSize, Math.max(this.minThreadPoolSize, threadPoolSize));
+	}
+
+	public int getMinThreadPoolSize() {
+		return minThreadPoolSize;
+	}
+
+	public int getMaxThreadPoolSize() {
+		return maxThreadPoolSize;
+	}
+
+	public double getLatencyTolerance() {
+		return latencyTolerance;
+	}
+
+	public double getDecreaseRatio() {
+		return decreaseRatio;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signals to a running task that it should stop : when it has been cancelled (TaskManager.cancelTask, shutdown) or
+ * when its deadline has expired.
+ *
+ * Implementations of Task.execute() doing long work should check isCancellationRequested() (or call
+ * throwIfCancellationRequested()) regularly, and can register callbacks to abort blocking calls that do not respond
+ * to thread interruption (eg an HTTP request).
+ */
+public class CancellationToken {
+
+	private static final Logger log = LoggerFactory.getLogger(CancellationToken.class);
+
+	public enum Reason {
+		CANCELLED,
+		TIMED_OUT
+	}
+
+	private volatile Reason reason;
+	private List<Runnable> callbacks = new ArrayList<>();
+
+	/**
+	 * Returns true if the task should stop
+	 * @return true if cancellation has been requested
+	 */
+	public boolean isCancellationRequested() {
+		return this.reason != null;
+	}
+
+	/**
+	 * Returns true if the task should stop because its deadline has expired
+	 * @return true if the task has timed out
+	 */
+	public boolean isTimedOut() {
+		return this.reason == Reason.TIMED_OUT;
+	}
+
+	/**
+	 * Returns the reason of the cancellation
+	 * @return The reason, null if cancellation has not been requested
+	 */
+	public Reason getReason() {
+		return reason;
+	}
+
+	/**
+	 * Throws an exception if the task should stop
+	 * @throws TaskCancelledException if cancellation has been requested (a TaskTimeoutException if the task has timed out)
+	 */
+	public void throwIfCancellationRequested() throws TaskCancelledException {
+		Reason reason = this.reason;
+		if (reason == Reason.TIMED_OUT) {
+			throw new TaskTimeoutException("Task deadline has expired");
+
+		} else if (reason == Reason.CANCELLED) {
+			throw new TaskCancelledException("Task has been cancelled");
+		}
+	}
+
+	/**
+	 * Registers a callback run when cancellation is requested (immediately if it already has been). The callback is
+	 * run by the thread requesting the cancellation.
+	 * @param callback The callback
+	 */
+	public void onCancellationRequested(Runnable callback) {
+		synchronized (this) {
+			if (this.reason == null) {
+				this.callbacks.add(callback);
+				return;
+			}
+		}
+
+		this.runCallback(callback);
+	}
+
+	/**
+	 * Unregisters a callback, once the blocking call it aborts has returned
+	 * @param callback The callback registered with onCancellationRequested
+	 */
+	public synchronized void removeCancellationCallback(Runnable callback) {
+		this.callbacks.remove(callback);
+	}
+
+	/**
+	 * Requests the cancellation of the task. Only the first request is taken into account.
+	 * @param reason The reason of the cancellation
+	 * @return true if this is the first request
+	 */
+	boolean requestCancellation(Reason reason) {
+		List<Runnable> callbacks;
+		synchronized (this) {
+			if (this.reason != null) {
+				return false;
+			}
+
+			this.reason = reason;
+			callbacks = this.callbacks;
+			this.callbacks = new ArrayList<>();
+		}
+
+		for (Runnable callback : callbacks) {
+			this.runCallback(callback);
+		}
+
+		return true;
+	}
+
+	private void runCallback(Runnable callback) {
+		try {
+			callback.run();
+
+		} catch (Exception e) {
+			log.error("Cancellation callback failed : " + e.getMessage(), e);
+		}
+	}
+}
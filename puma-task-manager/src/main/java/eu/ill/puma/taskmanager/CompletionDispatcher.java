@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import eu.ill.puma.taskmanager.annotation.ConcurrentCompletionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Internal class notifying the completion handlers of tasks on a dedicated thread pool so that worker threads are
+ * released as soon as a task has terminated, whatever the time spent by the handler to integrate the result.
+ *
+ * Each handler has a mailbox of notifications that are delivered one at a time in order, so that a handler never
+ * blocks several threads on its own lock. Handlers annotated with @ConcurrentCompletionHandler are notified in
+ * parallel. A mailbox only exists while it holds notifications.
+ */
+class CompletionDispatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(CompletionDispatcher.class);
+
+	private static final int MAX_NOTIFICATIONS_PER_RUN = 16;
+
+	private final ThreadPoolExecutor threadPoolExecutor;
+	private final Map<TaskCompletionHandler, HandlerMailbox> mailboxes = new ConcurrentHashMap<>();
+	private final Map<Class<?>, Boolean> concurrentHandlerClasses = new ConcurrentHashMap<>();
+
+	/**
+	 * Notifications of a single handler, run in order by one thread of the pool at a time
+	 */
+	private class HandlerMailbox implements Runnable {
+
+		private final TaskCompletionHandler taskCompletionHandler;
+		private final Queue<Runnable> notifications = new ConcurrentLinkedQueue<>();
+
+		HandlerMailbox(TaskCompletionHandler taskCompletionHandler) {
+			this.taskCompletionHandler = taskCompletionHandler;
+		}
+
+		@Override
+		public void run() {
+			// Run a limited number of notifications so that a busy handler does not hold a thread forever
+			for (int i = 0; i < MAX_NOTIFICATIONS_PER_RUN; i++) {
+				Runnable notification = this.notifications.poll();
+				if (notification == null) {
+					break;
+				}
+
+				runNotification(notification);
+			}
+
+			// Remove the mailbox if empty (atomically with the addition of notifications), otherwise run again
+			HandlerMailbox mailbox = mailboxes.computeIfPresent(this.taskCompletionHandler, (handler, current) -> current.notifications.isEmpty() ? null : current);
+			if (mailbox != null) {
+				execute(this);
+			}
+		}
+	}
+
+	private static class CompletionThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TaskCompletionThread-" + this.threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+
+	/**
+	 * Creates the completion dispatcher
+	 * @param threadPoolSize The number of threads notifying the completion handlers
+	 */
+	public CompletionDispatcher(int threadPoolSize) {
+		this.threadPoolExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new CompletionThreadFactory());
+	}
+
+	/**
+	 * Sends a notification to a completion handler
+	 * @param taskCompletionHandler The handler
+	 * @param notification The notification (calling the handler)
+	 */
+	public void dispatch(TaskCompletionHandler taskCompletionHandler, Runnable notification) {
+		if (this.isConcurrentHandler(taskCompletionHandler)) {
+			this.execute(() -> runNotification(notification));
+			return;
+		}
+
+		// Add the notification to the mailbox of the handler, creating and scheduling the mailbox if necessary
+		HandlerMailbox[] createdMailbox = new HandlerMailbox[1];
+		this.mailboxes.compute(taskCompletionHandler, (handler, mailbox) -> {
+			if (mailbox == null) {
+				mailbox = new HandlerMailbox(handler);
+				createdMailbox[0] = mailbox;
+			}
+			mailbox.notifications.add(notification);
+
+			return mailbox;
+		});
+
+		if (createdMailbox[0] != null) {
+			this.execute(createdMailbox[0]);
+		}
+	}
+
+	/**
+	 * Stops accepting notifications, those already dispatched are delivered
+	 */
+	public void shutdown() {
+		this.threadPoolExecutor.shutdown();
+	}
+
+	/**
+	 * Returns the number of notifications waiting to be delivered
+	 * @return The number of pending notifications
+	 */
+	public int getNumberOfPendingNotifications() {
+		return this.threadPoolExecutor.getQueue().size() + this.mailboxes.values().stream().mapToInt(mailbox -> mailbox.notifications.size()).sum();
+	}
+
+	private boolean isConcurrentHandler(TaskCompletionHandler taskCompletionHandler) {
+		return this.concurrentHandlerClasses.computeIfAbsent(taskCompletionHandler.getClass(), handlerClass -> handlerClass.isAnnotationPresent(ConcurrentCompletionHandler.class));
+	}
+
+	private void execute(Runnable runnable) {
+		try {
+			this.threadPoolExecutor.execute(runnable);
+
+		} catch (RejectedExecutionException e) {
+			// Shut down : deliver on the calling thread
+			runnable.run();
+		}
+	}
+
+	private static void runNotification(Runnable notification) {
+		try {
+			notification.run();
+
+		} catch (Exception e) {
+			log.error("Completion handler failed : " + e.getMessage(), e);
+		}
+	}
+}
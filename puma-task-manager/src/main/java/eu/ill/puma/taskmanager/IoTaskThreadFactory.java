@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread factory for I/O-bound lanes.
+ *
+ * When the JVM supports virtual threads (Java 21+) these are used, so that thousands of tasks blocked on HTTP do not
+ * each hold an OS thread. The factory is obtained by reflection as the project targets Java 8. Up to Java 23 a virtual
+ * thread blocked inside a synchronized block stays pinned to its carrier thread : the run path of the tasks holds no
+ * monitor, but blocking calls made under a lock by the task itself or by its HTTP client still limit the number of
+ * requests in flight to the number of carrier threads.
+ *
+ * On older JVMs (including Java 8, the target of the project) platform threads with a reduced stack size are created
+ * instead : an I/O lane then runs up to puma.taskManager.virtualThreads.maxConcurrency OS threads, so that value must
+ * stay within the thread limits of the host.
+ */
+public class IoTaskThreadFactory implements ThreadFactory {
+
+	private static final Logger log = LoggerFactory.getLogger(IoTaskThreadFactory.class);
+
+	private static final long FALLBACK_THREAD_STACK_SIZE = 256 * 1024;
+
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+	private final AtomicLong threadCounter = new AtomicLong();
+
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Object virtualThreadBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+			return (ThreadFactory)builderClass.getMethod("factory").invoke(virtualThreadBuilder);
+
+		} catch (Exception e) {
+			log.debug("Virtual threads are not available (" + e.getClass().getSimpleName() + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if the threads created are virtual threads
+	 * @return true if virtual threads are supported by the JVM
+	 */
+	public static boolean isVirtualThreadsAvailable() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		if (VIRTUAL_THREAD_FACTORY != null) {
+			return VIRTUAL_THREAD_FACTORY.newThread(runnable);
+		}
+
+		return new Thread(null, runnable, "IoTaskThread-" + this.threadCounter.incrementAndGet(), FALLBACK_THREAD_STACK_SIZE);
+	}
+}
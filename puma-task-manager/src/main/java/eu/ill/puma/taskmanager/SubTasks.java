@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splits the work of a task into sub-tasks. When called from a task running on the work-stealing COMPUTE lane the
+ * sub-tasks are forked into the pool, where idle workers steal them, and joined. Elsewhere they are run in turn by
+ * the calling thread.
+ */
+public final class SubTasks {
+
+	private SubTasks() {
+	}
+
+	/**
+	 * Runs the sub-tasks and waits for all of them to terminate
+	 * @param subTasks The sub-tasks
+	 * @param <R> The type of result of the sub-tasks
+	 * @return The results in the order of the sub-tasks
+	 * @throws Exception The exception of the first failing sub-task (the remaining sub-tasks are cancelled)
+	 */
+	public static <R> List<R> invokeAll(List<? extends Callable<R>> subTasks) throws Exception {
+		List<R> results = new ArrayList<>(subTasks.size());
+
+		if (!ForkJoinTask.inForkJoinPool() || subTasks.size() < 2) {
+			for (Callable<R> subTask : subTasks) {
+				results.add(subTask.call());
+			}
+
+			return results;
+		}
+
+		// Fork all but the first sub-task which is run by this thread
+		List<ForkJoinTask<R>> forkedTasks = new ArrayList<>(subTasks.size() - 1);
+		for (int i = 1; i < subTasks.size(); i++) {
+			forkedTasks.add(ForkJoinTask.adapt(subTasks.get(i)).fork());
+		}
+
+		try {
+			results.add(subTasks.get(0).call());
+
+			// Joining helps running the forked sub-tasks that have not been stolen
+			for (ForkJoinTask<R> forkedTask : forkedTasks) {
+				results.add(forkedTask.get());
+			}
+
+		} catch (ExecutionException e) {
+			forkedTasks.forEach(forkedTask -> forkedTask.cancel(false));
+
+			throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+
+		} catch (Exception e) {
+			forkedTasks.forEach(forkedTask -> forkedTask.cancel(false));
+
+			throw e;
+		}
+
+		return results;
+	}
+}
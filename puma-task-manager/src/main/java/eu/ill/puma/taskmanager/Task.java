@@ -16,6 +16,9 @@
 package eu.ill.puma.taskmanager;
 
 import eu.ill.puma.core.utils.DateUtils;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+import eu.ill.puma.taskmanager.annotation.ExecutionTimeout;
+import eu.ill.puma.taskmanager.trace.TraceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +38,12 @@ import java.util.Date;
  * Tasks can be re-run meaning that the same task can be automatically placed onto the task queue once it has
  * terminated.
  *
+ * Tasks can have a deadline (see getTimeoutMillis) : a task running for longer is interrupted, its cancellation token
+ * is signalled and it is reported as timed out. Long running tasks should check their cancellation token.
+ *
+ * Tasks can declare a coalescing key : a task submitted while another task with the same key is still pending is
+ * merged into the pending one rather than queued.
+ *
  * @param <V>
  */
 public abstract class Task<V> {
@@ -42,53 +51,71 @@ public abstract class Task<V> {
 	private static final Logger log = LoggerFactory.getLogger(Task.class);
 
 	private V data = null;
-	private TaskState state = TaskState.CREATED;
+	private volatile TaskState state = TaskState.CREATED;
 	private Exception caughtException = null;
 	private Date creationDate = new Date();
 	private Date startDate;
 	private long lifeInMillis = 0;
 	private long durationInMillis = 0;
 	private TaskPriority priority = TaskPriority.DEFAULT;
+	private int retryCount = 0;
+	private long timeoutMillis = -1;
+	private volatile CancellationToken cancellationToken = new CancellationToken();
+	private final TraceContext traceContext = new TraceContext();
 
 
 	/**
-	 * Package private method to execute main functionality of the task in a threaded environment
+	 * Package private method to execute main functionality of the task in a threaded environment.
+	 *
+	 * The monitor of the task is only held to update its state, not while executing : the task can be cancelled while
+	 * it runs and a virtual thread running it is not pinned to its carrier thread.
 	 */
-	final synchronized void run() throws Exception {
-		// Re-initialise the state of the task
-		this.state = TaskState.RUNNING;
-		this.data = null;
-		this.caughtException = null;
+	final void run() throws Exception {
+		synchronized (this) {
+			// Re-initialise the state of the task
+			this.state = TaskState.RUNNING;
+			this.data = null;
+			this.caughtException = null;
+
+			// A new deadline applies to each run (a cancelled task stays cancelled)
+			if (this.cancellationToken.isTimedOut()) {
+				this.cancellationToken = new CancellationToken();
+			}
 
-		try {
 			// Set the start time
 			this.startDate = new Date();
+		}
 
+		V data = null;
+		Exception exception = null;
+		try {
 			// Execute the task functionality
-			this.data = this.execute();
-
-			// Calculate duration
-			this.durationInMillis = DateUtils.getMillisSince(this.startDate);
-			this.lifeInMillis = DateUtils.getMillisSince(this.creationDate);
-
-			// Update the state and notify all blocked threads waiting for the data
-			this.state = TaskState.COMPLETED;
-			this.notifyAll();
+			data = this.execute();
 
 		} catch (Exception e) {
 			log.error("Caught exception during execution of task: " + e.getMessage(), e);
-			this.caughtException = e;
+			exception = e;
+		}
+
+		synchronized (this) {
+			this.data = data;
+			this.caughtException = exception;
 
 			// Calculate duration
 			this.durationInMillis = DateUtils.getMillisSince(this.startDate);
 			this.lifeInMillis = DateUtils.getMillisSince(this.creationDate);
 
-			// Update the state and notify all blocked threads waiting for the data
-			this.state = TaskState.FAILED;
-			this.notifyAll();
+			// Update the state and notify all blocked threads waiting for the data (a timed out task is failed by the
+			// task wrapper, a task cancelled while running stays cancelled)
+			if (!this.cancellationToken.isTimedOut() && this.state == TaskState.RUNNING) {
+				this.state = exception == null ? TaskState.COMPLETED : TaskState.FAILED;
+				this.notifyAll();
+			}
+		}
 
-			// Rethrow exception
-			throw e;
+		// Rethrow exception
+		if (exception != null) {
+			throw exception;
 		}
 	}
 
@@ -116,7 +143,7 @@ public abstract class Task<V> {
 	 */
 	public synchronized final V get() throws Exception {
 		V returnData = null;
-		if (!this.state.equals(TaskState.COMPLETED) && !this.state.equals(TaskState.FAILED) && !this.state.equals(TaskState.INTERRUPTED)) {
+		while (!this.state.equals(TaskState.COMPLETED) && !this.state.equals(TaskState.FAILED) && !this.state.equals(TaskState.INTERRUPTED) && !this.state.equals(TaskState.CANCELLED)) {
 			try {
 				// Wait until task completion
 				this.wait();
@@ -142,22 +169,163 @@ public abstract class Task<V> {
 	/**
 	 * Interrupts any waiting threads and sets the state to interrupted
 	 */
-	synchronized void interrupt() {
+	void interrupt() {
 		// Update the state and notify all blocked threads waiting for the data
-		this.state = TaskState.INTERRUPTED;
-		this.notifyAll();
+		synchronized (this) {
+			this.state = TaskState.INTERRUPTED;
+			this.notifyAll();
+		}
+
+		// Ask the task to stop if running (outside of the monitor as the callbacks of the token can block)
+		this.cancellationToken.requestCancellation(CancellationToken.Reason.CANCELLED);
 	}
 
 
 	/**
-	 * Interrupts any waiting threads and sets the state to interrupted
+	 * Interrupts any waiting threads and sets the state to cancelled
 	 */
-	synchronized void cancel() {
+	void cancel() {
 		// Update the state and notify all blocked threads waiting for the data
-		this.state = TaskState.CANCELLED;
+		synchronized (this) {
+			this.state = TaskState.CANCELLED;
+			this.notifyAll();
+		}
+
+		// Ask the task to stop if running (outside of the monitor as the callbacks of the token can block)
+		this.cancellationToken.requestCancellation(CancellationToken.Reason.CANCELLED);
+	}
+
+	/**
+	 * Sets the task as failed because its deadline has expired and notifies waiting threads
+	 * @param exception The timeout exception
+	 */
+	final synchronized void onTimedOut(TaskTimeoutException exception) {
+		this.caughtException = exception;
+		this.state = TaskState.FAILED;
+		this.notifyAll();
+	}
+
+	/**
+	 * Returns the cancellation token of the task : execute() implementations should check it regularly
+	 * @return The cancellation token
+	 */
+	public CancellationToken getCancellationToken() {
+		return this.cancellationToken;
+	}
+
+	/**
+	 * Returns the trace context of the task : the document versions for which a span is recorded when the task terminates
+	 * @return The trace context
+	 */
+	public TraceContext getTraceContext() {
+		return this.traceContext;
+	}
+
+	/**
+	 * Returns the maximum execution time of the task : the value set by setTimeoutMillis, otherwise the value of
+	 * the ExecutionTimeout annotation of the task class, otherwise no deadline.
+	 *
+	 * Override this method to compute the timeout dynamically
+	 * @return The timeout in milliseconds (0 for no deadline)
+	 */
+	public long getTimeoutMillis() {
+		if (this.timeoutMillis >= 0) {
+			return this.timeoutMillis;
+		}
+
+		ExecutionTimeout executionTimeout = this.getClass().getAnnotation(ExecutionTimeout.class);
+
+		return executionTimeout != null ? executionTimeout.unit().toMillis(executionTimeout.value()) : 0;
+	}
+
+	/**
+	 * Sets the maximum execution time of this task, replacing the timeout of the task class
+	 * @param timeoutMillis The timeout in milliseconds (0 for no deadline)
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = Math.max(0, timeoutMillis);
+	}
+
+	/**
+	 * Called when the task is scheduled to be run again after a backoff delay
+	 * @return The number of retries including this one
+	 */
+	final synchronized int onRetry() {
+		return ++this.retryCount;
+	}
+
+	/**
+	 * Returns the number of times the task has been retried with a backoff delay
+	 * @return The number of retries
+	 */
+	public synchronized int getRetryCount() {
+		return retryCount;
+	}
+
+	/**
+	 * Sets the task as failed without running it (eg when its lane queue is full) and notifies waiting threads
+	 * @param exception The reason of the rejection
+	 */
+	synchronized void reject(Exception exception) {
+		this.caughtException = exception;
+		this.state = TaskState.FAILED;
+		this.notifyAll();
+	}
+
+	/**
+	 * Completes a task that has been merged into another task with the same coalescing key, with the outcome of
+	 * the task that has been run, and notifies waiting threads
+	 * @param task The task that has been run
+	 */
+	@SuppressWarnings("unchecked")
+	final synchronized void onCoalescedTaskTerminated(Task task) {
+		this.startDate = task.startDate;
+		this.durationInMillis = task.durationInMillis;
+		this.lifeInMillis = DateUtils.getMillisSince(this.creationDate);
+		this.data = (V)task.data;
+		this.caughtException = task.caughtException;
+		this.state = task.caughtException == null ? TaskState.COMPLETED : TaskState.FAILED;
 		this.notifyAll();
 	}
 
+	/**
+	 * Returns the key identifying the work done by the task. A task submitted while a pending (not yet running) task
+	 * has the same key is not queued : it is completed with the outcome of the pending task once that has run, and
+	 * only the completion handler of the pending task is notified. Use keys for work that is idempotent and whose
+	 * completion does not need to be handled once per submission (eg "download:" + id, "index-tick").
+	 *
+	 * Override this method
+	 * @return The coalescing key, null (by default) if the task is never merged
+	 */
+	public String getCoalescingKey() {
+		return null;
+	}
+
+	/**
+	 * Returns the key under which the task is recorded in the task journal (when enabled) : tasks outstanding when the
+	 * application stops are recovered from the journal on restart by the component that submitted them. The key has
+	 * the form "type:id" (eg "download:" + id) where the id allows the submitter to reload the work from the database.
+	 *
+	 * Override this method
+	 * @return The journal key, null (by default) if the task is not journaled
+	 */
+	public String getJournalKey() {
+		return null;
+	}
+
+	/**
+	 * Returns the executor lane on which the task is run. By default this is the lane declared by the
+	 * ExecutionLane annotation of the task class, or the DEFAULT lane.
+	 *
+	 * Override this method to select the lane dynamically
+	 * @return The task lane
+	 */
+	public TaskLane getLane() {
+		ExecutionLane executionLane = this.getClass().getAnnotation(ExecutionLane.class);
+
+		return executionLane != null ? executionLane.value() : TaskLane.DEFAULT;
+	}
+
 	/**
 	 * This method implements the main functionality of the task
 	 *
@@ -242,6 +410,22 @@ public abstract class Task<V> {
 		return lifeInMillis;
 	}
 
+	/**
+	 * Tasks are registered in the TaskManager by identity
+	 */
+	@Override
+	public final boolean equals(Object other) {
+		return this == other;
+	}
+
+	/**
+	 * Tasks are registered in the TaskManager by identity
+	 */
+	@Override
+	public final int hashCode() {
+		return System.identityHashCode(this);
+	}
+
 	/**
 	 * Returns the task priority
 	 * @return The task priority
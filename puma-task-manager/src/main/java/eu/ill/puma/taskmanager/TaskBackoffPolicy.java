@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter used to delay the re-execution of a task (eg after a BUSY response).
+ *
+ * The delay of a retry is initialDelay * multiplier^(retry - 1), limited to maxDelay, and then reduced by a random
+ * fraction (up to the jitter) so that tasks failing together do not all retry at the same time.
+ */
+public class TaskBackoffPolicy {
+
+	private long initialDelayMillis;
+	private long maxDelayMillis;
+	private double multiplier;
+	private double jitter;
+
+	/**
+	 * @param initialDelayMillis The delay before the first retry
+	 * @param maxDelayMillis The maximum delay between retries
+	 * @param multiplier The factor applied to the delay after each retry
+	 * @param jitter The maximum fraction (0 to 1) of the delay removed randomly
+	 */
+	public TaskBackoffPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+		this.initialDelayMillis = Math.max(0, initialDelayMillis);
+		this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+		this.multiplier = Math.max(1.0, multiplier);
+		this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+	}
+
+	/**
+	 * Returns the delay to wait before a retry
+	 * @param retry The retry number (starting at 1)
+	 * @return The delay in milliseconds
+	 */
+	public long getDelayMillis(int retry) {
+		double delay = this.initialDelayMillis * Math.pow(this.multiplier, Math.max(0, retry - 1));
+		delay = Math.min(delay, this.maxDelayMillis);
+
+		if (this.jitter > 0.0) {
+			delay = delay * (1.0 - this.jitter * ThreadLocalRandom.current().nextDouble());
+		}
+
+		return (long)delay;
+	}
+
+	public long getInitialDelayMillis() {
+		return initialDelayMillis;
+	}
+
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+}
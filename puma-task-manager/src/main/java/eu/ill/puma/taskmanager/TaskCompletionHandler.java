@@ -29,4 +29,11 @@ public interface TaskCompletionHandler {
 	 */
 	void onTaskError(Task task, PumaError error);
 
+	/**
+	 * Callback interface when a task has been stopped because its deadline expired. By default handled as an error.
+	 */
+	default void onTaskTimeout(Task task, PumaError error) {
+		this.onTaskError(task, error);
+	}
+
 }
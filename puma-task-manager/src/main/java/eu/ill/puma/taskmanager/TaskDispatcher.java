@@ -16,50 +16,207 @@
 package eu.ill.puma.taskmanager;
 
 
+import eu.ill.puma.taskmanager.metrics.TaskMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * The TaskDispatched manages a thread pool and provided an interface to execute tasks.
+ * The TaskDispatched manages the thread pools of the executor lanes and provided an interface to execute tasks.
+ *
+ * Tasks are run on the lane returned by Task.getLane(). The DEFAULT lane is always present, lanes configured without
+ * threads share the DEFAULT lane.
+ *
+ * Lanes configured with a queue capacity apply backpressure : executeTask rejects tasks when the lane is full whereas
+ * tryExecuteTask and executeTaskBlocking let the producer decide whether to wait for capacity.
+ *
+ * Completion handlers are notified by a separate CompletionDispatcher so that integrating the result of a task does
+ * not hold a worker thread of its lane.
+ *
+ * Tasks with a deadline are interrupted by a timer thread when it expires (see Task.getTimeoutMillis).
+ *
+ * In adaptive concurrency mode the number of threads of each lane is adjusted periodically (see adaptConcurrency)
+ * within the bounds of an AdaptiveConcurrencyPolicy, without restarting the thread pools.
  */
 public class TaskDispatcher {
 
 	private static final Logger log = LoggerFactory.getLogger(TaskDispatcher.class);
 
-	private static long TASK_EXECUTION_COUNTER = 0;
+	private static final AtomicLong TASK_EXECUTION_COUNTER = new AtomicLong();
+
+	private Map<TaskLane, TaskLaneConfiguration> laneConfigurations = new EnumMap<>(TaskLane.class);
+	private volatile Map<TaskLane, TaskLaneExecutor> laneExecutors = new EnumMap<>(TaskLane.class);
+	private final TaskMetrics taskMetrics = new TaskMetrics();
 
-	private ThreadPoolExecutor threadPoolExecutor;
+	private volatile long priorityAgingNanos = TimeUnit.MILLISECONDS.toNanos(100);
+	private int completionThreadPoolSize = 0;
+	private volatile CompletionDispatcher completionDispatcher;
+	private volatile AdaptiveConcurrencyController adaptiveConcurrencyController;
+	private final ScheduledExecutorService deadlineScheduler;
 
-	private int minimumQueueSizeForPriorities = 64;
-	private int maximumQueueSizeForPriorities = 512;
-	private boolean prioritiesActive = true;
+	public TaskDispatcher() {
+		// Create the timer interrupting tasks whose deadline has expired
+		ScheduledThreadPoolExecutor deadlineScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "TaskDeadlineScheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// Deadlines of tasks that terminate in time are removed straight away
+		deadlineScheduler.setRemoveOnCancelPolicy(true);
+		this.deadlineScheduler = deadlineScheduler;
+	}
 
 	/**
-	 * Initialises the the tread pool with a fixed size
+	 * Initialises the the DEFAULT tread pool with a fixed size and the other lanes with their configuration
 	 *
-	 * @param threadPoolSize The fixed thread pool size
+	 * @param threadPoolSize The fixed thread pool size of the DEFAULT lane
+	 * @param laneConfigurations The configuration of the other lanes
+	 */
+	public void init(int threadPoolSize, Map<TaskLane, TaskLaneConfiguration> laneConfigurations) {
+		this.laneConfigurations = new EnumMap<>(TaskLane.class);
+		if (laneConfigurations != null) {
+			this.laneConfigurations.putAll(laneConfigurations);
+		}
+
+		this.init(threadPoolSize);
+	}
+
+	/**
+	 * Initialises the the DEFAULT tread pool with a fixed size, keeping the current configuration of the other lanes
+	 *
+	 * @param threadPoolSize The fixed thread pool size of the DEFAULT lane
 	 */
 	public void init(int threadPoolSize) {
 		log.info("Starting the TaskDispatcher with " + threadPoolSize + " threads") ;
-		PriorityBlockingQueue<Runnable> priorityBlockingQueue = new PriorityBlockingQueue<Runnable>(20, new TaskPriorityComparator());
-		this.threadPoolExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 10, TimeUnit.SECONDS, priorityBlockingQueue, new TaskThreadFactory());
+
+		Map<TaskLane, TaskLaneExecutor> laneExecutors = new EnumMap<>(TaskLane.class);
+		laneExecutors.put(TaskLane.DEFAULT, new TaskLaneExecutor(TaskLane.DEFAULT, threadPoolSize, 0));
+
+		for (Map.Entry<TaskLane, TaskLaneConfiguration> entry : this.laneConfigurations.entrySet()) {
+			TaskLane lane = entry.getKey();
+			TaskLaneConfiguration configuration = entry.getValue();
+			if (lane != TaskLane.DEFAULT && !configuration.isShared()) {
+				if (configuration.isWorkStealing()) {
+					log.info("Starting the " + lane + " lane on a work-stealing pool with a parallelism of " + configuration.getThreadPoolSize());
+
+				} else if (configuration.isVirtualThreads()) {
+					log.info("Starting the " + lane + " lane on " + (IoTaskThreadFactory.isVirtualThreadsAvailable() ? "virtual" : "lightweight platform") + " threads with a maximum of " + configuration.getThreadPoolSize() + " concurrent tasks");
+
+				} else {
+					log.info("Starting the " + lane + " lane with " + configuration.getThreadPoolSize() + " threads" + (configuration.isBounded() ? " and a queue capacity of " + configuration.getQueueCapacity() : ""));
+				}
+				laneExecutors.put(lane, new TaskLaneExecutor(lane, configuration.getThreadPoolSize(), configuration.getQueueCapacity(), configuration.isVirtualThreads(), configuration.isWorkStealing()));
+			}
+		}
+
+		this.laneExecutors = laneExecutors;
+
+		// Start the completion handler threads (handlers are notified by the worker threads otherwise)
+		if (this.completionThreadPoolSize > 0) {
+			log.info("Starting the completion dispatcher with " + this.completionThreadPoolSize + " threads");
+			this.completionDispatcher = new CompletionDispatcher(this.completionThreadPoolSize);
+
+		} else {
+			this.completionDispatcher = null;
+		}
+	}
+
+	/**
+	 * Sets the number of threads notifying the completion handlers of tasks, applied on the next init. With 0 the
+	 * handlers are called by the worker threads once the task has run.
+	 * @param completionThreadPoolSize The number of completion threads
+	 */
+	public void setCompletionThreadPoolSize(int completionThreadPoolSize) {
+		this.completionThreadPoolSize = Math.max(0, completionThreadPoolSize);
+	}
+
+	/**
+	 * Sets the aging period of priorities : a task waiting for this period gains one unit of priority relative to
+	 * tasks queued after it (eg with 100ms, a DEFAULT task queued 10s before a HIGH task runs before it)
+	 * @param priorityAgingMillis The aging period in milliseconds
+	 */
+	public void setPriorityAgingMillis(long priorityAgingMillis) {
+		this.priorityAgingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, priorityAgingMillis));
+	}
+
+	/**
+	 * Enables or disables the adaptive concurrency mode. When disabled, lanes keep their current size.
+	 * @param adaptiveConcurrencyPolicy The policy bounding the lane sizes (null to disable)
+	 */
+	public void setAdaptiveConcurrency(AdaptiveConcurrencyPolicy adaptiveConcurrencyPolicy) {
+		if (adaptiveConcurrencyPolicy != null) {
+			log.info("Enabling adaptive concurrency with " + adaptiveConcurrencyPolicy.getMinThreadPoolSize() + " to " + adaptiveConcurrencyPolicy.getMaxThreadPoolSize() + " threads per lane");
+			this.adaptiveConcurrencyController = new AdaptiveConcurrencyController(adaptiveConcurrencyPolicy);
+
+		} else {
+			this.adaptiveConcurrencyController = null;
+		}
+	}
+
+	/**
+	 * Returns true if the lane sizes are adjusted by the adaptive concurrency mode
+	 * @return true if adaptive concurrency is enabled
+	 */
+	public boolean isAdaptiveConcurrency() {
+		return this.adaptiveConcurrencyController != null;
+	}
+
+	/**
+	 * Adjusts the size of the lanes from their activity since the last call (when adaptive concurrency is enabled)
+	 */
+	public void adaptConcurrency() {
+		AdaptiveConcurrencyController adaptiveConcurrencyController = this.adaptiveConcurrencyController;
+		if (adaptiveConcurrencyController != null) {
+			try {
+				adaptiveConcurrencyController.adjust(this.laneExecutors.values());
+
+			} catch (Exception e) {
+				log.error("Failed to adapt the concurrency of the lanes : " + e.getMessage(), e);
+			}
+		}
 	}
 
 	/**
-	 * Stops the thread pool and any running tasks. All pending tasks are removed.
+	 * Changes the number of threads of a lane without interrupting running tasks
+	 * @param lane The lane
+	 * @param threadPoolSize The new number of threads
+	 */
+	public void setPoolSize(TaskLane lane, int threadPoolSize) {
+		this.getLaneExecutor(lane).setPoolSize(threadPoolSize);
+	}
+
+	/**
+	 * Stops the thread pools and any running tasks. All pending tasks are removed.
 	 */
 	public void shutdown() {
-		// Shutdown the threadpool immediately : all waiting tasks are removed and running ones are stopped
+		// Shutdown the threadpools immediately : all waiting tasks are removed and running ones are stopped
 		log.info("Shutting down TaskDispatcher");
-		this.threadPoolExecutor.shutdownNow();
+		Map<TaskLane, TaskLaneExecutor> laneExecutors = this.laneExecutors;
+		for (TaskLaneExecutor laneExecutor : laneExecutors.values()) {
+			laneExecutor.shutdownNow();
+		}
+
+		// Let the completion dispatcher deliver the notifications it already has
+		CompletionDispatcher completionDispatcher = this.completionDispatcher;
+		if (completionDispatcher != null) {
+			completionDispatcher.shutdown();
+		}
 
 		// Wait for shutdown to finish
 		try {
-			this.threadPoolExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+			for (TaskLaneExecutor laneExecutor : laneExecutors.values()) {
+				laneExecutor.awaitTermination(5000);
+			}
 
 		} catch (InterruptedException e) {
 			log.error("Failed to shut down thread pool correctly : " + e.getMessage(), e);
@@ -68,7 +225,7 @@ public class TaskDispatcher {
 
 
 	/**
-	 * Stops and starts the tread pool with a given number of threads.
+	 * Stops and starts the tread pools with a given number of threads for the DEFAULT lane.
 	 * @param threadPoolSize The fixed thread pool size
 	 */
 	public void reset(int threadPoolSize) {
@@ -80,68 +237,152 @@ public class TaskDispatcher {
 	}
 
 	/**
-	 * Executes a task in the thread pool
+	 * Executes a task in the thread pool of its lane
 	 * @param taskWrapper The task to be run
 	 */
 	public void executeTask(TaskWrapper taskWrapper) {
-		long numberOfPendingTasks = this.getNumberOfPendingTasks();
-		if (this.prioritiesActive && numberOfPendingTasks > this.maximumQueueSizeForPriorities) {
-			log.info("Pending Task queue size = " + numberOfPendingTasks + " : deactivating priorities");
-			TaskPriority.deactivatePriority();
-			this.prioritiesActive = false;
-
-		} else if (!this.prioritiesActive && numberOfPendingTasks < this.minimumQueueSizeForPriorities) {
-			log.info("Pending Task queue size = " + numberOfPendingTasks + " : activating priorities");
-			TaskPriority.activatePriority();
-			this.prioritiesActive = true;
+		// Set the task status and scheduling key
+		this.prepareTask(taskWrapper);
+
+		// Add the task to the tread pool of its lane
+		this.getLaneExecutor(taskWrapper.getTask().getLane()).execute(taskWrapper);
+	}
+
+	/**
+	 * Executes a task in the thread pool of its lane if the lane has capacity, waiting at most for a given time
+	 * @param taskWrapper The task to be run
+	 * @param timeoutMillis The maximum time to wait for capacity in milliseconds (0 to return immediately)
+	 * @return true if the task has been added, false if the lane is full
+	 */
+	public boolean tryExecuteTask(TaskWrapper taskWrapper, long timeoutMillis) throws InterruptedException {
+		TaskLaneExecutor laneExecutor = this.getLaneExecutor(taskWrapper.getTask().getLane());
+
+		// Obtain a place in the lane
+		boolean admitted = timeoutMillis > 0 ? laneExecutor.tryAdmit(timeoutMillis, TimeUnit.MILLISECONDS) : laneExecutor.tryAdmit();
+		if (admitted) {
+			this.prepareTask(taskWrapper);
+			laneExecutor.executeAdmitted(taskWrapper);
 		}
 
-		// Set the task status
-		taskWrapper.onAddedToThreadPool(TASK_EXECUTION_COUNTER++);
+		return admitted;
+	}
+
+	/**
+	 * Executes a task in the thread pool of its lane, waiting for as long as necessary for the lane to have capacity
+	 * @param taskWrapper The task to be run
+	 */
+	public void executeTaskBlocking(TaskWrapper taskWrapper) throws InterruptedException {
+		TaskLaneExecutor laneExecutor = this.getLaneExecutor(taskWrapper.getTask().getLane());
+
+		// Wait for a place in the lane
+		laneExecutor.admit();
 
-		// Add the task to the tread pool
-		this.threadPoolExecutor.execute(taskWrapper);
+		this.prepareTask(taskWrapper);
+		laneExecutor.executeAdmitted(taskWrapper);
 	}
 
 	/**
-	 * Cancels a task
-	 * @param taskWrapper The task to be cancelled
+	 * Returns the number of tasks that can be added to a lane without waiting
+	 * @param lane The lane
+	 * @return The remaining capacity (Integer.MAX_VALUE for an unbounded lane)
 	 */
-	public void cancelTask(TaskWrapper taskWrapper) {
-		// Remove from queue if queued
-		this.threadPoolExecutor.remove(taskWrapper);
+	public int getRemainingCapacity(TaskLane lane) {
+		return this.getLaneExecutor(lane).getRemainingCapacity();
 	}
 
 	/**
-	 * Returns the size of the thread pool
+	 * Registers a one-off callback run as soon as a lane has capacity (immediately if it already has)
+	 * @param lane The lane
+	 * @param callback The callback
+	 * @param executor The executor running the callback
+	 */
+	public void whenCapacityAvailable(TaskLane lane, Runnable callback, Executor executor) {
+		this.getLaneExecutor(lane).whenCapacityAvailable(callback, executor);
+	}
+
+	private void prepareTask(TaskWrapper taskWrapper) {
+		taskWrapper.setCompletionDispatcher(this.completionDispatcher);
+		taskWrapper.setDeadlineScheduler(this.deadlineScheduler);
+		taskWrapper.onAddedToThreadPool(TASK_EXECUTION_COUNTER.getAndIncrement(), this.priorityAgingNanos, this.taskMetrics.getTaskClassMetrics(taskWrapper.getTask().getClass()));
+	}
+
+	/**
+	 * Returns the number of completion notifications waiting to be delivered to the handlers
+	 * @return The number of pending notifications
+	 */
+	public int getNumberOfPendingCompletions() {
+		CompletionDispatcher completionDispatcher = this.completionDispatcher;
+
+		return completionDispatcher == null ? 0 : completionDispatcher.getNumberOfPendingNotifications();
+	}
+
+	private TaskLaneExecutor getLaneExecutor(TaskLane lane) {
+		Map<TaskLane, TaskLaneExecutor> laneExecutors = this.laneExecutors;
+		TaskLaneExecutor laneExecutor = lane == null ? null : laneExecutors.get(lane);
+
+		return laneExecutor != null ? laneExecutor : laneExecutors.get(TaskLane.DEFAULT);
+	}
+
+	/**
+	 * Returns the size of the DEFAULT thread pool
 	 * @return The size of the thread pool
 	 */
 	public int getPoolSize() {
-		return this.threadPoolExecutor.getCorePoolSize();
+		return this.getPoolSize(TaskLane.DEFAULT);
+	}
+
+	/**
+	 * Returns the size of the thread pool running the tasks of a lane
+	 * @param lane The lane
+	 * @return The size of the thread pool
+	 */
+	public int getPoolSize(TaskLane lane) {
+		return this.getLaneExecutor(lane).getPoolSize();
 	}
 
 	/**
-	 * Get the current number of threads
+	 * Get the current number of threads of all lanes
 	 * @return The current number of threads
 	 */
 	public int getCurrentNumberOfThreads() {
-		return this.threadPoolExecutor.getPoolSize();
+		return this.laneExecutors.values().stream().mapToInt(TaskLaneExecutor::getCurrentNumberOfThreads).sum();
 	}
 
 	/**
-	 * Get the number of threads that are actively executing tasks
+	 * Get the number of threads that are actively executing tasks in all lanes
 	 * @return The active number of threads
 	 */
 	public int getActiveNumberOfThreads() {
-		return this.threadPoolExecutor.getActiveCount();
+		return this.laneExecutors.values().stream().mapToInt(TaskLaneExecutor::getActiveNumberOfThreads).sum();
 	}
 
 	/**
-	 * Get the number of pending tasks
+	 * Get the number of pending tasks of all lanes
 	 * @return The number of pending tasks
 	 */
 	public long getNumberOfPendingTasks() {
-		return  this.threadPoolExecutor.getQueue().size();
+		return this.laneExecutors.values().stream().mapToLong(TaskLaneExecutor::getNumberOfPendingTasks).sum();
+	}
+
+	/**
+	 * Returns the lifecycle metrics of the executed tasks
+	 * @return The task metrics
+	 */
+	public TaskMetrics getTaskMetrics() {
+		return taskMetrics;
+	}
+
+	/**
+	 * Returns the statistics of each running lane (lanes sharing the DEFAULT lane are not included)
+	 * @return The list of lane statistics
+	 */
+	public List<TaskLaneStatistics> getLaneStatistics() {
+		List<TaskLaneStatistics> laneStatistics = new ArrayList<>();
+		for (TaskLaneExecutor laneExecutor : this.laneExecutors.values()) {
+			laneStatistics.add(laneExecutor.getStatistics());
+		}
+
+		return laneStatistics;
 	}
 
 }
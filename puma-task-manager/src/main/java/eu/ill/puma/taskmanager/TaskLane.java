@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+/**
+ * Describes the executor lane (bulkhead) on which a Task is run. Each lane has its own thread pool and queue so that
+ * a slow subsystem cannot starve the others.
+ *
+ * A lane configured with a thread pool size of 0 shares the DEFAULT lane.
+ *
+ * I/O-bound lanes spend most of their time blocked on network calls and can be run on virtual threads.
+ *
+ * The PAGE_INTEGRATION lane integrates the pages of pipelined imports : its tasks wait for the INTEGRATION tasks
+ * between which the documents of a page are split, so it must not share the INTEGRATION lane.
+ *
+ * The COMPUTE lane is reserved for CPU-bound tasks : it runs on a work-stealing ForkJoinPool sized to the number of
+ * available processors, in which tasks can split their work into sub-tasks (see SubTasks).
+ */
+public enum TaskLane {
+	DEFAULT(false),
+	CONTROL(false),
+	IMPORT(true),
+	PAGE_INTEGRATION(false),
+	INTEGRATION(false),
+	DOWNLOAD(true),
+	RESOLVE(true),
+	ANALYSIS(false),
+	INDEX(false),
+	COMPUTE(false);
+
+	private final boolean ioBound;
+
+	TaskLane(boolean ioBound) {
+		this.ioBound = ioBound;
+	}
+
+	public boolean isIoBound() {
+		return ioBound;
+	}
+}
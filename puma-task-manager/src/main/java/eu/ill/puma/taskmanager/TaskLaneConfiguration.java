@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+/**
+ * Sizing of an executor lane
+ */
+public class TaskLaneConfiguration {
+
+	private int threadPoolSize;
+	private int queueCapacity;
+	private boolean virtualThreads;
+	private boolean workStealing;
+
+	/**
+	 * @param threadPoolSize The fixed number of threads of the lane (0 to share the DEFAULT lane)
+	 * @param queueCapacity The maximum number of queued tasks (0 for an unbounded queue)
+	 */
+	public TaskLaneConfiguration(int threadPoolSize, int queueCapacity) {
+		this(threadPoolSize, queueCapacity, false);
+	}
+
+	/**
+	 * @param threadPoolSize The fixed number of threads of the lane (0 to share the DEFAULT lane), or the maximum
+	 *                       number of concurrent tasks when running on virtual threads
+	 * @param queueCapacity The maximum number of queued tasks (0 for an unbounded queue)
+	 * @param virtualThreads Run the tasks of the lane on virtual threads created on demand
+	 */
+	public TaskLaneConfiguration(int threadPoolSize, int queueCapacity, boolean virtualThreads) {
+		this(threadPoolSize, queueCapacity, virtualThreads, false);
+	}
+
+	/**
+	 * @param threadPoolSize The fixed number of threads of the lane (0 to share the DEFAULT lane), or the maximum
+	 *                       number of concurrent tasks when running on virtual threads
+	 * @param queueCapacity The maximum number of queued tasks (0 for an unbounded queue)
+	 * @param virtualThreads Run the tasks of the lane on virtual threads created on demand
+	 * @param workStealing Run the tasks of the lane on a work-stealing ForkJoinPool (the thread pool size being its parallelism)
+	 */
+	public TaskLaneConfiguration(int threadPoolSize, int queueCapacity, boolean virtualThreads, boolean workStealing) {
+		this.threadPoolSize = threadPoolSize;
+		this.queueCapacity = queueCapacity;
+		this.virtualThreads = virtualThreads;
+		this.workStealing = workStealing;
+	}
+
+	public int getThreadPoolSize() {
+		return threadPoolSize;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public boolean isWorkStealing() {
+		return workStealing;
+	}
+
+	public boolean isShared() {
+		return this.threadPoolSize <= 0;
+	}
+
+	public boolean isBounded() {
+		return this.queueCapacity > 0;
+	}
+}
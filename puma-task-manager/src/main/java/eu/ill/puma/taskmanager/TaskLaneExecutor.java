@@ -0,0 +1,393 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import eu.ill.puma.core.error.PumaError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Internal class managing the thread pool and priority queue of a single executor lane.
+ *
+ * A bounded lane admits at most (queue capacity + thread pool size) tasks at a time : a permit is taken when a task
+ * is admitted and given back when it has been run. Tasks submitted without a permit available are rejected and
+ * reported as failed to their monitor and completion handler. Producers can instead wait for a permit, or register
+ * a callback to be notified when capacity frees.
+ *
+ * The thread pool can be resized while running (eg by the AdaptiveConcurrencyController) : running tasks are never
+ * interrupted, surplus threads terminate once idle.
+ *
+ * A work-stealing lane runs its tasks on a ForkJoinPool instead : tasks are taken in submission order (priorities
+ * are ignored), and the sub-tasks forked by a running task are stolen by idle workers. Its size is fixed.
+ */
+class TaskLaneExecutor {
+
+	private static final Logger log = LoggerFactory.getLogger(TaskLaneExecutor.class);
+
+	private final TaskLane lane;
+	private final int queueCapacity;
+	private final boolean virtualThreads;
+	private final ThreadPoolExecutor threadPoolExecutor;
+	private final ForkJoinPool forkJoinPool;
+	private final AdmissionPermits admissionPermits;
+	private final Queue<CapacityListener> capacityListeners = new ConcurrentLinkedQueue<>();
+	private final AtomicLong numberOfRejectedTasks = new AtomicLong();
+	private final LongAdder numberOfExecutedTasks = new LongAdder();
+	private final LongAdder totalExecutionNanos = new LongAdder();
+	private final LongAdder numberOfCompletedTasks = new LongAdder();
+
+	/**
+	 * Semaphore whose number of permits follows the size of the thread pool
+	 */
+	private static class AdmissionPermits extends Semaphore {
+
+		AdmissionPermits(int permits) {
+			super(permits);
+		}
+
+		void reduce(int reduction) {
+			this.reducePermits(reduction);
+		}
+	}
+
+	private static class CapacityListener {
+		private final Runnable callback;
+		private final Executor executor;
+
+		CapacityListener(Runnable callback, Executor executor) {
+			this.callback = callback;
+			this.executor = executor;
+		}
+	}
+
+	public TaskLaneExecutor(TaskLane lane, int threadPoolSize, int queueCapacity) {
+		this(lane, threadPoolSize, queueCapacity, false);
+	}
+
+	/**
+	 * Creates the lane executor. With virtual threads the thread pool size is the maximum number of concurrent tasks:
+	 * threads are created on demand and discarded when idle.
+	 */
+	public TaskLaneExecutor(TaskLane lane, int threadPoolSize, int queueCapacity, boolean virtualThreads) {
+		this(lane, threadPoolSize, queueCapacity, virtualThreads, false);
+	}
+
+	/**
+	 * Creates the lane executor. A work-stealing lane runs on a ForkJoinPool with the thread pool size as parallelism.
+	 */
+	public TaskLaneExecutor(TaskLane lane, int threadPoolSize, int queueCapacity, boolean virtualThreads, boolean workStealing) {
+		this.lane = lane;
+		this.queueCapacity = queueCapacity;
+		this.virtualThreads = virtualThreads && !workStealing;
+		this.admissionPermits = queueCapacity > 0 ? new AdmissionPermits(queueCapacity + threadPoolSize) : null;
+
+		if (workStealing) {
+			this.threadPoolExecutor = null;
+			this.forkJoinPool = new ForkJoinPool(threadPoolSize, pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("TaskComputeThread-" + thread.getPoolIndex());
+				return thread;
+
+			}, (thread, throwable) -> log.error("Uncaught exception in " + thread.getName() + " : " + throwable.getMessage(), throwable), false);
+
+			return;
+		}
+
+		this.forkJoinPool = null;
+		ThreadFactory threadFactory = virtualThreads ? new IoTaskThreadFactory() : new TaskThreadFactory();
+		this.threadPoolExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 10, TimeUnit.SECONDS, new PriorityBlockingQueue<>(20, new TaskPriorityComparator()), threadFactory, (runnable, executor) -> this.reject((TaskWrapper)runnable)) {
+			@Override
+			protected void afterExecute(Runnable runnable, Throwable throwable) {
+				TaskLaneExecutor.this.afterExecute((TaskWrapper)runnable);
+			}
+		};
+		this.threadPoolExecutor.allowCoreThreadTimeOut(virtualThreads);
+	}
+
+	/**
+	 * Adds a task to the lane queue, rejecting it if the lane is full
+	 * @param taskWrapper The task to be run
+	 */
+	public void execute(TaskWrapper taskWrapper) {
+		if (this.tryAdmit()) {
+			this.executeAdmitted(taskWrapper);
+
+		} else {
+			this.reject(taskWrapper);
+		}
+	}
+
+	/**
+	 * Adds a task to the lane queue for which a permit has already been obtained
+	 * @param taskWrapper The task to be run
+	 */
+	public void executeAdmitted(TaskWrapper taskWrapper) {
+		if (this.forkJoinPool == null) {
+			this.threadPoolExecutor.execute(taskWrapper);
+			return;
+		}
+
+		try {
+			this.forkJoinPool.execute(() -> {
+				try {
+					taskWrapper.run();
+
+				} finally {
+					this.afterExecute(taskWrapper);
+				}
+			});
+
+		} catch (RejectedExecutionException e) {
+			this.reject(taskWrapper);
+		}
+	}
+
+	private void afterExecute(TaskWrapper taskWrapper) {
+		// Record the execution time of tasks that have been run (not cancelled)
+		long executionNanos = taskWrapper.getExecutionNanos();
+		if (executionNanos > 0) {
+			this.numberOfExecutedTasks.increment();
+			this.totalExecutionNanos.add(executionNanos);
+		}
+		this.numberOfCompletedTasks.increment();
+
+		// Give back the permit of the task
+		this.release();
+	}
+
+	/**
+	 * Obtains a permit to add a task, without waiting
+	 * @return true if the task can be added
+	 */
+	public boolean tryAdmit() {
+		return this.admissionPermits == null || this.admissionPermits.tryAcquire();
+	}
+
+	/**
+	 * Obtains a permit to add a task, waiting for capacity if necessary
+	 * @param timeout The maximum time to wait
+	 * @param unit The unit of the timeout
+	 * @return true if the task can be added, false if the timeout expired
+	 */
+	public boolean tryAdmit(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.admissionPermits == null || this.admissionPermits.tryAcquire(timeout, unit);
+	}
+
+	/**
+	 * Obtains a permit to add a task, waiting for as long as necessary
+	 */
+	public void admit() throws InterruptedException {
+		if (this.admissionPermits != null) {
+			this.admissionPermits.acquire();
+		}
+	}
+
+	/**
+	 * Returns the number of tasks that can be added without waiting
+	 * @return The remaining capacity (Integer.MAX_VALUE for an unbounded lane)
+	 */
+	public int getRemainingCapacity() {
+		return this.admissionPermits == null ? Integer.MAX_VALUE : this.admissionPermits.availablePermits();
+	}
+
+	/**
+	 * Registers a one-off callback that is run (by the given executor) as soon as the lane has capacity
+	 * @param callback The callback
+	 * @param executor The executor running the callback
+	 */
+	public void whenCapacityAvailable(Runnable callback, Executor executor) {
+		this.capacityListeners.add(new CapacityListener(callback, executor));
+
+		// Capacity may have freed before the listener was added
+		if (this.getRemainingCapacity() > 0) {
+			this.notifyCapacityListener();
+		}
+	}
+
+	private void release() {
+		if (this.admissionPermits != null) {
+			this.admissionPermits.release();
+			this.notifyCapacityListener();
+		}
+	}
+
+	private void notifyCapacityListener() {
+		CapacityListener capacityListener = this.capacityListeners.poll();
+		if (capacityListener != null) {
+			try {
+				capacityListener.executor.execute(capacityListener.callback);
+
+			} catch (Exception e) {
+				log.error("Failed to notify capacity listener of lane " + this.lane + " : " + e.getMessage(), e);
+			}
+		}
+	}
+
+	private void reject(TaskWrapper taskWrapper) {
+		this.numberOfRejectedTasks.incrementAndGet();
+
+		String message = this.isShutdown() ? "Task lane " + this.lane + " is shut down" : "Task lane " + this.lane + " queue is full (" + this.queueCapacity + " tasks)";
+		log.warn("Rejecting task " + taskWrapper.getTask().getClass().getSimpleName() + " : " + message);
+
+		taskWrapper.reject(new PumaError(message));
+	}
+
+	/**
+	 * Stops the thread pool and any running tasks. All pending tasks are removed.
+	 */
+	public void shutdownNow() {
+		if (this.forkJoinPool != null) {
+			this.forkJoinPool.shutdownNow();
+
+		} else {
+			this.threadPoolExecutor.shutdownNow();
+		}
+
+		// Wake up any producers waiting for capacity (their tasks are then rejected). Half of the maximum permit count
+		// leaves room for the permits given back by the tasks still running.
+		if (this.admissionPermits != null) {
+			this.admissionPermits.release(Math.max(0, Integer.MAX_VALUE / 2 - this.admissionPermits.availablePermits()));
+		}
+		this.capacityListeners.clear();
+	}
+
+	/**
+	 * Changes the number of threads of the lane without interrupting running tasks. The capacity of a bounded lane
+	 * changes by the same amount. The size of a work-stealing lane cannot be changed.
+	 * @param threadPoolSize The new thread pool size (at least 1)
+	 */
+	public synchronized void setPoolSize(int threadPoolSize) {
+		if (this.forkJoinPool != null) {
+			log.warn("Cannot resize the work-stealing lane " + this.lane);
+			return;
+		}
+
+		threadPoolSize = Math.max(1, threadPoolSize);
+		int currentThreadPoolSize = this.getPoolSize();
+		if (threadPoolSize == currentThreadPoolSize) {
+			return;
+		}
+
+		// The maximum pool size can never be lower than the core size
+		if (threadPoolSize > currentThreadPoolSize) {
+			this.threadPoolExecutor.setMaximumPoolSize(threadPoolSize);
+			this.threadPoolExecutor.setCorePoolSize(threadPoolSize);
+
+		} else {
+			this.threadPoolExecutor.setCorePoolSize(threadPoolSize);
+			this.threadPoolExecutor.setMaximumPoolSize(threadPoolSize);
+		}
+
+		if (this.admissionPermits != null) {
+			if (threadPoolSize > currentThreadPoolSize) {
+				this.admissionPermits.release(threadPoolSize - currentThreadPoolSize);
+				this.notifyCapacityListener();
+
+			} else {
+				this.admissionPermits.reduce(currentThreadPoolSize - threadPoolSize);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the thread pool to terminate
+	 * @param timeoutMillis The maximum time to wait
+	 */
+	public void awaitTermination(long timeoutMillis) throws InterruptedException {
+		if (this.forkJoinPool != null) {
+			this.forkJoinPool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+
+		} else {
+			this.threadPoolExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private boolean isShutdown() {
+		return this.forkJoinPool != null ? this.forkJoinPool.isShutdown() : this.threadPoolExecutor.isShutdown();
+	}
+
+	public TaskLane getLane() {
+		return lane;
+	}
+
+	public int getPoolSize() {
+		return this.forkJoinPool != null ? this.forkJoinPool.getParallelism() : this.threadPoolExecutor.getCorePoolSize();
+	}
+
+	public int getCurrentNumberOfThreads() {
+		return this.forkJoinPool != null ? this.forkJoinPool.getPoolSize() : this.threadPoolExecutor.getPoolSize();
+	}
+
+	public int getActiveNumberOfThreads() {
+		return this.forkJoinPool != null ? this.forkJoinPool.getActiveThreadCount() : this.threadPoolExecutor.getActiveCount();
+	}
+
+	public long getNumberOfPendingTasks() {
+		return this.forkJoinPool != null ? this.forkJoinPool.getQueuedSubmissionCount() : this.threadPoolExecutor.getQueue().size();
+	}
+
+	public boolean isWorkStealing() {
+		return this.forkJoinPool != null;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public long getNumberOfExecutedTasks() {
+		return this.numberOfExecutedTasks.sum();
+	}
+
+	public long getTotalExecutionNanos() {
+		return this.totalExecutionNanos.sum();
+	}
+
+	/**
+	 * Returns a snapshot of the lane statistics
+	 * @return The lane statistics
+	 */
+	public TaskLaneStatistics getStatistics() {
+		TaskLaneStatistics statistics = new TaskLaneStatistics();
+		statistics.setLane(this.lane);
+		statistics.setPoolSize(this.getPoolSize());
+		statistics.setNumberOfThreads(this.getCurrentNumberOfThreads());
+		statistics.setNumberOfActiveThreads(this.getActiveNumberOfThreads());
+		statistics.setNumberOfPendingTasks(this.getNumberOfPendingTasks());
+		statistics.setQueueCapacity(this.queueCapacity);
+		statistics.setRemainingCapacity(this.getRemainingCapacity());
+		statistics.setVirtualThreads(this.virtualThreads);
+		statistics.setWorkStealing(this.isWorkStealing());
+		statistics.setNumberOfStolenTasks(this.forkJoinPool != null ? this.forkJoinPool.getStealCount() : 0);
+		statistics.setNumberOfCompletedTasks(this.forkJoinPool != null ? this.numberOfCompletedTasks.sum() : this.threadPoolExecutor.getCompletedTaskCount());
+		statistics.setNumberOfRejectedTasks(this.numberOfRejectedTasks.get());
+
+		return statistics;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+/**
+ * Snapshot of the state of an executor lane, used for monitoring
+ */
+public class TaskLaneStatistics {
+
+	private TaskLane lane;
+	private int poolSize;
+	private long numberOfThreads;
+	private long numberOfActiveThreads;
+	private long numberOfPendingTasks;
+	private int queueCapacity;
+	private int remainingCapacity;
+	private boolean virtualThreads;
+	private boolean workStealing;
+	private long numberOfStolenTasks;
+	private long numberOfCompletedTasks;
+	private long numberOfRejectedTasks;
+
+	public TaskLane getLane() {
+		return lane;
+	}
+
+	public void setLane(TaskLane lane) {
+		this.lane = lane;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public long getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	public void setNumberOfThreads(long numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public long getNumberOfActiveThreads() {
+		return numberOfActiveThreads;
+	}
+
+	public void setNumberOfActiveThreads(long numberOfActiveThreads) {
+		this.numberOfActiveThreads = numberOfActiveThreads;
+	}
+
+	public long getNumberOfPendingTasks() {
+		return numberOfPendingTasks;
+	}
+
+	public void setNumberOfPendingTasks(long numberOfPendingTasks) {
+		this.numberOfPendingTasks = numberOfPendingTasks;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getRemainingCapacity() {
+		return remainingCapacity;
+	}
+
+	public void setRemainingCapacity(int remainingCapacity) {
+		this.remainingCapacity = remainingCapacity;
+	}
+
+	public long getNumberOfCompletedTasks() {
+		return numberOfCompletedTasks;
+	}
+
+	public void setNumberOfCompletedTasks(long numberOfCompletedTasks) {
+		this.numberOfCompletedTasks = numberOfCompletedTasks;
+	}
+
+	public long getNumberOfRejectedTasks() {
+		return numberOfRejectedTasks;
+	}
+
+	public void setNumberOfRejectedTasks(long numberOfRejectedTasks) {
+		this.numberOfRejectedTasks = numberOfRejectedTasks;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	public boolean isWorkStealing() {
+		return workStealing;
+	}
+
+	public void setWorkStealing(boolean workStealing) {
+		this.workStealing = workStealing;
+	}
+
+	public long getNumberOfStolenTasks() {
+		return numberOfStolenTasks;
+	}
+
+	public void setNumberOfStolenTasks(long numberOfStolenTasks) {
+		this.numberOfStolenTasks = numberOfStolenTasks;
+	}
+}
@@ -16,39 +16,106 @@
 package eu.ill.puma.taskmanager;
 
 import eu.ill.puma.core.error.PumaError;
+import eu.ill.puma.taskmanager.journal.TaskJournal;
+import eu.ill.puma.taskmanager.journal.TaskJournalEntry;
+import eu.ill.puma.taskmanager.metrics.TaskClassStatistics;
+import eu.ill.puma.taskmanager.trace.DocumentTracer;
+import eu.ill.puma.taskmanager.trace.TraceSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * The TaskManager centralises the execution of Tasks in a multi-threaded environment.
  *
- * All tasks are sent to the Task Dispatcher for execution.
+ * All tasks are sent to the Task Dispatcher for execution, on the executor lane declared by the task.
  *
+ * Pending and running tasks are held in concurrent maps keyed by task identity so that submitting, starting,
+ * finishing and cancelling a task are constant-time operations that do not lock the whole manager.
+ *
+ * Tasks can be executed after a delay (eg retries with backoff): a single timer thread holds them until they are
+ * due so that no worker thread is parked and no lock is held while waiting.
+ *
+ * A task with a coalescing key submitted while a task with the same key is pending is merged into the pending task
+ * (see Task.getCoalescingKey) : the work is only queued and run once.
+ *
+ * Completion handlers are notified on dedicated completion threads, one notification at a time per handler unless
+ * the handler class is annotated with @ConcurrentCompletionHandler.
+ *
+ * Producers of large numbers of tasks should use tryExecuteTask or executeTaskBlocking : lanes configured with a
+ * queue capacity reject tasks submitted by executeTask when full, whereas these methods let the producer hold back its
+ * tasks until the lane has capacity (see whenCapacityAvailable).
+ *
+ * When a task journal is configured, the submission and termination of tasks having a journal key are appended to it
+ * (see Task.getJournalKey) : on restart the submitters take the tasks that were outstanding from the journal
+ * (see takeRecoveredTasks) rather than scanning the database for unfinished work.
+ *
+ * When tracing is enabled, a span is recorded for each document version in the trace context of a terminated task
+ * (see Task.getTraceContext) so that the time a document has waited and run at each stage can be followed.
  */
 @Component
 public class TaskManager implements TaskMonitor {
 
+	/**
+	 * Holds the timer future of a delayed task so that it can be cancelled
+	 */
+	private static class DelayedTask {
+		private volatile ScheduledFuture<?> scheduledFuture;
+
+		void cancel() {
+			ScheduledFuture<?> scheduledFuture = this.scheduledFuture;
+			if (scheduledFuture != null) {
+				scheduledFuture.cancel(false);
+			}
+		}
+	}
+
 	private static final Logger log = LoggerFactory.getLogger(TaskManager.class);
 
 	@Value("${puma.taskManager.threadPoolSize}")
 	private int threadPoolSize;
 
+	@Autowired
+	private TaskManagerConfiguration taskManagerConfiguration;
+
 	private TaskDispatcher taskDispatcher = null;
-	private List<Task> pendingTasks = new ArrayList<>();
-	private List<Task> runningTasks = new ArrayList<>();
-	private Map<Task, TaskWrapper> taskWrappers = new HashMap<>();
+	private final Map<Task, TaskWrapper> pendingTasks = new ConcurrentHashMap<>();
+	private final Map<Task, TaskWrapper> runningTasks = new ConcurrentHashMap<>();
+	private final Map<Task, DelayedTask> delayedTasks = new ConcurrentHashMap<>();
+	private final Map<String, TaskWrapper> pendingTasksByCoalescingKey = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler;
+	private ScheduledFuture<?> adaptiveConcurrencyFuture;
+	private volatile TaskJournal taskJournal;
+	private ScheduledFuture<?> journalCompactionFuture;
+	private volatile DocumentTracer documentTracer;
 
 	public TaskManager() {
 		// Create a new Task Dispatcher
 		this.taskDispatcher = new TaskDispatcher();
+
+		// Create the timer for delayed tasks and capacity callbacks
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "TaskManagerScheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 
 	/**
@@ -59,7 +126,202 @@ public class TaskManager implements TaskMonitor {
 		log.info("TaskManager Thread Pool Size = " + this.threadPoolSize);
 
 		// Initialise TaskDispatcher
-		this.taskDispatcher.init(this.threadPoolSize);
+		this.taskDispatcher.setPriorityAgingMillis(this.taskManagerConfiguration.priorityAgingMillis);
+		this.taskDispatcher.setCompletionThreadPoolSize(this.taskManagerConfiguration.completionThreadPoolSize);
+		this.taskDispatcher.init(this.threadPoolSize, this.taskManagerConfiguration.getLaneConfigurations());
+
+		// Adjust the size of the lanes to their activity
+		AdaptiveConcurrencyPolicy adaptiveConcurrencyPolicy = this.taskManagerConfiguration.getAdaptiveConcurrencyPolicy();
+		if (adaptiveConcurrencyPolicy != null) {
+			this.enableAdaptiveConcurrency(adaptiveConcurrencyPolicy, this.taskManagerConfiguration.adaptiveConcurrencyIntervalMillis);
+		}
+
+		// Record the outstanding tasks in the task journal
+		String journalPath = this.taskManagerConfiguration.journalPath;
+		if (journalPath != null && !journalPath.isEmpty()) {
+			try {
+				this.enableTaskJournal(Paths.get(journalPath), this.taskManagerConfiguration.journalCompactionIntervalMillis);
+
+			} catch (IOException e) {
+				log.error("Failed to open task journal " + journalPath + " : tasks will not be recovered on restart (" + e.getMessage() + ")");
+			}
+		}
+
+		// Record the lifecycle of the documents
+		if (this.taskManagerConfiguration.traceCapacity > 0) {
+			String traceExportPath = this.taskManagerConfiguration.traceExportPath;
+			DocumentTracer documentTracer = new DocumentTracer(this.taskManagerConfiguration.traceCapacity, traceExportPath == null || traceExportPath.isEmpty() ? null : Paths.get(traceExportPath), this.taskManagerConfiguration.traceExportMaxSize);
+			try {
+				documentTracer.open();
+				this.documentTracer = documentTracer;
+
+			} catch (IOException e) {
+				log.error("Failed to open trace export file " + traceExportPath + " : document tracing is disabled (" + e.getMessage() + ")");
+			}
+		}
+	}
+
+	/**
+	 * Returns the spans recorded for a document version (that are still in the trace buffer), oldest first
+	 * @param documentVersionId The document version id
+	 * @return The spans (empty if tracing is disabled)
+	 */
+	public List<TraceSpan> getDocumentTrace(Long documentVersionId) {
+		DocumentTracer documentTracer = this.documentTracer;
+
+		return documentTracer != null ? documentTracer.getSpans(documentVersionId) : Collections.emptyList();
+	}
+
+	/**
+	 * Returns the most recent spans of all documents, oldest first
+	 * @param limit The maximum number of spans
+	 * @return The spans (empty if tracing is disabled)
+	 */
+	public List<TraceSpan> getLatestTraceSpans(int limit) {
+		DocumentTracer documentTracer = this.documentTracer;
+
+		return documentTracer != null ? documentTracer.getLatestSpans(limit) : Collections.emptyList();
+	}
+
+	/**
+	 * Opens a task journal and starts compacting it periodically. Tasks outstanding in an existing journal are kept until
+	 * taken by their submitters (see takeRecoveredTasks).
+	 * @param path The path of the journal file
+	 * @param compactionIntervalMillis The period of the compactions in milliseconds
+	 * @throws IOException if the journal cannot be opened
+	 */
+	public synchronized void enableTaskJournal(Path path, long compactionIntervalMillis) throws IOException {
+		this.disableTaskJournal();
+
+		TaskJournal taskJournal = new TaskJournal(path);
+		taskJournal.open();
+		this.taskJournal = taskJournal;
+
+		log.info("Task journal enabled at " + path + " (compaction every " + compactionIntervalMillis + "ms)");
+
+		this.journalCompactionFuture = this.scheduler.scheduleWithFixedDelay(taskJournal::compact, compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Closes the task journal : the tasks outstanding at this time remain in the journal to be recovered
+	 */
+	public synchronized void disableTaskJournal() {
+		if (this.journalCompactionFuture != null) {
+			this.journalCompactionFuture.cancel(false);
+			this.journalCompactionFuture = null;
+		}
+
+		if (this.taskJournal != null) {
+			this.taskJournal.close();
+			this.taskJournal = null;
+		}
+	}
+
+	/**
+	 * Returns true if the task journal has been opened over the journal of a previous run, ie the tasks that were
+	 * outstanding are known and the submitters do not need to scan for them
+	 * @return true if the outstanding tasks of the previous run are known
+	 */
+	public boolean isTaskJournalRecovered() {
+		TaskJournal taskJournal = this.taskJournal;
+
+		return taskJournal != null && taskJournal.isRecovered();
+	}
+
+	/**
+	 * Removes and returns the tasks of a given type that were outstanding when the previous run stopped, ordered by
+	 * priority then by submission. The caller is expected to submit the tasks again.
+	 * @param type The type of the tasks (the part of their journal key before ':')
+	 * @return The tasks to recover (empty if there is no task journal)
+	 */
+	public List<TaskJournalEntry> takeRecoveredTasks(String type) {
+		TaskJournal taskJournal = this.taskJournal;
+
+		return taskJournal != null ? taskJournal.takeRecoveredEntries(type) : Collections.emptyList();
+	}
+
+	/**
+	 * Returns the tasks currently recorded as outstanding in the task journal
+	 * @return The outstanding tasks (empty if there is no task journal)
+	 */
+	public List<TaskJournalEntry> getJournaledTasks() {
+		TaskJournal taskJournal = this.taskJournal;
+
+		return taskJournal != null ? taskJournal.getOutstandingEntries() : Collections.emptyList();
+	}
+
+	/**
+	 * Records in the task journal a task held back by its submitter (eg until its lane has capacity) so that it is
+	 * recovered after a restart. The submitter calls releaseHeldTask once the task has been submitted or dropped.
+	 * @param task The held task
+	 */
+	public void recordHeldTask(Task task) {
+		this.journalSubmitted(task);
+	}
+
+	/**
+	 * Removes from the task journal a task recorded with recordHeldTask
+	 * @param task The held task
+	 */
+	public void releaseHeldTask(Task task) {
+		this.journalTerminated(task);
+	}
+
+	private void journalSubmitted(Task task) {
+		TaskJournal taskJournal = this.taskJournal;
+		String journalKey = task.getJournalKey();
+		if (taskJournal != null && journalKey != null) {
+			taskJournal.onTaskSubmitted(journalKey, task.getPriority());
+		}
+	}
+
+	private void journalTerminated(Task task) {
+		TaskJournal taskJournal = this.taskJournal;
+		String journalKey = task.getJournalKey();
+		if (taskJournal != null && journalKey != null) {
+			taskJournal.onTaskTerminated(journalKey);
+		}
+	}
+
+	/**
+	 * Starts adjusting the number of threads of the lanes periodically from their throughput and execution times
+	 * @param adaptiveConcurrencyPolicy The policy bounding the lane sizes
+	 * @param intervalMillis The period of the adjustments in milliseconds
+	 */
+	public synchronized void enableAdaptiveConcurrency(AdaptiveConcurrencyPolicy adaptiveConcurrencyPolicy, long intervalMillis) {
+		this.disableAdaptiveConcurrency();
+
+		this.taskDispatcher.setAdaptiveConcurrency(adaptiveConcurrencyPolicy);
+		long periodMillis = Math.max(10, intervalMillis);
+		this.adaptiveConcurrencyFuture = this.scheduler.scheduleWithFixedDelay(this.taskDispatcher::adaptConcurrency, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops adjusting the number of threads of the lanes : they keep their current size
+	 */
+	public synchronized void disableAdaptiveConcurrency() {
+		if (this.adaptiveConcurrencyFuture != null) {
+			this.adaptiveConcurrencyFuture.cancel(false);
+			this.adaptiveConcurrencyFuture = null;
+		}
+		this.taskDispatcher.setAdaptiveConcurrency(null);
+	}
+
+	/**
+	 * Returns true if the number of threads of the lanes is adjusted automatically
+	 * @return true if adaptive concurrency is enabled
+	 */
+	public boolean isAdaptiveConcurrency() {
+		return this.taskDispatcher.isAdaptiveConcurrency();
+	}
+
+	/**
+	 * Changes the number of threads of a lane without interrupting running tasks (unlike reset)
+	 * @param lane The lane
+	 * @param threadPoolSize The new number of threads
+	 */
+	public void setPoolSize(TaskLane lane, int threadPoolSize) {
+		this.taskDispatcher.setPoolSize(lane, threadPoolSize);
 	}
 
 	/**
@@ -93,6 +355,13 @@ public class TaskManager implements TaskMonitor {
 		// Shutdown the TaskDispatcher
 		this.taskDispatcher.shutdown();
 
+		// Keep the interrupted tasks in the journal
+		this.disableTaskJournal();
+
+		if (this.documentTracer != null) {
+			this.documentTracer.close();
+		}
+
 		// Interrupt all tasks
 		this.interruptAllTasks();
 	}
@@ -100,33 +369,52 @@ public class TaskManager implements TaskMonitor {
 	/**
 	 * Interrupts all tasks and resets the arrays of running and pending tasks
 	 */
-	private synchronized void interruptAllTasks() {
+	private void interruptAllTasks() {
+
+		// Cancel all delayed tasks
+		List<Task> delayedTasks = new ArrayList<>(this.delayedTasks.keySet());
+		for (Task task : delayedTasks) {
+			DelayedTask delayedTask = this.delayedTasks.remove(task);
+			if (delayedTask != null) {
+				delayedTask.cancel();
+				task.interrupt();
+			}
+		}
+
+		// Take the pending and running tasks before clearing so that woken threads see an empty task manager
+		List<TaskWrapper> pendingTaskWrappers = new ArrayList<>(this.pendingTasks.values());
+		List<Task> runningTasks = new ArrayList<>(this.runningTasks.keySet());
+		this.pendingTasks.clear();
+		this.runningTasks.clear();
+		this.pendingTasksByCoalescingKey.clear();
 
 		// Interrupt all pending and running tasks
-		for (Task task : this.pendingTasks) {
-			task.interrupt();
+		for (TaskWrapper taskWrapper : pendingTaskWrappers) {
+			taskWrapper.cancel();
+			taskWrapper.getTask().interrupt();
 		}
 
-		for (Task task : this.runningTasks) {
+		for (Task task : runningTasks) {
 			task.interrupt();
 		}
-
-		this.pendingTasks = new ArrayList<>();
-		this.runningTasks = new ArrayList<>();
-		this.taskWrappers = new HashMap<>();
 	}
 
 	/*
 	 * Called to execute a task. The task is send to the TaskDispatcher to be run asynchronously (when possible)
 	 * and a callback is given to perform post-execution procedures.
 	 */
-	public synchronized  void executeTask(Task task) {
-		// Add to list of pending tasks
-		this.pendingTasks.add(task);
-
+	public void executeTask(Task task) {
 		// Encapsulate task in a task wrapper and register monitor
 		TaskWrapper taskWrapper = new TaskWrapper(task, this);
-		this.taskWrappers.put(task, taskWrapper);
+
+		// Merge into a pending task with the same key
+		if (this.coalesce(taskWrapper)) {
+			return;
+		}
+
+		// Add to pending tasks
+		this.pendingTasks.put(task, taskWrapper);
+		this.journalSubmitted(task);
 
 		// Push task to the task dispatcher
 		this.taskDispatcher.executeTask(taskWrapper);
@@ -138,63 +426,292 @@ public class TaskManager implements TaskMonitor {
 	 *
 	 * A custom completion handler is passed as an argument that is called when the task completes/fails.
 	 */
-	public synchronized void executeTask(Task task, TaskCompletionHandler taskCompletionHandler) {
-		// Add to list of pending tasks
-		this.pendingTasks.add(task);
-
+	public void executeTask(Task task, TaskCompletionHandler taskCompletionHandler) {
 		// Encapsulate task in a task wrapper and register monitor and completion handler
 		TaskWrapper taskWrapper = new TaskWrapper(task, this, taskCompletionHandler);
-		this.taskWrappers.put(task, taskWrapper);
+
+		// Merge into a pending task with the same key
+		if (this.coalesce(taskWrapper)) {
+			return;
+		}
+
+		// Add to pending tasks
+		this.pendingTasks.put(task, taskWrapper);
+		this.journalSubmitted(task);
 
 		// Push task to the task dispatcher
 		this.taskDispatcher.executeTask(taskWrapper);
 	}
 
+	/**
+	 * Merges a task into the pending task with the same coalescing key, or registers it as the pending task of its key
+	 * @param taskWrapper The wrapper of the submitted task
+	 * @return true if the task has been merged and must not be queued
+	 */
+	private boolean coalesce(TaskWrapper taskWrapper) {
+		Task task = taskWrapper.getTask();
+		String coalescingKey = task.getCoalescingKey();
+		if (coalescingKey == null) {
+			return false;
+		}
+
+		while (true) {
+			TaskWrapper pendingTaskWrapper = this.pendingTasksByCoalescingKey.putIfAbsent(coalescingKey, taskWrapper);
+			if (pendingTaskWrapper == null) {
+				return false;
+			}
+
+			// The same task is already pending
+			if (pendingTaskWrapper.getTask() == task) {
+				return true;
+			}
+
+			if (pendingTaskWrapper.coalesce(task)) {
+				this.taskDispatcher.getTaskMetrics().getTaskClassMetrics(task.getClass()).onCoalesced();
+				return true;
+			}
+
+			// The pending task has started in the meantime
+			this.pendingTasksByCoalescingKey.remove(coalescingKey, pendingTaskWrapper);
+		}
+	}
+
+	private void releaseCoalescingKey(TaskWrapper taskWrapper) {
+		String coalescingKey = taskWrapper.getTask().getCoalescingKey();
+		if (coalescingKey != null) {
+			this.pendingTasksByCoalescingKey.remove(coalescingKey, taskWrapper);
+		}
+	}
+
+	/**
+	 * Executes a task only if its lane has capacity, without waiting.
+	 * @param task The task to execute
+	 * @param taskCompletionHandler The completion handler (can be null)
+	 * @return true if the task has been accepted, false if the lane is full (the task is not executed)
+	 */
+	public boolean tryExecuteTask(Task task, TaskCompletionHandler taskCompletionHandler) {
+		try {
+			return this.tryExecuteTask(task, taskCompletionHandler, 0, TimeUnit.MILLISECONDS);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Executes a task if its lane has capacity, waiting at most for a given time for capacity to free.
+	 * @param task The task to execute
+	 * @param taskCompletionHandler The completion handler (can be null)
+	 * @param timeout The maximum time to wait
+	 * @param unit The unit of the timeout
+	 * @return true if the task has been accepted, false if the lane is still full after the timeout
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean tryExecuteTask(Task task, TaskCompletionHandler taskCompletionHandler, long timeout, TimeUnit unit) throws InterruptedException {
+		TaskWrapper taskWrapper = new TaskWrapper(task, this, taskCompletionHandler);
+
+		// Merge into a pending task with the same key
+		if (this.coalesce(taskWrapper)) {
+			return true;
+		}
+
+		// Add to pending tasks before the task can start
+		this.pendingTasks.put(task, taskWrapper);
+		this.journalSubmitted(task);
+
+		boolean accepted = false;
+		try {
+			accepted = this.taskDispatcher.tryExecuteTask(taskWrapper, unit.toMillis(timeout));
+
+		} finally {
+			if (!accepted) {
+				this.pendingTasks.remove(task, taskWrapper);
+				this.releaseCoalescingKey(taskWrapper);
+				this.journalTerminated(task);
+			}
+		}
+
+		return accepted;
+	}
+
+	/**
+	 * Executes a task, blocking the calling thread until its lane has capacity.
+	 * @param task The task to execute
+	 * @param taskCompletionHandler The completion handler (can be null)
+	 * @throws InterruptedException if interrupted while waiting (the task is not executed)
+	 */
+	public void executeTaskBlocking(Task task, TaskCompletionHandler taskCompletionHandler) throws InterruptedException {
+		TaskWrapper taskWrapper = new TaskWrapper(task, this, taskCompletionHandler);
+
+		// Merge into a pending task with the same key
+		if (this.coalesce(taskWrapper)) {
+			return;
+		}
+
+		// Add to pending tasks before the task can start
+		this.pendingTasks.put(task, taskWrapper);
+		this.journalSubmitted(task);
+
+		boolean accepted = false;
+		try {
+			this.taskDispatcher.executeTaskBlocking(taskWrapper);
+			accepted = true;
+
+		} finally {
+			if (!accepted) {
+				this.pendingTasks.remove(task, taskWrapper);
+				this.releaseCoalescingKey(taskWrapper);
+				this.journalTerminated(task);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of tasks that can be added to a lane without waiting
+	 * @param lane The lane
+	 * @return The remaining capacity (Integer.MAX_VALUE for an unbounded lane)
+	 */
+	public int getRemainingCapacity(TaskLane lane) {
+		return this.taskDispatcher.getRemainingCapacity(lane);
+	}
+
+	/**
+	 * Registers a one-off callback run as soon as a lane has capacity (immediately if it already has). The callback
+	 * is run by the task manager scheduler thread and should only submit tasks.
+	 * @param lane The lane
+	 * @param callback The callback
+	 */
+	public void whenCapacityAvailable(TaskLane lane, Runnable callback) {
+		this.taskDispatcher.whenCapacityAvailable(lane, callback, this.scheduler);
+	}
+
+	/**
+	 * Executes a task after a delay. The task is held by a timer until it is due and is then sent to the TaskDispatcher.
+	 * @param task The task to execute
+	 * @param delayMillis The delay in milliseconds
+	 * @param taskCompletionHandler The completion handler (can be null)
+	 */
+	public void executeTaskAfter(Task task, long delayMillis, TaskCompletionHandler taskCompletionHandler) {
+		this.executeTaskAfter(task, delayMillis, () -> 0, taskCompletionHandler);
+	}
+
+	/**
+	 * Executes a task after a delay, checking that it is still due once the delay has elapsed : the task is delayed
+	 * again if the check returns a further delay (for instance while a circuit breaker is still open).
+	 * @param task The task to execute
+	 * @param delayMillis The delay in milliseconds
+	 * @param delayWhenDue Returns the further delay in milliseconds once the delay has elapsed, 0 to execute the task
+	 * @param taskCompletionHandler The completion handler (can be null)
+	 */
+	public void executeTaskAfter(Task task, long delayMillis, LongSupplier delayWhenDue, TaskCompletionHandler taskCompletionHandler) {
+		// The task is journaled while delayed
+		this.journalSubmitted(task);
+
+		this.scheduleDelayedTask(task, delayMillis, delayWhenDue, taskCompletionHandler);
+	}
+
+	private void scheduleDelayedTask(Task task, long delayMillis, LongSupplier delayWhenDue, TaskCompletionHandler taskCompletionHandler) {
+		if (delayMillis <= 0) {
+			this.executeDelayedTask(task, taskCompletionHandler);
+			return;
+		}
+
+		// Register the delayed task before scheduling it so that it can be cancelled at any time
+		DelayedTask delayedTask = new DelayedTask();
+		this.delayedTasks.put(task, delayedTask);
+
+		delayedTask.scheduledFuture = this.scheduler.schedule(() -> {
+			// Only execute if not cancelled in the meantime, and if still due
+			if (this.delayedTasks.remove(task, delayedTask)) {
+				this.scheduleDelayedTask(task, delayWhenDue.getAsLong(), delayWhenDue, taskCompletionHandler);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Executes a task again after a delay obtained from a backoff policy and the number of times the task has been retried
+	 * @param task The task to retry
+	 * @param backoffPolicy The backoff policy
+	 * @param taskCompletionHandler The completion handler (can be null)
+	 * @return The delay in milliseconds before the task is executed
+	 */
+	public long retryTaskWithBackoff(Task task, TaskBackoffPolicy backoffPolicy, TaskCompletionHandler taskCompletionHandler) {
+		int retry = task.onRetry();
+		long delayMillis = backoffPolicy.getDelayMillis(retry);
+
+		this.executeTaskAfter(task, delayMillis, taskCompletionHandler);
+
+		return delayMillis;
+	}
+
+	private void executeDelayedTask(Task task, TaskCompletionHandler taskCompletionHandler) {
+		// Wait for capacity rather than rejecting a task that has already waited (keeping it cancellable)
+		if (this.tryExecuteTask(task, taskCompletionHandler)) {
+			this.journalTerminated(task);
+
+		} else {
+			DelayedTask delayedTask = new DelayedTask();
+			this.delayedTasks.put(task, delayedTask);
+
+			this.whenCapacityAvailable(task.getLane(), () -> {
+				if (this.delayedTasks.remove(task, delayedTask)) {
+					this.executeDelayedTask(task, taskCompletionHandler);
+				}
+			});
+		}
+	}
+
 	/**
 	 * Removes a task from any pending queues and signals task to be cancelled:
 	 * NOTE: cancelling of running tasks must be implemented on a per-task basis by examining the task.state.
+	 *
+	 * A pending task is not removed from the dispatcher queue (which would be a linear operation on a shared queue):
+	 * its wrapper is flagged as cancelled and discarded when a thread dequeues it. A task that a thread has already
+	 * picked up is left to move to the running tasks, where it stays until it returns.
 	 * @param task The task to be cancelled
 	 */
-	public synchronized void cancelTask(Task task) {
-		TaskWrapper taskWrapper = this.taskWrappers.get(task);
-		if (taskWrapper != null) {
-			this.taskDispatcher.cancelTask(taskWrapper);
-			this.taskWrappers.remove(task);
+	public void cancelTask(Task task) {
+		DelayedTask delayedTask = this.delayedTasks.remove(task);
+		if (delayedTask != null) {
+			delayedTask.cancel();
+			this.journalTerminated(task);
+		}
+
+		TaskWrapper taskWrapper = this.pendingTasks.get(task);
+		if (taskWrapper != null && taskWrapper.cancel()) {
+			this.pendingTasks.remove(task, taskWrapper);
+			this.journalTerminated(task);
+			this.releaseCoalescingKey(taskWrapper);
 		}
 
 		// Notify task that is has been cancelled in case it is running
 		task.cancel();
-
-		this.pendingTasks.remove(task);
-		this.runningTasks.remove(task);
 	}
 
 	/**
 	 * Called when a task will execute
 	 * @param task The task that will execute
 	 */
-	public synchronized void onTaskWillStart(Task task) {
-		// Remove from pending tasks
-		this.pendingTasks.remove(task);
+	public void onTaskWillStart(Task task) {
+		// Move from pending to running tasks
+		TaskWrapper taskWrapper = this.pendingTasks.remove(task);
+		if (taskWrapper != null) {
+			this.runningTasks.put(task, taskWrapper);
 
-		// Add to running tasks
-		this.runningTasks.add(task);
+			// Later submissions with the same key are queued again
+			this.releaseCoalescingKey(taskWrapper);
+		}
 	}
 
 	/**
 	 * Called when a task executes successfully.
 	 * @param task The Task that has terminated
 	 */
-	public synchronized void onTaskCompleted(Task task) {
+	public void onTaskCompleted(Task task) {
 		// Remove from running tasks
 		this.runningTasks.remove(task);
 
-		// Remove task wrapped
-		TaskWrapper taskWrapper = this.taskWrappers.get(task);
-		if (taskWrapper != null) {
-			this.taskWrappers.remove(task);
-		}
-
 		// Run task again or get chained task
 		if (task.doRepeatRun()) {
 			// Repeat the same task
@@ -211,14 +728,27 @@ public class TaskManager implements TaskMonitor {
 	 * @param task The task that failed
 	 * @param pumaError The error
 	 */
-	public synchronized void onTaskError(Task task, PumaError pumaError) {
-		// Remove from running tasks
+	public void onTaskError(Task task, PumaError pumaError) {
+		// Remove from pending (if rejected by the dispatcher) and running tasks
+		TaskWrapper taskWrapper = this.pendingTasks.remove(task);
+		if (taskWrapper != null) {
+			this.releaseCoalescingKey(taskWrapper);
+		}
 		this.runningTasks.remove(task);
+	}
 
-		// Remove task wrapped
-		TaskWrapper taskWrapper = this.taskWrappers.get(task);
-		if (taskWrapper != null) {
-			this.taskWrappers.remove(task);
+	/**
+	 * Called when a task has terminated and its completion handler has been notified
+	 * @param task The task that has terminated
+	 * @param queuedTimeMillis The time at which the task was queued for the run that has terminated
+	 */
+	@Override
+	public void onTaskTerminated(Task task, long queuedTimeMillis) {
+		this.journalTerminated(task);
+
+		DocumentTracer documentTracer = this.documentTracer;
+		if (documentTracer != null) {
+			documentTracer.onTaskTerminated(task, queuedTimeMillis);
 		}
 	}
 
@@ -230,6 +760,15 @@ public class TaskManager implements TaskMonitor {
 		return this.taskDispatcher.getPoolSize();
 	}
 
+	/**
+	 * Returns the size of the thread pool running the tasks of a lane
+	 * @param lane The lane
+	 * @return The size of the thread pool
+	 */
+	public int getPoolSize(TaskLane lane) {
+		return this.taskDispatcher.getPoolSize(lane);
+	}
+
 	/**
 	 * Get the current number of threads
 	 * @return The current number of threads
@@ -251,6 +790,45 @@ public class TaskManager implements TaskMonitor {
 	 * @return The number of pending tasks
 	 */
 	public long getNumberOfPendingTasks() {
-		return this.taskDispatcher.getNumberOfPendingTasks();
+		return this.pendingTasks.size();
+	}
+
+	/**
+	 * Get the number of completion notifications waiting to be delivered to the completion handlers
+	 * @return The number of pending completions
+	 */
+	public int getNumberOfPendingCompletions() {
+		return this.taskDispatcher.getNumberOfPendingCompletions();
+	}
+
+	/**
+	 * Get the number of tasks waiting for a delay before being executed
+	 * @return The number of delayed tasks
+	 */
+	public long getNumberOfDelayedTasks() {
+		return this.delayedTasks.size();
+	}
+
+	/**
+	 * Returns the statistics of each executor lane
+	 * @return The list of lane statistics
+	 */
+	public List<TaskLaneStatistics> getLaneStatistics() {
+		return this.taskDispatcher.getLaneStatistics();
+	}
+
+	/**
+	 * Returns the lifecycle statistics (queue wait, execution time, completion and failure rates) of each task class
+	 * @return The list of task class statistics
+	 */
+	public List<TaskClassStatistics> getTaskStatistics() {
+		return this.taskDispatcher.getTaskMetrics().getStatistics();
+	}
+
+	/**
+	 * Removes all task lifecycle statistics
+	 */
+	public void resetTaskStatistics() {
+		this.taskDispatcher.getTaskMetrics().clear();
 	}
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+public class TaskManagerConfiguration {
+
+	@Value("${puma.taskManager.lanes.control.threadPoolSize}")
+	public int controlThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.control.queueCapacity}")
+	public int controlQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.import.threadPoolSize}")
+	public int importThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.import.queueCapacity}")
+	public int importQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.pageIntegration.threadPoolSize}")
+	public int pageIntegrationThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.pageIntegration.queueCapacity}")
+	public int pageIntegrationQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.integration.threadPoolSize}")
+	public int integrationThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.integration.queueCapacity}")
+	public int integrationQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.download.threadPoolSize}")
+	public int downloadThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.download.queueCapacity}")
+	public int downloadQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.resolve.threadPoolSize}")
+	public int resolveThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.resolve.queueCapacity}")
+	public int resolveQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.analysis.threadPoolSize}")
+	public int analysisThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.analysis.queueCapacity}")
+	public int analysisQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.index.threadPoolSize}")
+	public int indexThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.index.queueCapacity}")
+	public int indexQueueCapacity;
+
+	@Value("${puma.taskManager.lanes.compute.threadPoolSize}")
+	public int computeThreadPoolSize;
+
+	@Value("${puma.taskManager.lanes.compute.queueCapacity}")
+	public int computeQueueCapacity;
+
+	@Value("${puma.taskManager.priorityAgingMillis}")
+	public long priorityAgingMillis;
+
+	@Value("${puma.taskManager.completionThreadPoolSize}")
+	public int completionThreadPoolSize;
+
+	@Value("${puma.taskManager.adaptiveConcurrency.enabled}")
+	public boolean adaptiveConcurrencyEnabled;
+
+	@Value("${puma.taskManager.adaptiveConcurrency.minThreadPoolSize}")
+	public int adaptiveConcurrencyMinThreadPoolSize;
+
+	@Value("${puma.taskManager.adaptiveConcurrency.maxThreadPoolSize}")
+	public int adaptiveConcurrencyMaxThreadPoolSize;
+
+	@Value("${puma.taskManager.adaptiveConcurrency.intervalMillis}")
+	public long adaptiveConcurrencyIntervalMillis;
+
+	@Value("${puma.taskManager.virtualThreads.enabled}")
+	public boolean virtualThreadsEnabled;
+
+	@Value("${puma.taskManager.virtualThreads.maxConcurrency}")
+	public int virtualThreadsMaxConcurrency;
+
+	@Value("${puma.taskManager.journal.path}")
+	public String journalPath;
+
+	@Value("${puma.taskManager.journal.compactionIntervalMillis}")
+	public long journalCompactionIntervalMillis;
+
+	@Value("${puma.taskManager.trace.capacity}")
+	public int traceCapacity;
+
+	@Value("${puma.taskManager.trace.exportPath}")
+	public String traceExportPath;
+
+	@Value("${puma.taskManager.trace.exportMaxSize}")
+	public long traceExportMaxSize;
+
+	/**
+	 * Returns the adaptive concurrency policy of the lanes. It is disabled by default : the same bounds apply to every
+	 * platform-thread lane, whatever the resources its tasks use, so that lanes using database connections (INTEGRATION,
+	 * ANALYSIS) can grow beyond the size of the connection pool. The maximum thread pool size should be kept below it
+	 * when enabling it.
+	 * @return the policy, null if adaptive concurrency is disabled
+	 */
+	public AdaptiveConcurrencyPolicy getAdaptiveConcurrencyPolicy() {
+		return this.adaptiveConcurrencyEnabled ? new AdaptiveConcurrencyPolicy(this.adaptiveConcurrencyMinThreadPoolSize, this.adaptiveConcurrencyMaxThreadPoolSize) : null;
+	}
+
+	/**
+	 * Returns the number of threads of the work-stealing COMPUTE lane : the configured size, otherwise the number of
+	 * processors available to the JVM (which follows the CPU quota of the container)
+	 * @return the parallelism of the COMPUTE lane
+	 */
+	public int getComputeParallelism() {
+		return this.computeThreadPoolSize > 0 ? this.computeThreadPoolSize : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns the configuration of all lanes other than the DEFAULT lane. When virtual threads are enabled the
+	 * I/O-bound lanes run on virtual threads, limited by the maximum concurrency rather than their thread pool size.
+	 * On a JVM without virtual threads (Java 8) these lanes run up to that number of platform threads instead (see
+	 * IoTaskThreadFactory).
+	 * @return the lane configurations
+	 */
+	public Map<TaskLane, TaskLaneConfiguration> getLaneConfigurations() {
+		Map<TaskLane, TaskLaneConfiguration> laneConfigurations = new EnumMap<>(TaskLane.class);
+		laneConfigurations.put(TaskLane.CONTROL, new TaskLaneConfiguration(this.controlThreadPoolSize, this.controlQueueCapacity));
+		laneConfigurations.put(TaskLane.IMPORT, new TaskLaneConfiguration(this.importThreadPoolSize, this.importQueueCapacity));
+		laneConfigurations.put(TaskLane.PAGE_INTEGRATION, new TaskLaneConfiguration(this.pageIntegrationThreadPoolSize, this.pageIntegrationQueueCapacity));
+		laneConfigurations.put(TaskLane.INTEGRATION, new TaskLaneConfiguration(this.integrationThreadPoolSize, this.integrationQueueCapacity));
+		laneConfigurations.put(TaskLane.DOWNLOAD, new TaskLaneConfiguration(this.downloadThreadPoolSize, this.downloadQueueCapacity));
+		laneConfigurations.put(TaskLane.RESOLVE, new TaskLaneConfiguration(this.resolveThreadPoolSize, this.resolveQueueCapacity));
+		laneConfigurations.put(TaskLane.ANALYSIS, new TaskLaneConfiguration(this.analysisThreadPoolSize, this.analysisQueueCapacity));
+		laneConfigurations.put(TaskLane.INDEX, new TaskLaneConfiguration(this.indexThreadPoolSize, this.indexQueueCapacity));
+		laneConfigurations.put(TaskLane.COMPUTE, new TaskLaneConfiguration(this.getComputeParallelism(), this.computeQueueCapacity, false, true));
+
+		if (this.virtualThreadsEnabled) {
+			for (TaskLane lane : TaskLane.values()) {
+				TaskLaneConfiguration laneConfiguration = laneConfigurations.get(lane);
+				if (lane.isIoBound() && laneConfiguration != null) {
+					laneConfigurations.put(lane, new TaskLaneConfiguration(this.virtualThreadsMaxConcurrency, laneConfiguration.getQueueCapacity(), true));
+				}
+			}
+		}
+
+		return laneConfigurations;
+	}
+}
@@ -22,4 +22,12 @@ public interface TaskMonitor extends TaskCompletionHandler {
 	 */
 	void onTaskWillStart(Task task);
 
+	/**
+	 * Callback interface when a task has terminated and its completion handler (if any) has been notified
+	 * @param task The task that has terminated
+	 * @param queuedTimeMillis The time at which the task was queued for the run that has terminated
+	 */
+	default void onTaskTerminated(Task task, long queuedTimeMillis) {
+	}
+
 }
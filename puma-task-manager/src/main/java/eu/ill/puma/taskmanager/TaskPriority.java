@@ -15,20 +15,19 @@
  */
 package eu.ill.puma.taskmanager;
 
+/**
+ * Priority of a task. Priorities are immutable: waiting tasks are aged by the TaskDispatcher (see
+ * TaskPriorityComparator) so that a higher priority only gives a head start rather than an absolute precedence.
+ */
 public class TaskPriority implements Comparable<TaskPriority> {
 
-	private static int defaultDefaultPriority = 0;
-	private static int defaultLowPriority = -100;
-	private static int defaultHighPriority = 100;
-	private static int defaultUrgentPriority = 1000;
-
-	public static TaskPriority DEFAULT = new TaskPriority(defaultDefaultPriority);
-	public static TaskPriority LOW = new TaskPriority(defaultLowPriority);
-	public static TaskPriority HIGH = new TaskPriority(defaultHighPriority);
-	public static TaskPriority URGENT = new TaskPriority(defaultUrgentPriority);
-	public static TaskPriority ASAP = new TaskPriority(999999);
+	public static final TaskPriority DEFAULT = new TaskPriority(0);
+	public static final TaskPriority LOW = new TaskPriority(-100);
+	public static final TaskPriority HIGH = new TaskPriority(100);
+	public static final TaskPriority URGENT = new TaskPriority(1000);
+	public static final TaskPriority ASAP = new TaskPriority(999999);
 
-	private int priority;
+	private final int priority;
 
 	public TaskPriority(int priority) {
 		this.priority = priority;
@@ -38,33 +37,8 @@ public class TaskPriority implements Comparable<TaskPriority> {
 		return priority;
 	}
 
-	public void setPriority(int priority) {
-		this.priority = priority;
-	}
-
-	public static void activatePriority() {
-		DEFAULT.setPriority(defaultDefaultPriority);
-		LOW.setPriority(defaultLowPriority);
-		HIGH.setPriority(defaultHighPriority);
-		URGENT.setPriority(defaultUrgentPriority);
-	}
-
-	public static void deactivatePriority() {
-		DEFAULT.setPriority(0);
-		DEFAULT.setPriority(0);
-		DEFAULT.setPriority(0);
-		DEFAULT.setPriority(0);
-	}
-
 	@Override
 	public int compareTo(TaskPriority other) {
-		if (this.priority < other.priority) {
-			return 1;
-
-		} else if (this.priority > other.priority) {
-			return -1;
-		}
-
-		return 0;
+		return Integer.compare(other.priority, this.priority);
 	}
 }
@@ -17,21 +17,27 @@ package eu.ill.puma.taskmanager;
 
 import java.util.Comparator;
 
+/**
+ * Orders queued tasks by their scheduling key : the time at which they were queued, brought forward by their
+ * priority multiplied by the aging period. A task therefore never waits behind tasks of higher priority queued
+ * more than (priority difference x aging period) after it, so low priority tasks cannot starve.
+ *
+ * The key is fixed when the task is queued so the order of the heap never needs to be rebuilt.
+ * Equal keys are ordered by execution number to maintain FIFO.
+ */
 public class TaskPriorityComparator<T extends TaskWrapper> implements Comparator<T> {
 
 	@Override
 	public int compare(T t1, T t2) {
 
-		// Compare priorities initially
-		int priorityComparison = t1.getPriority().compareTo(t2.getPriority());
-		if (priorityComparison != 0) {
-			return priorityComparison;
+		// Compare aged priorities initially
+		int keyComparison = Long.compare(t1.getSchedulingKey(), t2.getSchedulingKey());
+		if (keyComparison != 0) {
+			return keyComparison;
 		}
 
-		// Compare execution number if equal priority to maintain FIFO
-		int execComparison = (int)(t1.getExecutionNumber() - t2.getExecutionNumber());
-
-		return execComparison;
+		// Compare execution number if equal key to maintain FIFO
+		return Long.compare(t1.getExecutionNumber(), t2.getExecutionNumber());
 	}
 
 }
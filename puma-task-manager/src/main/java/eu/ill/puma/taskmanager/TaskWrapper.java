@@ -16,23 +16,65 @@
 package eu.ill.puma.taskmanager;
 
 import eu.ill.puma.core.error.PumaError;
+import eu.ill.puma.taskmanager.metrics.TaskClassMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Internal class to encapsulate the running of a Task.
  *
  * When a task has terminated this object performs callbacks on success and failure allowing the TaskManager
  * to be notified and perform necessary work.
+ *
+ * The stage of the wrapper is changed atomically so that a cancellation racing with a thread picking up the
+ * wrapper is resolved without locking: only one of them wins.
+ *
+ * The time spent in the queue and executing is recorded in the metrics of the task class.
+ *
+ * The completion handler is notified through the CompletionDispatcher (when set) rather than on the worker thread.
+ *
+ * Tasks with the same coalescing key submitted while the wrapper is queued are attached to it and terminated with the
+ * outcome of the wrapped task. The wrapper leaves the queued stage under its lock so that no task can be attached
+ * once it is running, cancelled or rejected.
+ *
+ * When the task has a deadline, the thread running it is interrupted once the deadline expires and the task is
+ * reported to the monitor and completion handler as timed out.
  */
 class TaskWrapper implements Runnable {
 
 	private static final Logger log = LoggerFactory.getLogger(TaskWrapper.class);
 
+	enum Stage {
+		QUEUED,
+		RUNNING,
+		CANCELLED,
+		TERMINATED
+	}
+
 	private Task task;
 	private TaskMonitor taskMonitor;
 	private TaskCompletionHandler taskCompletionHandler;
 	private long executionNumber;
+	private TaskClassMetrics taskClassMetrics;
+	private CompletionDispatcher completionDispatcher;
+	private long queuedNanoTime;
+	private long queuedTimeMillis = System.currentTimeMillis();
+	private long schedulingKey;
+	private long executionNanos;
+	private final AtomicReference<Stage> stage = new AtomicReference<>(Stage.QUEUED);
+	private List<Task> coalescedTasks;
+	private ScheduledExecutorService deadlineScheduler;
+	private Thread runningThread;
+	private ScheduledFuture<?> deadlineFuture;
 
 
 	public TaskWrapper(Task task, TaskMonitor taskMonitor) {
@@ -56,14 +98,40 @@ class TaskWrapper implements Runnable {
 	 */
 	@Override
 	public void run() {
+		// Ignore the wrapper if it has been cancelled while queued
+		if (!this.leaveQueue(Stage.RUNNING)) {
+			return;
+		}
+
+		long startNanoTime = System.nanoTime();
+		boolean executed = false;
+		boolean timedOut = false;
 		try {
 			// Callback on task completed
 			if (this.taskMonitor != null) {
 				this.taskMonitor.onTaskWillStart(this.task);
 			}
 
-			// Do the call
-			this.task.run();
+			// Do the call, within the deadline of the task
+			this.startDeadline();
+			try {
+				this.task.run();
+
+			} finally {
+				timedOut = this.stopDeadline();
+			}
+			executed = true;
+
+			// A task that returns after its deadline has expired is reported as timed out
+			if (timedOut && this.task.getState() == TaskState.RUNNING) {
+				this.onTimedOut(startNanoTime);
+				return;
+			}
+
+			// Record the metrics of the task
+			if (this.taskClassMetrics != null) {
+				this.taskClassMetrics.onCompleted(startNanoTime - this.queuedNanoTime, System.nanoTime() - startNanoTime);
+			}
 
 			// Update monitor
 			if (this.taskMonitor != null) {
@@ -71,13 +139,21 @@ class TaskWrapper implements Runnable {
 			}
 
 			// Callback on task completed
-			if (this.taskCompletionHandler != null) {
-				this.taskCompletionHandler.onTaskCompleted(this.task);
-			}
+			this.notifyCompleted();
 
 		} catch (Exception exception) {
+			if (timedOut && !executed && this.task.getState() == TaskState.RUNNING) {
+				this.onTimedOut(startNanoTime);
+				return;
+			}
+
 			log.error(exception.getMessage(), exception);
 
+			// Record the metrics of the task (unless the error comes from the completion handler)
+			if (this.taskClassMetrics != null && !executed) {
+				this.taskClassMetrics.onFailed(startNanoTime - this.queuedNanoTime, System.nanoTime() - startNanoTime);
+			}
+
 			PumaError pumaError = new PumaError("Exception occurred during task execution (" + exception.getMessage() + ")");
 			// Update monitor
 			if (this.taskMonitor != null) {
@@ -85,12 +161,220 @@ class TaskWrapper implements Runnable {
 			}
 
 			// Callback on task completed
-			if (this.taskCompletionHandler != null) {
-				this.taskCompletionHandler.onTaskError(this.task, pumaError);
+			this.notifyError(pumaError);
+
+		} finally {
+			this.executionNanos = System.nanoTime() - startNanoTime;
+			this.stage.set(Stage.TERMINATED);
+
+			// Terminate the tasks merged into this one
+			for (Task coalescedTask : this.getCoalescedTasks()) {
+				coalescedTask.onCoalescedTaskTerminated(this.task);
 			}
 		}
 	}
 
+	/**
+	 * Schedules the interruption of the running thread when the deadline of the task expires
+	 */
+	private void startDeadline() {
+		long timeoutMillis = this.task.getTimeoutMillis();
+		synchronized (this) {
+			this.runningThread = Thread.currentThread();
+			if (timeoutMillis > 0 && this.deadlineScheduler != null) {
+				this.deadlineFuture = this.deadlineScheduler.schedule(this::onDeadlineExpired, timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Cancels the deadline once the task has returned
+	 * @return true if the deadline expired while the task was running
+	 */
+	private boolean stopDeadline() {
+		synchronized (this) {
+			this.runningThread = null;
+			if (this.deadlineFuture != null) {
+				this.deadlineFuture.cancel(false);
+				this.deadlineFuture = null;
+			}
+		}
+
+		// Clear an interruption of the deadline so that it does not affect the next task run by the thread
+		boolean timedOut = this.task.getCancellationToken().isTimedOut();
+		if (timedOut) {
+			Thread.interrupted();
+		}
+
+		return timedOut;
+	}
+
+	private synchronized void onDeadlineExpired() {
+		if (this.runningThread != null && this.task.getCancellationToken().requestCancellation(CancellationToken.Reason.TIMED_OUT)) {
+			log.warn("Task " + this.task.getClass().getSimpleName() + " has exceeded its deadline of " + this.task.getTimeoutMillis() + "ms : interrupting it");
+			this.runningThread.interrupt();
+		}
+	}
+
+	private void onTimedOut(long startNanoTime) {
+		PumaError pumaError = new PumaError("Task timed out after " + this.task.getTimeoutMillis() + "ms");
+		this.task.onTimedOut(new TaskTimeoutException(pumaError.getMessage()));
+
+		// Record the metrics of the task
+		if (this.taskClassMetrics != null) {
+			this.taskClassMetrics.onTimedOut(startNanoTime - this.queuedNanoTime, System.nanoTime() - startNanoTime);
+		}
+
+		// Update monitor
+		if (this.taskMonitor != null) {
+			this.taskMonitor.onTaskError(this.task, pumaError);
+		}
+
+		// Callback on task timed out
+		TaskCompletionHandler taskCompletionHandler = this.taskCompletionHandler;
+		if (taskCompletionHandler != null) {
+			this.sendNotification(taskCompletionHandler, () -> taskCompletionHandler.onTaskTimeout(this.task, pumaError));
+
+		} else {
+			this.notifyTerminated();
+		}
+	}
+
+	/**
+	 * Attaches a task with the same coalescing key if the wrapper is still queued
+	 * @param task The task to merge into the wrapped task
+	 * @return true if the task has been attached, false if the wrapper has left the queue
+	 */
+	public synchronized boolean coalesce(Task task) {
+		if (this.stage.get() != Stage.QUEUED) {
+			return false;
+		}
+
+		if (this.coalescedTasks == null) {
+			this.coalescedTasks = new ArrayList<>();
+		}
+		this.coalescedTasks.add(task);
+
+		return true;
+	}
+
+	private synchronized boolean leaveQueue(Stage stage) {
+		return this.stage.compareAndSet(Stage.QUEUED, stage);
+	}
+
+	private synchronized List<Task> getCoalescedTasks() {
+		return this.coalescedTasks == null ? Collections.emptyList() : this.coalescedTasks;
+	}
+
+	/**
+	 * Cancels the wrapper if it has not yet been picked up by a thread
+	 * @return True if the wrapper was still queued and will not be run
+	 */
+	public boolean cancel() {
+		boolean cancelled = this.leaveQueue(Stage.CANCELLED);
+		if (cancelled && this.taskClassMetrics != null) {
+			this.taskClassMetrics.onCancelled();
+		}
+
+		// Cancel the tasks merged into this one
+		if (cancelled) {
+			for (Task coalescedTask : this.getCoalescedTasks()) {
+				coalescedTask.cancel();
+			}
+		}
+
+		return cancelled;
+	}
+
+	/**
+	 * Called when the wrapper cannot be queued : the task is failed and the monitor and completion handler are notified
+	 * @param pumaError The reason of the rejection
+	 */
+	public void reject(PumaError pumaError) {
+		if (!this.leaveQueue(Stage.TERMINATED)) {
+			return;
+		}
+
+		this.task.reject(new RejectedExecutionException(pumaError.getMessage()));
+		for (Task coalescedTask : this.getCoalescedTasks()) {
+			coalescedTask.reject(new RejectedExecutionException(pumaError.getMessage()));
+		}
+
+		if (this.taskClassMetrics != null) {
+			this.taskClassMetrics.onRejected();
+		}
+
+		// Update monitor
+		if (this.taskMonitor != null) {
+			this.taskMonitor.onTaskError(this.task, pumaError);
+		}
+
+		// Callback on task error
+		this.notifyError(pumaError);
+	}
+
+	private void notifyCompleted() {
+		TaskCompletionHandler taskCompletionHandler = this.taskCompletionHandler;
+		if (taskCompletionHandler != null) {
+			this.sendNotification(taskCompletionHandler, () -> {
+				try {
+					taskCompletionHandler.onTaskCompleted(this.task);
+
+				} catch (Exception exception) {
+					log.error(exception.getMessage(), exception);
+
+					taskCompletionHandler.onTaskError(this.task, new PumaError("Exception occurred during task completion (" + exception.getMessage() + ")"));
+				}
+			});
+
+		} else {
+			this.notifyTerminated();
+		}
+	}
+
+	private void notifyError(PumaError pumaError) {
+		TaskCompletionHandler taskCompletionHandler = this.taskCompletionHandler;
+		if (taskCompletionHandler != null) {
+			this.sendNotification(taskCompletionHandler, () -> taskCompletionHandler.onTaskError(this.task, pumaError));
+
+		} else {
+			this.notifyTerminated();
+		}
+	}
+
+	private void sendNotification(TaskCompletionHandler taskCompletionHandler, Runnable notification) {
+		// The monitor is told that the task has terminated once the handler has been notified
+		Runnable notificationAndTermination = () -> {
+			try {
+				notification.run();
+
+			} finally {
+				this.notifyTerminated();
+			}
+		};
+
+		if (this.completionDispatcher != null) {
+			this.completionDispatcher.dispatch(taskCompletionHandler, notificationAndTermination);
+
+		} else {
+			notificationAndTermination.run();
+		}
+	}
+
+	private void notifyTerminated() {
+		if (this.taskMonitor != null) {
+			this.taskMonitor.onTaskTerminated(this.task, this.queuedTimeMillis);
+		}
+	}
+
+	/**
+	 * Returns the time spent running the task and notifying the monitor
+	 * @return The execution time in nanoseconds (0 if the task has not been run)
+	 */
+	public long getExecutionNanos() {
+		return executionNanos;
+	}
+
 	/**
 	 * Returns the encapsulated task
 	 * @return the task
@@ -99,8 +383,38 @@ class TaskWrapper implements Runnable {
 		return task;
 	}
 
-	public void onAddedToThreadPool(long executionNumber) {
+	/**
+	 * Sets the dispatcher notifying the completion handler (the handler is called directly by the worker thread if null)
+	 * @param completionDispatcher The completion dispatcher
+	 */
+	public void setCompletionDispatcher(CompletionDispatcher completionDispatcher) {
+		this.completionDispatcher = completionDispatcher;
+	}
+
+	/**
+	 * Sets the scheduler enforcing the deadline of the task (the deadline is ignored if null)
+	 * @param deadlineScheduler The deadline scheduler
+	 */
+	public void setDeadlineScheduler(ScheduledExecutorService deadlineScheduler) {
+		this.deadlineScheduler = deadlineScheduler;
+	}
+
+	/**
+	 * Called by the TaskDispatcher when the wrapper is queued
+	 * @param executionNumber The order of submission
+	 * @param priorityAgingNanos The time by which a unit of priority brings the scheduling key forward
+	 * @param taskClassMetrics The metrics of the task class (can be null)
+	 */
+	public void onAddedToThreadPool(long executionNumber, long priorityAgingNanos, TaskClassMetrics taskClassMetrics) {
 		this.executionNumber = executionNumber;
+		this.taskClassMetrics = taskClassMetrics;
+		this.queuedNanoTime = System.nanoTime();
+		this.queuedTimeMillis = System.currentTimeMillis();
+		this.schedulingKey = this.queuedNanoTime - this.task.getPriority().getPriority() * priorityAgingNanos;
+
+		if (taskClassMetrics != null) {
+			taskClassMetrics.onQueued();
+		}
 
 		this.task.onAddedToThreadPool();
 	}
@@ -108,4 +422,8 @@ class TaskWrapper implements Runnable {
 	public long getExecutionNumber() {
 		return executionNumber;
 	}
+
+	public long getSchedulingKey() {
+		return schedulingKey;
+	}
 }
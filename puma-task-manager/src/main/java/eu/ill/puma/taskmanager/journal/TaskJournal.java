@@ -0,0 +1,410 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.journal;
+
+import eu.ill.puma.taskmanager.TaskPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only journal of the tasks submitted to the Task Manager. A record is appended when a task having a journal key
+ * is submitted and when it terminates, so that the tasks outstanding when the application stops (or crashes) are known
+ * on restart without scanning the database. The journal is periodically compacted : it is rewritten with only the
+ * outstanding tasks.
+ *
+ * Records are lines of tab separated fields :
+ *  S priority key : a task has been submitted
+ *  T key          : a task has terminated
+ *  P priority key : a task outstanding from a previous run is waiting to be recovered
+ *  R key          : a task outstanding from a previous run has been recovered
+ *
+ * Records are written by a writer thread : submissions and terminations only queue them, and the records queued
+ * meanwhile are written and flushed to the file system together. A crash of the application loses at most the records
+ * not yet written (a task submitted just before is not recovered, one terminated just before is run again).
+ */
+public class TaskJournal {
+
+	private static final Logger log = LoggerFactory.getLogger(TaskJournal.class);
+
+	private static final Comparator<TaskJournalEntry> ENTRY_ORDER = Comparator
+			.comparingInt(TaskJournalEntry::getPriority).reversed()
+			.thenComparingLong(TaskJournalEntry::getSequence);
+
+	private final Path path;
+	private final Map<String, TaskJournalEntry> outstandingEntries = new LinkedHashMap<>();
+	private final Map<String, TaskJournalEntry> recoveredEntries = new LinkedHashMap<>();
+	private List<String> pendingRecords = new ArrayList<>();
+	private long nextSequence = 0;
+	private long numberOfRecords = 0;
+	private boolean recovered = false;
+	private boolean closed = false;
+	private Thread writerThread;
+
+	// Lock of the journal file, taken before the lock of the journal
+	private final Object fileLock = new Object();
+	private Writer writer;
+
+	public TaskJournal(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Opens the journal : the records of a previous run are replayed and the tasks that were outstanding are kept
+	 * to be recovered (see takeRecoveredEntries). The journal is then compacted and new records are appended to it.
+	 * @throws IOException if the journal cannot be read or written
+	 */
+	public void open() throws IOException {
+		Path parent = this.path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		synchronized (this.fileLock) {
+			synchronized (this) {
+				if (Files.exists(this.path)) {
+					this.replay();
+					this.recovered = true;
+
+					// Tasks outstanding from the previous run are recovered by their submitters
+					for (TaskJournalEntry entry : this.outstandingEntries.values()) {
+						this.recoveredEntries.putIfAbsent(entry.getKey(), entry);
+					}
+					this.outstandingEntries.clear();
+
+					log.info("Task journal " + this.path + " has " + this.recoveredEntries.size() + " tasks to recover");
+				}
+
+				this.compactJournal();
+
+				this.writerThread = new Thread(this::writeRecords, "TaskJournalWriter");
+				this.writerThread.setDaemon(true);
+				this.writerThread.start();
+			}
+		}
+	}
+
+	private void replay() throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(this.path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+
+				if (fields.length == 3 && fields[0].equals("S")) {
+					this.addEntry(this.outstandingEntries, fields[2], parsePriority(fields[1]));
+
+				} else if (fields.length == 2 && fields[0].equals("T")) {
+					this.removeEntry(this.outstandingEntries, fields[1]);
+
+				} else if (fields.length == 3 && fields[0].equals("P")) {
+					this.addEntry(this.recoveredEntries, fields[2], parsePriority(fields[1]));
+
+				} else if (fields.length == 2 && fields[0].equals("R")) {
+					this.recoveredEntries.remove(fields[1]);
+
+				} else if (!line.isEmpty()) {
+					// Last record truncated by a crash
+					log.warn("Ignoring malformed record in task journal " + this.path + " : " + line);
+				}
+			}
+		}
+	}
+
+	private static int parsePriority(String priority) {
+		try {
+			return Integer.parseInt(priority);
+
+		} catch (NumberFormatException e) {
+			return TaskPriority.DEFAULT.getPriority();
+		}
+	}
+
+	private void addEntry(Map<String, TaskJournalEntry> entries, String key, int priority) {
+		entries.computeIfAbsent(key, k -> new TaskJournalEntry(k, priority, this.nextSequence++)).increment();
+	}
+
+	private void removeEntry(Map<String, TaskJournalEntry> entries, String key) {
+		TaskJournalEntry entry = entries.get(key);
+		if (entry != null && entry.decrement() <= 0) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Records the submission of a task
+	 * @param key The journal key of the task
+	 * @param priority The priority of the task
+	 */
+	public synchronized void onTaskSubmitted(String key, TaskPriority priority) {
+		if (!isValidKey(key)) {
+			return;
+		}
+
+		this.addEntry(this.outstandingEntries, key, priority.getPriority());
+		this.append("S\t" + priority.getPriority() + "\t" + key);
+	}
+
+	/**
+	 * Records the termination (completion, failure or cancellation) of a task
+	 * @param key The journal key of the task
+	 */
+	public synchronized void onTaskTerminated(String key) {
+		if (!isValidKey(key) || !this.outstandingEntries.containsKey(key)) {
+			return;
+		}
+
+		this.removeEntry(this.outstandingEntries, key);
+		this.append("T\t" + key);
+	}
+
+	private static boolean isValidKey(String key) {
+		return key != null && !key.isEmpty() && key.indexOf('\t') < 0 && key.indexOf('\n') < 0 && key.indexOf('\r') < 0;
+	}
+
+	private void append(String record) {
+		if (this.writerThread == null || this.closed) {
+			return;
+		}
+
+		this.pendingRecords.add(record);
+		this.numberOfRecords++;
+
+		if (this.pendingRecords.size() == 1) {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Writes the queued records until the journal is closed, flushing them once per batch
+	 */
+	private void writeRecords() {
+		while (true) {
+			synchronized (this) {
+				while (this.pendingRecords.isEmpty() && !this.closed) {
+					try {
+						this.wait();
+
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+
+				// Records queued before the journal was closed are written
+				if (this.pendingRecords.isEmpty()) {
+					return;
+				}
+			}
+
+			synchronized (this.fileLock) {
+				// Taken with the file lock so that a compaction cannot write them as well
+				List<String> records;
+				synchronized (this) {
+					records = this.pendingRecords;
+					this.pendingRecords = new ArrayList<>();
+				}
+
+				this.write(records);
+			}
+		}
+	}
+
+	private void write(List<String> records) {
+		if (this.writer == null) {
+			return;
+		}
+
+		try {
+			for (String record : records) {
+				this.writer.write(record);
+				this.writer.write('\n');
+			}
+			this.writer.flush();
+
+		} catch (IOException e) {
+			log.error("Failed to write to task journal " + this.path + " : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns true if the journal of a previous run has been found when the journal was opened
+	 * @return true if tasks can be recovered from the journal
+	 */
+	public synchronized boolean isRecovered() {
+		return recovered;
+	}
+
+	/**
+	 * Removes and returns the tasks of a given type that were outstanding when the previous run stopped, ordered by
+	 * priority (highest first) then by submission. The caller is expected to submit the tasks again.
+	 * @param type The type of the tasks (the part of their journal key before ':')
+	 * @return The recovered tasks of the type
+	 */
+	public synchronized List<TaskJournalEntry> takeRecoveredEntries(String type) {
+		List<TaskJournalEntry> entries = new ArrayList<>();
+
+		Iterator<TaskJournalEntry> iterator = this.recoveredEntries.values().iterator();
+		while (iterator.hasNext()) {
+			TaskJournalEntry entry = iterator.next();
+			if (entry.getType().equals(type)) {
+				iterator.remove();
+				entries.add(entry);
+				this.append("R\t" + entry.getKey());
+			}
+		}
+
+		entries.sort(ENTRY_ORDER);
+
+		return entries;
+	}
+
+	/**
+	 * Returns the tasks currently outstanding, ordered by priority (highest first) then by submission
+	 * @return The outstanding tasks
+	 */
+	public synchronized List<TaskJournalEntry> getOutstandingEntries() {
+		return this.outstandingEntries.values().stream().sorted(ENTRY_ORDER).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the number of records appended (written or queued) since the last compaction
+	 * @return The number of records
+	 */
+	public synchronized long getNumberOfRecords() {
+		return numberOfRecords;
+	}
+
+	/**
+	 * Rewrites the journal with only the outstanding tasks and the tasks still to be recovered. The new journal is
+	 * written to a temporary file that then atomically replaces the journal.
+	 */
+	public void compact() {
+		synchronized (this.fileLock) {
+			synchronized (this) {
+				this.compactJournal();
+			}
+		}
+	}
+
+	private void compactJournal() {
+		if (this.closed) {
+			return;
+		}
+
+		Path compactedPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+
+		try {
+			try (BufferedWriter compactedWriter = Files.newBufferedWriter(compactedPath, StandardCharsets.UTF_8)) {
+				for (TaskJournalEntry entry : this.recoveredEntries.values().stream().sorted(ENTRY_ORDER).collect(Collectors.toList())) {
+					compactedWriter.write("P\t" + entry.getPriority() + "\t" + entry.getKey() + "\n");
+				}
+
+				for (TaskJournalEntry entry : this.getOutstandingEntries()) {
+					for (int i = 0; i < entry.getCount(); i++) {
+						compactedWriter.write("S\t" + entry.getPriority() + "\t" + entry.getKey() + "\n");
+					}
+				}
+			}
+
+			this.closeWriter();
+			Files.move(compactedPath, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			this.writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			this.numberOfRecords = 0;
+
+			// The queued records are part of the compacted journal
+			this.pendingRecords.clear();
+
+		} catch (IOException e) {
+			log.error("Failed to compact task journal " + this.path + " : " + e.getMessage());
+
+			// Keep appending to the current journal
+			if (this.writer == null) {
+				try {
+					this.writer = Files.newBufferedWriter(this.path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+				} catch (IOException e1) {
+					log.error("Failed to reopen task journal " + this.path + " : " + e1.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the journal : later submissions and terminations are no longer recorded so that the tasks outstanding
+	 * at shutdown are recovered on the next run
+	 */
+	public void close() {
+		Thread writerThread;
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			this.notifyAll();
+
+			writerThread = this.writerThread;
+		}
+
+		// Wait for the records queued until now to be written
+		if (writerThread != null) {
+			try {
+				writerThread.join();
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized (this.fileLock) {
+			this.closeWriter();
+		}
+	}
+
+	private void closeWriter() {
+		if (this.writer != null) {
+			try {
+				this.writer.close();
+
+			} catch (IOException e) {
+				log.error("Failed to close task journal " + this.path + " : " + e.getMessage());
+			}
+			this.writer = null;
+		}
+	}
+
+	/**
+	 * Returns the path of the journal file
+	 * @return The path
+	 */
+	public Path getPath() {
+		return path;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.journal;
+
+/**
+ * A task recorded in the task journal, identified by its journal key ("type:id", eg "download:42")
+ */
+public class TaskJournalEntry {
+
+	private final String key;
+	private final int priority;
+	private final long sequence;
+	private int count;
+
+	public TaskJournalEntry(String key, int priority, long sequence) {
+		this.key = key;
+		this.priority = priority;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Returns the journal key of the task
+	 * @return The journal key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the type of the task : the part of the key before the first ':'
+	 * @return The type of the task
+	 */
+	public String getType() {
+		int separator = this.key.indexOf(':');
+
+		return separator >= 0 ? this.key.substring(0, separator) : this.key;
+	}
+
+	/**
+	 * Returns the identifier of the work done by the task : the part of the key after the first ':'
+	 * @return The identifier (null if the key has no identifier)
+	 */
+	public String getId() {
+		int separator = this.key.indexOf(':');
+
+		return separator >= 0 ? this.key.substring(separator + 1) : null;
+	}
+
+	/**
+	 * Returns the identifier as a database id
+	 * @return The identifier as a long (null if the key has no numeric identifier)
+	 */
+	public Long getIdAsLong() {
+		try {
+			String id = this.getId();
+			return id != null ? Long.valueOf(id) : null;
+
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the priority of the task when it was submitted
+	 * @return The priority value
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Returns the order in which the key was first submitted
+	 * @return The sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	int increment() {
+		return ++this.count;
+	}
+
+	int decrement() {
+		return --this.count;
+	}
+
+	@Override
+	public String toString() {
+		return this.key + " (priority " + this.priority + ")";
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic (power of 2) buckets at microsecond resolution.
+ *
+ * Recording is constant time and memory is fixed whatever the number of recorded values. Percentiles are
+ * approximated by the upper bound of the bucket containing them (at most a factor 2 above the real value).
+ */
+public class LatencyHistogram {
+
+	private static final int NUMBER_OF_BUCKETS = 42;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sumMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * Records a latency
+	 * @param nanos The latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+		int bucket = Math.min(NUMBER_OF_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+		this.buckets.incrementAndGet(bucket);
+		this.count.incrementAndGet();
+		this.sumMicros.addAndGet(micros);
+
+		long currentMax;
+		do {
+			currentMax = this.maxMicros.get();
+		} while (micros > currentMax && !this.maxMicros.compareAndSet(currentMax, micros));
+	}
+
+	/**
+	 * Returns a snapshot of the histogram
+	 * @return The latency statistics
+	 */
+	public LatencyStatistics getStatistics() {
+		long[] bucketCounts = new long[NUMBER_OF_BUCKETS];
+		long total = 0;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			bucketCounts[i] = this.buckets.get(i);
+			total += bucketCounts[i];
+		}
+
+		long maxMicros = this.maxMicros.get();
+
+		LatencyStatistics statistics = new LatencyStatistics();
+		statistics.setCount(total);
+		statistics.setMaxMillis(maxMicros / 1000.0);
+		statistics.setMeanMillis(total == 0 ? 0.0 : this.sumMicros.get() / 1000.0 / this.count.get());
+		statistics.setP50Millis(this.getPercentileMillis(bucketCounts, total, 0.50, maxMicros));
+		statistics.setP95Millis(this.getPercentileMillis(bucketCounts, total, 0.95, maxMicros));
+		statistics.setP99Millis(this.getPercentileMillis(bucketCounts, total, 0.99, maxMicros));
+
+		return statistics;
+	}
+
+	private double getPercentileMillis(long[] bucketCounts, long total, double percentile, long maxMicros) {
+		if (total == 0) {
+			return 0.0;
+		}
+
+		long rank = (long)Math.ceil(percentile * total);
+		long cumulativeCount = 0;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			cumulativeCount += bucketCounts[i];
+			if (cumulativeCount >= rank) {
+				// Upper bound of the bucket (values in bucket i are below 2^i microseconds)
+				long upperBoundMicros = i == 0 ? 0 : (1L << i) - 1;
+				return Math.min(upperBoundMicros, maxMicros) / 1000.0;
+			}
+		}
+
+		return maxMicros / 1000.0;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures a rate of events as a one-minute exponentially weighted moving average, updated every 5 seconds.
+ */
+public class RateMeter {
+
+	private static final long TICK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final double ALPHA = 1.0 - Math.exp(-5.0 / 60.0);
+
+	private final LongAdder uncounted = new LongAdder();
+	private final AtomicLong lastTick;
+	private volatile boolean initialised = false;
+	private volatile double ratePerNano = 0.0;
+
+	public RateMeter() {
+		this.lastTick = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Records an event
+	 */
+	public void mark() {
+		this.tickIfNecessary();
+		this.uncounted.increment();
+	}
+
+	/**
+	 * Returns the one minute moving average rate
+	 * @return The number of events per minute
+	 */
+	public double getRatePerMinute() {
+		this.tickIfNecessary();
+
+		return this.ratePerNano * TimeUnit.MINUTES.toNanos(1);
+	}
+
+	private void tickIfNecessary() {
+		long oldTick = this.lastTick.get();
+		long newTick = System.nanoTime();
+		long age = newTick - oldTick;
+		if (age > TICK_INTERVAL_NANOS) {
+			long newIntervalStartTick = newTick - age % TICK_INTERVAL_NANOS;
+			if (this.lastTick.compareAndSet(oldTick, newIntervalStartTick)) {
+				long requiredTicks = age / TICK_INTERVAL_NANOS;
+				for (long i = 0; i < requiredTicks; i++) {
+					this.tick();
+				}
+			}
+		}
+	}
+
+	private synchronized void tick() {
+		double instantRate = (double)this.uncounted.sumThenReset() / TICK_INTERVAL_NANOS;
+		if (this.initialised) {
+			this.ratePerNano += ALPHA * (instantRate - this.ratePerNano);
+
+		} else {
+			this.ratePerNano = instantRate;
+			this.initialised = true;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lifecycle metrics of a single task class : counters, rates and latency histograms
+ */
+public class TaskClassMetrics {
+
+	private final String taskClass;
+
+	private final LongAdder numberOfQueuedTasks = new LongAdder();
+	private final LongAdder numberOfCompletedTasks = new LongAdder();
+	private final LongAdder numberOfFailedTasks = new LongAdder();
+	private final LongAdder numberOfRejectedTasks = new LongAdder();
+	private final LongAdder numberOfCancelledTasks = new LongAdder();
+	private final LongAdder numberOfCoalescedTasks = new LongAdder();
+	private final LongAdder numberOfTimedOutTasks = new LongAdder();
+
+	private final RateMeter completionRate = new RateMeter();
+	private final RateMeter failureRate = new RateMeter();
+
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+	private final LatencyHistogram execution = new LatencyHistogram();
+	private final LatencyHistogram total = new LatencyHistogram();
+
+	public TaskClassMetrics(String taskClass) {
+		this.taskClass = taskClass;
+	}
+
+	public void onQueued() {
+		this.numberOfQueuedTasks.increment();
+	}
+
+	public void onCompleted(long queueWaitNanos, long executionNanos) {
+		this.numberOfCompletedTasks.increment();
+		this.completionRate.mark();
+		this.recordLatencies(queueWaitNanos, executionNanos);
+	}
+
+	public void onFailed(long queueWaitNanos, long executionNanos) {
+		this.numberOfFailedTasks.increment();
+		this.failureRate.mark();
+		this.recordLatencies(queueWaitNanos, executionNanos);
+	}
+
+	public void onTimedOut(long queueWaitNanos, long executionNanos) {
+		this.numberOfTimedOutTasks.increment();
+		this.onFailed(queueWaitNanos, executionNanos);
+	}
+
+	public void onRejected() {
+		this.numberOfRejectedTasks.increment();
+		this.failureRate.mark();
+	}
+
+	public void onCancelled() {
+		this.numberOfCancelledTasks.increment();
+	}
+
+	public void onCoalesced() {
+		this.numberOfCoalescedTasks.increment();
+	}
+
+	private void recordLatencies(long queueWaitNanos, long executionNanos) {
+		this.queueWait.record(queueWaitNanos);
+		this.execution.record(executionNanos);
+		this.total.record(queueWaitNanos + executionNanos);
+	}
+
+	/**
+	 * Returns a snapshot of the metrics
+	 * @return The task class statistics
+	 */
+	public TaskClassStatistics getStatistics() {
+		TaskClassStatistics statistics = new TaskClassStatistics();
+		statistics.setTaskClass(this.taskClass);
+		statistics.setNumberOfQueuedTasks(this.numberOfQueuedTasks.sum());
+		statistics.setNumberOfCompletedTasks(this.numberOfCompletedTasks.sum());
+		statistics.setNumberOfFailedTasks(this.numberOfFailedTasks.sum());
+		statistics.setNumberOfRejectedTasks(this.numberOfRejectedTasks.sum());
+		statistics.setNumberOfCancelledTasks(this.numberOfCancelledTasks.sum());
+		statistics.setNumberOfCoalescedTasks(this.numberOfCoalescedTasks.sum());
+		statistics.setNumberOfTimedOutTasks(this.numberOfTimedOutTasks.sum());
+		statistics.setCompletionRatePerMinute(this.completionRate.getRatePerMinute());
+		statistics.setFailureRatePerMinute(this.failureRate.getRatePerMinute());
+		statistics.setQueueWait(this.queueWait.getStatistics());
+		statistics.setExecution(this.execution.getStatistics());
+		statistics.setTotal(this.total.getStatistics());
+
+		return statistics;
+	}
+}
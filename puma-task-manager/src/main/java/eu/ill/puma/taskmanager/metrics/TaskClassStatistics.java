@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.metrics;
+
+/**
+ * Snapshot of the lifecycle metrics of a task class, used for monitoring
+ */
+public class TaskClassStatistics {
+
+	private String taskClass;
+	private long numberOfQueuedTasks;
+	private long numberOfCompletedTasks;
+	private long numberOfFailedTasks;
+	private long numberOfRejectedTasks;
+	private long numberOfCancelledTasks;
+	private long numberOfCoalescedTasks;
+	private long numberOfTimedOutTasks;
+	private double completionRatePerMinute;
+	private double failureRatePerMinute;
+	private LatencyStatistics queueWait;
+	private LatencyStatistics execution;
+	private LatencyStatistics total;
+
+	public String getTaskClass() {
+		return taskClass;
+	}
+
+	public void setTaskClass(String taskClass) {
+		this.taskClass = taskClass;
+	}
+
+	public long getNumberOfQueuedTasks() {
+		return numberOfQueuedTasks;
+	}
+
+	public void setNumberOfQueuedTasks(long numberOfQueuedTasks) {
+		this.numberOfQueuedTasks = numberOfQueuedTasks;
+	}
+
+	public long getNumberOfCompletedTasks() {
+		return numberOfCompletedTasks;
+	}
+
+	public void setNumberOfCompletedTasks(long numberOfCompletedTasks) {
+		this.numberOfCompletedTasks = numberOfCompletedTasks;
+	}
+
+	public long getNumberOfFailedTasks() {
+		return numberOfFailedTasks;
+	}
+
+	public void setNumberOfFailedTasks(long numberOfFailedTasks) {
+		this.numberOfFailedTasks = numberOfFailedTasks;
+	}
+
+	public long getNumberOfRejectedTasks() {
+		return numberOfRejectedTasks;
+	}
+
+	public void setNumberOfRejectedTasks(long numberOfRejectedTasks) {
+		this.numberOfRejectedTasks = numberOfRejectedTasks;
+	}
+
+	public long getNumberOfCancelledTasks() {
+		return numberOfCancelledTasks;
+	}
+
+	public void setNumberOfCancelledTasks(long numberOfCancelledTasks) {
+		this.numberOfCancelledTasks = numberOfCancelledTasks;
+	}
+
+	public long getNumberOfCoalescedTasks() {
+		return numberOfCoalescedTasks;
+	}
+
+	public void setNumberOfCoalescedTasks(long numberOfCoalescedTasks) {
+		this.numberOfCoalescedTasks = numberOfCoalescedTasks;
+	}
+
+	public long getNumberOfTimedOutTasks() {
+		return numberOfTimedOutTasks;
+	}
+
+	public void setNumberOfTimedOutTasks(long numberOfTimedOutTasks) {
+		this.numberOfTimedOutTasks = numberOfTimedOutTasks;
+	}
+
+	public double getCompletionRatePerMinute() {
+		return completionRatePerMinute;
+	}
+
+	public void setCompletionRatePerMinute(double completionRatePerMinute) {
+		this.completionRatePerMinute = completionRatePerMinute;
+	}
+
+	public double getFailureRatePerMinute() {
+		return failureRatePerMinute;
+	}
+
+	public void setFailureRatePerMinute(double failureRatePerMinute) {
+		this.failureRatePerMinute = failureRatePerMinute;
+	}
+
+	public LatencyStatistics getQueueWait() {
+		return queueWait;
+	}
+
+	public void setQueueWait(LatencyStatistics queueWait) {
+		this.queueWait = queueWait;
+	}
+
+	public LatencyStatistics getExecution() {
+		return execution;
+	}
+
+	public void setExecution(LatencyStatistics execution) {
+		this.execution = execution;
+	}
+
+	public LatencyStatistics getTotal() {
+		return total;
+	}
+
+	public void setTotal(LatencyStatistics total) {
+		this.total = total;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates the lifecycle of executed tasks per task class: how long tasks wait in the queue, how long they run,
+ * and how many complete, fail, are rejected or cancelled.
+ */
+public class TaskMetrics {
+
+	private final Map<Class<?>, TaskClassMetrics> taskClassMetrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the metrics of a task class, creating them if needed
+	 * @param taskClass The class of the task
+	 * @return The metrics of the task class
+	 */
+	public TaskClassMetrics getTaskClassMetrics(Class<?> taskClass) {
+		return this.taskClassMetrics.computeIfAbsent(taskClass, key -> new TaskClassMetrics(key.getSimpleName()));
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of all task classes, ordered by task class name
+	 * @return The list of task class statistics
+	 */
+	public List<TaskClassStatistics> getStatistics() {
+		List<TaskClassStatistics> statistics = new ArrayList<>();
+		for (TaskClassMetrics metrics : this.taskClassMetrics.values()) {
+			statistics.add(metrics.getStatistics());
+		}
+		statistics.sort(Comparator.comparing(TaskClassStatistics::getTaskClass));
+
+		return statistics;
+	}
+
+	/**
+	 * Removes all metrics
+	 */
+	public void clear() {
+		this.taskClassMetrics.clear();
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.pipeline;
+
+import eu.ill.puma.taskmanager.TaskManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chains the stages of the life of each document : when a component signals that a document has completed a stage,
+ * the handlers of that stage (the components performing the next stage) are called straight away with the document.
+ *
+ * Documents completing a stage are accumulated and dispatched in batches by a single PipelineStageTask per stage
+ * (coalesced in the task manager), so that a burst of completions does not flood the CONTROL lane. The scheduled jobs
+ * still pick up any document missed by the pipeline (eg after a restart).
+ */
+@Component
+public class DocumentPipeline {
+
+	private static final Logger log = LoggerFactory.getLogger(DocumentPipeline.class);
+
+	@Autowired
+	private TaskManager taskManager;
+
+	@Value("${puma.taskManager.pipeline.enabled}")
+	private boolean enabled;
+
+	private Map<PipelineStage, List<PipelineStageHandler>> stageHandlers = new EnumMap<>(PipelineStage.class);
+	private Map<PipelineStage, Set<Long>> pendingDocumentVersionIds = new EnumMap<>(PipelineStage.class);
+	private Map<PipelineStage, AtomicLong> numberOfDispatchedDocuments = new EnumMap<>(PipelineStage.class);
+
+	public DocumentPipeline() {
+		for (PipelineStage stage : PipelineStage.values()) {
+			this.stageHandlers.put(stage, new CopyOnWriteArrayList<>());
+			this.pendingDocumentVersionIds.put(stage, new LinkedHashSet<>());
+			this.numberOfDispatchedDocuments.put(stage, new AtomicLong());
+		}
+	}
+
+	/**
+	 * Registers a handler to be called with the documents completing a stage
+	 * @param stage The stage
+	 * @param handler The handler starting the next stage
+	 */
+	public void addStageHandler(PipelineStage stage, PipelineStageHandler handler) {
+		this.stageHandlers.get(stage).add(handler);
+	}
+
+	/**
+	 * Signals that a document version has completed a stage
+	 * @param stage The completed stage
+	 * @param documentVersionId The document version id
+	 */
+	public void onStageCompleted(PipelineStage stage, Long documentVersionId) {
+		this.onStageCompleted(stage, Collections.singletonList(documentVersionId));
+	}
+
+	/**
+	 * Signals that document versions have completed a stage
+	 * @param stage The completed stage
+	 * @param documentVersionIds The document version ids
+	 */
+	public void onStageCompleted(PipelineStage stage, Collection<Long> documentVersionIds) {
+		if (!this.enabled || documentVersionIds.isEmpty() || this.stageHandlers.get(stage).isEmpty()) {
+			return;
+		}
+
+		Set<Long> pendingIds = this.pendingDocumentVersionIds.get(stage);
+		synchronized (pendingIds) {
+			pendingIds.addAll(documentVersionIds);
+		}
+
+		// Merged with the dispatch task of the stage if one is already pending
+		this.taskManager.executeTask(new PipelineStageTask(this, stage));
+	}
+
+	/**
+	 * Calls the handlers of a stage with all the documents that have completed it since the last dispatch
+	 * @param stage The stage
+	 * @return The number of dispatched documents
+	 */
+	int dispatch(PipelineStage stage) {
+		List<Long> documentVersionIds;
+		Set<Long> pendingIds = this.pendingDocumentVersionIds.get(stage);
+		synchronized (pendingIds) {
+			documentVersionIds = new ArrayList<>(pendingIds);
+			pendingIds.clear();
+		}
+
+		if (documentVersionIds.isEmpty()) {
+			return 0;
+		}
+
+		log.debug("Pipeline stage " + stage + " completed for " + documentVersionIds.size() + " document versions");
+		this.numberOfDispatchedDocuments.get(stage).addAndGet(documentVersionIds.size());
+
+		for (PipelineStageHandler handler : this.stageHandlers.get(stage)) {
+			try {
+				handler.onStageCompleted(documentVersionIds);
+
+			} catch (Exception e) {
+				log.error("Failed to start the stage following " + stage + " : " + e.getMessage(), e);
+			}
+		}
+
+		return documentVersionIds.size();
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getNumberOfPendingDocuments(PipelineStage stage) {
+		Set<Long> pendingIds = this.pendingDocumentVersionIds.get(stage);
+		synchronized (pendingIds) {
+			return pendingIds.size();
+		}
+	}
+
+	public long getNumberOfDispatchedDocuments(PipelineStage stage) {
+		return this.numberOfDispatchedDocuments.get(stage).get();
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.pipeline;
+
+/**
+ * The stages of the life of a document after which the next stage can start immediately, rather than waiting for the
+ * next run of the scheduled jobs :
+ *
+ * import (+ cache) -> FILES_SAVED -> analysis -> ANALYSED -> indexation
+ */
+public enum PipelineStage {
+	/**
+	 * All the file downloads of the document version have terminated (or none was needed)
+	 */
+	FILES_SAVED,
+
+	/**
+	 * No further analysis is needed for the document version with the current analyser setup
+	 */
+	ANALYSED
+}
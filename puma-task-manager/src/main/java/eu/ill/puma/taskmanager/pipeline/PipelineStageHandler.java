@@ -0,0 +1,31 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.pipeline;
+
+import java.util.List;
+
+/**
+ * Callback interface of a component that starts the next stage for the documents having completed a pipeline stage
+ */
+public interface PipelineStageHandler {
+
+	/**
+	 * Called (on the CONTROL lane) with the batch of document versions having completed the stage
+	 * @param documentVersionIds The document version ids
+	 */
+	void onStageCompleted(List<Long> documentVersionIds);
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.pipeline;
+
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
+import eu.ill.puma.taskmanager.TaskPriority;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+
+@ExecutionLane(TaskLane.CONTROL)
+public class PipelineStageTask extends Task<Integer> {
+
+	private DocumentPipeline documentPipeline;
+	private PipelineStage stage;
+
+	public PipelineStageTask(DocumentPipeline documentPipeline, PipelineStage stage) {
+		this.documentPipeline = documentPipeline;
+		this.stage = stage;
+		this.setPriority(TaskPriority.ASAP);
+	}
+
+	@Override
+	public Integer execute() throws Exception {
+		return this.documentPipeline.dispatch(this.stage);
+	}
+
+	public PipelineStage getStage() {
+		return this.stage;
+	}
+
+	@Override
+	public String getCoalescingKey() {
+		// A single pending task dispatches all the documents having completed the stage in the meantime
+		return "pipeline:" + this.stage;
+	}
+}
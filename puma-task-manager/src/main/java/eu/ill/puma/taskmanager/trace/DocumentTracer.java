@@ -0,0 +1,418 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records the lifecycle of documents : when a task having document versions in its trace context terminates, a span
+ * with its queue and run times is recorded for each document version. Spans are kept in a bounded ring buffer (the
+ * oldest spans are overwritten) and can optionally be appended to a file in the OpenTelemetry (OTLP JSON) format,
+ * one export request per line, to be loaded by an OpenTelemetry collector.
+ *
+ * Spans are exported by a writer thread : terminating tasks only queue them, and the spans queued meanwhile are written
+ * and flushed together. Spans are dropped rather than queued if the writer falls behind by more than the capacity of
+ * the buffer. The export file is rotated when it reaches its maximum size : it is renamed with a ".1" suffix (replacing
+ * the previous one) and a new file is started, so that at most twice the maximum size is kept on disk.
+ *
+ * The trace id of a document is derived from its document version id.
+ */
+public class DocumentTracer {
+
+	private static final Logger log = LoggerFactory.getLogger(DocumentTracer.class);
+
+	private static final String SERVICE_NAME = "puma-corpus-creator";
+	private static final String SCOPE_NAME = "eu.ill.puma.taskmanager";
+
+	private final TraceSpan[] spans;
+	private int nextIndex = 0;
+	private long numberOfRecordedSpans = 0;
+
+	private final Path exportPath;
+	private final long exportMaxSize;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private List<List<TraceSpan>> pendingExports = new ArrayList<>();
+	private int numberOfPendingSpans = 0;
+	private long numberOfDroppedSpans = 0;
+	private boolean closed = false;
+	private Thread writerThread;
+
+	// Only used by the writer thread once opened
+	private Writer exportWriter;
+	private long exportSize;
+
+	/**
+	 * Creates the tracer
+	 * @param capacity The maximum number of spans kept in memory
+	 * @param exportPath The file to which the spans are appended in the OTLP JSON format (null to not export)
+	 * @param exportMaxSize The size in bytes from which the export file is rotated (0 for no limit)
+	 */
+	public DocumentTracer(int capacity, Path exportPath, long exportMaxSize) {
+		this.spans = new TraceSpan[capacity];
+		this.exportPath = exportPath;
+		this.exportMaxSize = exportMaxSize;
+	}
+
+	/**
+	 * Opens the export file
+	 * @throws IOException if the export file cannot be opened
+	 */
+	public synchronized void open() throws IOException {
+		if (this.exportPath != null) {
+			Path parent = this.exportPath.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+
+			this.openExportWriter();
+
+			this.writerThread = new Thread(this::exportSpans, "DocumentTracerWriter");
+			this.writerThread.setDaemon(true);
+			this.writerThread.start();
+		}
+	}
+
+	private void openExportWriter() throws IOException {
+		this.exportWriter = Files.newBufferedWriter(this.exportPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		this.exportSize = Files.size(this.exportPath);
+	}
+
+	/**
+	 * Closes the export file once the spans queued until now have been written
+	 */
+	public void close() {
+		Thread writerThread;
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			this.notifyAll();
+
+			writerThread = this.writerThread;
+		}
+
+		if (writerThread != null) {
+			try {
+				writerThread.join();
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		this.closeExportWriter();
+	}
+
+	private void closeExportWriter() {
+		if (this.exportWriter != null) {
+			try {
+				this.exportWriter.close();
+
+			} catch (IOException e) {
+				log.error("Failed to close trace export file " + this.exportPath + " : " + e.getMessage());
+			}
+			this.exportWriter = null;
+		}
+	}
+
+	/**
+	 * Returns the trace id of a document version (a 16 byte hexadecimal id as used by OpenTelemetry)
+	 * @param documentVersionId The document version id
+	 * @return The trace id
+	 */
+	public static String getTraceId(Long documentVersionId) {
+		return String.format("%032x", documentVersionId);
+	}
+
+	private static String createSpanId() {
+		long spanId;
+		do {
+			spanId = ThreadLocalRandom.current().nextLong();
+		} while (spanId == 0);
+
+		return String.format("%016x", spanId);
+	}
+
+	/**
+	 * Records a span for each document version traced by a terminated task
+	 * @param task The terminated task
+	 * @param queuedTime The time at which the task was queued for the run that has terminated
+	 */
+	public void onTaskTerminated(Task task, long queuedTime) {
+		List<Long> documentVersionIds = task.getTraceContext().getDocumentVersionIds();
+		if (documentVersionIds.isEmpty()) {
+			return;
+		}
+
+		long endTime = System.currentTimeMillis();
+
+		// The start date is that of a previous run if the task has not been started since it was queued
+		long startTime = endTime;
+		long runMillis = 0;
+		if (task.getStartDate() != null && task.getStartDate().getTime() >= queuedTime) {
+			startTime = task.getStartDate().getTime();
+			runMillis = task.getDurationInMillis();
+			endTime = startTime + runMillis;
+		}
+
+		TaskState state = task.getState();
+		String error = null;
+		if (state != TaskState.COMPLETED && task.getCaughtException() != null) {
+			error = task.getCaughtException().getMessage();
+		}
+
+		// Anonymous tasks are named by their class name
+		String name = task.getClass().getSimpleName().isEmpty() ? task.getClass().getName() : task.getClass().getSimpleName();
+
+		List<TraceSpan> taskSpans = new ArrayList<>();
+		for (Long documentVersionId : documentVersionIds) {
+			TraceSpan span = new TraceSpan();
+			span.setTraceId(getTraceId(documentVersionId));
+			span.setSpanId(createSpanId());
+			span.setDocumentVersionId(documentVersionId);
+			span.setName(name);
+			span.setLane(task.getLane().name());
+			span.setStatus(state.name());
+			span.setError(error);
+			span.setQueuedTime(queuedTime);
+			span.setStartTime(startTime);
+			span.setEndTime(endTime);
+			span.setQueueMillis(startTime - queuedTime);
+			span.setRunMillis(runMillis);
+
+			taskSpans.add(span);
+		}
+
+		this.record(taskSpans);
+	}
+
+	private synchronized void record(List<TraceSpan> taskSpans) {
+		for (TraceSpan span : taskSpans) {
+			this.spans[this.nextIndex] = span;
+			this.nextIndex = (this.nextIndex + 1) % this.spans.length;
+			this.numberOfRecordedSpans++;
+		}
+
+		if (this.writerThread == null || this.closed) {
+			return;
+		}
+
+		// Drop the spans rather than let the queue grow if the writer falls behind
+		if (this.numberOfPendingSpans > 0 && this.numberOfPendingSpans + taskSpans.size() > this.spans.length) {
+			if (this.numberOfDroppedSpans == 0) {
+				log.warn("Trace export to " + this.exportPath + " is falling behind : spans are dropped");
+			}
+			this.numberOfDroppedSpans += taskSpans.size();
+			return;
+		}
+
+		this.pendingExports.add(taskSpans);
+		this.numberOfPendingSpans += taskSpans.size();
+
+		if (this.pendingExports.size() == 1) {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Writes the queued spans until the tracer is closed, flushing them once per batch
+	 */
+	private void exportSpans() {
+		while (true) {
+			List<List<TraceSpan>> exports;
+			synchronized (this) {
+				while (this.pendingExports.isEmpty() && !this.closed) {
+					try {
+						this.wait();
+
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+
+				// Spans queued before the tracer was closed are written
+				if (this.pendingExports.isEmpty()) {
+					return;
+				}
+
+				exports = this.pendingExports;
+				this.pendingExports = new ArrayList<>();
+				this.numberOfPendingSpans = 0;
+			}
+
+			this.write(exports);
+		}
+	}
+
+	private void write(List<List<TraceSpan>> exports) {
+		if (this.exportWriter == null) {
+			return;
+		}
+
+		try {
+			for (List<TraceSpan> taskSpans : exports) {
+				String line = this.objectMapper.writeValueAsString(this.toOtlp(taskSpans)) + '\n';
+				this.exportWriter.write(line);
+				this.exportSize += line.getBytes(StandardCharsets.UTF_8).length;
+			}
+			this.exportWriter.flush();
+
+			if (this.exportMaxSize > 0 && this.exportSize >= this.exportMaxSize) {
+				this.rotate();
+			}
+
+		} catch (IOException e) {
+			log.error("Failed to export spans to " + this.exportPath + " : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Renames the export file with a ".1" suffix, replacing the previous one, and starts a new export file
+	 */
+	private void rotate() throws IOException {
+		this.closeExportWriter();
+
+		Path rotatedPath = this.exportPath.resolveSibling(this.exportPath.getFileName() + ".1");
+		Files.move(this.exportPath, rotatedPath, StandardCopyOption.REPLACE_EXISTING);
+
+		this.openExportWriter();
+	}
+
+	private Map<String, Object> toOtlp(List<TraceSpan> taskSpans) {
+		List<Map<String, Object>> otlpSpans = new ArrayList<>();
+		for (TraceSpan span : taskSpans) {
+			Map<String, Object> otlpSpan = new LinkedHashMap<>();
+			otlpSpan.put("traceId", span.getTraceId());
+			otlpSpan.put("spanId", span.getSpanId());
+			otlpSpan.put("name", span.getName());
+			otlpSpan.put("kind", 1);
+			otlpSpan.put("startTimeUnixNano", String.valueOf(span.getQueuedTime() * 1000000L));
+			otlpSpan.put("endTimeUnixNano", String.valueOf(span.getEndTime() * 1000000L));
+			otlpSpan.put("attributes", Arrays.asList(
+					attribute("puma.document_version.id", "intValue", String.valueOf(span.getDocumentVersionId())),
+					attribute("puma.task.lane", "stringValue", span.getLane()),
+					attribute("puma.task.status", "stringValue", span.getStatus()),
+					attribute("puma.task.queue_ms", "intValue", String.valueOf(span.getQueueMillis())),
+					attribute("puma.task.run_ms", "intValue", String.valueOf(span.getRunMillis()))));
+
+			Map<String, Object> status = new LinkedHashMap<>();
+			if (span.getStatus().equals(TaskState.COMPLETED.name())) {
+				status.put("code", 1);
+
+			} else {
+				status.put("code", 2);
+				status.put("message", span.getError() != null ? span.getError() : span.getStatus());
+			}
+			otlpSpan.put("status", status);
+
+			otlpSpans.add(otlpSpan);
+		}
+
+		Map<String, Object> scopeSpans = new LinkedHashMap<>();
+		scopeSpans.put("scope", Collections.singletonMap("name", SCOPE_NAME));
+		scopeSpans.put("spans", otlpSpans);
+
+		Map<String, Object> resourceSpans = new LinkedHashMap<>();
+		resourceSpans.put("resource", Collections.singletonMap("attributes", Collections.singletonList(attribute("service.name", "stringValue", SERVICE_NAME))));
+		resourceSpans.put("scopeSpans", Collections.singletonList(scopeSpans));
+
+		return Collections.singletonMap("resourceSpans", Collections.singletonList(resourceSpans));
+	}
+
+	private static Map<String, Object> attribute(String key, String type, String value) {
+		Map<String, Object> attribute = new LinkedHashMap<>();
+		attribute.put("key", key);
+		attribute.put("value", Collections.singletonMap(type, value));
+
+		return attribute;
+	}
+
+	/**
+	 * Returns the spans recorded for a document version that are still in the buffer, oldest first
+	 * @param documentVersionId The document version id
+	 * @return The spans of the document version
+	 */
+	public synchronized List<TraceSpan> getSpans(Long documentVersionId) {
+		List<TraceSpan> documentSpans = new ArrayList<>();
+		for (TraceSpan span : this.getLatestSpans(this.spans.length)) {
+			if (span.getDocumentVersionId().equals(documentVersionId)) {
+				documentSpans.add(span);
+			}
+		}
+
+		return documentSpans;
+	}
+
+	/**
+	 * Returns the most recent spans, oldest first
+	 * @param limit The maximum number of spans
+	 * @return The spans
+	 */
+	public synchronized List<TraceSpan> getLatestSpans(int limit) {
+		int numberOfSpans = (int)Math.min(Math.min(this.numberOfRecordedSpans, this.spans.length), Math.max(limit, 0));
+
+		List<TraceSpan> latestSpans = new ArrayList<>(numberOfSpans);
+		for (int i = numberOfSpans; i > 0; i--) {
+			latestSpans.add(this.spans[Math.floorMod(this.nextIndex - i, this.spans.length)]);
+		}
+
+		return latestSpans;
+	}
+
+	/**
+	 * Returns the number of spans recorded since the tracer was created (including those overwritten in the buffer)
+	 * @return The number of spans
+	 */
+	public synchronized long getNumberOfRecordedSpans() {
+		return numberOfRecordedSpans;
+	}
+
+	/**
+	 * Returns the number of spans that have not been exported because the writer had fallen behind
+	 * @return The number of dropped spans
+	 */
+	public synchronized long getNumberOfDroppedSpans() {
+		return numberOfDroppedSpans;
+	}
+
+	/**
+	 * Returns the maximum number of spans kept in memory
+	 * @return The capacity of the buffer
+	 */
+	public int getCapacity() {
+		return this.spans.length;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.trace;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trace context of a task : the document versions for which the task works. A span is recorded in the trace of each
+ * of these document versions when the task terminates, the trace of a document being identified by the document
+ * version id so that the stages of a document are linked whichever component submits the next task.
+ *
+ * Tasks add the document versions when they are created (eg from the file they download) or, for tasks that create
+ * the documents, in their completion handler.
+ */
+public class TraceContext {
+
+	private final Set<Long> documentVersionIds = new LinkedHashSet<>();
+
+	/**
+	 * Adds a document version traced by the task
+	 * @param documentVersionId The document version id (ignored if null)
+	 */
+	public synchronized void addDocumentVersion(Long documentVersionId) {
+		if (documentVersionId != null) {
+			this.documentVersionIds.add(documentVersionId);
+		}
+	}
+
+	/**
+	 * Adds document versions traced by the task
+	 * @param documentVersionIds The document version ids
+	 */
+	public synchronized void addDocumentVersions(Collection<Long> documentVersionIds) {
+		for (Long documentVersionId : documentVersionIds) {
+			this.addDocumentVersion(documentVersionId);
+		}
+	}
+
+	/**
+	 * Returns the document versions traced by the task
+	 * @return The document version ids
+	 */
+	public synchronized List<Long> getDocumentVersionIds() {
+		return new ArrayList<>(this.documentVersionIds);
+	}
+
+	/**
+	 * Returns true if the task traces no document version
+	 * @return true if no span is recorded for the task
+	 */
+	public synchronized boolean isEmpty() {
+		return this.documentVersionIds.isEmpty();
+	}
+}
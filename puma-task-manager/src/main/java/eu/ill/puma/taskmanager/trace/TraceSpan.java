@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.trace;
+
+/**
+ * A stage of the lifecycle of a document : the execution of a task for a document version, from the time the task
+ * was queued until it terminated
+ */
+public class TraceSpan {
+
+	private String traceId;
+	private String spanId;
+	private Long documentVersionId;
+	private String name;
+	private String lane;
+	private String status;
+	private String error;
+	private long queuedTime;
+	private long startTime;
+	private long endTime;
+	private long queueMillis;
+	private long runMillis;
+
+	public String getTraceId() {
+		return traceId;
+	}
+
+	public void setTraceId(String traceId) {
+		this.traceId = traceId;
+	}
+
+	public String getSpanId() {
+		return spanId;
+	}
+
+	public void setSpanId(String spanId) {
+		this.spanId = spanId;
+	}
+
+	public Long getDocumentVersionId() {
+		return documentVersionId;
+	}
+
+	public void setDocumentVersionId(Long documentVersionId) {
+		this.documentVersionId = documentVersionId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getLane() {
+		return lane;
+	}
+
+	public void setLane(String lane) {
+		this.lane = lane;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public long getQueuedTime() {
+		return queuedTime;
+	}
+
+	public void setQueuedTime(long queuedTime) {
+		this.queuedTime = queuedTime;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+	public long getEndTime() {
+		return endTime;
+	}
+
+	public void setEndTime(long endTime) {
+		this.endTime = endTime;
+	}
+
+	public long getQueueMillis() {
+		return queueMillis;
+	}
+
+	public void setQueueMillis(long queueMillis) {
+		this.queueMillis = queueMillis;
+	}
+
+	public long getRunMillis() {
+		return runMillis;
+	}
+
+	public void setRunMillis(long runMillis) {
+		this.runMillis = runMillis;
+	}
+}
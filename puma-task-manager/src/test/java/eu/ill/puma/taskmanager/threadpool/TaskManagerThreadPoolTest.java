@@ -15,10 +15,25 @@
  */
 package eu.ill.puma.taskmanager.threadpool;
 
+import eu.ill.puma.core.error.PumaError;
+import eu.ill.puma.taskmanager.AdaptiveConcurrencyPolicy;
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskBackoffPolicy;
+import eu.ill.puma.taskmanager.TaskCompletionHandler;
+import eu.ill.puma.taskmanager.TaskLane;
+import eu.ill.puma.taskmanager.TaskLaneStatistics;
 import eu.ill.puma.taskmanager.TaskManager;
 import eu.ill.puma.taskmanager.TaskPriority;
 import eu.ill.puma.taskmanager.TaskState;
+import eu.ill.puma.taskmanager.TaskTimeoutException;
+import eu.ill.puma.taskmanager.annotation.ConcurrentCompletionHandler;
+import eu.ill.puma.taskmanager.journal.TaskJournalEntry;
+import eu.ill.puma.taskmanager.metrics.TaskClassStatistics;
+import eu.ill.puma.taskmanager.pipeline.DocumentPipeline;
+import eu.ill.puma.taskmanager.pipeline.PipelineStage;
 import eu.ill.puma.taskmanager.threadpool.tasks.*;
+import eu.ill.puma.taskmanager.trace.DocumentTracer;
+import eu.ill.puma.taskmanager.trace.TraceSpan;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -32,8 +47,17 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
 import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @ActiveProfiles("test")
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -50,6 +74,9 @@ public class TaskManagerThreadPoolTest {
 	@Autowired
 	private TaskManager taskManager;
 
+	@Autowired
+	private DocumentPipeline documentPipeline;
+
 	private void runMultiTasks(List<Long> results) throws Exception {
 		long index1 = 5;
 		long index2 = 2;
@@ -224,6 +251,542 @@ public class TaskManagerThreadPoolTest {
 	}
 
 
+	@Test
+	public void testCancelPendingTask() throws Exception {
+		this.taskManager.reset(1);
+		List<Long> results = new ArrayList<>();
+
+		SleepingTestTask runningTask = new SleepingTestTask(1);
+		SleepingWithCallbackTask pendingTask = new SleepingWithCallbackTask(1, (long data) -> {
+			results.add(data);
+		});
+
+		this.taskManager.executeTask(runningTask);
+		Thread.sleep(200);
+
+		this.taskManager.executeTask(pendingTask);
+		Assert.assertEquals(1, this.taskManager.getNumberOfPendingTasks());
+
+		// Cancel the queued task while the single thread is busy
+		this.taskManager.cancelTask(pendingTask);
+		Assert.assertEquals(0, this.taskManager.getNumberOfPendingTasks());
+
+		runningTask.get();
+
+		// Small sleep to let the thread dequeue the cancelled task
+		Thread.sleep(500);
+
+		Assert.assertTrue(results.isEmpty());
+		Assert.assertEquals(TaskState.CANCELLED, pendingTask.getState());
+		Assert.assertEquals(0, this.taskManager.getActiveNumberOfThreads());
+	}
+
+	@Test
+	public void testTaskLanes() throws Exception {
+		this.taskManager.reset(1);
+		Assert.assertEquals(1, this.taskManager.getPoolSize(TaskLane.INDEX));
+
+		SleepingTestTask defaultLaneTask = new SleepingTestTask(3);
+		IndexLaneSleepingTestTask indexTask1 = new IndexLaneSleepingTestTask(1);
+		IndexLaneSleepingTestTask indexTask2 = new IndexLaneSleepingTestTask(1);
+		IndexLaneSleepingTestTask indexTask3 = new IndexLaneSleepingTestTask(1);
+		IndexLaneSleepingTestTask indexTask4 = new IndexLaneSleepingTestTask(1);
+
+		// The DEFAULT lane is busy : index tasks run on their own lane (1 thread, queue capacity of 2)
+		this.taskManager.executeTask(defaultLaneTask);
+		this.taskManager.executeTask(indexTask1);
+		this.taskManager.executeTask(indexTask2);
+		this.taskManager.executeTask(indexTask3);
+		this.taskManager.executeTask(indexTask4);
+
+		// Last task is rejected as the queue is full
+		Exception rejectedException = null;
+		try {
+			indexTask4.get();
+		} catch (Exception e) {
+			rejectedException = e;
+		}
+		Assert.assertNotNull(rejectedException);
+		Assert.assertEquals(TaskState.FAILED, indexTask4.getState());
+
+		Assert.assertEquals(1, indexTask1.get().longValue());
+		Assert.assertEquals(TaskState.RUNNING, defaultLaneTask.getState());
+
+		TaskLaneStatistics indexLaneStatistics = this.taskManager.getLaneStatistics().stream().filter(statistics -> statistics.getLane() == TaskLane.INDEX).findFirst().get();
+		Assert.assertEquals(2, indexLaneStatistics.getQueueCapacity());
+		Assert.assertEquals(1, indexLaneStatistics.getNumberOfRejectedTasks());
+
+		indexTask2.get();
+		indexTask3.get();
+		defaultLaneTask.get();
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+		this.taskManager.reset(1);
+		Assert.assertEquals(3, this.taskManager.getRemainingCapacity(TaskLane.INDEX));
+
+		IndexLaneSleepingTestTask indexTask1 = new IndexLaneSleepingTestTask(1);
+		IndexLaneSleepingTestTask indexTask2 = new IndexLaneSleepingTestTask(1);
+		IndexLaneSleepingTestTask indexTask3 = new IndexLaneSleepingTestTask(1);
+		IndexLaneSleepingTestTask indexTask4 = new IndexLaneSleepingTestTask(1);
+
+		// The index lane accepts 1 running and 2 queued tasks
+		Assert.assertTrue(this.taskManager.tryExecuteTask(indexTask1, null));
+		Assert.assertTrue(this.taskManager.tryExecuteTask(indexTask2, null));
+		Assert.assertTrue(this.taskManager.tryExecuteTask(indexTask3, null));
+		Assert.assertEquals(0, this.taskManager.getRemainingCapacity(TaskLane.INDEX));
+
+		// The producer keeps the task when the lane is full : it is neither run nor failed
+		Assert.assertFalse(this.taskManager.tryExecuteTask(indexTask4, null));
+		Assert.assertEquals(TaskState.CREATED, indexTask4.getState());
+
+		// Notified when the first task has been run
+		CountDownLatch capacityLatch = new CountDownLatch(1);
+		this.taskManager.whenCapacityAvailable(TaskLane.INDEX, capacityLatch::countDown);
+		Assert.assertTrue(capacityLatch.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(TaskState.COMPLETED, indexTask1.getState());
+
+		// Waiting producer is accepted once capacity frees
+		Assert.assertTrue(this.taskManager.tryExecuteTask(indexTask4, null, 5, TimeUnit.SECONDS));
+
+		Assert.assertEquals(1, indexTask4.get().longValue());
+
+		// Permits are given back just after the tasks have completed
+		CountDownLatch emptyLaneLatch = new CountDownLatch(1);
+		this.taskManager.whenCapacityAvailable(TaskLane.INDEX, emptyLaneLatch::countDown);
+		Assert.assertTrue(emptyLaneLatch.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		Assert.assertEquals(3, this.taskManager.getRemainingCapacity(TaskLane.INDEX));
+
+		// Unbounded lanes are never full
+		Assert.assertEquals(Integer.MAX_VALUE, this.taskManager.getRemainingCapacity(TaskLane.DEFAULT));
+	}
+
+	@Test
+	public void testCompletionHandlers() throws Exception {
+		this.taskManager.reset(4);
+
+		SlowCompletionHandler serialHandler = new SlowCompletionHandler();
+		ConcurrentSlowCompletionHandler concurrentHandler = new ConcurrentSlowCompletionHandler();
+
+		// The concurrent handler is notified in parallel
+		for (int i = 0; i < 4; i++) {
+			this.taskManager.executeTask(new SleepingWithCallbackTask(i, (long data) -> {}), concurrentHandler);
+		}
+		Assert.assertTrue(concurrentHandler.completedLatch.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(concurrentHandler.maxConcurrentCalls.get() > 1);
+
+		List<SleepingWithCallbackTask> tasks = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			SleepingWithCallbackTask task = new SleepingWithCallbackTask(i, (long data) -> {});
+			tasks.add(task);
+			this.taskManager.executeTask(task, serialHandler);
+		}
+
+		// Worker threads are released before the handler has integrated the results
+		for (SleepingWithCallbackTask task : tasks) {
+			task.get();
+		}
+		Thread.sleep(100);
+		Assert.assertEquals(0, this.taskManager.getActiveNumberOfThreads());
+		Assert.assertTrue(this.taskManager.getNumberOfPendingCompletions() > 0);
+
+		// The serial handler is notified of one task at a time
+		Assert.assertTrue(serialHandler.completedLatch.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, serialHandler.maxConcurrentCalls.get());
+	}
+
+	@Test
+	public void testAdaptiveConcurrency() throws Exception {
+		this.taskManager.reset(1);
+		Assert.assertEquals(1, this.taskManager.getPoolSize(TaskLane.INDEX));
+
+		// Producer waiting for capacity on the index lane
+		List<IndexLaneSleepingTestTask> tasks = new ArrayList<>();
+		Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 12; i++) {
+					IndexLaneSleepingTestTask task = new IndexLaneSleepingTestTask(1);
+					synchronized (tasks) {
+						tasks.add(task);
+					}
+					this.taskManager.executeTaskBlocking(task, null);
+				}
+
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		});
+		producer.start();
+
+		this.taskManager.enableAdaptiveConcurrency(new AdaptiveConcurrencyPolicy(1, 4), 100);
+		Assert.assertTrue(this.taskManager.isAdaptiveConcurrency());
+
+		// The lane grows while tasks are waiting
+		long startTime = System.currentTimeMillis();
+		while (this.taskManager.getPoolSize(TaskLane.INDEX) < 4 && System.currentTimeMillis() - startTime < 5000) {
+			Thread.sleep(50);
+		}
+		Assert.assertEquals(4, this.taskManager.getPoolSize(TaskLane.INDEX));
+
+		producer.join();
+		synchronized (tasks) {
+			for (IndexLaneSleepingTestTask task : tasks) {
+				Assert.assertEquals(1, task.get().longValue());
+			}
+		}
+
+		// And shrinks back when idle (the permit of the last task is given back just after its result is available)
+		startTime = System.currentTimeMillis();
+		while ((this.taskManager.getPoolSize(TaskLane.INDEX) > 1 || this.taskManager.getRemainingCapacity(TaskLane.INDEX) < 3) && System.currentTimeMillis() - startTime < 5000) {
+			Thread.sleep(50);
+		}
+		Assert.assertEquals(1, this.taskManager.getPoolSize(TaskLane.INDEX));
+		Assert.assertEquals(3, this.taskManager.getRemainingCapacity(TaskLane.INDEX));
+
+		this.taskManager.disableAdaptiveConcurrency();
+		Assert.assertFalse(this.taskManager.isAdaptiveConcurrency());
+
+		// Manual resizing
+		this.taskManager.setPoolSize(TaskLane.INDEX, 2);
+		Assert.assertEquals(2, this.taskManager.getPoolSize(TaskLane.INDEX));
+		Assert.assertEquals(4, this.taskManager.getRemainingCapacity(TaskLane.INDEX));
+	}
+
+	@Test
+	public void testTaskCoalescing() throws Exception {
+		this.taskManager.reset(1);
+		this.taskManager.resetTaskStatistics();
+
+		AtomicInteger numberOfExecutions = new AtomicInteger();
+		SleepingTestTask runningTask = new SleepingTestTask(1);
+		CoalescingTestTask pendingTask = new CoalescingTestTask(0, "test-key", numberOfExecutions);
+		CoalescingTestTask duplicateTask1 = new CoalescingTestTask(0, "test-key", numberOfExecutions);
+		CoalescingTestTask duplicateTask2 = new CoalescingTestTask(0, "test-key", numberOfExecutions);
+		CoalescingTestTask otherTask = new CoalescingTestTask(0, "other-key", numberOfExecutions);
+
+		// Tasks with the same key are merged while the first one is pending
+		this.taskManager.executeTask(runningTask);
+		Thread.sleep(200);
+		this.taskManager.executeTask(pendingTask);
+		this.taskManager.executeTask(duplicateTask1);
+		Assert.assertTrue(this.taskManager.tryExecuteTask(duplicateTask2, null));
+		this.taskManager.executeTask(otherTask);
+		Assert.assertEquals(2, this.taskManager.getNumberOfPendingTasks());
+
+		// Merged tasks terminate with the outcome of the pending task
+		Assert.assertEquals(0, duplicateTask1.get().longValue());
+		Assert.assertEquals(0, duplicateTask2.get().longValue());
+		Assert.assertEquals(TaskState.COMPLETED, duplicateTask2.getState());
+		otherTask.get();
+		Assert.assertEquals(2, numberOfExecutions.get());
+
+		TaskClassStatistics statistics = this.taskManager.getTaskStatistics().stream().filter(taskStatistics -> taskStatistics.getTaskClass().equals(CoalescingTestTask.class.getSimpleName())).findFirst().get();
+		Assert.assertEquals(2, statistics.getNumberOfCoalescedTasks());
+
+		// Once the task has run the key is free again
+		CoalescingTestTask laterTask = new CoalescingTestTask(0, "test-key", numberOfExecutions);
+		this.taskManager.executeTask(laterTask);
+		laterTask.get();
+		Assert.assertEquals(3, numberOfExecutions.get());
+	}
+
+	@Test
+	public void testTaskTimeout() throws Exception {
+		this.taskManager.reset(1);
+		this.taskManager.resetTaskStatistics();
+
+		CountDownLatch timeoutLatch = new CountDownLatch(1);
+		SleepingTestTask timedOutTask = new SleepingTestTask(3);
+		timedOutTask.setTimeoutMillis(500);
+
+		long startTime = System.currentTimeMillis();
+		this.taskManager.executeTask(timedOutTask, new TaskCompletionHandler() {
+			@Override
+			public void onTaskCompleted(Task task) {
+			}
+
+			@Override
+			public void onTaskError(Task task, PumaError error) {
+			}
+
+			@Override
+			public void onTaskTimeout(Task task, PumaError error) {
+				timeoutLatch.countDown();
+			}
+		});
+
+		// The task is interrupted once its deadline has expired
+		Exception caughtException = null;
+		try {
+			timedOutTask.get();
+
+		} catch (Exception e) {
+			caughtException = e;
+		}
+		Assert.assertTrue(caughtException instanceof TaskTimeoutException);
+		Assert.assertEquals(TaskState.FAILED, timedOutTask.getState());
+		Assert.assertTrue(timedOutTask.getCancellationToken().isTimedOut());
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 2000);
+		Assert.assertTrue(timeoutLatch.await(5, TimeUnit.SECONDS));
+
+		TaskClassStatistics statistics = this.taskManager.getTaskStatistics().stream().filter(taskStatistics -> taskStatistics.getTaskClass().equals(SleepingTestTask.class.getSimpleName())).findFirst().get();
+		Assert.assertEquals(1, statistics.getNumberOfTimedOutTasks());
+
+		// The worker thread is not left interrupted for the next task
+		SleepingTestTask nextTask = new SleepingTestTask(1);
+		this.taskManager.executeTask(nextTask);
+		Assert.assertEquals(1, nextTask.get().longValue());
+
+		// Cancelling a running task signals its cancellation token without waiting for the task to return
+		SleepingTestTask cancelledTask = new SleepingTestTask(3);
+		AtomicBoolean cancellationCallbackRun = new AtomicBoolean();
+		cancelledTask.getCancellationToken().onCancellationRequested(() -> cancellationCallbackRun.set(true));
+		this.taskManager.executeTask(cancelledTask);
+		Thread.sleep(200);
+		long cancelStartTime = System.currentTimeMillis();
+		this.taskManager.cancelTask(cancelledTask);
+		Assert.assertTrue(System.currentTimeMillis() - cancelStartTime < 1000);
+		Assert.assertTrue(cancellationCallbackRun.get());
+		Assert.assertTrue(cancelledTask.getCancellationToken().isCancellationRequested());
+		Assert.assertFalse(cancelledTask.getCancellationToken().isTimedOut());
+	}
+
+	@Test
+	public void testDocumentPipeline() throws Exception {
+		this.taskManager.reset(1);
+
+		List<Long> analysedIds = new CopyOnWriteArrayList<>();
+		List<Long> indexedIds = new CopyOnWriteArrayList<>();
+		CountDownLatch indexedLatch = new CountDownLatch(4);
+
+		// Each stage starts the next one as soon as documents complete it
+		this.documentPipeline.addStageHandler(PipelineStage.FILES_SAVED, documentVersionIds -> {
+			analysedIds.addAll(documentVersionIds);
+			this.documentPipeline.onStageCompleted(PipelineStage.ANALYSED, documentVersionIds);
+		});
+		this.documentPipeline.addStageHandler(PipelineStage.ANALYSED, documentVersionIds -> {
+			indexedIds.addAll(documentVersionIds);
+			documentVersionIds.forEach(id -> indexedLatch.countDown());
+		});
+
+		// Hold the CONTROL lane so that completions accumulate
+		SleepingTestTask runningTask = new SleepingTestTask(1);
+		this.taskManager.executeTask(runningTask);
+		Thread.sleep(200);
+
+		this.documentPipeline.onStageCompleted(PipelineStage.FILES_SAVED, 1L);
+		this.documentPipeline.onStageCompleted(PipelineStage.FILES_SAVED, Arrays.asList(2L, 3L));
+		this.documentPipeline.onStageCompleted(PipelineStage.FILES_SAVED, Arrays.asList(3L, 4L));
+
+		// Completions of a stage are dispatched in a single batch without duplicates
+		Assert.assertEquals(1, this.taskManager.getNumberOfPendingTasks());
+		Assert.assertEquals(4, this.documentPipeline.getNumberOfPendingDocuments(PipelineStage.FILES_SAVED));
+
+		Assert.assertTrue(indexedLatch.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L), analysedIds);
+		Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L), indexedIds);
+		Assert.assertEquals(4, this.documentPipeline.getNumberOfDispatchedDocuments(PipelineStage.ANALYSED));
+	}
+
+	@Test
+	public void testWorkStealingLane() throws Exception {
+		this.taskManager.reset(1);
+
+		// The COMPUTE lane runs on a work-stealing pool of 2 threads
+		TaskLaneStatistics computeLaneStatistics = this.taskManager.getLaneStatistics().stream().filter(statistics -> statistics.getLane() == TaskLane.COMPUTE).findFirst().get();
+		Assert.assertTrue(computeLaneStatistics.isWorkStealing());
+		Assert.assertEquals(2, this.taskManager.getPoolSize(TaskLane.COMPUTE));
+
+		// Sub-tasks forked by the running task are shared between the workers
+		ComputeTestTask computeTask = new ComputeTestTask(8, 200);
+		long startTime = System.currentTimeMillis();
+		this.taskManager.executeTask(computeTask);
+		List<String> threadNames = computeTask.get();
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 1400);
+		Assert.assertEquals(8, threadNames.size());
+		Assert.assertTrue(threadNames.stream().allMatch(threadName -> threadName.startsWith("TaskComputeThread-")));
+		Assert.assertTrue(threadNames.stream().distinct().count() > 1);
+
+		// Outside the pool the sub-tasks are run by the calling thread
+		List<String> callerThreadNames = new ComputeTestTask(2, 0).execute();
+		Assert.assertEquals(Arrays.asList(Thread.currentThread().getName(), Thread.currentThread().getName()), callerThreadNames);
+	}
+
+	@Test
+	public void testVirtualThreadLane() throws Exception {
+		this.taskManager.reset(1);
+
+		// The DOWNLOAD lane runs on virtual threads with up to 16 concurrent tasks
+		TaskLaneStatistics downloadLaneStatistics = this.taskManager.getLaneStatistics().stream().filter(statistics -> statistics.getLane() == TaskLane.DOWNLOAD).findFirst().get();
+		Assert.assertTrue(downloadLaneStatistics.isVirtualThreads());
+		Assert.assertEquals(16, this.taskManager.getPoolSize(TaskLane.DOWNLOAD));
+
+		List<DownloadLaneSleepingTestTask> tasks = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			DownloadLaneSleepingTestTask task = new DownloadLaneSleepingTestTask(1);
+			tasks.add(task);
+			this.taskManager.executeTask(task);
+		}
+
+		// All tasks sleep concurrently
+		long startTime = System.currentTimeMillis();
+		for (DownloadLaneSleepingTestTask task : tasks) {
+			Assert.assertEquals(1, task.get().longValue());
+		}
+		Assert.assertTrue(System.currentTimeMillis() - startTime < 4000);
+	}
+
+	@Test
+	public void testDelayedTask() throws Exception {
+		this.taskManager.reset(1);
+		List<Long> results = new ArrayList<>();
+
+		SleepingWithCallbackTask delayedTask = new SleepingWithCallbackTask(1, (long data) -> {
+			results.add(data);
+		});
+		SleepingWithCallbackTask cancelledTask = new SleepingWithCallbackTask(2, (long data) -> {
+			results.add(data);
+		});
+
+		long startTime = System.currentTimeMillis();
+		this.taskManager.executeTaskAfter(delayedTask, 1000, null);
+		this.taskManager.executeTaskAfter(cancelledTask, 1000, null);
+		Assert.assertEquals(2, this.taskManager.getNumberOfDelayedTasks());
+		Assert.assertEquals(0, this.taskManager.getNumberOfPendingTasks());
+
+		// Cancel one of the delayed tasks
+		this.taskManager.cancelTask(cancelledTask);
+		Assert.assertEquals(1, this.taskManager.getNumberOfDelayedTasks());
+
+		delayedTask.get();
+		Assert.assertTrue(System.currentTimeMillis() - startTime >= 1000);
+
+		// Small sleep to let the cancelled task timer expire
+		Thread.sleep(500);
+
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(1l, results.get(0).longValue());
+		Assert.assertEquals(0, this.taskManager.getNumberOfDelayedTasks());
+	}
+
+	@Test
+	public void testDelayedTaskCheckedWhenDue() throws Exception {
+		this.taskManager.reset(1);
+		AtomicInteger numberOfChecks = new AtomicInteger();
+
+		// The task is delayed again when the first check is made
+		SleepingTestTask task = new SleepingTestTask(0);
+		long startTime = System.currentTimeMillis();
+		this.taskManager.executeTaskAfter(task, 200, () -> numberOfChecks.incrementAndGet() == 1 ? 300 : 0, null);
+
+		task.get();
+		Assert.assertTrue(System.currentTimeMillis() - startTime >= 500);
+		Assert.assertEquals(2, numberOfChecks.get());
+		Assert.assertEquals(0, this.taskManager.getNumberOfDelayedTasks());
+
+		// A task delayed again can still be cancelled
+		SleepingTestTask cancelledTask = new SleepingTestTask(0);
+		this.taskManager.executeTaskAfter(cancelledTask, 100, () -> 60000, null);
+		Thread.sleep(300);
+		Assert.assertEquals(1, this.taskManager.getNumberOfDelayedTasks());
+
+		this.taskManager.cancelTask(cancelledTask);
+		Assert.assertEquals(0, this.taskManager.getNumberOfDelayedTasks());
+	}
+
+	@Test
+	public void testBackoffPolicy() throws Exception {
+		TaskBackoffPolicy backoffPolicy = new TaskBackoffPolicy(100, 1000, 2.0, 0.5);
+
+		for (int retry = 1; retry < 10; retry++) {
+			long expectedMaxDelay = Math.min(1000, 100 * (1 << (retry - 1)));
+			long delay = backoffPolicy.getDelayMillis(retry);
+			Assert.assertTrue(delay <= expectedMaxDelay);
+			Assert.assertTrue(delay >= expectedMaxDelay / 2);
+		}
+	}
+
+	@Test
+	public void testTaskStatistics() throws Exception {
+		this.taskManager.reset(1);
+		this.taskManager.resetTaskStatistics();
+
+		SleepingTestTask task1 = new SleepingTestTask(1);
+		SleepingTestTask task2 = new SleepingTestTask(1);
+		FailingTestTask failingTask = new FailingTestTask();
+
+		this.taskManager.executeTask(task1);
+		this.taskManager.executeTask(task2);
+		this.taskManager.executeTask(failingTask);
+
+		task1.get();
+		task2.get();
+		try {
+			failingTask.get();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// Small sleep to ensure the failure is recorded
+		Thread.sleep(200);
+
+		List<TaskClassStatistics> statistics = this.taskManager.getTaskStatistics();
+		TaskClassStatistics sleepingStatistics = statistics.stream().filter(taskStatistics -> taskStatistics.getTaskClass().equals("SleepingTestTask")).findFirst().get();
+		TaskClassStatistics failingStatistics = statistics.stream().filter(taskStatistics -> taskStatistics.getTaskClass().equals("FailingTestTask")).findFirst().get();
+
+		Assert.assertEquals(2, sleepingStatistics.getNumberOfQueuedTasks());
+		Assert.assertEquals(2, sleepingStatistics.getNumberOfCompletedTasks());
+		Assert.assertEquals(2, sleepingStatistics.getExecution().getCount());
+		Assert.assertTrue(sleepingStatistics.getExecution().getMeanMillis() >= 1000.0);
+
+		// Second task waited for the first one on the single thread
+		Assert.assertTrue(sleepingStatistics.getQueueWait().getMaxMillis() >= 900.0);
+
+		// Failing task waited for both sleeping tasks
+		Assert.assertEquals(1, failingStatistics.getNumberOfFailedTasks());
+		Assert.assertTrue(failingStatistics.getQueueWait().getMaxMillis() >= 1900.0);
+		Assert.assertTrue(failingStatistics.getTotal().getP99Millis() <= failingStatistics.getTotal().getMaxMillis());
+	}
+
+	@Test
+	public void testPriorityAging() throws Exception {
+		// Test priority aging is 5ms : LOW task gains 1s over HIGH tasks queued after it
+		this.taskManager.reset(1);
+		List<Long> results = new ArrayList<>();
+
+		SleepingTestTask blockingTask = new SleepingTestTask(2);
+		SleepingWithCallbackTask lowPriorityTask = new SleepingWithCallbackTask(1, (long data) -> {
+			results.add(data);
+		});
+		lowPriorityTask.setPriority(TaskPriority.LOW);
+		SleepingWithCallbackTask earlyHighPriorityTask = new SleepingWithCallbackTask(2, (long data) -> {
+			results.add(data);
+		});
+		earlyHighPriorityTask.setPriority(TaskPriority.HIGH);
+		SleepingWithCallbackTask lateHighPriorityTask = new SleepingWithCallbackTask(3, (long data) -> {
+			results.add(data);
+		});
+		lateHighPriorityTask.setPriority(TaskPriority.HIGH);
+
+		this.taskManager.executeTask(blockingTask);
+		Thread.sleep(100);
+		this.taskManager.executeTask(lowPriorityTask);
+		Thread.sleep(100);
+		this.taskManager.executeTask(earlyHighPriorityTask);
+		Thread.sleep(1300);
+		this.taskManager.executeTask(lateHighPriorityTask);
+
+		lateHighPriorityTask.get();
+		lowPriorityTask.get();
+		earlyHighPriorityTask.get();
+
+		// HIGH task queued shortly after the LOW task runs first, the LOW task has aged enough to run before the late HIGH task
+		long[] expected = {2, 1, 3};
+		Assert.assertArrayEquals(expected, results.stream().mapToLong(l -> l).toArray());
+	}
+
 	@Test
 	public void verifyPriorities() throws Exception {
 		this.taskManager.reset(1);
@@ -259,6 +822,166 @@ public class TaskManagerThreadPoolTest {
 		Assert.assertEquals(99l, results.get(results.size() - 1).longValue());
 	}
 
+	@Test
+	public void testTaskJournal() throws Exception {
+		Path journalDirectory = Files.createTempDirectory("puma-task-journal");
+		Path journalPath = journalDirectory.resolve("tasks.journal");
+
+		try {
+			this.taskManager.enableTaskJournal(journalPath, 60000);
+			Assert.assertFalse(this.taskManager.isTaskJournalRecovered());
+
+			// A terminated task is removed from the journal
+			JournaledTestTask completedTask = new JournaledTestTask(0, "test:0");
+			this.taskManager.executeTask(completedTask);
+			completedTask.get();
+
+			// Delayed tasks remain outstanding
+			List<Task> delayedTasks = new ArrayList<>();
+			TaskPriority[] priorities = {TaskPriority.LOW, TaskPriority.HIGH, TaskPriority.DEFAULT};
+			for (int i = 0; i < priorities.length; i++) {
+				JournaledTestTask task = new JournaledTestTask(0, "test:" + (i + 1));
+				task.setPriority(priorities[i]);
+				this.taskManager.executeTaskAfter(task, 60000, null);
+				delayedTasks.add(task);
+			}
+
+			// Wait for the termination of the completed task to be recorded
+			Thread.sleep(200);
+			Assert.assertEquals(Arrays.asList("test:2", "test:3", "test:1"), this.taskManager.getJournaledTasks().stream().map(TaskJournalEntry::getKey).collect(Collectors.toList()));
+
+			// Restart over the journal : it is compacted to the outstanding tasks
+			this.taskManager.disableTaskJournal();
+			this.taskManager.enableTaskJournal(journalPath, 60000);
+			Assert.assertTrue(this.taskManager.isTaskJournalRecovered());
+			Assert.assertEquals(3, Files.readAllLines(journalPath).size());
+
+			// The outstanding tasks are recovered in priority order, once
+			List<TaskJournalEntry> recoveredTasks = this.taskManager.takeRecoveredTasks("test");
+			Assert.assertEquals(Arrays.asList("test:2", "test:3", "test:1"), recoveredTasks.stream().map(TaskJournalEntry::getKey).collect(Collectors.toList()));
+			Assert.assertEquals(Long.valueOf(2), recoveredTasks.get(0).getIdAsLong());
+			Assert.assertTrue(this.taskManager.takeRecoveredTasks("test").isEmpty());
+
+			for (Task task : delayedTasks) {
+				this.taskManager.cancelTask(task);
+			}
+
+		} finally {
+			this.taskManager.disableTaskJournal();
+			Files.deleteIfExists(journalPath);
+			Files.deleteIfExists(journalDirectory);
+		}
+	}
+
+	@Test
+	public void testDocumentTrace() throws Exception {
+		SleepingTestTask task = new SleepingTestTask(0);
+		task.getTraceContext().addDocumentVersions(Arrays.asList(1001L, 1002L));
+		this.taskManager.executeTask(task);
+		task.get();
+
+		// Wait for the termination of the task to be recorded
+		Thread.sleep(200);
+
+		// A span is recorded in the trace of each document version
+		List<TraceSpan> trace = this.taskManager.getDocumentTrace(1001L);
+		Assert.assertEquals(1, trace.size());
+		TraceSpan span = trace.get(0);
+		Assert.assertEquals("SleepingTestTask", span.getName());
+		Assert.assertEquals(TaskState.COMPLETED.name(), span.getStatus());
+		Assert.assertEquals(DocumentTracer.getTraceId(1001L), span.getTraceId());
+		Assert.assertTrue(span.getQueueMillis() >= 0);
+		Assert.assertEquals(span.getEndTime() - span.getStartTime(), span.getRunMillis());
+
+		Assert.assertEquals(1, this.taskManager.getDocumentTrace(1002L).size());
+		Assert.assertTrue(this.taskManager.getLatestTraceSpans(10).stream().anyMatch(latestSpan -> latestSpan.getDocumentVersionId().equals(1002L)));
+	}
+
+	@Test
+	public void testDocumentTraceQueueTimeOfDelayedTask() throws Exception {
+		SleepingTestTask task = new SleepingTestTask(0);
+		task.getTraceContext().addDocumentVersions(Arrays.asList(1003L));
+		this.taskManager.executeTaskAfter(task, 500, null);
+		task.get();
+
+		// Wait for the termination of the task to be recorded
+		Thread.sleep(200);
+
+		// The delay before the task is queued is not counted as queue time
+		List<TraceSpan> trace = this.taskManager.getDocumentTrace(1003L);
+		Assert.assertEquals(1, trace.size());
+		Assert.assertTrue(trace.get(0).getQueueMillis() < 400);
+	}
+
+	@Test
+	public void testDocumentTraceExportRotation() throws Exception {
+		Path exportDirectory = Files.createTempDirectory("puma-trace");
+		Path exportPath = exportDirectory.resolve("trace.json");
+		Path rotatedPath = exportDirectory.resolve("trace.json.1");
+
+		// Any export exceeds the maximum size : the file is rotated after each write
+		DocumentTracer documentTracer = new DocumentTracer(10, exportPath, 1);
+		try {
+			documentTracer.open();
+
+			for (long documentVersionId = 1004L; documentVersionId <= 1005L; documentVersionId++) {
+				SleepingTestTask task = new SleepingTestTask(0);
+				task.getTraceContext().addDocumentVersions(Arrays.asList(documentVersionId));
+				this.taskManager.executeTask(task);
+				task.get();
+
+				documentTracer.onTaskTerminated(task, System.currentTimeMillis());
+
+				// Wait for the spans to be written by the writer thread
+				Thread.sleep(200);
+			}
+
+			documentTracer.close();
+
+			// Only the latest rotated export is kept
+			Assert.assertEquals(0, Files.size(exportPath));
+			List<String> rotatedLines = Files.readAllLines(rotatedPath);
+			Assert.assertEquals(1, rotatedLines.size());
+			Assert.assertTrue(rotatedLines.get(0).contains(DocumentTracer.getTraceId(1005L)));
+
+		} finally {
+			documentTracer.close();
+			Files.deleteIfExists(exportPath);
+			Files.deleteIfExists(rotatedPath);
+			Files.deleteIfExists(exportDirectory);
+		}
+	}
+
+	private static class SlowCompletionHandler implements TaskCompletionHandler {
+
+		final CountDownLatch completedLatch = new CountDownLatch(4);
+		final AtomicInteger concurrentCalls = new AtomicInteger();
+		final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+
+		@Override
+		public void onTaskCompleted(Task task) {
+			int calls = this.concurrentCalls.incrementAndGet();
+			this.maxConcurrentCalls.accumulateAndGet(calls, Math::max);
+
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+
+			this.concurrentCalls.decrementAndGet();
+			this.completedLatch.countDown();
+		}
+
+		@Override
+		public void onTaskError(Task task, PumaError error) {
+		}
+	}
+
+	@ConcurrentCompletionHandler
+	private static class ConcurrentSlowCompletionHandler extends SlowCompletionHandler {
+	}
+
 	private class ShutdownRunnable implements Runnable {
 
 		private TaskManager taskManager;
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.threadpool.tasks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CoalescingTestTask extends SleepingTestTask {
+
+	private String coalescingKey;
+	private AtomicInteger numberOfExecutions;
+
+	public CoalescingTestTask(long index, String coalescingKey, AtomicInteger numberOfExecutions) {
+		super(index);
+		this.coalescingKey = coalescingKey;
+		this.numberOfExecutions = numberOfExecutions;
+	}
+
+	@Override
+	public Long execute() throws Exception {
+		this.numberOfExecutions.incrementAndGet();
+
+		return super.execute();
+	}
+
+	@Override
+	public String getCoalescingKey() {
+		return this.coalescingKey;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Institut Laue–Langevin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.ill.puma.taskmanager.threadpool.tasks;
+
+import eu.ill.puma.taskmanager.SubTasks;
+import eu.ill.puma.taskmanager.Task;
+import eu.ill.puma.taskmanager.TaskLane;
+import eu.ill.puma.taskmanager.annotation.ExecutionLane;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@ExecutionLane(TaskLane.COMPUTE)
+public class ComputeTestTask extends Task<List<String>> {
+
+	private int numberOfSubTasks;
+	private long subTaskTimeMillis;
+
+	public ComputeTestTask(int numberOfSubTasks, long subTaskTimeMillis) {
+		this.numberOfSubTasks = numberOfSubTasks;
+		this.subTaskTimeMillis = subTaskTimeMillis;
+	}
+
+	@Override
+	public List<String> execute() throws Exception {
+		List<Callable<String>> subTasks = new ArrayList<>();
+		for (int i = 0; i < this.numberOfSubTasks; i++) {
+			subTasks.add(() -> {
+				Thread.sleep(this.subTaskTimeMillis);
+
+				// Returns the name of the thread that has run the sub-task
+				return Thread.currentThread().getName();
+			});
+		}
+
+		return SubTasks.invokeAll(subTasks);
+	}
+}
@@ -111,6 +111,15 @@ public class RestImporterOperation {
 		this.importerOperation.setReimportAll(reimportAll);
 	}
 
+	@JsonGetter
+	public Boolean getReplaySpool() {
+		return this.importerOperation.getReplaySpool();
+	}
+
+	public void setReplaySpool(Boolean replaySpool) {
+		this.importerOperation.setReplaySpool(replaySpool);
+	}
+
 	@JsonGetter
 	public Long getLastImportedDocumentVersionId() {
 		return this.importerOperation.getLastImportedDocumentVersionId();
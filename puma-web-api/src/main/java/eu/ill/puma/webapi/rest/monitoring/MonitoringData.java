@@ -16,12 +16,18 @@
 package eu.ill.puma.webapi.rest.monitoring;
 
 import eu.ill.puma.indexer.manager.IndexationState;
+import eu.ill.puma.taskmanager.TaskLaneStatistics;
+
+import java.util.List;
 
 public class MonitoringData {
 
 	private long numberOfPendingTasks;
+	private long numberOfDelayedTasks;
+	private int numberOfPendingCompletions;
 	private long numberOfActiveThreads;
 	private long numberOfThreads;
+	private List<TaskLaneStatistics> taskLanes;
 
 	private long numberOfImportTasks;
 	private long numberOfDownloadTasks;
@@ -50,6 +56,22 @@ public class MonitoringData {
 		this.numberOfPendingTasks = numberOfPendingTasks;
 	}
 
+	public long getNumberOfDelayedTasks() {
+		return numberOfDelayedTasks;
+	}
+
+	public void setNumberOfDelayedTasks(long numberOfDelayedTasks) {
+		this.numberOfDelayedTasks = numberOfDelayedTasks;
+	}
+
+	public int getNumberOfPendingCompletions() {
+		return numberOfPendingCompletions;
+	}
+
+	public void setNumberOfPendingCompletions(int numberOfPendingCompletions) {
+		this.numberOfPendingCompletions = numberOfPendingCompletions;
+	}
+
 	public long getNumberOfActiveThreads() {
 		return numberOfActiveThreads;
 	}
@@ -178,4 +200,11 @@ public class MonitoringData {
 		this.numberOfPendingIndexation = numberOfPendingIndexation;
 	}
 
+	public List<TaskLaneStatistics> getTaskLanes() {
+		return taskLanes;
+	}
+
+	public void setTaskLanes(List<TaskLaneStatistics> taskLanes) {
+		this.taskLanes = taskLanes;
+	}
 }
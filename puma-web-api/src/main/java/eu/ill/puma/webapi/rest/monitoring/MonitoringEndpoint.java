@@ -19,6 +19,7 @@ import eu.ill.puma.analysis.factory.AnalyserFactory;
 import eu.ill.puma.analysis.manager.AnalyserManager;
 import eu.ill.puma.importermanager.ImporterManager;
 import eu.ill.puma.importermanager.downloader.PumaFileDownloader;
+import eu.ill.puma.importermanager.importer.ImporterClientPool;
 import eu.ill.puma.importermanager.resolver.PumaFileUrlResolver;
 import eu.ill.puma.indexer.manager.IndexerManager;
 import eu.ill.puma.scheduler.Scheduler;
@@ -27,7 +28,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 
@@ -47,6 +50,9 @@ public class MonitoringEndpoint {
 	@Autowired
 	private ImporterManager importerManager;
 
+	@Autowired
+	private ImporterClientPool importerClientPool;
+
 	@Autowired
 	private Scheduler scheduler;
 
@@ -66,8 +72,11 @@ public class MonitoringEndpoint {
 	public Response getOperations() {
 		MonitoringData monitoringData = new MonitoringData();
 		monitoringData.setNumberOfPendingTasks(this.taskManager.getNumberOfPendingTasks());
+		monitoringData.setNumberOfDelayedTasks(this.taskManager.getNumberOfDelayedTasks());
+		monitoringData.setNumberOfPendingCompletions(this.taskManager.getNumberOfPendingCompletions());
 		monitoringData.setNumberOfActiveThreads(this.taskManager.getActiveNumberOfThreads());
 		monitoringData.setNumberOfThreads(this.taskManager.getCurrentNumberOfThreads());
+		monitoringData.setTaskLanes(this.taskManager.getLaneStatistics());
 
 		monitoringData.setNumberOfImportTasks(this.importerManager.getNumberOfActiveOperations());
 		monitoringData.setNumberOfDownloadTasks(this.pumaFileDownloader.getNumberOfActiveDownloads());
@@ -87,4 +96,40 @@ public class MonitoringEndpoint {
 		return Response.ok(monitoringData).build();
 	}
 
+	@GET
+	@Path("/tasks")
+	@Produces({ "application/json" })
+	public Response getTaskStatistics() {
+		return Response.ok(this.taskManager.getTaskStatistics()).build();
+	}
+
+	@POST
+	@Path("/tasks/reset")
+	public Response resetTaskStatistics() {
+		this.taskManager.resetTaskStatistics();
+
+		return Response.ok().build();
+	}
+
+	@GET
+	@Path("/importers/connections")
+	@Produces({ "application/json" })
+	public Response getImporterConnectionStatistics() {
+		return Response.ok(this.importerClientPool.getConnectionStatistics()).build();
+	}
+
+	@GET
+	@Path("/traces/latest/{number}")
+	@Produces({ "application/json" })
+	public Response getLatestTraceSpans(@PathParam("number") Integer number) {
+		return Response.ok(this.taskManager.getLatestTraceSpans(number)).build();
+	}
+
+	@GET
+	@Path("/traces/{documentVersionId}")
+	@Produces({ "application/json" })
+	public Response getDocumentTrace(@PathParam("documentVersionId") Long documentVersionId) {
+		return Response.ok(this.taskManager.getDocumentTrace(documentVersionId)).build();
+	}
+
 }